@@ -15,9 +15,13 @@
  */
 package de.clusteval.cluster;
 
+import de.clusteval.cluster.quality.ClusterDissimilarities;
 import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureR;
+import de.clusteval.cluster.quality.ClusteringQualityMemo;
 import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
 import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.cluster.quality.ContingencyTable;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.format.InvalidDataSetFormatVersionException;
 import de.clusteval.data.dataset.format.UnknownDataSetFormatException;
@@ -27,9 +31,13 @@ import de.clusteval.framework.repository.Repository;
 import de.clusteval.framework.repository.RepositoryObject;
 import de.clusteval.program.ParameterSet;
 import de.wiwie.wiutils.utils.Pair;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.StringExt;
 import de.wiwie.wiutils.utils.parse.TextFileParser;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -49,9 +57,11 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
     protected float fuzzySize;
 
     /**
-     * The clusters contained in this clustering.
+     * The clusters contained in this clustering. If this clustering has a
+     * compact representation, they are created by {@link #materialize()} and
+     * published through this field only after all other objects are filled.
      */
-    protected Set<Cluster> clusters;
+    protected volatile Set<Cluster> clusters;
 
     /**
      * Used to get clusters in O(1) with their id.
@@ -76,6 +86,15 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     protected ClusteringQualitySet qualities;
 
+    /**
+     * If this clustering was parsed or created from arrays, its clusters and
+     * items are kept in this compact representation. The objects of
+     * {@link #clusters} and {@link #itemToCluster} are only created, once
+     * they are needed. Modifications of the clustering discard the compact
+     * representation.
+     */
+    protected volatile CompactClustering compact;
+
     /**
      * Instantiates a new clustering.
      *
@@ -95,6 +114,24 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
         this.register();
     }
 
+    /**
+     * Instantiates a new clustering holding the clusters of the compact
+     * representation.
+     *
+     * @param repository
+     * @param changeDate
+     * @param absPath
+     * @param compact
+     * @throws RegisterException
+     */
+    public Clustering(Repository repository, long changeDate, File absPath,
+            final CompactClustering compact) throws RegisterException {
+        super(repository, false, changeDate, absPath);
+        this.compact = compact;
+
+        this.register();
+    }
+
     /**
      * The copy constructor of clusterings.
      *
@@ -103,6 +140,11 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     public Clustering(final Clustering other) throws RegisterException {
         super(other);
+        if (other.compact != null) {
+            // the compact representation is immutable
+            this.compact = other.compact;
+            return;
+        }
         this.clusters = cloneClusters(other.clusters);
         this.clusterIdToCluster = cloneClusterIdToCluster(other.clusterIdToCluster);
         this.itemToCluster = cloneItemToClusters(other.itemToCluster);
@@ -113,6 +155,10 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
     public Clustering clone() {
         Clustering result;
         try {
+            if (this.compact != null) {
+                return new Clustering(this.repository, this.changeDate,
+                        this.absPath, this.compact);
+            }
             result = new Clustering(this.repository, this.changeDate,
                     this.absPath);
             final Map<Cluster, Cluster> clusters = new HashMap<Cluster, Cluster>();
@@ -212,6 +258,8 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
             return false;
         }
         Clustering other = (Clustering) obj;
+        this.materialize();
+        other.materialize();
         return (!this.absPath.equals("") && !other.absPath.equals("") && this.absPath
                 .equals(other.absPath)) || this.clusters.equals(other.clusters);
     }
@@ -233,6 +281,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * in which the given item is contained.
      */
     public Map<Cluster, Float> getClusterForItem(ClusterItem item) {
+        this.materialize();
         return this.itemToCluster.get(item);
     }
 
@@ -241,6 +290,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @return The cluster with the given id.
      */
     public Cluster getClusterWithId(final String id) {
+        this.materialize();
         return this.clusterIdToCluster.get(id);
     }
 
@@ -248,6 +298,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @return A set with all clusters of this clustering.
      */
     public Set<Cluster> getClusters() {
+        this.materialize();
         return this.clusters;
     }
 
@@ -270,6 +321,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @return A set with all cluster items contained in this clustering.
      */
     public Set<ClusterItem> getClusterItems() {
+        this.materialize();
         return this.itemToCluster.keySet();
     }
 
@@ -279,6 +331,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @return The cluster item with the given id.
      */
     public ClusterItem getClusterItemWithId(final String id) {
+        this.materialize();
         return this.itemIdToItem.get(id);
     }
 
@@ -290,7 +343,96 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * before.
      */
     public boolean addCluster(final Cluster cluster) {
-        boolean b = this.clusters.add(cluster);
+        this.materialize();
+        this.compact = null;
+        return this.addClusterToGraph(this.clusters, cluster);
+    }
+
+    /**
+     * @return The compact representation of this clustering. If this
+     * clustering was built from cluster objects or modified, the compact
+     * representation is created first.
+     */
+    public CompactClustering getCompactClustering() {
+        if (this.compact == null && this.clusters != null) {
+            CompactClustering.Builder builder = new CompactClustering.Builder();
+            for (Cluster cluster : this.clusters) {
+                builder.addCluster(cluster.getId());
+                for (Map.Entry<ClusterItem, Float> e : cluster.getFuzzyItems()
+                        .entrySet()) {
+                    builder.addMember(e.getKey().getId(), e.getValue());
+                }
+            }
+            this.compact = builder.build();
+        }
+        return this.compact;
+    }
+
+    /**
+     * @param goldStandard The goldstandard to compare this clustering with.
+     * @return The contingency table of this clustering and the goldstandard.
+     * The table is calculated only once for every pair of clusterings, as
+     * long as neither of them is modified.
+     */
+    public ContingencyTable getContingencyTable(final Clustering goldStandard) {
+        return this.getCompactClustering().getContingencyTable(
+                goldStandard.getCompactClustering());
+    }
+
+    /**
+     * @param matrix The similarities of the clustered items.
+     * @return The aggregated dissimilarities between the items and clusters
+     * of the hard clustering derived from this clustering. They are
+     * calculated only once for every matrix, as long as this clustering is
+     * not modified.
+     */
+    public ClusterDissimilarities getClusterDissimilarities(
+            final SimilarityMatrix matrix) {
+        return this.getCompactClustering().getClusterDissimilarities(matrix);
+    }
+
+    /**
+     * Creates the cluster and cluster item objects from the compact
+     * representation, if that has not happened yet.
+     */
+    protected void materialize() {
+        if (this.compact == null || this.clusters != null) {
+            return;
+        }
+        synchronized (this) {
+            final CompactClustering compact = this.compact;
+            if (compact == null || this.clusters != null) {
+                return;
+            }
+            final Set<Cluster> clusters = new HashSet<Cluster>();
+            this.clusterIdToCluster = new HashMap<String, Cluster>();
+            this.itemToCluster = new HashMap<ClusterItem, Map<Cluster, Float>>();
+            this.itemIdToItem = new HashMap<String, ClusterItem>();
+            this.fuzzySize = 0f;
+
+            final ClusterItem[] items = new ClusterItem[compact
+                    .getNumberOfItems()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new ClusterItem(compact.getItemId(i));
+            }
+            for (int c = 0; c < compact.getNumberOfClusters(); c++) {
+                Cluster cluster = new Cluster(compact.getClusterId(c));
+                for (int pos = compact.getClusterStart(c); pos < compact
+                        .getClusterEnd(c); pos++) {
+                    cluster.add(items[compact.getMemberItem(pos)],
+                            compact.getMemberCoefficient(pos));
+                }
+                this.addClusterToGraph(clusters, cluster);
+            }
+            // other threads only use the objects created above after they
+            // see the clusters
+            this.clusters = clusters;
+        }
+    }
+
+    private boolean addClusterToGraph(final Set<Cluster> clusters,
+            final Cluster cluster) {
+        boolean b = clusters.add(cluster);
         if (b) {
             this.clusterIdToCluster.put(cluster.getId(), cluster);
             this.fuzzySize += cluster.fuzzySize();
@@ -317,6 +459,8 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @return True if this item was contained in this clustering.
      */
     public boolean removeClusterItem(final ClusterItem item) {
+        this.materialize();
+        this.compact = null;
         Map<Cluster, Float> fuzzyClusters = this.itemToCluster.remove(item);
         boolean result = false;
         for (Cluster cl : fuzzyClusters.keySet()) {
@@ -335,6 +479,8 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     public boolean removeClusterItem(final ClusterItem item,
             final Cluster cluster) {
+        this.materialize();
+        this.compact = null;
         if (!this.itemToCluster.containsKey(item)) {
             return false;
         }
@@ -356,6 +502,9 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @see #fuzzySize
      */
     public float fuzzySize() {
+        if (this.compact != null) {
+            return this.compact.fuzzySize();
+        }
         return this.fuzzySize;
     }
 
@@ -364,6 +513,9 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * clusterings this may differ from the fuzzy size.
      */
     public int size() {
+        if (this.compact != null) {
+            return this.compact.getNumberOfItems();
+        }
         return this.itemToCluster.keySet().size();
     }
 
@@ -374,6 +526,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     @Override
     public Iterator<Cluster> iterator() {
+        this.materialize();
         return this.clusters.iterator();
     }
 
@@ -384,6 +537,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     @Override
     public String toString() {
+        this.materialize();
         return "[Clustering: " + clusters.toString() + "]";
     }
 
@@ -395,6 +549,26 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     public String toFormattedString() {
         StringBuilder sb = new StringBuilder();
+        if (this.compact != null) {
+            for (int c = 0; c < this.compact.getNumberOfClusters(); c++) {
+                for (int pos = this.compact.getClusterStart(c); pos < this.compact
+                        .getClusterEnd(c); pos++) {
+                    sb.append(this.compact.getItemId(this.compact
+                            .getMemberItem(pos)));
+                    sb.append(":");
+                    sb.append(this.compact.getMemberCoefficient(pos));
+                    sb.append(",");
+                }
+                if (sb.length() > 0) {
+                    sb.deleteCharAt(sb.length() - 1);
+                }
+                sb.append(";");
+            }
+            if (sb.length() > 0) {
+                sb.deleteCharAt(sb.length() - 1);
+            }
+            return sb.toString();
+        }
         for (Cluster cluster : this.clusters) {
             for (Map.Entry<ClusterItem, Float> entry : cluster.getFuzzyItems()
                     .entrySet()) {
@@ -425,42 +599,10 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * clustering.
      */
     public Clustering toHardClustering() {
-
-        Clustering result;
         try {
-            result = new Clustering(this.repository, this.changeDate,
-                    this.absPath);
-
-            // assign each item to the cluster with the maximal fuzzy
-            // coefficient.
-            Map<String, Cluster> newClusters = new HashMap<>();
-            Set<ClusterItem> items = this.getClusterItems();
-            for (ClusterItem item : items) {
-                Cluster cl = null;
-                double maxFuzzyCoeff = -0.1;
-
-                for (Map.Entry<Cluster, Float> p : item.getFuzzyClusters()
-                        .entrySet()) {
-                    if (p.getValue() > maxFuzzyCoeff) {
-                        cl = p.getKey();
-                        maxFuzzyCoeff = p.getValue();
-                    }
-                }
-
-                if (cl == null) {
-                    continue;
-                }
-
-                if (!newClusters.containsKey(cl.id)) {
-                    newClusters.put(cl.id, new Cluster(cl.id));
-                }
-                newClusters.get(cl.id).add(new ClusterItem(item.id), 1.0f);
-            }
-            for (Cluster cl : newClusters.values()) {
-                result.addCluster(cl);
-            }
-
-            return result;
+            return new Clustering(this.repository, this.changeDate,
+                    this.absPath, this.getCompactClustering()
+                    .toHardClustering());
         } catch (RegisterException e) {
             // should not occur
             e.printStackTrace();
@@ -496,7 +638,7 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      * @throws ClusteringParseException
      */
     public void loadIntoMemory() throws ClusteringParseException {
-        final Clustering result = this;
+        final CompactClustering.Builder builder = new CompactClustering.Builder();
 
         TextFileParser p;
         try {
@@ -510,22 +652,24 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
                     }
                     try {
                         String clusteringString = value[0];
-                        String[] clusters = clusteringString.split(";");
+                        String[] clusters = StringExt.split(clusteringString,
+                                ';');
                         int no = 1;
                         for (String cluster : clusters) {
-                            Cluster c = new Cluster((no++ + "").intern());
-                            String[] items = cluster.split(",");
-                            for (String item : items) {
-                                String[] itemSplit = item.split(":");
-                                String id = itemSplit[0].intern();
-                                ClusterItem cItem = result
-                                        .getClusterItemWithId(id);
-                                if (cItem == null) {
-                                    cItem = new ClusterItem(id);
-                                }
-                                c.add(cItem, Float.parseFloat(itemSplit[1]));
+                            // parse the whole cluster before adding it
+                            String[] items = StringExt.split(cluster, ',');
+                            String[] ids = new String[items.length];
+                            float[] coefficients = new float[items.length];
+                            for (int i = 0; i < items.length; i++) {
+                                int pos = items[i].lastIndexOf(':');
+                                ids[i] = items[i].substring(0, pos);
+                                coefficients[i] = Float.parseFloat(items[i]
+                                        .substring(pos + 1));
+                            }
+                            builder.addCluster((no++ + "").intern());
+                            for (int i = 0; i < ids.length; i++) {
+                                builder.addMember(ids[i], coefficients[i]);
                             }
-                            result.addCluster(c);
                         }
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -537,12 +681,31 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
             throw new ClusteringParseException("The clustering "
                     + this.getAbsolutePath() + " could not be load into memory");
         }
+
+        if (this.clusters == null || this.clusters.isEmpty()) {
+            this.unloadFromMemory();
+            this.fuzzySize = 0f;
+            this.compact = builder.build();
+        } else {
+            // keep the clusters this clustering already contains
+            Clustering parsed;
+            try {
+                parsed = new Clustering(this.repository, this.changeDate,
+                        this.absPath, builder.build());
+            } catch (RegisterException e) {
+                throw new ClusteringParseException(e.getMessage());
+            }
+            for (Cluster cluster : parsed) {
+                this.addCluster(cluster);
+            }
+        }
     }
 
     /**
      * Unloads this clustering from memory.
      */
     public void unloadFromMemory() {
+        this.compact = null;
         if (this.clusterIdToCluster != null) {
             this.clusterIdToCluster.clear();
             this.clusterIdToCluster = null;
@@ -595,8 +758,52 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
      */
     public static Clustering parseFromIntArray(final Repository repository,
             final File absPath, final String[] objectIds, final int[] clusterIds) {
-        return parseFromFuzzyCoeffMatrix(repository, absPath, objectIds,
-                clusterIdsToFuzzyCoeff(clusterIds));
+        if (objectIds.length != clusterIds.length) {
+            throw new IllegalArgumentException(
+                    "The number of object ids and cluster ids needs to be the same.");
+        }
+        // clusters are numbered in the order of their first occurrence, as
+        // in clusterIdsToFuzzyCoeff(int[])
+        Map<Integer, Integer> clusterPos = new HashMap<>();
+        int[] assignment = new int[clusterIds.length];
+        for (int i = 0; i < clusterIds.length; i++) {
+            Integer pos = clusterPos.get(clusterIds[i]);
+            if (pos == null) {
+                pos = clusterPos.size();
+                clusterPos.put(clusterIds[i], pos);
+            }
+            assignment[i] = pos;
+        }
+
+        // sort the items by their cluster
+        int[] offsets = new int[clusterPos.size() + 1];
+        for (int cluster : assignment) {
+            offsets[cluster + 1]++;
+        }
+        for (int c = 1; c < offsets.length; c++) {
+            offsets[c] += offsets[c - 1];
+        }
+        int[] members = new int[assignment.length];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        for (int i = 0; i < assignment.length; i++) {
+            members[next[assignment[i]]++] = i;
+        }
+
+        CompactClustering.Builder builder = new CompactClustering.Builder();
+        for (int c = 0; c < clusterPos.size(); c++) {
+            builder.addCluster(c + "");
+            for (int pos = offsets[c]; pos < offsets[c + 1]; pos++) {
+                builder.addMember(objectIds[members[pos]], 1.0f);
+            }
+        }
+        try {
+            return new Clustering(repository, System.currentTimeMillis(),
+                    absPath, builder.build());
+        } catch (RegisterException e) {
+            // should not occur
+            e.printStackTrace();
+        }
+        return null;
     }
 
     /**
@@ -612,29 +819,24 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
             throw new IllegalArgumentException(
                     "The number of object ids and cluster ids needs to be the same.");
         }
-        Map<String, Cluster> clusters = new HashMap<String, Cluster>();
+        int numberOfClusters = 0;
+        for (float[] coeffs : fuzzyCoeffs) {
+            numberOfClusters = Math.max(numberOfClusters, coeffs.length);
+        }
 
-        for (int i = 0; i < fuzzyCoeffs.length; i++) {
-            ClusterItem item = new ClusterItem(objectIds[i]);
-            for (int j = 0; j < fuzzyCoeffs[i].length; j++) {
-                final String clusterId = j + "";
-                Cluster cluster = clusters.get(clusterId);
-                if (cluster == null) {
-                    cluster = new Cluster(clusterId);
-                    clusters.put(clusterId, cluster);
+        // add the items cluster by cluster
+        CompactClustering.Builder builder = new CompactClustering.Builder();
+        for (int j = 0; j < numberOfClusters; j++) {
+            builder.addCluster(j + "");
+            for (int i = 0; i < fuzzyCoeffs.length; i++) {
+                if (j < fuzzyCoeffs[i].length) {
+                    builder.addMember(objectIds[i], fuzzyCoeffs[i][j]);
                 }
-
-                cluster.add(item, fuzzyCoeffs[i][j]);
             }
         }
-        Clustering clustering;
         try {
-            clustering = new Clustering(repository, System.currentTimeMillis(),
-                    absPath);
-            for (Cluster cl : clusters.values()) {
-                clustering.addCluster(cl);
-            }
-            return clustering;
+            return new Clustering(repository, System.currentTimeMillis(),
+                    absPath, builder.build());
         } catch (RegisterException e) {
             // should not occur
             e.printStackTrace();
@@ -660,35 +862,150 @@ public class Clustering extends RepositoryObject implements Iterable<Cluster> {
             final List<ClusteringQualityMeasure> qualityMeasures)
             throws UnknownGoldStandardFormatException, IOException,
                    UnknownDataSetFormatException, InvalidDataSetFormatVersionException {
+        return this.assessQuality(dataConfig, qualityMeasures, null);
+    }
+
+    /**
+     * Assess quality. Qualities already assessed for a clustering with the
+     * same fingerprint on the same dataset and goldstandard are taken from the
+     * {@link ClusteringQualityMemo}.
+     *
+     * @param dataConfig
+     *
+     * @param qualityMeasures the quality measures
+     * @param statistics Counts whether all qualities were memoized, or null.
+     * @return A set of qualities for every quality measure that was passed in
+     * the list.
+     * @throws UnknownGoldStandardFormatException the unknown gold standard
+     * format exception
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws UnknownDataSetFormatException
+     * @throws InvalidDataSetFormatVersionException
+     */
+    public ClusteringQualitySet assessQuality(final DataConfig dataConfig,
+            final List<ClusteringQualityMeasure> qualityMeasures,
+            final ClusteringQualityMemo.Statistics statistics)
+            throws UnknownGoldStandardFormatException, IOException,
+                   UnknownDataSetFormatException, InvalidDataSetFormatVersionException {
         // added: 30.07.2014: assume all ids of the dataset missing in the
         // clustering to be singletons
-        for (String id : dataConfig.getDatasetConfig().getDataSet()
-                .getInStandardFormat().getIds()) {
-            // if the object with this id is not in the clustering, add a
-            // singleton cluster with this object
-            if (!this.itemIdToItem.containsKey(id)) {
-                Cluster cluster = new Cluster(this.clusterIdToCluster.size()
-                        + "");
-                cluster.add(new ClusterItem(id), 1.0f);
-                this.addCluster(cluster);
+        Iterable<String> ids = dataConfig.getDatasetConfig().getDataSet()
+                .getInStandardFormat().getIds();
+        if (this.compact != null) {
+            CompactClustering withSingletons = this.compact
+                    .withSingletons(ids);
+            if (withSingletons != this.compact) {
+                this.compact = withSingletons;
+                // recreate the objects from the extended representation
+                this.clusters = null;
+            }
+        } else {
+            for (String id : ids) {
+                // if the object with this id is not in the clustering, add a
+                // singleton cluster with this object
+                if (!this.itemIdToItem.containsKey(id)) {
+                    Cluster cluster = new Cluster(this.clusterIdToCluster
+                            .size() + "");
+                    cluster.add(new ClusterItem(id), 1.0f);
+                    this.addCluster(cluster);
+                }
+            }
+        }
+
+        // do not calculate, when there is no goldstandard
+        final List<ClusteringQualityMeasure> measures = new ArrayList<>();
+        for (ClusteringQualityMeasure qualityMeasure : qualityMeasures) {
+            if (!(qualityMeasure.requiresGoldstandard()
+                    && !dataConfig.hasGoldStandardConfig())) {
+                measures.add(qualityMeasure);
+            }
+        }
+
+        // the clustering is complete now, such that equal partitions have
+        // equal fingerprints
+        final ClusteringQualityMemo memo = ClusteringQualityMemo
+                .getForDataConfig(dataConfig);
+        final String fingerprint = this.getFingerprint();
+        final ClusteringQualitySet resultSet = memo.get(fingerprint, measures,
+                statistics);
+        if (resultSet.size() < measures.size()) {
+            final List<ClusteringQualityMeasure> missing = new ArrayList<>();
+            for (ClusteringQualityMeasure qualityMeasure : measures) {
+                if (!resultSet.containsKey(qualityMeasure)) {
+                    missing.add(qualityMeasure);
+                }
             }
+            final ClusteringQualitySet assessed = this.assessQualityOfMeasures(
+                    dataConfig, missing);
+            memo.put(fingerprint, assessed);
+            resultSet.putAll(assessed);
         }
+        return resultSet;
+    }
 
+    /**
+     * @return The fingerprint of the partition of this clustering, see
+     * {@link CompactClustering#getFingerprint()}.
+     */
+    public String getFingerprint() {
+        return this.getCompactClustering().getFingerprint();
+    }
+
+    /**
+     * Helper method of {@link #assessQuality(DataConfig, List)}, which
+     * assesses the qualities of the complete clustering.
+     */
+    protected ClusteringQualitySet assessQualityOfMeasures(
+            final DataConfig dataConfig,
+            final List<ClusteringQualityMeasure> qualityMeasures)
+            throws UnknownGoldStandardFormatException, IOException,
+                   UnknownDataSetFormatException, InvalidDataSetFormatVersionException {
         // TODO: 20.08.2012 ensure, that this runresult is in standard format
         final ClusteringQualitySet resultSet = new ClusteringQualitySet();
+        Clustering goldStandard = null;
+        if (dataConfig.hasGoldStandardConfig()) {
+            goldStandard = dataConfig.getGoldstandardConfig()
+                    .getGoldstandard().getClustering();
+        }
+
+        // R measures are evaluated together in one R session
+        List<ClusteringQualityMeasureR> batch = new ArrayList<>();
+        for (ClusteringQualityMeasure qualityMeasure : qualityMeasures) {
+            if (qualityMeasure instanceof ClusteringQualityMeasureR
+                    && !(qualityMeasure.requiresGoldstandard() && goldStandard == null)) {
+                batch.add((ClusteringQualityMeasureR) qualityMeasure);
+            }
+        }
+        Map<ClusteringQualityMeasureR, ClusteringQualityMeasureValue> batchQualities = new HashMap<>();
+        if (!batch.isEmpty()) {
+            try {
+                batchQualities = ClusteringQualityMeasureR
+                        .getQualitiesOfClustering(this.toHardClustering(),
+                                goldStandard, dataConfig, batch);
+            } catch (UnknownGoldStandardFormatException | IOException | UnknownDataSetFormatException | InvalidDataSetFormatVersionException e) {
+                throw e;
+            } catch (Exception e) {
+                for (ClusteringQualityMeasureR qualityMeasure : batch) {
+                    batchQualities.put(qualityMeasure,
+                            ClusteringQualityMeasureValue
+                            .getForDouble(Double.NaN));
+                }
+            }
+        }
+
         for (ClusteringQualityMeasure qualityMeasure : qualityMeasures) {
             // do not calculate, when there is no goldstandard
             if (qualityMeasure.requiresGoldstandard()
                     && !dataConfig.hasGoldStandardConfig()) {
                 continue;
             }
-            ClusteringQualityMeasureValue quality;
+            ClusteringQualityMeasureValue quality = batchQualities
+                    .get(qualityMeasure);
+            if (quality != null) {
+                resultSet.put(qualityMeasure, quality);
+                continue;
+            }
             try {
-                Clustering goldStandard = null;
-                if (dataConfig.hasGoldStandardConfig()) {
-                    goldStandard = dataConfig.getGoldstandardConfig()
-                            .getGoldstandard().getClustering();
-                }
                 // convert the clustering to a hard clustering if the measure
                 // does not support fuzzy clusterings
                 Clustering cl = this;
@@ -0,0 +1,505 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+/**
+ *
+ */
+package de.clusteval.cluster;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.clusteval.cluster.quality.ClusterDissimilarities;
+import de.clusteval.cluster.quality.ContingencyTable;
+import de.wiwie.wiutils.utils.Pair;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+
+/**
+ * A compact, immutable representation of a (fuzzy) clustering. Cluster items
+ * and clusters are dictionary-encoded to consecutive integers and the fuzzy
+ * memberships are kept in compressed sparse row arrays: the members of
+ * cluster c are stored at the positions {@link #getClusterStart(int)} to
+ * {@link #getClusterEnd(int)} (exclusive) of the member arrays.
+ *
+ * <p>
+ * Only memberships with a non-zero fuzzy coefficient are stored, and only
+ * items with at least one of those are part of the clustering.
+ *
+ * @author Christian Wiwie
+ */
+public class CompactClustering {
+
+    protected final String[] itemIds;
+
+    protected final Map<String, Integer> itemIdToIndex;
+
+    protected final String[] clusterIds;
+
+    /**
+     * Position c holds the first position of the members of cluster c; the
+     * last position holds the total number of memberships.
+     */
+    protected final int[] clusterOffsets;
+
+    protected final int[] memberItems;
+
+    protected final float[] memberCoefficients;
+
+    protected final float fuzzySize;
+
+    /**
+     * Lazily computed: the cluster with the highest coefficient of every item.
+     */
+    protected int[] assignment;
+
+    /**
+     * Lazily computed: the hard clustering derived from this clustering.
+     */
+    protected CompactClustering hardClustering;
+
+    /**
+     * The goldstandard and the contingency table most recently calculated
+     * for this clustering.
+     */
+    protected Pair<CompactClustering, ContingencyTable> contingencyTable;
+
+    /**
+     * The similarity matrix and the dissimilarity aggregates most recently
+     * calculated for this clustering.
+     */
+    protected Pair<SimilarityMatrix, ClusterDissimilarities> clusterDissimilarities;
+
+    /**
+     * Lazily computed: the fingerprint of this clustering.
+     */
+    protected String fingerprint;
+
+    protected CompactClustering(final String[] itemIds,
+            final Map<String, Integer> itemIdToIndex,
+            final String[] clusterIds, final int[] clusterOffsets,
+            final int[] memberItems, final float[] memberCoefficients) {
+        super();
+        this.itemIds = itemIds;
+        this.itemIdToIndex = itemIdToIndex;
+        this.clusterIds = clusterIds;
+        this.clusterOffsets = clusterOffsets;
+        this.memberItems = memberItems;
+        this.memberCoefficients = memberCoefficients;
+        float size = 0f;
+        for (float coefficient : memberCoefficients) {
+            size += coefficient;
+        }
+        this.fuzzySize = size;
+    }
+
+    /**
+     * @return The number of cluster items.
+     */
+    public int getNumberOfItems() {
+        return this.itemIds.length;
+    }
+
+    /**
+     * @return The number of clusters, including empty ones.
+     */
+    public int getNumberOfClusters() {
+        return this.clusterIds.length;
+    }
+
+    /**
+     * @param item The index of the cluster item.
+     * @return The id of the cluster item.
+     */
+    public String getItemId(final int item) {
+        return this.itemIds[item];
+    }
+
+    /**
+     * @param id The id of a cluster item.
+     * @return The index of the cluster item or -1, if it is not contained.
+     */
+    public int getItemIndex(final String id) {
+        Integer index = this.itemIdToIndex.get(id);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @param cluster The index of the cluster.
+     * @return The id of the cluster.
+     */
+    public String getClusterId(final int cluster) {
+        return this.clusterIds[cluster];
+    }
+
+    /**
+     * @param cluster The index of the cluster.
+     * @return The first position of the members of the cluster.
+     */
+    public int getClusterStart(final int cluster) {
+        return this.clusterOffsets[cluster];
+    }
+
+    /**
+     * @param cluster The index of the cluster.
+     * @return The position after the last member of the cluster.
+     */
+    public int getClusterEnd(final int cluster) {
+        return this.clusterOffsets[cluster + 1];
+    }
+
+    /**
+     * @param pos A position between {@link #getClusterStart(int)} and
+     * {@link #getClusterEnd(int)}.
+     * @return The index of the cluster item at this position.
+     */
+    public int getMemberItem(final int pos) {
+        return this.memberItems[pos];
+    }
+
+    /**
+     * @param pos A position between {@link #getClusterStart(int)} and
+     * {@link #getClusterEnd(int)}.
+     * @return The fuzzy coefficient of the membership at this position.
+     */
+    public float getMemberCoefficient(final int pos) {
+        return this.memberCoefficients[pos];
+    }
+
+    /**
+     * @return The sum of all fuzzy coefficients.
+     */
+    public float fuzzySize() {
+        return this.fuzzySize;
+    }
+
+    /**
+     * @return Position i holds the index of the cluster, in which item i has
+     * its highest fuzzy coefficient. For hard clusterings this is the cluster
+     * assignment of every item.
+     */
+    public int[] getAssignment() {
+        if (this.assignment == null) {
+            int[] result = new int[this.itemIds.length];
+            float[] maxCoefficient = new float[this.itemIds.length];
+            Arrays.fill(result, -1);
+            for (int c = 0; c < this.clusterIds.length; c++) {
+                for (int pos = this.clusterOffsets[c]; pos < this.clusterOffsets[c + 1]; pos++) {
+                    int item = this.memberItems[pos];
+                    if (result[item] == -1
+                            || this.memberCoefficients[pos] > maxCoefficient[item]) {
+                        result[item] = c;
+                        maxCoefficient[item] = this.memberCoefficients[pos];
+                    }
+                }
+            }
+            this.assignment = result;
+        }
+        return this.assignment;
+    }
+
+    /**
+     * Assigns every item to the cluster with its highest fuzzy coefficient.
+     * Clusters without items are left out.
+     *
+     * @return The hard clustering derived from this clustering; this
+     * clustering itself, if it is a hard clustering already.
+     */
+    public synchronized CompactClustering toHardClustering() {
+        if (this.hardClustering == null && this.isHardClustering()) {
+            this.hardClustering = this;
+        } else if (this.hardClustering == null) {
+            int[] assignment = this.getAssignment();
+            // sort the items by their cluster
+            int[] offsets = new int[this.clusterIds.length + 1];
+            for (int cluster : assignment) {
+                offsets[cluster + 1]++;
+            }
+            for (int c = 1; c < offsets.length; c++) {
+                offsets[c] += offsets[c - 1];
+            }
+            int[] members = new int[assignment.length];
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < assignment.length; i++) {
+                members[next[assignment[i]]++] = i;
+            }
+
+            Builder builder = new Builder();
+            for (int c = 0; c < this.clusterIds.length; c++) {
+                if (offsets[c] == offsets[c + 1]) {
+                    continue;
+                }
+                builder.addCluster(this.clusterIds[c]);
+                for (int pos = offsets[c]; pos < offsets[c + 1]; pos++) {
+                    builder.addMember(this.itemIds[members[pos]], 1.0f);
+                }
+            }
+            this.hardClustering = builder.build();
+        }
+        return this.hardClustering;
+    }
+
+    /**
+     * @return True, if every item is contained in exactly one cluster with
+     * coefficient 1 and no cluster is empty.
+     */
+    protected boolean isHardClustering() {
+        if (this.memberItems.length != this.itemIds.length) {
+            return false;
+        }
+        for (float coefficient : this.memberCoefficients) {
+            if (coefficient != 1.0f) {
+                return false;
+            }
+        }
+        for (int c = 0; c < this.clusterIds.length; c++) {
+            if (this.clusterOffsets[c] == this.clusterOffsets[c + 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param goldStandard The goldstandard to compare this clustering with.
+     * @return The contingency table of this clustering and the goldstandard.
+     */
+    public synchronized ContingencyTable getContingencyTable(
+            final CompactClustering goldStandard) {
+        if (this.contingencyTable == null
+                || this.contingencyTable.getFirst() != goldStandard) {
+            this.contingencyTable = Pair.getPair(goldStandard,
+                    new ContingencyTable(this, goldStandard));
+        }
+        return this.contingencyTable.getSecond();
+    }
+
+    /**
+     * @param matrix The similarities of the clustered items.
+     * @return The aggregated dissimilarities of the hard clustering derived
+     * from this clustering.
+     */
+    public ClusterDissimilarities getClusterDissimilarities(
+            final SimilarityMatrix matrix) {
+        CompactClustering hard = this.toHardClustering();
+        synchronized (hard) {
+            if (hard.clusterDissimilarities == null
+                    || hard.clusterDissimilarities.getFirst() != matrix) {
+                hard.clusterDissimilarities = Pair.getPair(matrix,
+                        new ClusterDissimilarities(hard, matrix));
+            }
+            return hard.clusterDissimilarities.getSecond();
+        }
+    }
+
+    /**
+     * The fingerprint identifies the partition of this clustering: it is
+     * independent of the ids and the order of the clusters and of the order
+     * of the items within the clusters. Empty clusters are ignored.
+     * Clusterings with equal fingerprints contain the same items in the same
+     * clusters with the same fuzzy coefficients.
+     *
+     * @return A hash of the partition of this clustering.
+     */
+    public synchronized String getFingerprint() {
+        if (this.fingerprint == null) {
+            MessageDigest md;
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // every java platform supports SHA-256
+                throw new IllegalStateException(e);
+            }
+            byte[][] itemBytes = new byte[this.itemIds.length][];
+            for (int i = 0; i < itemBytes.length; i++) {
+                itemBytes[i] = this.itemIds[i].getBytes(StandardCharsets.UTF_8);
+            }
+            List<byte[]> clusterDigests = new ArrayList<byte[]>();
+            ByteBuffer buffer = ByteBuffer.allocate(8);
+            for (int c = 0; c < this.clusterIds.length; c++) {
+                int start = this.clusterOffsets[c];
+                int end = this.clusterOffsets[c + 1];
+                if (start == end) {
+                    continue;
+                }
+                // hash the members of every cluster in the order of their ids
+                Integer[] positions = new Integer[end - start];
+                for (int pos = start; pos < end; pos++) {
+                    positions[pos - start] = pos;
+                }
+                Arrays.sort(positions, (p1, p2) -> this.itemIds[this.memberItems[p1]]
+                        .compareTo(this.itemIds[this.memberItems[p2]]));
+                for (int pos : positions) {
+                    byte[] id = itemBytes[this.memberItems[pos]];
+                    buffer.clear();
+                    buffer.putInt(id.length).putFloat(this.memberCoefficients[pos]);
+                    md.update(buffer.array());
+                    md.update(id);
+                }
+                clusterDigests.add(md.digest());
+            }
+            // the order of the clusters is irrelevant
+            clusterDigests.sort((d1, d2) -> {
+                for (int i = 0; i < d1.length; i++) {
+                    int cmp = Integer.compare(d1[i] & 0xff, d2[i] & 0xff);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return 0;
+            });
+            for (byte[] digest : clusterDigests) {
+                md.update(digest);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            this.fingerprint = sb.toString();
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * @param ids The ids of all items, that should be part of the clustering.
+     * @return A compact clustering, in which every id missing in this
+     * clustering is a singleton cluster, or this clustering, if no id is
+     * missing.
+     */
+    public CompactClustering withSingletons(final Iterable<String> ids) {
+        Builder builder = null;
+        for (String id : ids) {
+            if (this.itemIdToIndex.containsKey(id)
+                    || (builder != null && builder.itemIdToIndex
+                    .containsKey(id))) {
+                continue;
+            }
+            if (builder == null) {
+                builder = this.toBuilder();
+            }
+            builder.addCluster(builder.getNumberOfClusters() + "");
+            builder.addMember(id, 1.0f);
+        }
+        return builder != null ? builder.build() : this;
+    }
+
+    /**
+     * @return A builder containing all clusters of this clustering.
+     */
+    protected Builder toBuilder() {
+        Builder builder = new Builder();
+        for (int c = 0; c < this.clusterIds.length; c++) {
+            builder.addCluster(this.clusterIds[c]);
+            for (int pos = this.clusterOffsets[c]; pos < this.clusterOffsets[c + 1]; pos++) {
+                builder.addMember(this.itemIds[this.memberItems[pos]],
+                        this.memberCoefficients[pos]);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Builds a compact clustering cluster by cluster.
+     */
+    public static class Builder {
+
+        protected final List<String> itemIds = new ArrayList<String>();
+
+        protected final Map<String, Integer> itemIdToIndex = new HashMap<String, Integer>();
+
+        protected final List<String> clusterIds = new ArrayList<String>();
+
+        protected int[] clusterOffsets = new int[]{0};
+
+        protected int[] memberItems = new int[16];
+
+        protected float[] memberCoefficients = new float[16];
+
+        protected int numberOfMembers;
+
+        /**
+         * Starts a new cluster; all following memberships belong to it.
+         *
+         * @param id The id of the cluster.
+         * @return This builder.
+         */
+        public Builder addCluster(final String id) {
+            this.clusterIds.add(id);
+            if (this.clusterOffsets.length < this.clusterIds.size() + 1) {
+                this.clusterOffsets = Arrays.copyOf(this.clusterOffsets,
+                        2 * this.clusterOffsets.length);
+            }
+            this.clusterOffsets[this.clusterIds.size()] = this.numberOfMembers;
+            return this;
+        }
+
+        /**
+         * Adds an item to the last added cluster. Coefficients of zero are
+         * ignored.
+         *
+         * @param itemId The id of the cluster item.
+         * @param coefficient The fuzzy coefficient.
+         * @return This builder.
+         */
+        public Builder addMember(final String itemId, final float coefficient) {
+            if (coefficient == 0.0) {
+                return this;
+            }
+            Integer item = this.itemIdToIndex.get(itemId);
+            if (item == null) {
+                item = this.itemIds.size();
+                this.itemIds.add(itemId);
+                this.itemIdToIndex.put(itemId, item);
+            }
+            if (this.numberOfMembers == this.memberItems.length) {
+                this.memberItems = Arrays.copyOf(this.memberItems,
+                        2 * this.numberOfMembers);
+                this.memberCoefficients = Arrays.copyOf(
+                        this.memberCoefficients, 2 * this.numberOfMembers);
+            }
+            this.memberItems[this.numberOfMembers] = item;
+            this.memberCoefficients[this.numberOfMembers] = coefficient;
+            this.numberOfMembers++;
+            this.clusterOffsets[this.clusterIds.size()] = this.numberOfMembers;
+            return this;
+        }
+
+        /**
+         * @return The number of clusters added so far.
+         */
+        public int getNumberOfClusters() {
+            return this.clusterIds.size();
+        }
+
+        /**
+         * @return The compact clustering. The builder must not be used
+         * afterwards.
+         */
+        public CompactClustering build() {
+            return new CompactClustering(
+                    this.itemIds.toArray(new String[this.itemIds.size()]),
+                    this.itemIdToIndex,
+                    this.clusterIds.toArray(new String[this.clusterIds.size()]),
+                    Arrays.copyOf(this.clusterOffsets,
+                            this.clusterIds.size() + 1),
+                    Arrays.copyOf(this.memberItems, this.numberOfMembers),
+                    Arrays.copyOf(this.memberCoefficients,
+                            this.numberOfMembers));
+        }
+    }
+}
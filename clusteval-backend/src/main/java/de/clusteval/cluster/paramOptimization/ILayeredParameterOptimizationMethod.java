@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.utils.InternalAttributeException;
+
+/**
+ * A parameter optimization method, that evaluates its parameter sets in
+ * layers, each of which is centered around the best parameter set of the
+ * layers before.
+ *
+ * <p>
+ * Such a method can start its layers speculatively using a
+ * {@link LayerSpeculation}.
+ *
+ * @author Christian Wiwie
+ *
+ * @param <L>
+ *            The type of the layers.
+ */
+public interface ILayeredParameterOptimizationMethod<L> {
+
+	/**
+	 * @return The layer, parameter sets are currently taken from; null, if no
+	 *         layer has been started yet.
+	 */
+	public L getCurrentLayer();
+
+	/**
+	 * @param layer
+	 *            A layer of this method.
+	 * @return True, if the layer has parameter sets, that have not been
+	 *         started yet.
+	 */
+	public boolean hasNext(final L layer);
+
+	/**
+	 * @return True, if the last layer of this method has been started.
+	 */
+	public boolean isLastLayerStarted();
+
+	/**
+	 * @param layer
+	 *            A layer of this method.
+	 * @param paramSet
+	 *            A parameter set of this method.
+	 * @return True, if the parameter set has been started by the layer.
+	 */
+	public boolean isStartedBy(final L layer, final ParameterSet paramSet);
+
+	/**
+	 * @param layer
+	 *            A layer of this method.
+	 * @return True, if all parameter sets of the layer have been evaluated.
+	 */
+	public boolean isLayerFinished(final L layer);
+
+	/**
+	 * @param layer
+	 *            A layer of this method.
+	 * @return The fraction of the started parameter sets of the layer, that
+	 *         have been evaluated.
+	 */
+	public double getLayerFinishedFraction(final L layer);
+
+	/**
+	 * Takes over the optimum of a finished layer, if it is better than the
+	 * optimum so far.
+	 *
+	 * @param layer
+	 *            The finished layer.
+	 */
+	public void adoptOptimum(final L layer);
+
+	/**
+	 * @return The best parameter set so far; null, if none has been evaluated
+	 *         yet.
+	 */
+	public ParameterSet getOptimalParameterSet();
+
+	/**
+	 * Starts the next layer around the best parameter set so far.
+	 *
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	public void startNextLayer() throws InternalAttributeException,
+			RegisterException, InterruptedException;
+
+	/**
+	 * Starts the next layer around the given parameter set, while the current
+	 * layer is still finishing. The value ranges of the next layer are only
+	 * taken over by {@link #confirmSpeculativeLayer()}.
+	 *
+	 * @param center
+	 *            The best parameter set so far.
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	public void startSpeculativeLayer(final ParameterSet center)
+			throws InternalAttributeException, RegisterException,
+			InterruptedException;
+
+	/**
+	 * Takes over the value ranges of the speculatively started layer.
+	 */
+	public void confirmSpeculativeLayer();
+
+	/**
+	 * Starts the speculatively started layer again around the given parameter
+	 * set, with the same number of iterations.
+	 *
+	 * @param center
+	 *            The best parameter set after the layer preceding the
+	 *            speculative layer has finished.
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	public void restartSpeculativeLayer(final ParameterSet center)
+			throws InternalAttributeException, RegisterException,
+			InterruptedException;
+
+	/**
+	 * Blocks until quality feedback for a parameter set of this method has
+	 * been given.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void waitForQualityFeedback() throws InterruptedException;
+}
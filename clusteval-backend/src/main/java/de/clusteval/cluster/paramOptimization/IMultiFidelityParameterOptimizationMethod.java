@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ * 
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ * 
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import de.clusteval.data.DataConfig;
+import de.clusteval.program.ParameterSet;
+
+/**
+ * A parameter optimization method, that evaluates parameter sets on
+ * subsamples of the data configuration.
+ * 
+ * <p>
+ * The parameter sets of such a method contain the fraction of the dataset
+ * they are evaluated on under the key {@link #FIDELITY}. Parameter sets
+ * evaluated on the whole dataset do not contain this key, such that they are
+ * comparable to those of other methods.
+ * 
+ * @author Christian Wiwie
+ * 
+ */
+public interface IMultiFidelityParameterOptimizationMethod {
+
+	/**
+	 * The key of the fidelity in the parameter sets.
+	 */
+	public static final String FIDELITY = "fidelity";
+
+	/**
+	 * @param parameterSet
+	 *            A parameter set returned by this method.
+	 * @return The data configuration, the parameter set is evaluated on.
+	 * @throws ParameterOptimizationException
+	 *             If the subsample of the dataset could not be created.
+	 */
+	public DataConfig getDataConfigForParameterSet(
+			final ParameterSet parameterSet)
+			throws ParameterOptimizationException;
+
+	/**
+	 * Unloads the subsamples created by
+	 * {@link #getDataConfigForParameterSet(ParameterSet)} from memory. This
+	 * method is invoked after all iterations of the run have finished.
+	 */
+	public void unloadSubsamples();
+}
@@ -0,0 +1,254 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.run.ParameterOptimizationRun;
+import de.clusteval.utils.InternalAttributeException;
+
+/**
+ * This class pipelines the layers of a
+ * {@link ILayeredParameterOptimizationMethod}.
+ *
+ * <p>
+ * If the current layer has been started completely, the next layer is started
+ * around the best parameter set so far, as soon as the speculation threshold
+ * of the current layer has finished. When the previous layer finishes, the
+ * speculative layer is kept if the best parameter set is still the one it is
+ * centered around. Otherwise its remaining parameter sets are cancelled and
+ * the layer is started again around the new best parameter set.
+ *
+ * <p>
+ * The methods of this class have to be invoked while holding the monitor the
+ * method waits on in
+ * {@link ILayeredParameterOptimizationMethod#waitForQualityFeedback()}.
+ *
+ * @author Christian Wiwie
+ *
+ * @param <L>
+ *            The type of the layers.
+ */
+public class LayerSpeculation<L> {
+
+	protected final ILayeredParameterOptimizationMethod<L> method;
+
+	/**
+	 * The fraction of the iterations of a layer, that has to be finished before
+	 * the next layer is started speculatively (see
+	 * {@link ParameterOptimizationRun#getOptimizationSpeculation()}). 0
+	 * disables speculation, such that every layer waits for the previous one
+	 * to finish completely.
+	 */
+	protected final double threshold;
+
+	/**
+	 * When speculating, this is the previous layer whose iterations are still
+	 * running, while the current layer of the method is the speculatively
+	 * started next layer. Null otherwise.
+	 */
+	protected L finishingLayer;
+
+	/**
+	 * The best parameter set the speculative layer is centered around.
+	 */
+	protected ParameterSet center;
+
+	protected int speculatedLayerCount;
+	protected int cancelledLayerCount;
+
+	/**
+	 * @param method
+	 *            The method whose layers are pipelined.
+	 * @param threshold
+	 *            The fraction of a layer, that has to be finished before the
+	 *            next layer is started speculatively.
+	 */
+	public LayerSpeculation(final ILayeredParameterOptimizationMethod<L> method,
+			final double threshold) {
+		super();
+		this.method = method;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * If speculation is disabled, every layer waits for all iterations of the
+	 * previous layer, such that the evaluated parameter sets are the same as
+	 * without pipelining.
+	 *
+	 * @return True, if next layers are started speculatively.
+	 */
+	public boolean isSpeculating() {
+		return this.threshold > 0.0;
+	}
+
+	/**
+	 * This method prepares the current layer of the method for the next
+	 * iteration. It returns as soon as the current layer has a parameter set
+	 * to start, or the last layer has been started completely.
+	 *
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	public void prepareLayer() throws InternalAttributeException,
+			RegisterException, InterruptedException {
+		while (true) {
+			L current = this.method.getCurrentLayer();
+			if (current == null) {
+				this.method.startNextLayer();
+				return;
+			}
+			if (this.finishingLayer != null
+					&& this.method.isLayerFinished(this.finishingLayer))
+				this.resolveSpeculation();
+			current = this.method.getCurrentLayer();
+			if (this.method.hasNext(current)
+					|| (this.method.isLastLayerStarted() && this.finishingLayer == null))
+				return;
+			// the current layer has been started completely
+			if (this.finishingLayer == null) {
+				if (this.method.isLayerFinished(current)) {
+					this.method.startNextLayer();
+					return;
+				}
+				if (this.speculateNextLayer(current))
+					return;
+			}
+			this.method.waitForQualityFeedback();
+		}
+	}
+
+	/**
+	 * Starts the next layer around the best parameter set so far, while the
+	 * current layer is still finishing.
+	 *
+	 * @param current
+	 *            The current layer, which has been started completely.
+	 * @return True, if the next layer was started.
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	protected boolean speculateNextLayer(final L current)
+			throws InternalAttributeException, RegisterException,
+			InterruptedException {
+		if (!this.isSpeculating())
+			return false;
+		ParameterSet best = this.method.getOptimalParameterSet();
+		if (best == null
+				|| this.method.getLayerFinishedFraction(current) < this.threshold)
+			return false;
+
+		this.finishingLayer = current;
+		this.center = best;
+		this.method.startSpeculativeLayer(best);
+		this.speculatedLayerCount++;
+		return true;
+	}
+
+	/**
+	 * Waits for the layer preceding the speculative layer to finish.
+	 *
+	 * @return True, if the best parameter set after the preceding layer is
+	 *         the one the speculative layer is centered around.
+	 * @throws InterruptedException
+	 */
+	protected boolean isSpeculationConfirmed() throws InterruptedException {
+		while (!this.method.isLayerFinished(this.finishingLayer))
+			this.method.waitForQualityFeedback();
+		this.method.adoptOptimum(this.finishingLayer);
+		return this.center.equals(this.method.getOptimalParameterSet());
+	}
+
+	/**
+	 * Keeps or cancels the speculative layer, once the layer preceding it has
+	 * finished.
+	 *
+	 * @throws InternalAttributeException
+	 * @throws RegisterException
+	 * @throws InterruptedException
+	 */
+	protected void resolveSpeculation() throws InternalAttributeException,
+			RegisterException, InterruptedException {
+		if (this.isSpeculationConfirmed()) {
+			this.method.confirmSpeculativeLayer();
+		} else {
+			/*
+			 * The best parameter set has changed: We skip the parameter sets
+			 * of the speculative layer that have not been started yet and
+			 * start the layer again around the new best parameter set.
+			 */
+			this.cancelledLayerCount++;
+			this.method.restartSpeculativeLayer(this.method
+					.getOptimalParameterSet());
+		}
+		this.finishingLayer = null;
+		this.center = null;
+	}
+
+	/**
+	 * @return True, if the current layer has parameter sets left, or further
+	 *         layers are going to be started.
+	 * @throws InterruptedException
+	 */
+	public boolean hasNext() throws InterruptedException {
+		L current = this.method.getCurrentLayer();
+		if (current != null && this.method.hasNext(current))
+			return true;
+		// whether the speculative last layer is started again depends on the
+		// layer preceding it
+		if (this.finishingLayer != null && this.method.isLastLayerStarted())
+			return !this.isSpeculationConfirmed();
+		return !this.method.isLastLayerStarted();
+	}
+
+	/**
+	 * @param paramSet
+	 *            An evaluated parameter set.
+	 * @return The layer still finishing, if the parameter set was started by
+	 *         it, the current layer otherwise.
+	 */
+	public L getLayerForParameterSet(final ParameterSet paramSet) {
+		L current = this.method.getCurrentLayer();
+		if (this.finishingLayer != null
+				&& !this.method.isStartedBy(current, paramSet)
+				&& this.method.isStartedBy(this.finishingLayer, paramSet))
+			return this.finishingLayer;
+		return current;
+	}
+
+	/**
+	 * @return The layer preceding the speculatively started layer, while it
+	 *         is still finishing; null otherwise.
+	 */
+	public L getFinishingLayer() {
+		return this.finishingLayer;
+	}
+
+	/**
+	 * @return The number of layers, that have been started speculatively.
+	 */
+	public int getSpeculatedLayerCount() {
+		return this.speculatedLayerCount;
+	}
+
+	/**
+	 * @return The number of speculatively started layers, that were cancelled
+	 *         because the best parameter set changed.
+	 */
+	public int getCancelledLayerCount() {
+		return this.cancelledLayerCount;
+	}
+}
@@ -145,7 +145,8 @@ class ParameterOptimizationMethodURLClassLoader extends URLClassLoader {
 
 		if (name.startsWith("de.clusteval.cluster.paramOptimization")
 				&& !name.equals("de.clusteval.cluster.paramOptimization.ParameterOptimizationMethod")
-				&& !name.equals("de.clusteval.cluster.paramOptimization.IDivergingParameterOptimizationMethod")) {
+				&& !name.equals("de.clusteval.cluster.paramOptimization.IDivergingParameterOptimizationMethod")
+				&& !name.equals("de.clusteval.cluster.paramOptimization.IMultiFidelityParameterOptimizationMethod")) {
 			if (name.endsWith("ParameterOptimizationMethod")) {
 				@SuppressWarnings("unchecked")
 				Class<? extends ParameterOptimizationMethod> parameterOptimizationMethod = (Class<? extends ParameterOptimizationMethod>) result;
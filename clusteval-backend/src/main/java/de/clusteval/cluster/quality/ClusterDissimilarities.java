@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.CompactClustering;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+
+/**
+ * Aggregated dissimilarities between the items and clusters of a hard
+ * clustering, from which internal clustering quality measures like the
+ * silhouette value, the Dunn index and the Davies-Bouldin index are derived.
+ *
+ * <p>
+ * The dissimilarity of two items is the maximal similarity of the matrix
+ * minus their similarity. The similarity matrix is read in place; the
+ * clusters are processed in parallel and the items of every cluster as well.
+ * Dissimilarities of an item to itself are ignored.
+ *
+ * <p>
+ * Use {@link Clustering#getClusterDissimilarities(SimilarityMatrix)} to reuse
+ * the aggregates for several quality measures.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class ClusterDissimilarities {
+
+	protected final SimilarityMatrix matrix;
+
+	protected final double maxSimilarity;
+
+	protected final int numberOfClusters;
+
+	/** The number of items of every cluster, that are in the matrix. */
+	protected final int[] clusterSizes;
+
+	/** The number of clustered items, that are in the matrix. */
+	protected final int numberOfItems;
+
+	/** The cluster positions and matrix rows of the clustered items. */
+	protected final int[] clusterOffsets;
+	protected final int[] memberRows;
+
+	/** The cluster of every matrix row, or -1 if it is not clustered. */
+	protected final int[] rowClusters;
+
+	/**
+	 * For every matrix row the sum of dissimilarities to the other items of
+	 * its own cluster and to all other clustered items.
+	 */
+	protected final double[] ownClusterSums, rowSums;
+
+	/**
+	 * For every matrix row the smallest average dissimilarity to the items of
+	 * another cluster.
+	 */
+	protected final double[] nearestClusterAverages;
+
+	/** For every cluster the average dissimilarity of its items. */
+	protected final double[] intraClusterAverages;
+
+	/**
+	 * For every cluster the smallest average dissimilarity to another
+	 * cluster.
+	 */
+	protected final double[] nearestInterClusterAverages;
+
+	/**
+	 * For every cluster the largest ratio of the summed intra cluster
+	 * averages and the inter cluster average with another cluster.
+	 */
+	protected final double[] daviesBouldinRatios;
+
+	/**
+	 * @param clustering
+	 *            A hard clustering.
+	 * @param matrix
+	 *            The similarities of the clustered items.
+	 */
+	public ClusterDissimilarities(final CompactClustering clustering,
+			final SimilarityMatrix matrix) {
+		super();
+		this.matrix = matrix;
+		this.maxSimilarity = matrix.getMaxValue();
+		this.numberOfClusters = clustering.getNumberOfClusters();
+
+		final Map<String, Integer> ids = matrix.getIds();
+		final int rows = matrix.getRows();
+		this.rowClusters = new int[rows];
+		Arrays.fill(this.rowClusters, -1);
+		this.clusterSizes = new int[this.numberOfClusters];
+		this.clusterOffsets = new int[this.numberOfClusters + 1];
+		int[] memberRows = new int[this.numberOfClusters > 0 ? clustering
+				.getClusterEnd(this.numberOfClusters - 1) : 0];
+		int numberOfItems = 0;
+		for (int c = 0; c < this.numberOfClusters; c++) {
+			for (int pos = clustering.getClusterStart(c); pos < clustering
+					.getClusterEnd(c); pos++) {
+				Integer row = ids.get(clustering.getItemId(clustering
+						.getMemberItem(pos)));
+				if (row == null)
+					continue;
+				this.rowClusters[row] = c;
+				memberRows[numberOfItems++] = row;
+				this.clusterSizes[c]++;
+			}
+			this.clusterOffsets[c + 1] = numberOfItems;
+		}
+		this.memberRows = Arrays.copyOf(memberRows, numberOfItems);
+		this.numberOfItems = numberOfItems;
+
+		this.ownClusterSums = new double[rows];
+		this.rowSums = new double[rows];
+		this.nearestClusterAverages = new double[rows];
+		this.intraClusterAverages = new double[this.numberOfClusters];
+		this.nearestInterClusterAverages = new double[this.numberOfClusters];
+		this.daviesBouldinRatios = new double[this.numberOfClusters];
+
+		// the average dissimilarities within every cluster are needed for
+		// the ratios of the Davies-Bouldin index
+		IntStream.range(0, this.numberOfClusters).parallel()
+				.forEach(this::aggregateIntraCluster);
+		IntStream.range(0, this.numberOfClusters).parallel()
+				.forEach(this::aggregateCluster);
+	}
+
+	protected double getDissimilarity(final int row1, final int row2) {
+		return this.maxSimilarity - this.matrix.getSimilarity(row1, row2);
+	}
+
+	private void aggregateIntraCluster(final int cluster) {
+		final int start = this.clusterOffsets[cluster];
+		final int end = this.clusterOffsets[cluster + 1];
+		final int size = end - start;
+		if (size < 2)
+			return;
+		double sum = IntStream.range(start, end).parallel()
+				.mapToDouble(pos -> {
+					double rowSum = 0.0;
+					int row = this.memberRows[pos];
+					for (int other = pos + 1; other < end; other++)
+						rowSum += this.getDissimilarity(row,
+								this.memberRows[other]);
+					return rowSum;
+				}).sum();
+		this.intraClusterAverages[cluster] = 2 * sum
+				/ ((double) size * (size - 1));
+	}
+
+	private void aggregateCluster(final int cluster) {
+		final int start = this.clusterOffsets[cluster];
+		final int end = this.clusterOffsets[cluster + 1];
+		if (start == end)
+			return;
+		// the summed dissimilarities of all items of this cluster to every
+		// cluster
+		double[] clusterSums = IntStream
+				.range(start, end)
+				.parallel()
+				.collect(() -> new double[this.numberOfClusters],
+						(sums, pos) -> this.aggregateRow(cluster,
+								this.memberRows[pos], sums), (sums1, sums2) -> {
+							for (int c = 0; c < sums1.length; c++)
+								sums1[c] += sums2[c];
+						});
+
+		final int size = this.clusterSizes[cluster];
+		double nearest = Double.POSITIVE_INFINITY;
+		double ratio = Double.NEGATIVE_INFINITY;
+		for (int other = 0; other < this.numberOfClusters; other++) {
+			if (other == cluster || this.clusterSizes[other] == 0)
+				continue;
+			double average = clusterSums[other]
+					/ ((double) size * this.clusterSizes[other]);
+			nearest = Math.min(nearest, average);
+			ratio = Math.max(ratio, (this.intraClusterAverages[cluster]
+					+ this.intraClusterAverages[other])
+					/ average);
+		}
+		this.nearestInterClusterAverages[cluster] = nearest;
+		this.daviesBouldinRatios[cluster] = ratio;
+	}
+
+	private void aggregateRow(final int cluster, final int row,
+			final double[] clusterSums) {
+		double[] sums = new double[this.numberOfClusters];
+		for (int c = 0; c < this.numberOfClusters; c++) {
+			for (int pos = this.clusterOffsets[c]; pos < this.clusterOffsets[c + 1]; pos++) {
+				int other = this.memberRows[pos];
+				if (other != row)
+					sums[c] += this.getDissimilarity(row, other);
+			}
+		}
+
+		double rowSum = 0.0;
+		double nearest = Double.POSITIVE_INFINITY;
+		for (int c = 0; c < this.numberOfClusters; c++) {
+			rowSum += sums[c];
+			clusterSums[c] += sums[c];
+			if (c != cluster && this.clusterSizes[c] > 0)
+				nearest = Math.min(nearest, sums[c] / this.clusterSizes[c]);
+		}
+		this.ownClusterSums[row] = sums[cluster];
+		this.rowSums[row] = rowSum;
+		this.nearestClusterAverages[row] = nearest;
+	}
+
+	/**
+	 * @return The number of clusters containing at least one item of the
+	 *         matrix.
+	 */
+	public int getNumberOfNonEmptyClusters() {
+		int result = 0;
+		for (int size : this.clusterSizes)
+			if (size > 0)
+				result++;
+		return result;
+	}
+
+	/**
+	 * @param row
+	 *            A row of the similarity matrix.
+	 * @return The index of the cluster of the item, or -1 if it is not
+	 *         clustered.
+	 */
+	public int getCluster(final int row) {
+		return this.rowClusters[row];
+	}
+
+	/**
+	 * The silhouette of an item compares the average dissimilarity a to the
+	 * other items of its cluster with the smallest average dissimilarity b to
+	 * the items of another cluster: (b-a)/max(a,b). Items in singleton
+	 * clusters have a silhouette of 0.
+	 *
+	 * @param row
+	 *            A clustered row of the similarity matrix.
+	 * @return The silhouette of the item.
+	 */
+	public double getSilhouette(final int row) {
+		int size = this.clusterSizes[this.rowClusters[row]];
+		if (size < 2)
+			return 0.0;
+		double a = this.ownClusterSums[row] / (size - 1);
+		double b = this.nearestClusterAverages[row];
+		if (a == b && a == 0)
+			return 0.0;
+		return (b - a) / Math.max(a, b);
+	}
+
+	/**
+	 * @return The average silhouette of all clustered items, or -1 if there
+	 *         are less than two clusters.
+	 */
+	public double getSilhouetteValue() {
+		if (this.getNumberOfNonEmptyClusters() < 2)
+			return -1.0;
+		double result = 0.0;
+		for (int row : this.memberRows)
+			result += this.getSilhouette(row);
+		return result / this.numberOfItems;
+	}
+
+	/**
+	 * A variant of the silhouette, which compares the items with all items
+	 * outside of their cluster instead of only the nearest cluster. The
+	 * average dissimilarity to the own cluster is divided by the size of the
+	 * cluster.
+	 *
+	 * @return The average global silhouette of all clustered items, or -1 if
+	 *         there are less than two clusters.
+	 */
+	public double getGlobalSilhouetteValue() {
+		if (this.getNumberOfNonEmptyClusters() < 2)
+			return -1.0;
+		double result = 0.0;
+		for (int row : this.memberRows) {
+			int size = this.clusterSizes[this.rowClusters[row]];
+			if (size == 1)
+				continue;
+			double a = this.ownClusterSums[row] / size;
+			double b = (this.rowSums[row] - this.ownClusterSums[row])
+					/ (this.numberOfItems - size);
+			double m = Math.max(a, b);
+			if (m != 0)
+				result += (b - a) / m;
+		}
+		return result / this.numberOfItems;
+	}
+
+	/**
+	 * The Dunn index is the smallest average dissimilarity between two
+	 * clusters divided by the largest average dissimilarity within a
+	 * cluster.
+	 *
+	 * @return The Dunn index, or NaN if there are less than two clusters.
+	 */
+	public double getDunnIndex() {
+		if (this.getNumberOfNonEmptyClusters() < 2)
+			return Double.NaN;
+		double minInter = Double.POSITIVE_INFINITY;
+		double maxIntra = 0.0;
+		for (int c = 0; c < this.numberOfClusters; c++) {
+			if (this.clusterSizes[c] == 0)
+				continue;
+			minInter = Math.min(minInter, this.nearestInterClusterAverages[c]);
+			maxIntra = Math.max(maxIntra, this.intraClusterAverages[c]);
+		}
+		return minInter / maxIntra;
+	}
+
+	/**
+	 * The Davies-Bouldin index is the average over all clusters of the
+	 * largest ratio of the summed average dissimilarities within two clusters
+	 * and the average dissimilarity between them.
+	 *
+	 * @return The Davies-Bouldin index, or NaN if there are less than two
+	 *         clusters.
+	 */
+	public double getDaviesBouldinIndex() {
+		int clusters = this.getNumberOfNonEmptyClusters();
+		if (clusters < 2)
+			return Double.NaN;
+		double result = 0.0;
+		for (int c = 0; c < this.numberOfClusters; c++)
+			if (this.clusterSizes[c] > 0)
+				result += this.daviesBouldinRatios[c];
+		return result / clusters;
+	}
+}
@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
 
 /**
  * A clustering quality measure is used to assess the quality of a
@@ -247,6 +248,21 @@ public abstract class ClusteringQualityMeasure extends RepositoryObject
         return this.getClass().getSimpleName();
     }
 
+    /**
+     * Measures of the same class are equal regardless of their parameters
+     * (see {@link #equals(Object)}), but may assess different qualities for
+     * the same clustering.
+     *
+     * @return The name of this measure together with its parameters, which
+     * identifies the qualities it assesses, e.g. in caches.
+     */
+    public String getQualityKey() {
+        if (this.parameters == null || this.parameters.isEmpty()) {
+            return this.toString();
+        }
+        return this.toString() + new TreeMap<>(this.parameters);
+    }
+
     /**
      * This method compares two values of this clustering quality measure and
      * returns true, if the first one is better than the second one.
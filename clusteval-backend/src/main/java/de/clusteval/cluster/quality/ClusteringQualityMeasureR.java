@@ -15,26 +15,54 @@ package de.clusteval.cluster.quality;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.rosuda.REngine.REXPDouble;
 import org.rosuda.REngine.REXPMismatchException;
 import org.rosuda.REngine.REngineException;
 import org.rosuda.REngine.Rserve.RserveException;
 
 import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.CompactClustering;
 import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.RelativeDataSet;
 import de.clusteval.data.dataset.format.InvalidDataSetFormatVersionException;
 import de.clusteval.data.dataset.format.UnknownDataSetFormatException;
 import de.clusteval.data.goldstandard.format.UnknownGoldStandardFormatException;
+import de.clusteval.framework.RLibraryNotLoadedException;
+import de.clusteval.framework.RLibraryRequirement;
 import de.clusteval.framework.repository.MyRengine;
-import de.clusteval.framework.repository.RException;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 import de.clusteval.utils.RNotAvailableException;
+import de.wiwie.wiutils.utils.ArraysExt;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
 
 /**
  * This type of clustering quality measure uses the R framework to calculate
  * cluster validities.
  * 
+ * <p>
+ * Measures declare the R variables they need in {@link #getRequiredInputs()}
+ * and the R expression calculating their quality from these variables in
+ * {@link #getQualityExpression()}. All R measures of a clustering are
+ * evaluated together by
+ * {@link #getQualitiesOfClustering(Clustering, Clustering, DataConfig, List)}
+ * : the inputs are assigned only once and all expressions are evaluated in a
+ * single round trip to R. A single measure is evaluated the same way.
+ * 
+ * <p>
+ * Measures compiled against older versions, which do not provide a quality
+ * expression, are still evaluated one by one through
+ * {@link #getQualityOfClusteringHelper(Clustering, Clustering, DataConfig, MyRengine)}
+ * .
+ * 
  * @author Christian Wiwie
  * 
  */
@@ -42,6 +70,31 @@ public abstract class ClusteringQualityMeasureR
 		extends
 			ClusteringQualityMeasure {
 
+	/**
+	 * The variables, that are assigned in the R session before the quality
+	 * expressions of the measures are evaluated.
+	 */
+	public enum R_INPUT {
+		/**
+		 * The integer vector clusterIds holds the (1-based) cluster of every
+		 * object of the dataset in the hard clustering. It is named by the
+		 * (1-based) row of the object in the similarity matrix.
+		 */
+		CLUSTER_IDS,
+		/**
+		 * The integer vector goldstandardIds holds the (1-based) cluster of
+		 * every object of the dataset in the goldstandard. It is named like
+		 * clusterIds.
+		 */
+		GOLDSTANDARD_IDS,
+		/**
+		 * The matrix sim holds the dissimilarities (the maximal similarity
+		 * minus the similarity) between all objects of the dataset. Its rows
+		 * and columns are named like clusterIds.
+		 */
+		DISSIMILARITIES
+	}
+
 	/**
 	 * Instantiates a new R clustering quality measure.
 	 * 
@@ -89,26 +142,81 @@ public abstract class ClusteringQualityMeasureR
 			UnknownDataSetFormatException, IOException,
 			InvalidDataSetFormatVersionException, RNotAvailableException,
 			InterruptedException {
+		return getQualitiesOfClustering(clustering, goldStandard, dataConfig,
+				Collections.singletonList(this)).get(this);
+	}
+
+	/**
+	 * Calculates the qualities of several R measures for the same clustering
+	 * in one R session. The union of the inputs required by the measures is
+	 * assigned only once, and the quality expressions of all measures are
+	 * evaluated in a single round trip. Measures, whose libraries are not
+	 * available or whose expression fails, get their worst value.
+	 * 
+	 * @param clustering
+	 *            The hard clustering to assess.
+	 * @param goldStandard
+	 *            The goldstandard or null, if no measure requires it.
+	 * @param dataConfig
+	 *            The data configuration of the clustering.
+	 * @param measures
+	 *            The measures to evaluate.
+	 * @return The quality of the clustering for every measure.
+	 * @throws UnknownGoldStandardFormatException
+	 * @throws UnknownDataSetFormatException
+	 * @throws IOException
+	 * @throws InvalidDataSetFormatVersionException
+	 * @throws RNotAvailableException
+	 * @throws InterruptedException
+	 */
+	public static Map<ClusteringQualityMeasureR, ClusteringQualityMeasureValue> getQualitiesOfClustering(
+			final Clustering clustering, final Clustering goldStandard,
+			final DataConfig dataConfig,
+			final List<? extends ClusteringQualityMeasureR> measures)
+			throws UnknownGoldStandardFormatException,
+			UnknownDataSetFormatException, IOException,
+			InvalidDataSetFormatVersionException, RNotAvailableException,
+			InterruptedException {
+		Map<ClusteringQualityMeasureR, ClusteringQualityMeasureValue> result = new HashMap<ClusteringQualityMeasureR, ClusteringQualityMeasureValue>();
+		if (measures.isEmpty())
+			return result;
+		ClusteringQualityMeasureR first = measures.get(0);
 		try {
-			MyRengine rEngine = repository.getRengineForCurrentThread();
+			MyRengine rEngine = first.repository.getRengineForCurrentThread();
 			try {
+				Set<R_INPUT> inputs = EnumSet.noneOf(R_INPUT.class);
+				List<ClusteringQualityMeasureR> evaluated = new ArrayList<ClusteringQualityMeasureR>();
+				for (ClusteringQualityMeasureR measure : measures) {
+					if (!measure.loadRequiredLibraries(rEngine)) {
+						result.put(measure, measure.getWorstValue());
+						continue;
+					}
+					if (measure.getQualityExpression() == null) {
+						result.put(measure, measure.getLegacyQuality(
+								clustering, goldStandard, dataConfig, rEngine));
+						continue;
+					}
+					inputs.addAll(measure.getRequiredInputs());
+					evaluated.add(measure);
+				}
+				if (evaluated.isEmpty())
+					return result;
+
 				try {
-					return getQualityOfClusteringHelper(clustering,
-							goldStandard, dataConfig, rEngine);
-				} catch (REXPMismatchException e) {
-					// handle this type of exception as an REngineException
-					throw new RException(rEngine, e.getMessage());
+					assignInputs(clustering, goldStandard, dataConfig, inputs,
+							rEngine);
+					double[] values = rEngine.eval(getBatchCommand(evaluated))
+							.asDoubles();
+					for (int i = 0; i < evaluated.size(); i++)
+						result.put(evaluated.get(i),
+								evaluated.get(i).getQualityForValue(values[i]));
+				} catch (REngineException | REXPMismatchException e) {
+					first.log.warn("R-framework (batch of " + evaluated.size()
+							+ " measures): " + rEngine.getLastError());
+					for (ClusteringQualityMeasureR measure : evaluated)
+						result.put(measure, measure.getWorstValue());
 				}
-			} catch (REngineException e) {
-				this.log.warn("R-framework (" + this.getClass().getSimpleName()
-						+ "): " + rEngine.getLastError());
-				ClusteringQualityMeasureValue min = ClusteringQualityMeasureValue
-						.getForDouble(this.getMinimum());
-				ClusteringQualityMeasureValue max = ClusteringQualityMeasureValue
-						.getForDouble(this.getMaximum());
-				if (this.isBetterThan(max, min))
-					return min;
-				return max;
+				return result;
 			} finally {
 				rEngine.clear();
 			}
@@ -117,12 +225,254 @@ public abstract class ClusteringQualityMeasureR
 		}
 	}
 
-	protected abstract ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+	/**
+	 * Evaluates a measure without a quality expression through its
+	 * {@link #getQualityOfClusteringHelper(Clustering, Clustering, DataConfig, MyRengine)}
+	 * .
+	 * 
+	 * @return The quality of the clustering, or the worst value of this
+	 *         measure, if its evaluation failed.
+	 */
+	private ClusteringQualityMeasureValue getLegacyQuality(
+			final Clustering clustering, final Clustering goldStandard,
+			final DataConfig dataConfig, final MyRengine rEngine)
+			throws UnknownGoldStandardFormatException,
+			UnknownDataSetFormatException, IOException,
+			InvalidDataSetFormatVersionException, InterruptedException,
+			RserveException {
+		try {
+			return this.getQualityOfClusteringHelper(clustering, goldStandard,
+					dataConfig, rEngine);
+		} catch (REngineException | REXPMismatchException e) {
+			this.log.warn("R-framework (" + this.getClass().getSimpleName()
+					+ "): " + rEngine.getLastError());
+			return this.getWorstValue();
+		} finally {
+			// the helper may leave variables behind
+			rEngine.clear();
+		}
+	}
+
+	/**
+	 * @param measures
+	 *            The measures to evaluate together.
+	 * @return An R expression evaluating to a numeric vector holding the
+	 *         quality of every measure, in the order of the measures.
+	 */
+	protected static String getBatchCommand(
+			final List<? extends ClusteringQualityMeasureR> measures) {
+		StringBuilder command = new StringBuilder("c(");
+		for (int i = 0; i < measures.size(); i++) {
+			if (i > 0)
+				command.append(",");
+			command.append(getBatchExpression(measures.get(i)
+					.getQualityExpression()));
+		}
+		command.append(")");
+		return command.toString();
+	}
+
+	/**
+	 * @param value
+	 *            The value of the quality expression of this measure in a
+	 *            batch.
+	 * @return The quality for the value, or the worst value of this measure,
+	 *         if the evaluation of its expression failed.
+	 */
+	protected ClusteringQualityMeasureValue getQualityForValue(
+			final double value) {
+		if (REXPDouble.isNA(value) || Double.isNaN(value)) {
+			this.log.warn("R-framework (" + this.getClass().getSimpleName()
+					+ "): evaluation failed");
+			return this.getWorstValue();
+		}
+		return ClusteringQualityMeasureValue.getForDouble(value);
+	}
+
+	/**
+	 * @param expression
+	 *            The quality expression of a measure.
+	 * @return An R expression evaluating the quality expression in its own
+	 *         function environment, that results in NA instead of an error.
+	 */
+	protected static String getBatchExpression(final String expression) {
+		return "tryCatch(as.numeric((function() {" + expression
+				+ "})())[1], error=function(e) NA)";
+	}
+
+	/**
+	 * Assigns the given inputs in the R session.
+	 * 
+	 * @param clustering
+	 *            The hard clustering.
+	 * @param goldStandard
+	 *            The goldstandard.
+	 * @param dataConfig
+	 *            The data configuration of the clustering.
+	 * @param inputs
+	 *            The inputs to assign.
+	 * @param rEngine
+	 *            The R session.
+	 * @throws UnknownGoldStandardFormatException
+	 * @throws UnknownDataSetFormatException
+	 * @throws IOException
+	 * @throws InvalidDataSetFormatVersionException
+	 * @throws REngineException
+	 * @throws InterruptedException
+	 */
+	protected static void assignInputs(final Clustering clustering,
+			final Clustering goldStandard, final DataConfig dataConfig,
+			final Set<R_INPUT> inputs, final MyRengine rEngine)
+			throws UnknownGoldStandardFormatException,
+			UnknownDataSetFormatException, IOException,
+			InvalidDataSetFormatVersionException, REngineException,
+			InterruptedException {
+		if (inputs.isEmpty())
+			return;
+		RelativeDataSet dataSet = (RelativeDataSet) (dataConfig
+				.getDatasetConfig().getDataSet().getInStandardFormat());
+		SimilarityMatrix simMatrix = dataSet.getDataSetContent();
+		String names = "as.character(1:" + simMatrix.getIds().size() + ")";
+
+		if (inputs.contains(R_INPUT.CLUSTER_IDS)) {
+			rEngine.assign("clusterIds", getClusterIds(clustering, simMatrix));
+			rEngine.eval("names(clusterIds) <- " + names);
+		}
+		if (inputs.contains(R_INPUT.GOLDSTANDARD_IDS)) {
+			rEngine.assign("goldstandardIds",
+					getClusterIds(goldStandard, simMatrix));
+			rEngine.eval("names(goldstandardIds) <- " + names);
+		}
+		if (inputs.contains(R_INPUT.DISSIMILARITIES)) {
+			final double maxValue = simMatrix.getMaxValue();
+			// the array is only built, if R does not hold the matrix already
+			String key = MyRengine.getContentKey(simMatrix.getRows(),
+					simMatrix.getColumns(),
+					(i, j) -> maxValue - simMatrix.getSimilarity(i, j));
+			rEngine.assignCached("sim", key, () -> ArraysExt.subtract(
+					maxValue, simMatrix.toArray(), true));
+			rEngine.eval("dimnames(sim) <- list(" + names + ", " + names + ")");
+		}
+	}
+
+	/**
+	 * @param clustering
+	 *            A clustering of the objects of the similarity matrix.
+	 * @param simMatrix
+	 *            The similarity matrix.
+	 * @return Position i holds the (1-based) cluster of the object in row i
+	 *         of the similarity matrix, in which the object has its highest
+	 *         fuzzy coefficient.
+	 */
+	protected static int[] getClusterIds(final Clustering clustering,
+			final SimilarityMatrix simMatrix) {
+		Map<String, Integer> keyToId = simMatrix.getIds();
+		CompactClustering compact = clustering.getCompactClustering();
+		int[] assignment = compact.getAssignment();
+		int[] result = new int[keyToId.size()];
+		for (int item = 0; item < assignment.length; item++) {
+			Integer row = keyToId.get(compact.getItemId(item));
+			if (row != null)
+				result[row] = assignment[item] + 1;
+		}
+		return result;
+	}
+
+	/**
+	 * Loads the R libraries, that are required by this measure.
+	 * 
+	 * @param rEngine
+	 *            The R session.
+	 * @return False, if one of the libraries could not be loaded.
+	 * @throws InterruptedException
+	 */
+	protected boolean loadRequiredLibraries(final MyRengine rEngine)
+			throws InterruptedException {
+		if (!this.getClass().isAnnotationPresent(RLibraryRequirement.class))
+			return true;
+		try {
+			for (String library : this.getClass()
+					.getAnnotation(RLibraryRequirement.class)
+					.requiredRLibraries())
+				rEngine.loadLibrary(library, this.getClass().getSimpleName());
+			return true;
+		} catch (RLibraryNotLoadedException e) {
+			this.log.warn(e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * @return The worst value this measure can take, which is assigned if
+	 *         its calculation failed.
+	 */
+	protected ClusteringQualityMeasureValue getWorstValue() {
+		ClusteringQualityMeasureValue min = ClusteringQualityMeasureValue
+				.getForDouble(this.getMinimum());
+		ClusteringQualityMeasureValue max = ClusteringQualityMeasureValue
+				.getForDouble(this.getMaximum());
+		if (this.isBetterThan(max, min))
+			return min;
+		return max;
+	}
+
+	/**
+	 * @return The variables, which have to be assigned before
+	 *         {@link #getQualityExpression()} is evaluated. Measures without a
+	 *         quality expression may use any of them.
+	 */
+	public Set<R_INPUT> getRequiredInputs() {
+		return EnumSet.allOf(R_INPUT.class);
+	}
+
+	/**
+	 * An R expression calculating the quality of a clustering from the
+	 * variables declared in {@link #getRequiredInputs()}. The expression is
+	 * evaluated in its own function environment; the value of its last
+	 * statement is the quality.
+	 * 
+	 * @return The R expression, or null if this measure calculates its quality
+	 *         in
+	 *         {@link #getQualityOfClusteringHelper(Clustering, Clustering, DataConfig, MyRengine)}
+	 *         .
+	 */
+	public String getQualityExpression() {
+		return null;
+	}
+
+	/**
+	 * Calculates the quality of a clustering with its own calls to R. Only
+	 * used for measures without a {@link #getQualityExpression()}, which were
+	 * written against older versions of this class.
+	 * 
+	 * @param clustering
+	 *            The hard clustering to assess.
+	 * @param goldStandard
+	 *            The goldstandard.
+	 * @param dataConfig
+	 *            The data configuration of the clustering.
+	 * @param rEngine
+	 *            The R session.
+	 * @return The quality of the clustering.
+	 * @throws UnknownGoldStandardFormatException
+	 * @throws UnknownDataSetFormatException
+	 * @throws IOException
+	 * @throws InvalidDataSetFormatVersionException
+	 * @throws REngineException
+	 * @throws IllegalArgumentException
+	 * @throws REXPMismatchException
+	 * @throws InterruptedException
+	 */
+	protected ClusteringQualityMeasureValue getQualityOfClusteringHelper(
 			Clustering clustering, Clustering goldStandard,
 			DataConfig dataConfig, final MyRengine rEngine)
 			throws UnknownGoldStandardFormatException,
 			UnknownDataSetFormatException, IOException,
 			InvalidDataSetFormatVersionException, REngineException,
 			IllegalArgumentException, REXPMismatchException,
-			InterruptedException;
+			InterruptedException {
+		throw new UnsupportedOperationException(this.getClass()
+				.getSimpleName() + " provides neither a quality expression "
+				+ "nor an implementation of getQualityOfClusteringHelper");
+	}
 }
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.DataSet;
+
+/**
+ * The qualities assessed for the clusterings of one dataset and goldstandard,
+ * identified by the fingerprints of the clusterings (see
+ * {@link Clustering#getFingerprint()}).
+ *
+ * <p>
+ * Different parameter sets often yield the same partition. The qualities of
+ * those are only assessed once. Qualities, that could not be assessed (not
+ * terminated or NaN), are not memoized. Qualities are memoized per
+ * {@link ClusteringQualityMeasure#getQualityKey()}, such that measures of the
+ * same class with different parameters do not share their qualities.
+ *
+ * <p>
+ * The least recently used clusterings are forgotten, if a memo holds more
+ * than {@link #MAX_CLUSTERINGS} clusterings.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class ClusteringQualityMemo {
+
+	/**
+	 * The maximal number of clusterings, whose qualities are kept by one memo.
+	 */
+	public static final int MAX_CLUSTERINGS = 1 << 14;
+
+	/**
+	 * The maximal number of memos, the least recently used of which are
+	 * dropped.
+	 */
+	protected static final int MAX_MEMOS = 64;
+
+	private static final Map<String, ClusteringQualityMemo> memos = new LinkedHashMap<String, ClusteringQualityMemo>(
+			16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, ClusteringQualityMemo> eldest) {
+			return this.size() > MAX_MEMOS;
+		}
+	};
+
+	/**
+	 * Counts, how many clusterings were looked up in memos and how many of
+	 * them had all requested qualities memoized.
+	 */
+	public static class Statistics {
+
+		protected final AtomicLong lookups = new AtomicLong();
+
+		protected final AtomicLong hits = new AtomicLong();
+
+		/**
+		 * @param hit
+		 *            Whether all requested qualities were memoized.
+		 */
+		public void count(final boolean hit) {
+			this.lookups.incrementAndGet();
+			if (hit)
+				this.hits.incrementAndGet();
+		}
+
+		/**
+		 * @return The number of clusterings looked up.
+		 */
+		public long getLookups() {
+			return this.lookups.get();
+		}
+
+		/**
+		 * @return The number of clusterings, that had all requested qualities
+		 *         memoized.
+		 */
+		public long getHits() {
+			return this.hits.get();
+		}
+
+		/**
+		 * @return The fraction of lookups, that were hits; 0 if there were no
+		 *         lookups.
+		 */
+		public double getHitRate() {
+			long lookups = this.getLookups();
+			return lookups > 0 ? (double) this.getHits() / lookups : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.UK, "%d of %d clusterings (%.1f%%)", this.getHits(), this.getLookups(),
+					100 * this.getHitRate());
+		}
+	}
+
+	/**
+	 * @param dataConfig
+	 *            The data configuration the clusterings belong to.
+	 * @return The memo of the dataset and goldstandard of the data
+	 *         configuration.
+	 */
+	public static ClusteringQualityMemo getForDataConfig(final DataConfig dataConfig) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(dataConfig.getDatasetConfig().getAbsolutePath());
+		DataSet dataSet = dataConfig.getDatasetConfig().getDataSet();
+		appendFile(sb, dataSet.getOriginalDataSet());
+		appendFile(sb, dataSet.getInStandardFormat());
+		if (dataConfig.hasGoldStandardConfig())
+			appendFile(sb, dataConfig.getGoldstandardConfig().getGoldstandard().getAbsolutePath());
+		return getForKey(sb.toString());
+	}
+
+	private static void appendFile(final StringBuilder sb, final DataSet dataSet) {
+		appendFile(sb, dataSet != null ? dataSet.getAbsolutePath() : null);
+	}
+
+	/**
+	 * Files are identified by their path, size and change date, such that
+	 * datasets replaced on the filesystem get a new memo.
+	 */
+	private static void appendFile(final StringBuilder sb, final String path) {
+		sb.append("\t");
+		if (path == null)
+			return;
+		File file = new File(path);
+		sb.append(path + ":" + file.length() + ":" + file.lastModified());
+	}
+
+	protected static ClusteringQualityMemo getForKey(final String key) {
+		synchronized (memos) {
+			ClusteringQualityMemo memo = memos.get(key);
+			if (memo == null) {
+				memo = new ClusteringQualityMemo();
+				memos.put(key, memo);
+			}
+			return memo;
+		}
+	}
+
+	/**
+	 * The memoized qualities, by the fingerprints of the clusterings and the
+	 * quality keys of the measures. Guarded by itself.
+	 */
+	protected final Map<String, Map<String, ClusteringQualityMeasureValue>> qualities;
+
+	protected final Statistics statistics;
+
+	protected ClusteringQualityMemo() {
+		super();
+		this.qualities = new LinkedHashMap<String, Map<String, ClusteringQualityMeasureValue>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<String, Map<String, ClusteringQualityMeasureValue>> eldest) {
+				return this.size() > MAX_CLUSTERINGS;
+			}
+		};
+		this.statistics = new Statistics();
+	}
+
+	/**
+	 * @param fingerprint
+	 *            The fingerprint of a clustering.
+	 * @param qualityMeasures
+	 *            The quality measures, whose qualities are requested.
+	 * @param statistics
+	 *            Further statistics, that count this lookup, or null.
+	 * @return The memoized qualities of the clustering for the requested
+	 *         measures. Measures, whose qualities are not memoized, are
+	 *         missing.
+	 */
+	public ClusteringQualitySet get(final String fingerprint, final List<ClusteringQualityMeasure> qualityMeasures,
+			final Statistics statistics) {
+		ClusteringQualitySet result = new ClusteringQualitySet();
+		synchronized (this.qualities) {
+			Map<String, ClusteringQualityMeasureValue> memoized = this.qualities.get(fingerprint);
+			if (memoized != null)
+				for (ClusteringQualityMeasure measure : qualityMeasures) {
+					ClusteringQualityMeasureValue value = memoized.get(measure.getQualityKey());
+					if (value != null)
+						result.put(measure, value);
+				}
+		}
+		boolean hit = result.size() == qualityMeasures.size();
+		this.statistics.count(hit);
+		if (statistics != null)
+			statistics.count(hit);
+		return result;
+	}
+
+	/**
+	 * @param fingerprint
+	 *            The fingerprint of a clustering.
+	 * @param qualitySet
+	 *            Qualities of the clustering, which are memoized in addition
+	 *            to those memoized already.
+	 */
+	public void put(final String fingerprint, final ClusteringQualitySet qualitySet) {
+		synchronized (this.qualities) {
+			Map<String, ClusteringQualityMeasureValue> memoized = this.qualities.get(fingerprint);
+			if (memoized == null) {
+				memoized = new HashMap<String, ClusteringQualityMeasureValue>();
+				this.qualities.put(fingerprint, memoized);
+			}
+			for (Map.Entry<ClusteringQualityMeasure, ClusteringQualityMeasureValue> e : qualitySet.entrySet()) {
+				ClusteringQualityMeasureValue value = e.getValue();
+				if (value.isTerminated() && !Double.isNaN(value.getValue()))
+					memoized.put(e.getKey().getQualityKey(), value);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of clusterings, whose qualities are memoized.
+	 */
+	public int size() {
+		synchronized (this.qualities) {
+			return this.qualities.size();
+		}
+	}
+
+	/**
+	 * @return The lookups of all users of this memo.
+	 */
+	public Statistics getStatistics() {
+		return this.statistics;
+	}
+}
@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import java.util.Arrays;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.CompactClustering;
+
+/**
+ * The contingency table of a clustering and a goldstandard: cell (c,k) holds
+ * the number of items, that are in cluster c of the clustering and in class k
+ * of the goldstandard. Only items contained in both clusterings are counted.
+ * For fuzzy clusterings an item contributes the minimum of its two
+ * coefficients.
+ *
+ * <p>
+ * The table is calculated in O(n + k + l) time for n items, k clusters and l
+ * classes. Only non-zero cells are stored, ordered by cluster. External
+ * clustering quality measures based on pair counting or on entropies can be
+ * derived from the table, without iterating over all pairs of items.
+ *
+ * <p>
+ * Use {@link Clustering#getContingencyTable(Clustering)} to reuse the table
+ * for several quality measures.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class ContingencyTable {
+
+	protected final int numberOfClusters;
+
+	protected final int numberOfClasses;
+
+	/** The cluster, class and number of items of every non-zero cell. */
+	protected final int[] cellClusters;
+	protected final int[] cellClasses;
+	protected final double[] cellCounts;
+
+	/** The number of common items in every cluster and class. */
+	protected final double[] clusterSums;
+	protected final double[] classSums;
+
+	/** The fuzzy sizes of the clusters and classes, including all items. */
+	protected final double[] clusterSizes;
+	protected final double[] classSizes;
+
+	/** The number of items of every class, including all items. */
+	protected final int[] classItemCounts;
+
+	/** The number of items of the clustering. */
+	protected final int numberOfClusteringItems;
+
+	/** The sum of all cells. */
+	protected final double total;
+
+	/**
+	 * The number of pairs in the same cell, in the same cluster and in the
+	 * same class.
+	 */
+	protected final double pairsInSameCell, pairsInSameCluster,
+			pairsInSameClass;
+
+	/**
+	 * @param clustering
+	 *            The clustering.
+	 * @param goldStandard
+	 *            The goldstandard.
+	 */
+	public ContingencyTable(final CompactClustering clustering,
+			final CompactClustering goldStandard) {
+		super();
+		this.numberOfClusters = clustering.getNumberOfClusters();
+		this.numberOfClasses = goldStandard.getNumberOfClusters();
+		this.numberOfClusteringItems = clustering.getNumberOfItems();
+
+		this.clusterSizes = new double[this.numberOfClusters];
+		for (int c = 0; c < this.numberOfClusters; c++)
+			for (int pos = clustering.getClusterStart(c); pos < clustering
+					.getClusterEnd(c); pos++)
+				this.clusterSizes[c] += clustering.getMemberCoefficient(pos);
+
+		/*
+		 * The classes of every goldstandard item, stored item by item.
+		 */
+		int gsItems = goldStandard.getNumberOfItems();
+		int[] itemOffsets = new int[gsItems + 1];
+		this.classSizes = new double[this.numberOfClasses];
+		this.classItemCounts = new int[this.numberOfClasses];
+		for (int k = 0; k < this.numberOfClasses; k++) {
+			for (int pos = goldStandard.getClusterStart(k); pos < goldStandard
+					.getClusterEnd(k); pos++) {
+				itemOffsets[goldStandard.getMemberItem(pos) + 1]++;
+				this.classSizes[k] += goldStandard.getMemberCoefficient(pos);
+			}
+			this.classItemCounts[k] = goldStandard.getClusterEnd(k)
+					- goldStandard.getClusterStart(k);
+		}
+		for (int i = 1; i < itemOffsets.length; i++)
+			itemOffsets[i] += itemOffsets[i - 1];
+		int[] itemClasses = new int[itemOffsets[gsItems]];
+		float[] itemCoefficients = new float[itemOffsets[gsItems]];
+		int[] next = Arrays.copyOf(itemOffsets, gsItems);
+		for (int k = 0; k < this.numberOfClasses; k++) {
+			for (int pos = goldStandard.getClusterStart(k); pos < goldStandard
+					.getClusterEnd(k); pos++) {
+				int item = goldStandard.getMemberItem(pos);
+				itemClasses[next[item]] = k;
+				itemCoefficients[next[item]++] = goldStandard
+						.getMemberCoefficient(pos);
+			}
+		}
+
+		int[] gsIndex = new int[clustering.getNumberOfItems()];
+		for (int i = 0; i < gsIndex.length; i++)
+			gsIndex[i] = goldStandard.getItemIndex(clustering.getItemId(i));
+
+		/*
+		 * Fill the cells cluster by cluster, using a dense row of all classes
+		 * and resetting only the touched entries afterwards.
+		 */
+		int capacity = 16;
+		int[] cellClusters = new int[capacity];
+		int[] cellClasses = new int[capacity];
+		double[] cellCounts = new double[capacity];
+		int numberOfCells = 0;
+		this.clusterSums = new double[this.numberOfClusters];
+		this.classSums = new double[this.numberOfClasses];
+		double total = 0.0;
+
+		double[] row = new double[this.numberOfClasses];
+		int[] touched = new int[this.numberOfClasses];
+		for (int c = 0; c < this.numberOfClusters; c++) {
+			int numberTouched = 0;
+			for (int pos = clustering.getClusterStart(c); pos < clustering
+					.getClusterEnd(c); pos++) {
+				int item = gsIndex[clustering.getMemberItem(pos)];
+				if (item < 0)
+					continue;
+				float coefficient = clustering.getMemberCoefficient(pos);
+				for (int q = itemOffsets[item]; q < itemOffsets[item + 1]; q++) {
+					int k = itemClasses[q];
+					if (row[k] == 0.0)
+						touched[numberTouched++] = k;
+					row[k] += Math.min(coefficient, itemCoefficients[q]);
+				}
+			}
+			for (int t = 0; t < numberTouched; t++) {
+				int k = touched[t];
+				if (numberOfCells == capacity) {
+					capacity *= 2;
+					cellClusters = Arrays.copyOf(cellClusters, capacity);
+					cellClasses = Arrays.copyOf(cellClasses, capacity);
+					cellCounts = Arrays.copyOf(cellCounts, capacity);
+				}
+				cellClusters[numberOfCells] = c;
+				cellClasses[numberOfCells] = k;
+				cellCounts[numberOfCells++] = row[k];
+				this.clusterSums[c] += row[k];
+				this.classSums[k] += row[k];
+				total += row[k];
+				row[k] = 0.0;
+			}
+		}
+		this.cellClusters = Arrays.copyOf(cellClusters, numberOfCells);
+		this.cellClasses = Arrays.copyOf(cellClasses, numberOfCells);
+		this.cellCounts = Arrays.copyOf(cellCounts, numberOfCells);
+		this.total = total;
+
+		double pairsInSameCell = 0.0;
+		for (double count : this.cellCounts)
+			pairsInSameCell += pairs(count);
+		double pairsInSameCluster = 0.0;
+		for (double sum : this.clusterSums)
+			pairsInSameCluster += pairs(sum);
+		double pairsInSameClass = 0.0;
+		for (double sum : this.classSums)
+			pairsInSameClass += pairs(sum);
+		this.pairsInSameCell = pairsInSameCell;
+		this.pairsInSameCluster = pairsInSameCluster;
+		this.pairsInSameClass = pairsInSameClass;
+	}
+
+	/**
+	 * @return The number of clusters of the clustering.
+	 */
+	public int getNumberOfClusters() {
+		return this.numberOfClusters;
+	}
+
+	/**
+	 * @return The number of classes of the goldstandard.
+	 */
+	public int getNumberOfClasses() {
+		return this.numberOfClasses;
+	}
+
+	/**
+	 * @return The number of non-zero cells.
+	 */
+	public int getNumberOfCells() {
+		return this.cellCounts.length;
+	}
+
+	/**
+	 * @param cell
+	 *            The index of a non-zero cell.
+	 * @return The cluster of the cell.
+	 */
+	public int getCellCluster(final int cell) {
+		return this.cellClusters[cell];
+	}
+
+	/**
+	 * @param cell
+	 *            The index of a non-zero cell.
+	 * @return The class of the cell.
+	 */
+	public int getCellClass(final int cell) {
+		return this.cellClasses[cell];
+	}
+
+	/**
+	 * @param cell
+	 *            The index of a non-zero cell.
+	 * @return The number of items in the cluster and class of the cell.
+	 */
+	public double getCellCount(final int cell) {
+		return this.cellCounts[cell];
+	}
+
+	/**
+	 * @param cluster
+	 * @return The number of items of the cluster, that are also in the
+	 *         goldstandard.
+	 */
+	public double getClusterSum(final int cluster) {
+		return this.clusterSums[cluster];
+	}
+
+	/**
+	 * @param clazz
+	 * @return The number of items of the class, that are also in the
+	 *         clustering.
+	 */
+	public double getClassSum(final int clazz) {
+		return this.classSums[clazz];
+	}
+
+	/**
+	 * @param cluster
+	 * @return The fuzzy size of the cluster, including items missing in the
+	 *         goldstandard.
+	 */
+	public double getClusterSize(final int cluster) {
+		return this.clusterSizes[cluster];
+	}
+
+	/**
+	 * @param clazz
+	 * @return The fuzzy size of the class, including items missing in the
+	 *         clustering.
+	 */
+	public double getClassSize(final int clazz) {
+		return this.classSizes[clazz];
+	}
+
+	/**
+	 * @param clazz
+	 * @return The number of items of the class, including items missing in
+	 *         the clustering.
+	 */
+	public int getClassItemCount(final int clazz) {
+		return this.classItemCounts[clazz];
+	}
+
+	/**
+	 * @return The number of items of the clustering, including items missing
+	 *         in the goldstandard.
+	 */
+	public int getNumberOfClusteringItems() {
+		return this.numberOfClusteringItems;
+	}
+
+	/**
+	 * @return The number of items contained in both clusterings.
+	 */
+	public double getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * @return The number of pairs of common items.
+	 */
+	public double getNumberOfPairs() {
+		return pairs(this.total);
+	}
+
+	/**
+	 * @return The number of pairs in the same cluster and the same class.
+	 */
+	public double getTruePositives() {
+		return this.pairsInSameCell;
+	}
+
+	/**
+	 * @return The number of pairs in the same cluster but different classes.
+	 */
+	public double getFalsePositives() {
+		return this.pairsInSameCluster - this.pairsInSameCell;
+	}
+
+	/**
+	 * @return The number of pairs in the same class but different clusters.
+	 */
+	public double getFalseNegatives() {
+		return this.pairsInSameClass - this.pairsInSameCell;
+	}
+
+	/**
+	 * @return The number of pairs in different clusters and different
+	 *         classes.
+	 */
+	public double getTrueNegatives() {
+		return this.getNumberOfPairs() - this.pairsInSameCluster
+				- this.pairsInSameClass + this.pairsInSameCell;
+	}
+
+	protected static double pairs(final double n) {
+		return n * (n - 1) / 2.0;
+	}
+}
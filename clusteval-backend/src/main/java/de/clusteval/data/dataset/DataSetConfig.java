@@ -289,6 +289,10 @@ public class DataSetConfig extends DumpableRepositoryObject {
 				simString = "float";
 			else if (configInputToStandard.getSimilarityPrecision() == NUMBER_PRECISION.SHORT)
 				simString = "short";
+			else if (configInputToStandard.getSimilarityPrecision() == NUMBER_PRECISION.MAPPED_DOUBLE)
+				simString = "mapped_double";
+			else if (configInputToStandard.getSimilarityPrecision() == NUMBER_PRECISION.MAPPED_FLOAT)
+				simString = "mapped_float";
 			writer.append("similarityPrecision = " + simString);
 			writer.newLine();
 
@@ -15,15 +15,20 @@ package de.clusteval.data.dataset;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.List;
 
 import de.wiwie.wiutils.utils.SimilarityMatrix;
 import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.SimilarityStatistics;
 import de.clusteval.data.dataset.DataSet.WEBSITE_VISIBILITY;
 import de.clusteval.data.dataset.format.InvalidDataSetFormatVersionException;
 import de.clusteval.data.dataset.format.RelativeDataSetFormat;
 import de.clusteval.data.dataset.type.DataSetType;
+import de.clusteval.framework.ClustevalBackendServer;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
@@ -110,11 +115,156 @@ public class RelativeDataSet extends DataSet {
 	public boolean loadIntoMemory(NUMBER_PRECISION precision)
 			throws IllegalArgumentException, IOException,
 			InvalidDataSetFormatVersionException {
-		if (!isInMemory())
+		if (!isInMemory()) {
 			this.similarities = this.getDataSetFormat().parse(this, precision);
+			// the statistics were collected while parsing
+			if (!this.hasCurrentStatisticsFile())
+				this.writeStatisticsFile();
+		}
 		return true;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.clusteval.data.dataset.DataSet#writeToFile(boolean)
+	 */
+	@Override
+	public boolean writeToFile(boolean withHeader) {
+		boolean result = super.writeToFile(withHeader);
+		if (result)
+			this.writeStatisticsFile();
+		return result;
+	}
+
+	/**
+	 * @return The file next to this dataset, which holds the statistics of
+	 *         its similarities.
+	 */
+	public File getStatisticsFile() {
+		return new File(this.getAbsolutePath() + ".stats");
+	}
+
+	/**
+	 * @return Identifies the version of the file of this dataset by its size
+	 *         and modification date. It is stored in the statistics file, such
+	 *         that outdated statistics are detected without comparing the
+	 *         modification dates of both files.
+	 */
+	protected String getStatisticsSource() {
+		File file = new File(this.getAbsolutePath());
+		return file.length() + ":" + file.lastModified();
+	}
+
+	/**
+	 * @return True, if the statistics file exists and was computed from the
+	 *         current version of this dataset.
+	 */
+	protected boolean hasCurrentStatisticsFile() {
+		return this.readStatisticsFile() != null;
+	}
+
+	/**
+	 * @return The statistics stored in the statistics file, or null if it does
+	 *         not exist, could not be read or is outdated.
+	 */
+	protected SimilarityStatistics readStatisticsFile() {
+		File statsFile = this.getStatisticsFile();
+		synchronized (ClustevalBackendServer.getCommonFile(statsFile)) {
+			if (!statsFile.exists())
+				return null;
+			try {
+				return SimilarityStatistics.readFromFile(statsFile,
+						this.getStatisticsSource());
+			} catch (IOException e) {
+				this.log.warn("Could not read similarity statistics of "
+						+ this + ": " + e.getMessage());
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Writes the statistics into a temporary file first, which then replaces
+	 * the statistics file, such that readers never see a partial file.
+	 */
+	protected void writeStatisticsFile() {
+		File statsFile = this.getStatisticsFile();
+		synchronized (ClustevalBackendServer.getCommonFile(statsFile)) {
+			File tmpFile = null;
+			try {
+				tmpFile = File.createTempFile("." + statsFile.getName(),
+						".tmp", statsFile.getAbsoluteFile().getParentFile());
+				this.similarities.getStatistics().writeToFile(tmpFile,
+						this.getStatisticsSource());
+				try {
+					Files.move(tmpFile.toPath(), statsFile.toPath(),
+							StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tmpFile.toPath(), statsFile.toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException e) {
+				this.log.warn("Could not write similarity statistics of "
+						+ this + ": " + e.getMessage());
+			} finally {
+				if (tmpFile != null)
+					tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the statistics of the similarities of this dataset. If the
+	 * dataset is not in memory, they are read from the statistics file stored
+	 * next to the dataset. Only if that file does not exist or is outdated,
+	 * the dataset is parsed and unloaded again afterwards.
+	 * 
+	 * @return The statistics of the similarities of this dataset.
+	 * @throws IOException
+	 * @throws InvalidDataSetFormatVersionException
+	 * @throws IllegalArgumentException
+	 */
+	public SimilarityStatistics getSimilarityStatistics()
+			throws IllegalArgumentException, IOException,
+			InvalidDataSetFormatVersionException {
+		boolean wasInMemory = this.isInMemory();
+		try {
+			return this.getSimilarityStatistics(NUMBER_PRECISION.DOUBLE);
+		} finally {
+			if (!wasInMemory && this.isInMemory())
+				this.unloadFromMemory();
+		}
+	}
+
+	/**
+	 * Returns the statistics of the similarities of this dataset like
+	 * {@link #getSimilarityStatistics()}. If the statistics file does not
+	 * exist or is outdated, the dataset is loaded into memory with the given
+	 * precision and stays there, such that callers about to load the dataset
+	 * anyway do not parse it twice.
+	 * 
+	 * @param precision
+	 *            The precision to load the dataset with, if necessary.
+	 * @return The statistics of the similarities of this dataset.
+	 * @throws IOException
+	 * @throws InvalidDataSetFormatVersionException
+	 * @throws IllegalArgumentException
+	 */
+	public SimilarityStatistics getSimilarityStatistics(
+			final NUMBER_PRECISION precision) throws IllegalArgumentException,
+			IOException, InvalidDataSetFormatVersionException {
+		if (this.isInMemory())
+			return this.similarities.getStatistics();
+		SimilarityStatistics statistics = this.readStatisticsFile();
+		if (statistics != null)
+			return statistics;
+		// writes the statistics file
+		this.loadIntoMemory(precision);
+		return this.similarities.getStatistics();
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -62,7 +62,9 @@ public abstract class DataSetFormatParser {
 		/** The AP row sim. */
 		APRowSim,
 		/** The Sim matrix. */
-		SimMatrix
+		SimMatrix,
+		/** The binary Sim matrix. */
+		BinarySimMatrix
 	}
 
 	/**
@@ -144,7 +146,7 @@ public abstract class DataSetFormatParser {
 	 * hold, nothing is written to the filesystem.
 	 * 
 	 * @param dataSet
-	 * @return
+	 * @return True, if the dataset was written.
 	 */
 	protected final boolean writeToFile(DataSet dataSet,
 			final boolean withHeader) {
@@ -159,20 +161,36 @@ public abstract class DataSetFormatParser {
 		final File dataSetFile = new File(dataSet.getAbsolutePath());
 
 		try {
-			// dataset file
-			BufferedWriter writer = new BufferedWriter(new FileWriter(
-					dataSetFile));
-			if (withHeader)
-				writeHeaderIntoFile(dataSet, writer);
-			writeToFileHelper(dataSet, writer);
-			writer.close();
-
+			writeToFileHelper(dataSet, dataSetFile, withHeader);
+			return true;
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 		return false;
 	}
 
+	/**
+	 * Writes the dataset into the given file. The default implementation
+	 * writes a text file using {@link #writeToFileHelper(DataSet, BufferedWriter)}.
+	 * Formats that are not text based can override this method.
+	 * 
+	 * @param dataSet
+	 * @param dataSetFile
+	 *            The file to write the dataset into.
+	 * @param withHeader
+	 *            Whether to write the header into the dataset file.
+	 * @throws IOException
+	 */
+	protected void writeToFileHelper(DataSet dataSet, File dataSetFile,
+			boolean withHeader) throws IOException {
+		// dataset file
+		BufferedWriter writer = new BufferedWriter(new FileWriter(dataSetFile));
+		if (withHeader)
+			writeHeaderIntoFile(dataSet, writer);
+		writeToFileHelper(dataSet, writer);
+		writer.close();
+	}
+
 	protected abstract void writeToFileHelper(DataSet dataSet,
 			BufferedWriter writer) throws IOException;
 
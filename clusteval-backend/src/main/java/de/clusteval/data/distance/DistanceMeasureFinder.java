@@ -123,7 +123,8 @@ class DistanceMeasureURLClassLoader extends URLClassLoader {
 
 		if (name.startsWith("de.clusteval.data.distance")
 				&& !name.equals("de.clusteval.data.distance.DistanceMeasure")
-				&& !name.equals("de.clusteval.data.distance.DistanceMeasureR")) {
+				&& !name.equals("de.clusteval.data.distance.DistanceMeasureR")
+				&& !name.equals("de.clusteval.data.distance.DistanceMeasureJava")) {
 			if (name.endsWith("DistanceMeasure")) {
 				@SuppressWarnings("unchecked")
 				Class<? extends DistanceMeasure> distanceMeasure = (Class<? extends DistanceMeasure>) result;
@@ -0,0 +1,249 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.data.distance;
+
+import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import java.io.File;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This type of distance measure is calculated within the JVM.
+ *
+ * <p>
+ * The rows of the input matrix are first prepared once (e.g. centered or
+ * ranked) and then the pairwise distances are calculated in square tiles of
+ * {@link #TILE_SIZE} rows and columns, such that the coordinates of a tile
+ * stay in the cache of a core. The tiles are processed in parallel and
+ * written directly into the resulting similarity matrix. For symmetric
+ * measures only the tiles of the upper triangle are calculated.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public abstract class DistanceMeasureJava extends DistanceMeasure {
+
+    /**
+     * The number of rows and columns of the tiles, that are calculated at
+     * once.
+     */
+    protected static final int TILE_SIZE = 64;
+
+    /**
+     * @param repository
+     * @param register
+     * @param changeDate
+     * @param absPath
+     * @throws RegisterException
+     */
+    public DistanceMeasureJava(Repository repository, boolean register,
+            long changeDate, File absPath) throws RegisterException {
+        super(repository, register, changeDate, absPath);
+    }
+
+    /**
+     * The copy constructor of this distance measures.
+     *
+     * @param other The object to clone.
+     * @throws RegisterException
+     */
+    public DistanceMeasureJava(final DistanceMeasureJava other)
+            throws RegisterException {
+        super(other);
+    }
+
+    /*
+	 * (non-Javadoc)
+	 *
+	 * @see de.clusteval.data.distance.DistanceMeasure#getDistance(double[],
+	 * double[])
+     */
+    @Override
+    public final double getDistance(double[] point1, double[] point2) {
+        if (point1.length != point2.length) {
+            throw new InvalidParameterException(
+                    "The dimensions of the points need to be the same.");
+        }
+        double[][] prepared = prepare(new double[][]{point1, point2});
+        return getDistanceHelper(prepared[0], prepared[1]);
+    }
+
+    /*
+	 * (non-Javadoc)
+	 *
+	 * @see de.clusteval.data.distance.DistanceMeasure#getDistances(double[][])
+     */
+    @Override
+    public final SimilarityMatrix getDistances(
+            ConversionInputToStandardConfiguration config, double[][] matrix)
+            throws InterruptedException {
+        final double[][] prepared = prepare(matrix);
+        final SimilarityMatrix result = new SimilarityMatrix(null,
+                matrix.length, matrix.length, config.getSimilarityPrecision(),
+                this.isSymmetric());
+
+        // symmetric results only store the upper triangle
+        final boolean symmetric = result.isSymmetric();
+        final int tiles = (matrix.length + TILE_SIZE - 1) / TILE_SIZE;
+        int numberOfTiles = symmetric ? tiles * (tiles + 1) / 2 : tiles
+                * tiles;
+        final int[] tileRows = new int[numberOfTiles];
+        final int[] tileColumns = new int[numberOfTiles];
+        int tile = 0;
+        for (int i = 0; i < tiles; i++) {
+            for (int j = symmetric ? i : 0; j < tiles; j++) {
+                tileRows[tile] = i * TILE_SIZE;
+                tileColumns[tile++] = j * TILE_SIZE;
+            }
+        }
+
+        this.log.debug("Calculating pairwise distances in " + numberOfTiles
+                + " tiles");
+        final Thread caller = Thread.currentThread();
+        IntStream.range(0, numberOfTiles).parallel().forEach(t -> {
+            if (!caller.isInterrupted()) {
+                result.setSimilarities(tileRows[t], tileColumns[t],
+                        getTile(prepared, tileRows[t], tileColumns[t],
+                                symmetric));
+            }
+        });
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return result;
+    }
+
+    private double[][] getTile(final double[][] prepared, final int firstRow,
+            final int firstColumn, final boolean symmetric) {
+        int rows = Math.min(TILE_SIZE, prepared.length - firstRow);
+        int columns = Math.min(TILE_SIZE, prepared.length - firstColumn);
+        double[][] tile = new double[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            double[] point = prepared[firstRow + i];
+            // entries below the diagonal are not stored for symmetric results
+            int j = symmetric ? Math.max(0, firstRow + i - firstColumn) : 0;
+            for (; j < columns; j++) {
+                tile[i][j] = getDistanceHelper(point,
+                        prepared[firstColumn + j]);
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Prepares the rows of the input matrix once, before the pairwise
+     * distances of the rows are calculated by
+     * {@link #getDistanceHelper(double[], double[])}. The input matrix must
+     * not be changed.
+     *
+     * @param matrix The input matrix, one row for every object.
+     * @return The prepared rows.
+     */
+    protected double[][] prepare(final double[][] matrix) {
+        return matrix;
+    }
+
+    /**
+     * @param point1 A prepared row.
+     * @param point2 Another prepared row.
+     * @return The distance between the two rows.
+     */
+    protected abstract double getDistanceHelper(double[] point1,
+            double[] point2);
+
+    /**
+     * Centers the rows for {@link #correlation(double[], double[])}. The sum
+     * of squares of every centered row is appended as its last entry, such
+     * that rows are perfectly correlated with themselves despite rounding.
+     *
+     * @param matrix The input matrix.
+     * @return The centered rows.
+     */
+    protected static double[][] center(final double[][] matrix) {
+        double[][] result = new double[matrix.length][];
+        IntStream.range(0, matrix.length).parallel().forEach(i -> {
+            double[] row = matrix[i];
+            double mean = 0.0;
+            for (double x : row) {
+                mean += x;
+            }
+            mean /= row.length;
+            double[] centered = new double[row.length + 1];
+            double sumOfSquares = 0.0;
+            for (int j = 0; j < row.length; j++) {
+                centered[j] = row[j] - mean;
+                sumOfSquares += centered[j] * centered[j];
+            }
+            centered[row.length] = sumOfSquares;
+            result[i] = centered;
+        });
+        return result;
+    }
+
+    /**
+     * Replaces the values of every row by their ranks within the row. Ties
+     * get the average of their ranks, as in R.
+     *
+     * @param matrix The input matrix.
+     * @return The ranks of the rows.
+     */
+    protected static double[][] rank(final double[][] matrix) {
+        double[][] result = new double[matrix.length][];
+        IntStream.range(0, matrix.length).parallel().forEach(i -> {
+            double[] row = matrix[i];
+            Integer[] order = new Integer[row.length];
+            for (int j = 0; j < order.length; j++) {
+                order[j] = j;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(row[a], row[b]));
+            double[] ranks = new double[row.length];
+            for (int start = 0; start < order.length;) {
+                int end = start + 1;
+                while (end < order.length
+                        && row[order[end]] == row[order[start]]) {
+                    end++;
+                }
+                // ranks are 1-based
+                double rank = (start + end + 1) / 2.0;
+                for (int j = start; j < end; j++) {
+                    ranks[order[j]] = rank;
+                }
+                start = end;
+            }
+            result[i] = ranks;
+        });
+        return result;
+    }
+
+    /**
+     * @param point1 A row centered by {@link #center(double[][])}.
+     * @param point2 Another centered row.
+     * @return The pearson correlation of both rows, within [-1,1]. NaN, if
+     * one of the rows has zero variance.
+     */
+    protected static double correlation(final double[] point1,
+            final double[] point2) {
+        int length = point1.length - 1;
+        double result = 0.0;
+        for (int i = 0; i < length; i++) {
+            result += point1[i] * point2[i];
+        }
+        result /= Math.sqrt(point1[length] * point2[length]);
+        // rounding errors may lead to values slightly outside of [-1,1]
+        return Math.max(-1.0, Math.min(1.0, result));
+    }
+}
@@ -117,7 +117,8 @@ public abstract class DistanceMeasureR extends DistanceMeasure {
                         double[][] vector = getDistancesHelper(config, matrix,
                                 rEngine, firstRow, lastRow);
                         for (int x = 0; x < vector.length; x++) {
-                            for (int y = 0; y < vector[x].length; y++) {
+                            // symmetric results only store the upper triangle
+                            for (int y = result.isSymmetric() ? i + x : 0; y < vector[x].length; y++) {
                                 result.setSimilarity(i + x, y, vector[x][y]);
                             }
                         }
@@ -13,6 +13,10 @@
  */
 package de.clusteval.framework;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * @author Christian Wiwie
  * 
@@ -29,6 +33,86 @@ public class BackendServerConfig {
 
 	protected int rServePort;
 
+	/**
+	 * Further ports of Rserve instances, over which the connections are
+	 * spread. If null, only {@link #rServePort} is used.
+	 */
+	protected int[] rServePorts;
+
+	/**
+	 * The maximal number of Rserve connections, that are open at the same
+	 * time. If not positive, it is derived from the number of threads.
+	 */
+	protected int rServePoolSize;
+
+	/**
+	 * The number of milliseconds after which unused Rserve connections are
+	 * closed.
+	 */
+	protected long rServeIdleTimeout;
+
+	/**
+	 * The maximal number of datasets, that are kept in every R session.
+	 */
+	protected int rServeCacheSize;
+
+	/**
+	 * A directory on a memory-backed file system, through which large
+	 * matrices are exchanged with Rserve, if a probe shows that Rserve reads
+	 * the files written into it. If null, all data is sent through the
+	 * Rserve connection.
+	 */
+	protected File rServeTransferDirectory;
+
+	/**
+	 * The maximal number of iterations of a run runnable, that are submitted
+	 * and not finished at the same time. If not positive, it is derived from
+	 * the number of threads.
+	 */
+	protected int iterationWindow;
+
+	/**
+	 * The heap memory in megabytes, that the running iterations may reserve
+	 * together. If not positive, it is derived from the maximal heap size.
+	 */
+	protected long iterationMemoryBudget;
+
+	/**
+	 * Whether the output of programs is copied into their logs while they
+	 * are running, instead of being written into the logs by the programs.
+	 */
+	protected boolean liveProcessOutput;
+
+	/**
+	 * The maximal size in megabytes of the log of one program invocation. If
+	 * not positive, the logs are not limited.
+	 */
+	protected long processOutputLimit;
+
+	/**
+	 * Whether the batches of lines appended to the complete quality files of
+	 * runs are forced to the disk.
+	 */
+	protected boolean syncQualityFiles;
+
+	/**
+	 * The maximal size in megabytes of the cache of clusterings of the
+	 * repository. If not positive, clusterings are not cached.
+	 */
+	protected long clusteringCacheSize;
+
+	/**
+	 * Whether a binary copy is written next to each similarity matrix dataset
+	 * file and used to load the dataset without parsing the text file.
+	 */
+	protected boolean binarySimMatrixCopies;
+
+	/**
+	 * The share of the iteration threads the runs of a client get relative
+	 * to other clients. Clients without a weight have weight 1.
+	 */
+	protected Map<String, Double> clientWeights;
+
 	/**
 	 * 
 	 */
@@ -42,6 +126,13 @@ public class BackendServerConfig {
 		this.noDatabase = false;
 		this.rServeHost = "127.0.0.1";
 		this.rServePort = 6311;
+		this.rServeIdleTimeout = 5 * 60 * 1000;
+		this.rServeCacheSize = 1;
+		File shm = new File("/dev/shm");
+		if (shm.isDirectory() && shm.canWrite())
+			this.rServeTransferDirectory = shm;
+		this.clusteringCacheSize = 1024;
+		this.clientWeights = new HashMap<String, Double>();
 	}
 
 	/**
@@ -96,4 +187,149 @@ public class BackendServerConfig {
 	public void setRservePort(final int port) {
 		this.rServePort = port;
 	}
+
+	/**
+	 * @return The ports of all Rserve instances.
+	 */
+	public int[] getRservePorts() {
+		if (this.rServePorts == null)
+			return new int[]{this.rServePort};
+		return this.rServePorts;
+	}
+
+	public void setRservePorts(final int[] ports) {
+		this.rServePorts = ports;
+	}
+
+	public int getRservePoolSize() {
+		if (this.rServePoolSize <= 0)
+			// the iteration threads, the run threads and the supervisor
+			return 2 * this.numberOfThreads + 4;
+		return this.rServePoolSize;
+	}
+
+	public void setRservePoolSize(final int poolSize) {
+		this.rServePoolSize = poolSize;
+	}
+
+	public long getRserveIdleTimeout() {
+		return this.rServeIdleTimeout;
+	}
+
+	public void setRserveIdleTimeout(final long idleTimeout) {
+		this.rServeIdleTimeout = idleTimeout;
+	}
+
+	public int getRserveCacheSize() {
+		return this.rServeCacheSize;
+	}
+
+	public void setRserveCacheSize(final int cacheSize) {
+		this.rServeCacheSize = cacheSize;
+	}
+
+	public File getRserveTransferDirectory() {
+		return this.rServeTransferDirectory;
+	}
+
+	public void setRserveTransferDirectory(final File transferDirectory) {
+		this.rServeTransferDirectory = transferDirectory;
+	}
+
+	public int getIterationWindow() {
+		if (this.iterationWindow <= 0)
+			// keep the iteration threads busy while results are processed
+			return 4 * this.numberOfThreads;
+		return this.iterationWindow;
+	}
+
+	public void setIterationWindow(final int iterationWindow) {
+		this.iterationWindow = iterationWindow;
+	}
+
+	/**
+	 * @return The heap memory in bytes, that the running iterations may
+	 *         reserve together.
+	 */
+	public long getIterationMemoryBudget() {
+		if (this.iterationMemoryBudget <= 0)
+			// leave the other half for the datasets held by the runs
+			return Runtime.getRuntime().maxMemory() / 2;
+		return this.iterationMemoryBudget << 20;
+	}
+
+	public void setIterationMemoryBudget(final long iterationMemoryBudget) {
+		this.iterationMemoryBudget = iterationMemoryBudget;
+	}
+
+	public boolean isLiveProcessOutput() {
+		return this.liveProcessOutput;
+	}
+
+	public void setLiveProcessOutput(final boolean liveProcessOutput) {
+		this.liveProcessOutput = liveProcessOutput;
+	}
+
+	/**
+	 * @return The maximal size in bytes of the log of one program invocation.
+	 */
+	public long getProcessOutputLimit() {
+		if (this.processOutputLimit <= 0)
+			return Long.MAX_VALUE;
+		return this.processOutputLimit << 20;
+	}
+
+	public void setProcessOutputLimit(final long processOutputLimit) {
+		this.processOutputLimit = processOutputLimit;
+	}
+
+	public boolean isSyncQualityFiles() {
+		return this.syncQualityFiles;
+	}
+
+	public void setSyncQualityFiles(final boolean syncQualityFiles) {
+		this.syncQualityFiles = syncQualityFiles;
+	}
+
+	/**
+	 * @return The maximal size in bytes of the cache of clusterings of the
+	 *         repository, or 0 if clusterings are not cached.
+	 */
+	public long getClusteringCacheSize() {
+		if (this.clusteringCacheSize <= 0)
+			return 0;
+		return this.clusteringCacheSize << 20;
+	}
+
+	public void setClusteringCacheSize(final long clusteringCacheSize) {
+		this.clusteringCacheSize = clusteringCacheSize;
+	}
+
+	public boolean isBinarySimMatrixCopies() {
+		return this.binarySimMatrixCopies;
+	}
+
+	public void setBinarySimMatrixCopies(final boolean binarySimMatrixCopies) {
+		this.binarySimMatrixCopies = binarySimMatrixCopies;
+	}
+
+	/**
+	 * @return The weights of the clients, which have a weight other than 1.
+	 */
+	public Map<String, Double> getClientWeights() {
+		return this.clientWeights;
+	}
+
+	/**
+	 * @param clientId
+	 *            The id of a client.
+	 * @param weight
+	 *            The share of the iteration threads the runs of the client
+	 *            get relative to other clients.
+	 */
+	public void setClientWeight(final String clientId, final double weight) {
+		if (!(weight > 0))
+			throw new IllegalArgumentException("Weights have to be positive");
+		this.clientWeights.put(clientId, weight);
+	}
 }
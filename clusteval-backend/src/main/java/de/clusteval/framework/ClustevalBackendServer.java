@@ -243,6 +243,87 @@ public class ClustevalBackendServer implements IBackendServer {
 		OptionBuilder.withType(Integer.class);
 		Option rServePort = OptionBuilder.create("rServePort");
 		serverCLIOptions.addOption(rServePort);
+
+		OptionBuilder.withArgName("rServePorts");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("A comma separated list of ports of Rserve instances, over which the connections to R are spread.");
+		OptionBuilder.withType(String.class);
+		Option rServePorts = OptionBuilder.create("rServePorts");
+		serverCLIOptions.addOption(rServePorts);
+
+		OptionBuilder.withArgName("number");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The maximal number of open connections to Rserve.");
+		OptionBuilder.withType(Integer.class);
+		Option rServePoolSize = OptionBuilder.create("rServePoolSize");
+		serverCLIOptions.addOption(rServePoolSize);
+
+		OptionBuilder.withArgName("milliseconds");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The time after which unused connections to Rserve are closed.");
+		OptionBuilder.withType(Long.class);
+		Option rServeIdleTimeout = OptionBuilder.create("rServeIdleTimeout");
+		serverCLIOptions.addOption(rServeIdleTimeout);
+
+		OptionBuilder.withArgName("number");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The number of datasets kept in every R session, such that they are not transferred again.");
+		OptionBuilder.withType(Integer.class);
+		Option rServeCacheSize = OptionBuilder.create("rServeCacheSize");
+		serverCLIOptions.addOption(rServeCacheSize);
+
+		OptionBuilder.withArgName("directory");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("A directory on a memory-backed file system (default /dev/shm), through which large matrices are exchanged with a local Rserve. Use 'none' to send all data through the connection.");
+		OptionBuilder.withType(String.class);
+		Option rServeTransferDirectory = OptionBuilder.create("rServeTransferDirectory");
+		serverCLIOptions.addOption(rServeTransferDirectory);
+
+		OptionBuilder.withArgName("number");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The maximal number of iterations of a run, that are scheduled and not finished at the same time (default 4 times the number of threads).");
+		OptionBuilder.withType(Integer.class);
+		Option iterationWindow = OptionBuilder.create("iterationWindow");
+		serverCLIOptions.addOption(iterationWindow);
+
+		OptionBuilder.withArgName("megabytes");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The heap memory, that the running iterations may reserve together (default half of the maximal heap size).");
+		OptionBuilder.withType(Long.class);
+		Option iterationMemoryBudget = OptionBuilder.create("iterationMemoryBudget");
+		serverCLIOptions.addOption(iterationMemoryBudget);
+
+		OptionBuilder.withDescription("Indicates, whether the output of programs should be copied into their logs while they are running.");
+		Option liveProcessOutput = OptionBuilder.create("liveProcessOutput");
+		serverCLIOptions.addOption(liveProcessOutput);
+
+		OptionBuilder.withArgName("megabytes");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The maximal size of the log of one program invocation (default unlimited).");
+		OptionBuilder.withType(Long.class);
+		Option processOutputLimit = OptionBuilder.create("processOutputLimit");
+		serverCLIOptions.addOption(processOutputLimit);
+
+		OptionBuilder.withDescription("Indicates, whether the qualities written into the complete quality files of runs should be forced to the disk.");
+		Option syncQualityFiles = OptionBuilder.create("syncQualityFiles");
+		serverCLIOptions.addOption(syncQualityFiles);
+
+		OptionBuilder.withArgName("megabytes");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The maximal size of the cache of clusterings shared by all runs of the repository; 0 disables the cache (default 1024).");
+		OptionBuilder.withType(Long.class);
+		Option clusteringCacheSize = OptionBuilder.create("clusteringCacheSize");
+		serverCLIOptions.addOption(clusteringCacheSize);
+
+		OptionBuilder.withDescription("Indicates, whether binary copies of similarity matrix datasets should be written and used to load them without parsing.");
+		Option binarySimMatrixCopies = OptionBuilder.create("binarySimMatrixCopies");
+		serverCLIOptions.addOption(binarySimMatrixCopies);
+
+		OptionBuilder.withArgName("client=weight,...");
+		OptionBuilder.hasArg();
+		OptionBuilder.withDescription("The share of the iteration threads the runs of a client get relative to other clients (default 1 for every client).");
+		Option clientWeights = OptionBuilder.create("clientWeights");
+		serverCLIOptions.addOption(clientWeights);
 	}
 
 	/**
@@ -448,6 +529,57 @@ public class ClustevalBackendServer implements IBackendServer {
 			if (cmd.hasOption("rServePort"))
 				config.rServePort = Integer.parseInt(cmd.getOptionValue("rServePort"));
 
+			if (cmd.hasOption("rServePorts")) {
+				String[] ports = cmd.getOptionValue("rServePorts").split(",");
+				config.rServePorts = new int[ports.length];
+				for (int i = 0; i < ports.length; i++)
+					config.rServePorts[i] = Integer.parseInt(ports[i].trim());
+			}
+
+			if (cmd.hasOption("rServePoolSize"))
+				config.rServePoolSize = Integer.parseInt(cmd.getOptionValue("rServePoolSize"));
+
+			if (cmd.hasOption("rServeIdleTimeout"))
+				config.rServeIdleTimeout = Long.parseLong(cmd.getOptionValue("rServeIdleTimeout"));
+
+			if (cmd.hasOption("rServeCacheSize"))
+				config.rServeCacheSize = Integer.parseInt(cmd.getOptionValue("rServeCacheSize"));
+
+			if (cmd.hasOption("rServeTransferDirectory")) {
+				String dir = cmd.getOptionValue("rServeTransferDirectory");
+				config.rServeTransferDirectory = dir.equals("none") ? null : new File(dir);
+			}
+
+			if (cmd.hasOption("iterationWindow"))
+				config.iterationWindow = Integer.parseInt(cmd.getOptionValue("iterationWindow"));
+
+			if (cmd.hasOption("iterationMemoryBudget"))
+				config.iterationMemoryBudget = Long.parseLong(cmd.getOptionValue("iterationMemoryBudget"));
+
+			if (cmd.hasOption("liveProcessOutput"))
+				config.setLiveProcessOutput(true);
+
+			if (cmd.hasOption("processOutputLimit"))
+				config.processOutputLimit = Long.parseLong(cmd.getOptionValue("processOutputLimit"));
+
+			if (cmd.hasOption("syncQualityFiles"))
+				config.setSyncQualityFiles(true);
+
+			if (cmd.hasOption("clusteringCacheSize"))
+				config.clusteringCacheSize = Long.parseLong(cmd.getOptionValue("clusteringCacheSize"));
+
+			if (cmd.hasOption("binarySimMatrixCopies"))
+				config.setBinarySimMatrixCopies(true);
+
+			if (cmd.hasOption("clientWeights")) {
+				for (String clientWeight : cmd.getOptionValue("clientWeights").split(",")) {
+					String[] split = clientWeight.split("=");
+					if (split.length != 2)
+						throw new ParseException("Invalid client weight: " + clientWeight);
+					config.setClientWeight(split[0].trim(), Double.parseDouble(split[1].trim()));
+				}
+			}
+
 			Logger log = LoggerFactory.getLogger(ClustevalBackendServer.class);
 
 			System.out.println("Starting clusteval server");
@@ -12,13 +12,29 @@
  */
 package de.clusteval.framework.repository;
 
+import de.clusteval.framework.BackendServerConfig;
 import de.clusteval.framework.ClustevalBackendServer;
 import de.clusteval.framework.RLibraryNotLoadedException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Random;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
 import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.REXPVector;
 import org.rosuda.REngine.REngineException;
 import org.rosuda.REngine.Rserve.RConnection;
 import org.rosuda.REngine.Rserve.RserveException;
@@ -48,17 +64,81 @@ public class MyRengine {
 
     protected Set<String> loadedLibraries;
 
+    /**
+     * The keys of the objects cached in the R session, the least recently used
+     * first.
+     */
+    protected LinkedHashMap<String, Boolean> cachedObjects;
+
+    /**
+     * The maximal number of objects cached in the R session.
+     */
+    protected int cacheSize;
+
+    /**
+     * Numeric matrices with at least this many entries are transferred
+     * through a file in {@link #transferDirectory}.
+     */
+    protected static final int TRANSFER_THRESHOLD = 1 << 16;
+
+    /**
+     * R can read and write at most this many bytes with a single call.
+     */
+    protected static final long TRANSFER_MAX_BYTES = Integer.MAX_VALUE;
+
+    /**
+     * The prefix of all files created in a {@link #transferDirectory}.
+     */
+    protected static final String TRANSFER_FILE_PREFIX = "clusteval-transfer";
+
+    /**
+     * A directory on a memory-backed file system shared with Rserve, or null
+     * if all data is transferred through the Rserve connection.
+     */
+    protected File transferDirectory;
+
+    /**
+     * The time, when this rengine was returned to its
+     * {@link RengineConnectionPool} the last time.
+     */
+    protected long lastReleased;
+
+    /**
+     * The number of calls of this rengine, that are currently executed. Nested
+     * calls are recorded in the {@link RengineStatistics} as part of the
+     * outermost call.
+     */
+    protected int callDepth;
+
+    /**
+     * The bytes transferred to and from R by the current outermost call.
+     */
+    protected long callBytes;
+
+    protected boolean closed;
+
+    protected static final RengineStatistics statistics = RengineStatistics
+            .getInstance();
+
     /**
      * @param string The parameter string.
      * @throws RserveException
      */
     public MyRengine(String string) throws RserveException {
+        this(ClustevalBackendServer.getBackendServerConfiguration()
+                .getRserveHost(), ClustevalBackendServer
+                .getBackendServerConfiguration().getRservePort());
+    }
+
+    /**
+     * @param host The host on which Rserve is listening.
+     * @param port The port on which Rserve is listening.
+     * @throws RserveException
+     */
+    public MyRengine(final String host, final int port) throws RserveException {
         super();
 
-        this.connection = new RConnection(ClustevalBackendServer
-                .getBackendServerConfiguration().getRserveHost(),
-                ClustevalBackendServer.getBackendServerConfiguration()
-                .getRservePort());
+        this.connection = new RConnection(host, port);
         try {
             this.pid = this.connection.eval("Sys.getpid()").asInteger();
         } catch (REXPMismatchException e) {
@@ -69,6 +149,143 @@ public class MyRengine {
         // this.connection.setSendBufferSize(1024l * 1024 * 1024 * 100);
         this.log = LoggerFactory.getLogger(this.getClass());
         this.loadedLibraries = new HashSet<String>();
+        this.cachedObjects = new LinkedHashMap<String, Boolean>(16, 0.75f,
+                true);
+        this.cacheSize = ClustevalBackendServer.getBackendServerConfiguration()
+                .getRserveCacheSize();
+        File transferDirectory = ClustevalBackendServer
+                .getBackendServerConfiguration().getRserveTransferDirectory();
+        if (this.probeTransferDirectory(transferDirectory)) {
+            this.transferDirectory = transferDirectory;
+        }
+        statistics.sessionOpened();
+    }
+
+    protected long beginCall() {
+        if (this.callDepth++ == 0) {
+            this.callBytes = 0;
+            statistics.callStarted();
+        }
+        return System.nanoTime();
+    }
+
+    protected void endCall(final String operation, final long start,
+            final boolean failed) {
+        if (--this.callDepth == 0) {
+            statistics.callFinished();
+            statistics.record(getCaller(), operation, System.nanoTime()
+                    - start, this.callBytes, failed);
+        }
+    }
+
+    /**
+     * @return The simple name of the class, that called this rengine.
+     */
+    protected static String getCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.equals(MyRengine.class.getName())) {
+                return className.substring(className.lastIndexOf('.') + 1);
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * @param r The result of an evaluation.
+     * @return The approximate number of bytes transferred for the result.
+     */
+    protected static long getSize(final REXP r) {
+        try {
+            if (r instanceof REXPString) {
+                long result = 0;
+                for (String string : r.asStrings()) {
+                    result += string != null ? string.length() : 0;
+                }
+                return result;
+            } else if (r instanceof REXPDouble) {
+                return 8L * r.length();
+            } else if (r instanceof REXPVector) {
+                return 4L * r.length();
+            }
+        } catch (REXPMismatchException e) {
+            // should not happen
+        }
+        return 0;
+    }
+
+    /**
+     * Checks, whether R reads the files written by this JVM into the given
+     * directory, that is whether Rserve runs on this machine and shares the
+     * directory.
+     *
+     * @param directory The candidate for the {@link #transferDirectory}.
+     * @return True, if R read back the value written into a file of the
+     * directory.
+     */
+    protected boolean probeTransferDirectory(final File directory) {
+        if (directory == null) {
+            return false;
+        }
+        File file = null;
+        try {
+            file = File.createTempFile(TRANSFER_FILE_PREFIX, ".probe",
+                    directory);
+            double token = new Random().nextDouble();
+            writeColumnMajor(file, new double[][]{new double[]{token}});
+            return this.connection.eval("readBin('" + file.getAbsolutePath()
+                    + "', what='double', n=1, endian='little')").asDouble() == token;
+        } catch (IOException | RserveException | REXPMismatchException e) {
+            this.log.debug("Not transferring data through " + directory
+                    + ": " + e.getMessage());
+            return false;
+        } finally {
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the transfer files, that backends killed during a transfer left
+     * behind in the given directory. Only files older than this JVM are
+     * deleted, such that running transfers are not affected.
+     *
+     * @param directory The transfer directory, or null.
+     * @return The number of deleted files.
+     */
+    public static int deleteStaleTransferFiles(final File directory) {
+        if (directory == null) {
+            return 0;
+        }
+        File[] files = directory.listFiles((dir, name) -> name
+                .startsWith(TRANSFER_FILE_PREFIX));
+        if (files == null) {
+            return 0;
+        }
+        long startTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+        int deleted = 0;
+        for (File file : files) {
+            if (file.isFile() && file.lastModified() < startTime
+                    && file.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Transfers all further data of this rengine through the Rserve
+     * connection, after a transfer through a file failed.
+     *
+     * @param file The file of the failed transfer.
+     * @param e The cause of the failure.
+     */
+    protected void disableFileTransfer(final File file, final Exception e) {
+        this.log.warn("Transfer through " + file
+                + " failed, using the connection from now on: "
+                + e.getMessage());
+        this.transferDirectory = null;
     }
 
     /**
@@ -87,21 +304,30 @@ public class MyRengine {
      */
     public boolean loadLibrary(final String name, final String requiredByClass)
             throws RLibraryNotLoadedException, InterruptedException {
-        if (this.interrupted) {
-            throw new InterruptedException();
-        }
+        long start = this.beginCall();
+        boolean failed = false;
         try {
-            if (this.loadedLibraries.contains(name)) {
+            if (this.interrupted) {
+                throw new InterruptedException();
+            }
+            try {
+                if (this.loadedLibraries.contains(name)) {
+                    return true;
+                }
+                this.log.debug("Loading R library '" + name + "' ...");
+                this.eval("library(" + name + ")");
+                this.loadedLibraries.add(name);
+                this.log.debug("R library '" + name + "' loaded successfully");
                 return true;
+            } catch (RserveException e) {
+                this.log.debug("R library '" + name + "' loading failed");
+                throw new RLibraryNotLoadedException(requiredByClass, name);
             }
-            this.log.debug("Loading R library '" + name + "' ...");
-            this.eval("library(" + name + ")");
-            this.loadedLibraries.add(name);
-            this.log.debug("R library '" + name + "' loaded successfully");
-            return true;
-        } catch (RserveException e) {
-            this.log.debug("R library '" + name + "' loading failed");
-            throw new RLibraryNotLoadedException(requiredByClass, name);
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("loadLibrary", start, failed);
         }
     }
 
@@ -113,10 +339,19 @@ public class MyRengine {
      * @throws InterruptedException
      */
     public void clear() throws RserveException, InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            this.eval("rm(list=ls(all=TRUE))");
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("clear", start, failed);
         }
-        this.eval("rm(list=ls(all=TRUE))");
     }
 
     /**
@@ -130,19 +365,179 @@ public class MyRengine {
      */
     public void assign(String arg0, double[][] arg1) throws REngineException,
                                                             InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            int x = arg1.length;
+            int y = x > 0 ? arg1[0].length : 0;
+            if (this.isTransferredByFile(x, y)) {
+                File file = this.getTransferFile();
+                try {
+                    writeColumnMajor(file, arg1);
+                    this.callBytes += 8L * x * y;
+                    // setting the dimensions does not copy the vector
+                    this.eval(arg0 + " <- readBin('" + file.getAbsolutePath()
+                            + "', what='double', n=" + ((long) x * y)
+                            + ", endian='little')");
+                    this.eval("dim(" + arg0 + ") <- c(" + x + "," + y + ")");
+                    return;
+                } catch (IOException | RserveException e) {
+                    this.disableFileTransfer(file, e);
+                } finally {
+                    file.delete();
+                }
+            }
+            double[] oneDim = new double[x * y];
+            for (int i = 0; i < x; i++) {
+                System.arraycopy(arg1[i], 0, oneDim, i * y, y);
+            }
+            this.eval(arg0 + " <- c()");
+            this.connection.assign(arg0, oneDim);
+            this.callBytes += 8L * oneDim.length;
+            this.eval(arg0 + " <- matrix(" + arg0 + ",nrow=" + x + ",ncol=" + y
+                    + ",byrow=T)");
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assign", start, failed);
         }
-        int x = arg1.length;
-        int y = x > 0 ? arg1[0].length : 0;
-        double[] oneDim = new double[x * y];
-        for (int i = 0; i < x; i++) {
-            System.arraycopy(arg1[i], 0, oneDim, i * y, y);
+    }
+
+    /**
+     * This method assigns a two-dimensional double array like
+     * {@link #assign(String, double[][])}, but keeps a copy of it in the R
+     * session. If an array with the same content has been assigned before
+     * and is still cached, it is not transferred again.
+     *
+     * <p>
+     * The cached objects are stored outside of the global environment, such
+     * that they survive {@link #clear()}. At most
+     * {@link BackendServerConfig#getRserveCacheSize()} objects are cached,
+     * the least recently used ones are removed first.
+     *
+     * @param arg0 The variable name in R.
+     * @param arg1 A two-dimensional double array which is assigned to the new
+     * variable.
+     * @return True, if the array was taken from the cache.
+     * @throws REngineException
+     * @throws InterruptedException
+     */
+    public boolean assignCached(String arg0, double[][] arg1)
+            throws REngineException, InterruptedException {
+        return this.assignCached(arg0, getContentKey(arg1), () -> arg1);
+    }
+
+    /**
+     * This method assigns a two-dimensional double array like
+     * {@link #assignCached(String, double[][])}, but identifies it by the
+     * given key. The array is only built if it is not cached.
+     *
+     * @param arg0 The variable name in R.
+     * @param key The content key of the array, see
+     * {@link #getContentKey(int, int, MatrixEntries)}.
+     * @param arg1 Builds the array, if it has to be transferred.
+     * @return True, if the array was taken from the cache.
+     * @throws REngineException
+     * @throws InterruptedException
+     */
+    public boolean assignCached(String arg0, String key,
+            Supplier<double[][]> arg1) throws REngineException,
+                                              InterruptedException {
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (this.cacheSize <= 0) {
+                this.assign(arg0, arg1.get());
+                return false;
+            }
+            if (this.cachedObjects.containsKey(key)) {
+                this.eval(arg0 + " <- get('" + key
+                        + "', envir=as.environment('clusteval.cache'))");
+                // update the position of the key
+                this.cachedObjects.get(key);
+                return true;
+            }
+            this.assign(arg0, arg1.get());
+            if (this.cachedObjects.isEmpty()) {
+                this.eval("if (!('clusteval.cache' %in% search())) "
+                        + "attach(NULL, name='clusteval.cache')");
+            }
+            Iterator<String> it = this.cachedObjects.keySet().iterator();
+            while (this.cachedObjects.size() >= this.cacheSize && it.hasNext()) {
+                this.eval("rm(list='" + it.next()
+                        + "', envir=as.environment('clusteval.cache'))");
+                it.remove();
+            }
+            this.eval("assign('" + key + "', " + arg0
+                    + ", envir=as.environment('clusteval.cache'))");
+            this.cachedObjects.put(key, true);
+            return false;
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assignCached", start, failed);
         }
-        this.eval(arg0 + " <- c()");
-        this.connection.assign(arg0, oneDim);
-        this.eval(arg0 + " <- matrix(" + arg0 + ",nrow=" + x + ",ncol=" + y
-                + ",byrow=T)");
+    }
+
+    /**
+     * The entries of a matrix, which need not be stored in an array.
+     */
+    @FunctionalInterface
+    public interface MatrixEntries {
+
+        /**
+         * @param i The row.
+         * @param j The column.
+         * @return The entry in row i and column j.
+         */
+        double get(int i, int j);
+    }
+
+    /**
+     * @param matrix A two-dimensional double array.
+     * @return A key identifying the dimensions and the content of the array.
+     */
+    protected static String getContentKey(final double[][] matrix) {
+        return getContentKey(matrix.length,
+                matrix.length > 0 ? matrix[0].length : 0,
+                (i, j) -> matrix[i][j]);
+    }
+
+    /**
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @param entries The entries of the matrix, which are read concurrently.
+     * @return A key identifying the dimensions and the content of the matrix.
+     * It equals the key of an array holding the same entries.
+     */
+    public static String getContentKey(final int rows, final int columns,
+            final MatrixEntries entries) {
+        // two independent hashes of every row, calculated in parallel
+        long[][] rowHashes = new long[rows][];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            long h1 = 1125899906842597L;
+            long h2 = columns;
+            for (int j = 0; j < columns; j++) {
+                long bits = Double.doubleToLongBits(entries.get(i, j));
+                h1 = 31 * h1 + bits;
+                h2 = Long.rotateLeft(h2 ^ (bits * 0x9E3779B97F4A7C15L), 31)
+                        * 0xC2B2AE3D27D4EB4FL;
+            }
+            rowHashes[i] = new long[]{h1, h2};
+        });
+        long h1 = 1125899906842597L;
+        long h2 = rows;
+        for (long[] rowHash : rowHashes) {
+            h1 = 31 * h1 + rowHash[0];
+            h2 = Long.rotateLeft(h2 ^ (rowHash[1] * 0x9E3779B97F4A7C15L), 31)
+                    * 0xC2B2AE3D27D4EB4FL;
+        }
+        return String.format("%dx%d.%016x%016x", rows, columns, h1, h2);
     }
 
     /**
@@ -156,19 +551,29 @@ public class MyRengine {
      */
     public void assign(String arg0, int[][] arg1) throws REngineException,
                                                          InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
-        }
-        int x = arg1.length;
-        int y = x > 0 ? arg1[0].length : 0;
-        int[] oneDim = new int[x * y];
-        for (int i = 0; i < x; i++) {
-            System.arraycopy(arg1[i], 0, oneDim, i * y, y);
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            int x = arg1.length;
+            int y = x > 0 ? arg1[0].length : 0;
+            int[] oneDim = new int[x * y];
+            for (int i = 0; i < x; i++) {
+                System.arraycopy(arg1[i], 0, oneDim, i * y, y);
+            }
+            this.eval(arg0 + " <- c()");
+            this.connection.assign(arg0, oneDim);
+            this.callBytes += 4L * oneDim.length;
+            this.eval(arg0 + " <- matrix(" + arg0 + ",nrow=" + x + ",ncol=" + y
+                    + ",byrow=T)");
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assign", start, failed);
         }
-        this.eval(arg0 + " <- c()");
-        this.connection.assign(arg0, oneDim);
-        this.eval(arg0 + " <- matrix(" + arg0 + ",nrow=" + x + ",ncol=" + y
-                + ",byrow=T)");
     }
 
     /**
@@ -181,31 +586,184 @@ public class MyRengine {
      * @see org.rosuda.REngine.Rserve.RConnection#eval(java.lang.String)
      */
     public REXP eval(String cmd) throws RserveException, InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            try {
+                this.connection.assign(".tmp.", cmd);
+                REXP r = this.connection
+                        .eval("try(eval(parse(text=.tmp.)),silent=TRUE)");
+                this.callBytes += cmd.length() + getSize(r);
+                if (r == null) {
+                    throw new RserveException(this.connection, "Evaluation error");
+                } else if (r.inherits("try-error")) {
+                    try {
+                        throw new RserveException(this.connection, r.asString()
+                                .replace("\n", " - "));
+                    } catch (REXPMismatchException e) {
+                        throw new RserveException(this.connection,
+                                "Evaluation error");
+                    }
+                }
+                return r;
+            } catch (REngineException e) {
+                throw new RserveException(this.connection, e.getMessage());
+            } catch (NullPointerException e) {
+                System.out.format("%s - %s%n", Thread.currentThread(), this);
+                throw e;
+            }
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("eval", start, failed);
         }
+    }
+
+    /**
+     * Evaluates the command and returns its result as a matrix, like
+     * {@code eval(cmd).asDoubleMatrix()}. Large matrices are transferred
+     * through a file in the transfer directory, if Rserve runs on this
+     * machine.
+     *
+     * @param cmd The command returning a numeric matrix.
+     * @return The resulting matrix.
+     * @throws RserveException
+     * @throws REXPMismatchException
+     * @throws InterruptedException
+     */
+    public double[][] evalToDoubleMatrix(String cmd) throws RserveException,
+                                                            REXPMismatchException, InterruptedException {
+        long start = this.beginCall();
+        boolean failed = false;
         try {
-            this.connection.assign(".tmp.", cmd);
-            REXP r = this.connection
-                    .eval("try(eval(parse(text=.tmp.)),silent=TRUE)");
-            if (r == null) {
-                throw new RserveException(this.connection, "Evaluation error");
-            } else if (r.inherits("try-error")) {
+            if (this.transferDirectory == null) {
+                return this.eval(cmd).asDoubleMatrix();
+            }
+            this.eval(".tmp.m <- " + cmd);
+            try {
+                int[] dim = this.eval("dim(.tmp.m)").asIntegers();
+                if (dim == null || dim.length != 2
+                        || !this.isTransferredByFile(dim[0], dim[1])) {
+                    return this.eval(".tmp.m").asDoubleMatrix();
+                }
+                File file = this.getTransferFile();
                 try {
-                    throw new RserveException(this.connection, r.asString()
-                            .replace("\n", " - "));
-                } catch (REXPMismatchException e) {
-                    throw new RserveException(this.connection,
-                            "Evaluation error");
+                    // removing the dimensions does not copy the vector
+                    this.eval("storage.mode(.tmp.m) <- 'double'");
+                    this.eval("dim(.tmp.m) <- NULL");
+                    this.eval("writeBin(.tmp.m, '" + file.getAbsolutePath()
+                            + "', endian='little')");
+                    double[][] result = readColumnMajor(file, dim[0], dim[1]);
+                    this.callBytes += 8L * dim[0] * dim[1];
+                    return result;
+                } catch (IOException | RserveException e) {
+                    this.disableFileTransfer(file, e);
+                    this.eval("dim(.tmp.m) <- c(" + dim[0] + "," + dim[1] + ")");
+                    return this.eval(".tmp.m").asDoubleMatrix();
+                } finally {
+                    file.delete();
+                }
+            } finally {
+                this.eval("rm(.tmp.m)");
+            }
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("evalToDoubleMatrix", start, failed);
+        }
+    }
+
+    protected boolean isTransferredByFile(final int rows, final int columns) {
+        long size = (long) rows * columns;
+        return this.transferDirectory != null && size >= TRANSFER_THRESHOLD
+                && 8 * size <= TRANSFER_MAX_BYTES;
+    }
+
+    protected File getTransferFile() throws RserveException {
+        try {
+            // the file is deleted after the transfer; files left behind by
+            // killed backends are removed by deleteStaleTransferFiles
+            return File.createTempFile(TRANSFER_FILE_PREFIX, ".bin",
+                    this.transferDirectory);
+        } catch (IOException e) {
+            throw new RserveException(this.connection,
+                    "Could not create a file in " + this.transferDirectory);
+        }
+    }
+
+    /**
+     * Writes the matrix in the binary column-major layout of R, as little
+     * endian doubles.
+     *
+     * @param file The file to write to.
+     * @param matrix The matrix to write.
+     * @throws IOException
+     */
+    protected static void writeColumnMajor(final File file,
+            final double[][] matrix) throws IOException {
+        int rows = matrix.length;
+        int columns = rows > 0 ? matrix[0].length : 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(
+                ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = new FileOutputStream(file).getChannel()) {
+            // consecutive columns touch the same cache lines of every row
+            for (int j = 0; j < columns; j++) {
+                for (int i = 0; i < rows; i++) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                    buffer.putDouble(matrix[i][j]);
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a matrix written in the binary column-major layout of R, as
+     * little endian doubles.
+     *
+     * @param file The file to read from.
+     * @param rows The number of rows of the matrix.
+     * @param columns The number of columns of the matrix.
+     * @return The matrix.
+     * @throws IOException
+     */
+    protected static double[][] readColumnMajor(final File file,
+            final int rows, final int columns) throws IOException {
+        double[][] result = new double[rows][columns];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(
+                ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        try (FileChannel channel = new FileInputStream(file).getChannel()) {
+            for (int j = 0; j < columns; j++) {
+                for (int i = 0; i < rows; i++) {
+                    // a double may be split between two reads
+                    while (buffer.remaining() < 8) {
+                        buffer.compact();
+                        int read = channel.read(buffer);
+                        buffer.flip();
+                        if (read < 0) {
+                            throw new IOException("Unexpected end of " + file);
+                        }
+                    }
+                    result[i][j] = buffer.getDouble();
                 }
             }
-            return r;
-        } catch (REngineException e) {
-            throw new RserveException(this.connection, e.getMessage());
-        } catch (NullPointerException e) {
-            System.out.format("%s - %s%n", Thread.currentThread(), this);
-            throw e;
         }
+        return result;
     }
 
     /**
@@ -223,19 +781,39 @@ public class MyRengine {
 
     public void assign(String arg0, int[] arg1) throws REngineException,
                                                        InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
-        }
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
 
-        this.connection.assign(arg0, arg1);
+            this.connection.assign(arg0, arg1);
+            this.callBytes += 4L * arg1.length;
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assign", start, failed);
+        }
     }
 
     public void assign(String arg0, double[] arg1) throws REngineException,
                                                           InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            this.connection.assign(arg0, arg1);
+            this.callBytes += 8L * arg1.length;
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assign", start, failed);
         }
-        this.connection.assign(arg0, arg1);
     }
 
     public String getLastError() throws InterruptedException {
@@ -251,12 +829,29 @@ public class MyRengine {
      * @return
      */
     protected boolean close() {
+        this.closed();
         return this.connection.close();
     }
 
+    private synchronized void closed() {
+        if (!this.closed) {
+            this.closed = true;
+            statistics.sessionClosed();
+        }
+    }
+
+    /**
+     * @return True, if this rengine has not been interrupted and its
+     * connection is still open.
+     */
+    public boolean isAlive() {
+        return !this.interrupted && this.connection.isConnected();
+    }
+
     public boolean interrupt() {
         try {
             interrupted = true;
+            this.closed();
             this.connection.close();
             Runtime.getRuntime().exec(("kill -9 " + this.pid).split(" "));
         } catch (IOException e) {
@@ -276,9 +871,21 @@ public class MyRengine {
 
     public void assign(String arg0, String[] arg1) throws REngineException,
                                                           InterruptedException {
-        if (interrupted) {
-            throw new InterruptedException();
+        long start = this.beginCall();
+        boolean failed = false;
+        try {
+            if (interrupted) {
+                throw new InterruptedException();
+            }
+            this.connection.assign(arg0, arg1);
+            for (String string : arg1) {
+                this.callBytes += string != null ? string.length() : 0;
+            }
+        } catch (Throwable t) {
+            failed = true;
+            throw t;
+        } finally {
+            this.endCall("assign", start, failed);
         }
-        this.connection.assign(arg0, arg1);
     }
 }
@@ -0,0 +1,274 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+import de.clusteval.framework.BackendServerConfig;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.rosuda.REngine.Rserve.RserveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of connections to Rserve.
+ *
+ * <p>
+ * At most {@link BackendServerConfig#getRservePoolSize()} connections are
+ * leased at the same time; further requests wait until a connection is
+ * returned. New connections are spread over all configured Rserve ports.
+ * Returned connections are reset (their workspace is cleared) and kept idle
+ * for reuse, until they have not been used for
+ * {@link BackendServerConfig#getRserveIdleTimeout()} milliseconds. Connections
+ * that were interrupted or failed to reset are discarded.
+ *
+ * <p>
+ * Every thread holds at most one lease, which is returned by
+ * {@link #release(Thread)}. Leases of threads, that terminated without
+ * returning them, are reclaimed whenever the pool runs out of connections.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class RengineConnectionPool {
+
+    /**
+     * Idle connections that were not used for this many milliseconds are
+     * checked with a round trip to R before they are leased again.
+     */
+    protected static final long VALIDATION_INTERVAL = 30000;
+
+    protected final Logger log;
+
+    protected final String host;
+
+    protected final int[] ports;
+
+    protected final int poolSize;
+
+    protected final long idleTimeout;
+
+    /**
+     * One permit for every connection, that may still be leased.
+     */
+    protected final Semaphore permits;
+
+    /**
+     * The returned connections, the most recently returned first.
+     */
+    protected final ConcurrentLinkedDeque<MyRengine> idle;
+
+    protected final Map<Thread, MyRengine> leases;
+
+    protected final AtomicInteger nextPort;
+
+    /**
+     * @param config The configuration of the Rserve instances and the pool.
+     */
+    public RengineConnectionPool(final BackendServerConfig config) {
+        super();
+        this.log = LoggerFactory.getLogger(this.getClass());
+        this.host = config.getRserveHost();
+        this.ports = config.getRservePorts();
+        this.poolSize = config.getRservePoolSize();
+        this.idleTimeout = config.getRserveIdleTimeout();
+        this.permits = new Semaphore(this.poolSize, true);
+        this.idle = new ConcurrentLinkedDeque<>();
+        this.leases = new ConcurrentHashMap<>();
+        this.nextPort = new AtomicInteger();
+        int deleted = MyRengine.deleteStaleTransferFiles(config
+                .getRserveTransferDirectory());
+        if (deleted > 0) {
+            this.log.info("Deleted " + deleted + " stale transfer files from "
+                    + config.getRserveTransferDirectory());
+        }
+    }
+
+    /**
+     * @param thread The thread.
+     * @return The connection leased by the given thread. If the thread does
+     * not hold a lease yet, a connection is borrowed from this pool.
+     * @throws RserveException If no connection could be established, or the
+     * thread was interrupted while waiting for a connection.
+     */
+    public MyRengine get(final Thread thread) throws RserveException {
+        MyRengine rEngine = this.leases.get(thread);
+        if (rEngine != null) {
+            return rEngine;
+        }
+        rEngine = this.borrow();
+        // another thread may have borrowed a connection for the same thread
+        MyRengine previous = this.leases.putIfAbsent(thread, rEngine);
+        if (previous != null) {
+            this.giveBack(rEngine);
+            return previous;
+        }
+        return rEngine;
+    }
+
+    /**
+     * Returns the connection leased by the given thread to this pool.
+     *
+     * @param thread The thread.
+     */
+    public void release(final Thread thread) {
+        MyRengine rEngine = this.leases.remove(thread);
+        if (rEngine != null) {
+            this.giveBack(rEngine);
+        }
+    }
+
+    /**
+     * @return A connection, that has to be returned by
+     * {@link #giveBack(MyRengine)}.
+     * @throws RserveException If no connection could be established, or the
+     * current thread was interrupted while waiting for a connection.
+     */
+    public MyRengine borrow() throws RserveException {
+        try {
+            if (!this.permits.tryAcquire()) {
+                this.reclaimLeasesOfTerminatedThreads();
+                while (!this.permits.tryAcquire(10, TimeUnit.SECONDS)) {
+                    this.log.debug("Waiting for one of " + this.poolSize
+                            + " Rserve connections");
+                    this.reclaimLeasesOfTerminatedThreads();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RserveException(null,
+                    "Interrupted while waiting for an Rserve connection");
+        }
+        try {
+            this.evictIdle();
+            MyRengine rEngine;
+            while ((rEngine = this.idle.pollFirst()) != null) {
+                if (this.isValid(rEngine)) {
+                    return rEngine;
+                }
+                rEngine.close();
+            }
+            int port = this.ports[Math.floorMod(
+                    this.nextPort.getAndIncrement(), this.ports.length)];
+            return new MyRengine(this.host, port);
+        } catch (RserveException | RuntimeException e) {
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Resets the workspace of a borrowed connection and returns it to this
+     * pool.
+     *
+     * @param rEngine The borrowed connection.
+     */
+    public void giveBack(final MyRengine rEngine) {
+        try {
+            if (rEngine.isAlive()) {
+                try {
+                    rEngine.clear();
+                    rEngine.lastReleased = System.currentTimeMillis();
+                    this.idle.offerFirst(rEngine);
+                    return;
+                } catch (RserveException | InterruptedException e) {
+                    this.log.debug("Discarding Rserve connection: "
+                            + e.getMessage());
+                }
+            }
+            rEngine.close();
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    protected boolean isValid(final MyRengine rEngine) {
+        if (!rEngine.isAlive()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - rEngine.lastReleased < VALIDATION_INTERVAL) {
+            return true;
+        }
+        try {
+            rEngine.eval("1");
+            return true;
+        } catch (RserveException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes all idle connections, that have not been used for longer than
+     * the idle timeout.
+     */
+    public void evictIdle() {
+        long threshold = System.currentTimeMillis() - this.idleTimeout;
+        // the least recently returned connections are at the end
+        MyRengine rEngine;
+        while ((rEngine = this.idle.peekLast()) != null
+                && rEngine.lastReleased < threshold) {
+            if (this.idle.removeLastOccurrence(rEngine)) {
+                rEngine.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the connections of threads, that terminated without returning
+     * them.
+     */
+    public void reclaimLeasesOfTerminatedThreads() {
+        Iterator<Thread> it = this.leases.keySet().iterator();
+        while (it.hasNext()) {
+            Thread thread = it.next();
+            if (!thread.isAlive()) {
+                this.release(thread);
+            }
+        }
+    }
+
+    /**
+     * @return The number of connections, that are currently leased.
+     */
+    public int getNumberOfLeased() {
+        return this.poolSize - this.permits.availablePermits();
+    }
+
+    /**
+     * @return The number of connections, that are currently idle.
+     */
+    public int getNumberOfIdle() {
+        return this.idle.size();
+    }
+
+    /**
+     * Closes all leased and idle connections.
+     */
+    public void close() {
+        for (Thread thread : this.leases.keySet()) {
+            MyRengine rEngine = this.leases.remove(thread);
+            if (rEngine != null) {
+                rEngine.close();
+                this.permits.release();
+            }
+        }
+        MyRengine rEngine;
+        while ((rEngine = this.idle.pollFirst()) != null) {
+            rEngine.close();
+        }
+    }
+}
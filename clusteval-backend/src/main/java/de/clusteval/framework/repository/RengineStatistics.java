@@ -0,0 +1,360 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statistics of the calls of {@link MyRengine}, aggregated per call site.
+ *
+ * <p>
+ * A call site is the class calling {@link MyRengine} (e.g. a program, a
+ * distance measure or a statistic) together with the called operation. For
+ * every call site the number of calls and errors, the transferred bytes, the
+ * total time and a histogram of the latencies are collected. Nested calls of
+ * {@link MyRengine} are attributed to the outermost call.
+ *
+ * <p>
+ * The statistics are shared by all rengines of this JVM and exposed through
+ * JMX as {@value #OBJECT_NAME}. Additionally, the calls of a thread can be
+ * attributed to further statistics (see
+ * {@link #attributeCurrentThread(RengineStatistics)}); runs use this to
+ * collect the calls of their runnables and write them into their log
+ * folder.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class RengineStatistics implements RengineStatisticsMBean {
+
+    /**
+     * The name of the statistics in the platform MBean server.
+     */
+    public static final String OBJECT_NAME = "de.clusteval:type=RengineStatistics";
+
+    /**
+     * Bucket i of the latency histograms counts the calls, that took less
+     * than 2^i microseconds (and at least 2^(i-1)).
+     */
+    protected static final int NUMBER_OF_BUCKETS = 40;
+
+    // indices into the arrays of snapshots
+    protected static final int CALLS = 0;
+
+    protected static final int ERRORS = 1;
+
+    protected static final int BYTES = 2;
+
+    protected static final int NANOS = 3;
+
+    protected static final int HISTOGRAM = 4;
+
+    private static RengineStatistics instance;
+
+    /**
+     * @return The statistics of this JVM, registered with the platform MBean
+     * server on first access.
+     */
+    public static synchronized RengineStatistics getInstance() {
+        if (instance == null) {
+            instance = new RengineStatistics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(
+                        instance, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                instance.log.debug("Could not register " + OBJECT_NAME + ": "
+                        + e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The counters of one call site.
+     */
+    protected static class CallSite {
+
+        protected final LongAdder[] counters;
+
+        protected CallSite() {
+            super();
+            this.counters = new LongAdder[HISTOGRAM + NUMBER_OF_BUCKETS];
+            for (int i = 0; i < this.counters.length; i++) {
+                this.counters[i] = new LongAdder();
+            }
+        }
+
+        protected long[] toArray() {
+            long[] result = new long[this.counters.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = this.counters[i].sum();
+            }
+            return result;
+        }
+    }
+
+    protected final Logger log;
+
+    protected final Map<String, CallSite> callSites;
+
+    protected final AtomicInteger openSessions;
+
+    protected final AtomicInteger activeCalls;
+
+    /**
+     * The statistics, to which the calls of a thread are attributed in
+     * addition to this statistics.
+     */
+    protected final ThreadLocal<RengineStatistics> attribution;
+
+    /**
+     * Creates empty statistics, which are not registered with JMX. Use
+     * {@link #getInstance()} for the statistics of all calls of this JVM.
+     */
+    public RengineStatistics() {
+        super();
+        this.log = LoggerFactory.getLogger(this.getClass());
+        this.callSites = new ConcurrentHashMap<>();
+        this.openSessions = new AtomicInteger();
+        this.activeCalls = new AtomicInteger();
+        this.attribution = new ThreadLocal<>();
+    }
+
+    /**
+     * Attributes the calls recorded in this statistics by the current thread
+     * also to the given statistics, until this method is invoked again.
+     *
+     * @param statistics The statistics to attribute the calls to, or null to
+     * stop attributing them.
+     * @return The statistics the calls were attributed to before, or null.
+     */
+    public RengineStatistics attributeCurrentThread(
+            final RengineStatistics statistics) {
+        RengineStatistics result = this.attribution.get();
+        if (statistics == null || statistics == this) {
+            this.attribution.remove();
+        } else {
+            this.attribution.set(statistics);
+        }
+        return result;
+    }
+
+    /**
+     * @param caller The name of the calling class.
+     * @param operation The called operation of {@link MyRengine}.
+     * @param nanos The duration of the call.
+     * @param bytes The number of bytes transferred to and from R.
+     * @param failed Whether the call failed.
+     */
+    public void record(final String caller, final String operation,
+            final long nanos, final long bytes, final boolean failed) {
+        CallSite site = this.callSites.computeIfAbsent(caller + "\t"
+                + operation, k -> new CallSite());
+        site.counters[CALLS].increment();
+        if (failed) {
+            site.counters[ERRORS].increment();
+        }
+        site.counters[BYTES].add(bytes);
+        site.counters[NANOS].add(nanos);
+        site.counters[HISTOGRAM + getBucket(nanos)].increment();
+
+        RengineStatistics attributed = this.attribution.get();
+        if (attributed != null) {
+            attributed.record(caller, operation, nanos, bytes, failed);
+        }
+    }
+
+    /**
+     * @param nanos A duration in nanoseconds.
+     * @return The bucket of the latency histograms for the duration.
+     */
+    protected static int getBucket(final long nanos) {
+        long micros = nanos / 1000;
+        return Math.min(NUMBER_OF_BUCKETS - 1,
+                64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    protected void sessionOpened() {
+        this.openSessions.incrementAndGet();
+    }
+
+    protected void sessionClosed() {
+        this.openSessions.decrementAndGet();
+    }
+
+    protected void callStarted() {
+        this.activeCalls.incrementAndGet();
+    }
+
+    protected void callFinished() {
+        this.activeCalls.decrementAndGet();
+    }
+
+    /**
+     * @return The current counters of all call sites, to be passed to
+     * {@link #writeToFile(File, Map)} later.
+     */
+    public Map<String, long[]> snapshot() {
+        Map<String, long[]> result = new HashMap<>();
+        for (Map.Entry<String, CallSite> e : this.callSites.entrySet()) {
+            result.put(e.getKey(), e.getValue().toArray());
+        }
+        return result;
+    }
+
+    /**
+     * @param since A snapshot taken earlier or null.
+     * @return The counters of all call sites since the snapshot, sorted by
+     * call site.
+     */
+    protected Map<String, long[]> getDifference(final Map<String, long[]> since) {
+        Map<String, long[]> result = new TreeMap<>();
+        for (Map.Entry<String, long[]> e : this.snapshot().entrySet()) {
+            long[] counters = e.getValue();
+            long[] before = since != null ? since.get(e.getKey()) : null;
+            // unless the counters were reset after the snapshot
+            if (before != null && before[CALLS] <= counters[CALLS]) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] -= before[i];
+                }
+            }
+            if (counters[CALLS] > 0) {
+                result.put(e.getKey(), counters);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param counters The counters of a call site.
+     * @param quantile The quantile within [0,1].
+     * @return The upper bound of the latency of the given quantile of the
+     * calls, in milliseconds.
+     */
+    protected static double getLatencyQuantile(final long[] counters,
+            final double quantile) {
+        long rank = (long) Math.ceil(quantile * counters[CALLS]);
+        long count = 0;
+        for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+            count += counters[HISTOGRAM + i];
+            if (count >= rank) {
+                return (1L << i) / 1000.0;
+            }
+        }
+        return (1L << (NUMBER_OF_BUCKETS - 1)) / 1000.0;
+    }
+
+    protected static String format(final String callSite,
+            final long[] counters) {
+        return String.format(Locale.UK, "%s\t%d\t%d\t%d\t%.3f\t%.3f\t%.3f\t%.3f",
+                callSite, counters[CALLS], counters[ERRORS], counters[BYTES],
+                counters[NANOS] / 1e6, counters[NANOS] / 1e6 / counters[CALLS],
+                getLatencyQuantile(counters, 0.5),
+                getLatencyQuantile(counters, 0.95));
+    }
+
+    /**
+     * Writes the statistics of all call sites since the given snapshot into
+     * a tab separated file, the call sites with the highest total time
+     * first. Latency quantiles are upper bounds taken from the histograms.
+     *
+     * @param file The file to write to.
+     * @param since A snapshot taken by {@link #snapshot()} or null, to write
+     * the statistics since the last reset.
+     * @throws IOException
+     */
+    public void writeToFile(final File file, final Map<String, long[]> since)
+            throws IOException {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(this
+                .getDifference(since).entrySet());
+        entries.sort((e1, e2) -> Long.compare(e2.getValue()[NANOS],
+                e1.getValue()[NANOS]));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("caller\toperation\tcalls\terrors\tbytes\ttotalMs\tmeanMs\tp50Ms\tp95Ms");
+            writer.newLine();
+            for (Map.Entry<String, long[]> e : entries) {
+                writer.write(format(e.getKey(), e.getValue()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private long getTotal(final int counter) {
+        long result = 0;
+        for (CallSite site : this.callSites.values()) {
+            result += site.counters[counter].sum();
+        }
+        return result;
+    }
+
+    @Override
+    public int getNumberOfOpenSessions() {
+        return this.openSessions.get();
+    }
+
+    @Override
+    public int getNumberOfActiveCalls() {
+        return this.activeCalls.get();
+    }
+
+    @Override
+    public long getNumberOfCalls() {
+        return this.getTotal(CALLS);
+    }
+
+    @Override
+    public long getNumberOfErrors() {
+        return this.getTotal(ERRORS);
+    }
+
+    @Override
+    public long getBytesTransferred() {
+        return this.getTotal(BYTES);
+    }
+
+    @Override
+    public long getTotalTimeMillis() {
+        return this.getTotal(NANOS) / 1000000;
+    }
+
+    @Override
+    public String[] getCallSites() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<String, long[]> e : this.getDifference(null).entrySet()) {
+            result.add(format(e.getKey(), e.getValue()));
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public void reset() {
+        this.callSites.clear();
+    }
+}
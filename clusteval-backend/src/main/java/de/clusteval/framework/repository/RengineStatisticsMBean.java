@@ -0,0 +1,66 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+/**
+ * The management interface of {@link RengineStatistics}, as exposed through
+ * JMX.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public interface RengineStatisticsMBean {
+
+    /**
+     * @return The number of currently open Rserve sessions.
+     */
+    int getNumberOfOpenSessions();
+
+    /**
+     * @return The number of R calls, that are currently executed.
+     */
+    int getNumberOfActiveCalls();
+
+    /**
+     * @return The number of R calls since the last reset.
+     */
+    long getNumberOfCalls();
+
+    /**
+     * @return The number of failed R calls since the last reset.
+     */
+    long getNumberOfErrors();
+
+    /**
+     * @return The number of bytes transferred to and from R since the last
+     * reset.
+     */
+    long getBytesTransferred();
+
+    /**
+     * @return The time spent in R calls since the last reset, in
+     * milliseconds.
+     */
+    long getTotalTimeMillis();
+
+    /**
+     * @return One line for every call site, as written by
+     * {@link RengineStatistics#writeToFile(java.io.File, java.util.Map)}.
+     */
+    String[] getCallSites();
+
+    /**
+     * Resets all counters except for the gauges.
+     */
+    void reset();
+}
@@ -52,6 +52,7 @@ import de.clusteval.program.ProgramParameter;
 import de.clusteval.program.StringProgramParameter;
 import de.clusteval.program.r.RProgram;
 import de.clusteval.run.Run;
+import de.clusteval.run.result.ClusteringResultCache;
 import de.clusteval.run.result.RunResult;
 import de.clusteval.run.result.format.RunResultFormat;
 import de.clusteval.run.result.format.RunResultFormatParser;
@@ -362,7 +363,17 @@ public class Repository {
 	 */
 	protected Map<String, Long> finderLoadedJarFileChangeDates;
 
-	private Map<Thread, MyRengine> rEngines;
+	/**
+	 * The connections to Rserve leased by the threads of this repository.
+	 * Child repositories share the pool of their parent.
+	 */
+	protected RengineConnectionPool rEnginePool;
+
+	/**
+	 * The cache of clusterings shared by all runs of this repository. Child
+	 * repositories use the cache of their parent. Created on first use.
+	 */
+	protected ClusteringResultCache clusteringResultCache;
 
 	/**
 	 * Instantiates a new repository.
@@ -450,7 +461,9 @@ public class Repository {
 		// this.rEngineForLibraryInstalledChecks = null;
 		// this.rEngineException = e;
 		// }
-		this.rEngines = new HashMap<Thread, MyRengine>();
+		this.rEnginePool = parent != null
+				? parent.rEnginePool
+				: new RengineConnectionPool(ClustevalBackendServer.getBackendServerConfiguration());
 	}
 
 	/**
@@ -725,11 +738,9 @@ public class Repository {
 		if (closeRengines) {
 			// close Rengine pool
 			// this.rEngineForLibraryInstalledChecks.close();
-			for (MyRengine rEngine : this.rEngines.values()) {
-				rEngine.close();
-				// rEngine.shutdown();
-			}
-			this.rEngines.clear();
+			// the pool is shared with the parent repository
+			if (this.parent == null)
+				this.rEnginePool.close();
 		}
 
 		// terminate supervisor thread
@@ -1661,39 +1672,54 @@ public class Repository {
 	}
 
 	/**
+	 * The returned connection is leased from the connection pool until
+	 * {@link #clearRengineForCurrentThread()} is invoked or the thread
+	 * terminates.
+	 *
 	 * @return The MyRengine object corresponding to the current thread.
 	 * @throws RserveException
 	 */
 	public MyRengine getRengineForCurrentThread() throws RserveException {
-		Thread currentThread = Thread.currentThread();
-		synchronized (this.rEngines) {
-			if (!this.rEngines.containsKey(currentThread))
-				this.rEngines.put(currentThread, new MyRengine(""));
-			return this.rEngines.get(currentThread);
-		}
+		return this.rEnginePool.get(Thread.currentThread());
 	}
 
 	public MyRengine getRengine(final Thread thread) throws RserveException {
-		synchronized (this.rEngines) {
-			if (!this.rEngines.containsKey(thread))
-				this.rEngines.put(thread, new MyRengine(""));
-			return this.rEngines.get(thread);
-		}
+		return this.rEnginePool.get(thread);
 	}
 
+	/**
+	 * Returns the connection leased by the current thread to the connection
+	 * pool.
+	 */
 	public void clearRengineForCurrentThread() {
-		Thread currentThread = Thread.currentThread();
-		synchronized (this.rEngines) {
-			if (this.rEngines.containsKey(currentThread))
-				this.rEngines.remove(currentThread);
-		}
+		this.rEnginePool.release(Thread.currentThread());
 	}
 
 	public void clearRengine(final Thread thread) {
-		synchronized (this.rEngines) {
-			if (this.rEngines.containsKey(thread))
-				this.rEngines.remove(thread);
-		}
+		this.rEnginePool.release(thread);
+	}
+
+	/**
+	 * @return The pool of connections to Rserve.
+	 */
+	public RengineConnectionPool getRenginePool() {
+		return this.rEnginePool;
+	}
+
+	/**
+	 * @return The cache of clusterings shared by all runs of this repository,
+	 *         or null if clusterings are not cached.
+	 */
+	public synchronized ClusteringResultCache getClusteringResultCache() {
+		if (this.parent != null)
+			return this.parent.getClusteringResultCache();
+		long size = ClustevalBackendServer.getBackendServerConfiguration().getClusteringCacheSize();
+		if (size <= 0)
+			return null;
+		if (this.clusteringResultCache == null)
+			this.clusteringResultCache = new ClusteringResultCache(
+					new File(FileUtils.buildPath(this.suppClusteringBasePath, "cache")), size);
+		return this.clusteringResultCache;
 	}
 
 	/**
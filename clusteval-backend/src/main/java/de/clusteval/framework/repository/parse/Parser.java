@@ -583,6 +583,10 @@ class DataSetConfigParser extends RepositoryObjectParser<DataSetConfig> {
                     similarityPrecision = NUMBER_PRECISION.FLOAT;
                 } else if (val.equals("short")) {
                     similarityPrecision = NUMBER_PRECISION.SHORT;
+                } else if (val.equals("mapped_double")) {
+                    similarityPrecision = NUMBER_PRECISION.MAPPED_DOUBLE;
+                } else if (val.equals("mapped_float")) {
+                    similarityPrecision = NUMBER_PRECISION.MAPPED_FLOAT;
                 }
             }
 
@@ -797,6 +801,7 @@ class ExecutionRunParser<T extends ExecutionRun> extends RunParser<T> {
     protected Map<ProgramParameter<?>, String> paramMap;
     protected List<RunResultPostprocessor> postprocessor;
     protected Map<String, Integer> maxExecutionTimes;
+    protected boolean useClusteringCache;
 
     @Override
     public void parseFromFile(final File absPath) throws ConfigurationException, UnknownContextException,
@@ -841,9 +846,22 @@ class ExecutionRunParser<T extends ExecutionRun> extends RunParser<T> {
 
         parsePostprocessor();
 
+        // runs of programs, that are not deterministic, can opt out
+        useClusteringCache = getProps().getBoolean("useClusteringCache", true);
+
         ExecutionRun.checkCompatibilityQualityMeasuresDataConfigs(dataConfigs, qualityMeasures);
     }
 
+    @Override
+    public T getResult() {
+        // the run is created by the subclasses after parsing
+        final T result = super.getResult();
+        if (result != null) {
+            result.setUseClusteringCache(useClusteringCache);
+        }
+        return result;
+    }
+
     protected void parseProgramConfigurations()
             throws RunException, UnknownContextException, IncompatibleContextException, UnknownDataSetFormatException,
                    ConfigurationException, FileNotFoundException, RegisterException, UnknownParameterType,
@@ -1166,6 +1184,7 @@ class ParameterOptimizationRunParser extends ExecutionRunParser<ParameterOptimiz
         if (registeredResult != null) {
             result = registeredResult;
         }
+        result.setOptimizationSpeculation(getProps().getDouble("optimizationSpeculation", 0.0));
 
         // now we set the run reference of the methods
         for (int i = 0; i < optimizationMethods.size(); i++) {
@@ -1700,6 +1719,10 @@ class RunParser<T extends Run> extends RepositoryObjectParser<T> {
 
     protected String mode;
 
+    protected double schedulingWeight;
+
+    protected int schedulingPriority;
+
     @Override
     public void parseFromFile(final File absPath) throws NoRepositoryFoundException, ConfigurationException,
                                                          UnknownContextException, UnknownClusteringQualityMeasureException, RunException,
@@ -1724,6 +1747,21 @@ class RunParser<T extends Run> extends RepositoryObjectParser<T> {
         }
 
         mode = getProps().getString("mode", "clustering");
+
+        schedulingWeight = getProps().getDouble("schedulingWeight", 1.0);
+        if (!(schedulingWeight > 0)) {
+            throw new RunException("The schedulingWeight of a run has to be positive");
+        }
+        schedulingPriority = getProps().getInt("schedulingPriority", 0);
+    }
+
+    @Override
+    public T getResult() {
+        if (result != null) {
+            result.setSchedulingWeight(schedulingWeight);
+            result.setSchedulingPriority(schedulingPriority);
+        }
+        return result;
     }
 }
 
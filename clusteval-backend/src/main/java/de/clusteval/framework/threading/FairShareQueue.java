@@ -0,0 +1,766 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.framework.threading;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A work queue, that hands out tasks by fair share between clients and, within
+ * every client, between its runs.
+ *
+ * <p>
+ * Every client and every run has a weight (default 1) and every run a
+ * priority (default 0). Tasks of runs with a higher priority are always
+ * taken first. Among the runs with the highest priority, the client that
+ * received the least number of tasks relative to its weight is served next,
+ * and within this client the run that received the least number of tasks
+ * relative to its weight. Clients and runs, whose queues become non-empty,
+ * start at the lowest share of their active siblings, such that they cannot
+ * claim the tasks they did not take while they were idle. Runs, whose queues
+ * ran empty, keep their share for a grace period (see
+ * {@link #setIdleGracePeriod(long)}), such that a run refilling its queue
+ * shortly after does not start over at the lowest share.
+ *
+ * <p>
+ * If a memory budget is set, every {@link Task} reserves its estimated memory
+ * from the time it is taken until it is done. Tasks, whose memory does not fit
+ * into the remainder of the budget, are deferred and the next task in the
+ * above order, that fits, is taken instead. A task is deferred at most
+ * {@link #MAX_DEFERRALS} times, afterwards no other tasks are taken until it
+ * fits. Tasks are always taken, if no memory is reserved.
+ *
+ * <p>
+ * Tasks are assigned to a client and run, if they are {@link Task}s; all
+ * other tasks belong to an anonymous client and run and need no memory.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class FairShareQueue extends AbstractQueue<Runnable>
+		implements
+			BlockingQueue<Runnable> {
+
+	/**
+	 * A task of a client and run.
+	 */
+	public static class Task<V> extends FutureTask<V> {
+
+		protected final String clientId;
+
+		protected final String runName;
+
+		protected final CompletableFuture<V> completion = new CompletableFuture<V>();
+
+		protected long memory;
+
+		/**
+		 * The queue, that reserved the memory of this task, if any.
+		 */
+		protected FairShareQueue reservedBy;
+
+		protected int deferrals;
+
+		/**
+		 * @param runnable
+		 *            The runnable to execute.
+		 * @param result
+		 *            The result to return on completion.
+		 * @param clientId
+		 *            The client, that scheduled the run.
+		 * @param runName
+		 *            The name of the run.
+		 */
+		public Task(final Runnable runnable, final V result,
+				final String clientId, final String runName) {
+			super(runnable, result);
+			this.clientId = clientId;
+			this.runName = runName;
+		}
+
+		/**
+		 * @param callable
+		 *            The callable to execute.
+		 * @param clientId
+		 *            The client, that scheduled the run.
+		 * @param runName
+		 *            The name of the run.
+		 */
+		public Task(final Callable<V> callable, final String clientId,
+				final String runName) {
+			super(callable);
+			this.clientId = clientId;
+			this.runName = runName;
+		}
+
+		/**
+		 * @return A stage, that completes when this task finished or was
+		 *         cancelled, to attach further actions to. Cancelling the
+		 *         stage does not cancel this task.
+		 */
+		public CompletableFuture<V> getCompletion() {
+			return this.completion;
+		}
+
+		/**
+		 * @param memory
+		 *            The estimated memory in bytes this task needs while it
+		 *            runs.
+		 */
+		public void setMemory(final long memory) {
+			this.memory = Math.max(0, memory);
+		}
+
+		/**
+		 * @return The estimated memory in bytes this task needs while it
+		 *         runs.
+		 */
+		public long getMemory() {
+			return this.memory;
+		}
+
+		@Override
+		protected void done() {
+			FairShareQueue queue = this.reservedBy;
+			if (queue != null)
+				queue.release(this);
+			if (this.isCancelled()) {
+				this.completion.cancel(false);
+				return;
+			}
+			try {
+				this.completion.complete(this.get());
+			} catch (ExecutionException e) {
+				this.completion.completeExceptionally(e.getCause());
+			} catch (InterruptedException e) {
+				// cannot happen, the task is done
+				this.completion.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * The number of tasks a client or run received, divided by its weight.
+	 */
+	protected static class Share {
+
+		protected double share;
+
+		protected final Map<String, Share> children = new LinkedHashMap<String, Share>();
+
+		protected final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+		protected int priority;
+
+		/**
+		 * The time in nanoseconds, when the queue of this run ran empty.
+		 */
+		protected long idleSince;
+
+		/**
+		 * @return Whether this run or any run of this client has queued
+		 *         tasks.
+		 */
+		protected boolean isActive() {
+			if (!this.tasks.isEmpty())
+				return true;
+			for (Share child : this.children.values())
+				if (child.isActive())
+					return true;
+			return false;
+		}
+	}
+
+	/**
+	 * The default time in milliseconds, that runs keep their share after
+	 * their queue ran empty.
+	 */
+	public static final long DEFAULT_IDLE_GRACE_PERIOD = 10000;
+
+	protected final ReentrantLock lock;
+
+	protected final Condition notEmpty;
+
+	/**
+	 * The clients with queued tasks.
+	 */
+	protected final Share root;
+
+	protected int count;
+
+	/**
+	 * A task is taken only if the reserved memory plus its own memory do not
+	 * exceed the budget.
+	 */
+	protected long memoryBudget;
+
+	protected long reservedMemory;
+
+	protected final Map<String, Double> clientWeights;
+
+	protected final Map<String, Double> runWeights;
+
+	protected final Map<String, Integer> runPriorities;
+
+	/**
+	 * The time in nanoseconds, that runs keep their share after their queue
+	 * ran empty.
+	 */
+	protected long idleGracePeriod;
+
+	/**
+	 * Creates an empty queue.
+	 */
+	public FairShareQueue() {
+		super();
+		this.lock = new ReentrantLock();
+		this.notEmpty = this.lock.newCondition();
+		this.root = new Share();
+		this.memoryBudget = Long.MAX_VALUE;
+		this.clientWeights = new ConcurrentHashMap<String, Double>();
+		this.runWeights = new ConcurrentHashMap<String, Double>();
+		this.runPriorities = new ConcurrentHashMap<String, Integer>();
+		this.idleGracePeriod = TimeUnit.MILLISECONDS
+				.toNanos(DEFAULT_IDLE_GRACE_PERIOD);
+	}
+
+	/**
+	 * @param idleGracePeriod
+	 *            The time in milliseconds, that runs keep their share after
+	 *            their queue ran empty. With 0, runs start over at the lowest
+	 *            share of their active siblings whenever they queue tasks
+	 *            again.
+	 */
+	public void setIdleGracePeriod(final long idleGracePeriod) {
+		if (idleGracePeriod < 0)
+			throw new IllegalArgumentException(
+					"The grace period must not be negative");
+		this.lock.lock();
+		try {
+			this.idleGracePeriod = TimeUnit.MILLISECONDS
+					.toNanos(idleGracePeriod);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The current time in nanoseconds.
+	 */
+	protected long now() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * @param clientId
+	 *            The id of a client.
+	 * @param weight
+	 *            The share of the tasks the client gets relative to other
+	 *            clients.
+	 */
+	public void setClientWeight(final String clientId, final double weight) {
+		if (!(weight > 0))
+			throw new IllegalArgumentException("Weights have to be positive");
+		this.clientWeights.put(clientId, weight);
+	}
+
+	/**
+	 * @param runName
+	 *            The name of a run.
+	 * @param weight
+	 *            The share of the tasks the run gets relative to other runs of
+	 *            the same client.
+	 */
+	public void setRunWeight(final String runName, final double weight) {
+		if (!(weight > 0))
+			throw new IllegalArgumentException("Weights have to be positive");
+		this.runWeights.put(runName, weight);
+	}
+
+	/**
+	 * @param runName
+	 *            The name of a run.
+	 * @param priority
+	 *            Tasks of runs with higher priorities are taken first. Takes
+	 *            effect for tasks queued afterwards.
+	 */
+	public void setRunPriority(final String runName, final int priority) {
+		this.runPriorities.put(runName, priority);
+	}
+
+	/**
+	 * @param memoryBudget
+	 *            The memory in bytes, that the tasks taken from this queue and
+	 *            not done yet may reserve together.
+	 */
+	public void setMemoryBudget(final long memoryBudget) {
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException(
+					"The memory budget has to be positive");
+		this.lock.lock();
+		try {
+			this.memoryBudget = memoryBudget;
+			this.notEmpty.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The memory in bytes, that is reserved by the tasks taken from
+	 *         this queue and not done yet.
+	 */
+	public long getReservedMemory() {
+		this.lock.lock();
+		try {
+			return this.reservedMemory;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the memory reserved by a task, that is done.
+	 * 
+	 * @param task
+	 *            The task.
+	 */
+	protected void release(final Task<?> task) {
+		this.lock.lock();
+		try {
+			if (task.reservedBy != this)
+				return;
+			task.reservedBy = null;
+			this.reservedMemory -= task.memory;
+			this.notEmpty.signalAll();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	protected static long getMemory(final Runnable task) {
+		return task instanceof Task ? ((Task<?>) task).memory : 0;
+	}
+
+	protected static String getClientId(final Runnable task) {
+		return task instanceof Task ? ((Task<?>) task).clientId : "";
+	}
+
+	protected static String getRunName(final Runnable task) {
+		return task instanceof Task ? ((Task<?>) task).runName : "";
+	}
+
+	protected static double getWeight(final Map<String, Double> weights,
+			final String key) {
+		Double weight = weights.get(key);
+		return weight != null ? weight : 1.0;
+	}
+
+	/**
+	 * @param parent
+	 *            The share of a client or the root.
+	 * @param key
+	 *            The key of the child.
+	 * @return The share of the child. If the child is not active, its share
+	 *         is raised to the lowest share of its active siblings.
+	 */
+	private Share getChild(final Share parent, final String key) {
+		Share child = parent.children.get(key);
+		if (child != null && child.isActive())
+			return child;
+		double min = Double.NaN;
+		for (Share sibling : parent.children.values())
+			if (sibling != child && sibling.isActive()
+					&& (Double.isNaN(min) || sibling.share < min))
+				min = sibling.share;
+		if (child == null) {
+			child = new Share();
+			child.share = Double.isNaN(min) ? 0.0 : min;
+			parent.children.put(key, child);
+		} else if (!Double.isNaN(min) && child.share < min)
+			// a run within its grace period keeps a higher share
+			child.share = min;
+		return child;
+	}
+
+	/**
+	 * The lock has to be held.
+	 * 
+	 * @param client
+	 *            The share of the client of the run.
+	 * @param clientId
+	 *            The id of the client.
+	 * @param run
+	 *            The share of a run, whose queue ran empty.
+	 * @param runName
+	 *            The name of the run.
+	 */
+	private void onIdle(final Share client, final String clientId,
+			final Share run, final String runName) {
+		run.idleSince = this.now();
+		if (this.idleGracePeriod == 0) {
+			client.children.remove(runName);
+			if (client.children.isEmpty())
+				this.root.children.remove(clientId);
+		}
+	}
+
+	/**
+	 * Removes the shares of runs, whose grace period is over, and of clients
+	 * without any remaining runs. The lock has to be held.
+	 */
+	private void removeIdle() {
+		long now = this.now();
+		Iterator<Share> clients = this.root.children.values().iterator();
+		while (clients.hasNext()) {
+			Share client = clients.next();
+			Iterator<Share> runs = client.children.values().iterator();
+			while (runs.hasNext()) {
+				Share run = runs.next();
+				if (run.tasks.isEmpty()
+						&& now - run.idleSince >= this.idleGracePeriod)
+					runs.remove();
+			}
+			if (client.children.isEmpty())
+				clients.remove();
+		}
+	}
+
+	@Override
+	public boolean offer(final Runnable task) {
+		if (task == null)
+			throw new NullPointerException();
+		this.lock.lock();
+		try {
+			this.removeIdle();
+			Share client = this.getChild(this.root, getClientId(task));
+			String runName = getRunName(task);
+			Share run = this.getChild(client, runName);
+			Integer priority = this.runPriorities.get(runName);
+			run.priority = priority != null ? priority : 0;
+			run.tasks.add(task);
+			this.count++;
+			this.notEmpty.signal();
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * A run with queued tasks and its client.
+	 */
+	private static class Candidate {
+
+		private final String clientId;
+
+		private final Share client;
+
+		/**
+		 * The position of the client among the clients with queued tasks.
+		 */
+		private final int clientIndex;
+
+		private final String runName;
+
+		private final Share run;
+
+		private Candidate(final String clientId, final Share client,
+				final int clientIndex, final String runName, final Share run) {
+			super();
+			this.clientId = clientId;
+			this.client = client;
+			this.clientIndex = clientIndex;
+			this.runName = runName;
+			this.run = run;
+		}
+	}
+
+	/**
+	 * The order, in which the tasks of runs are taken: by priority, then by
+	 * the share of the client and then by the share of the run within its
+	 * client.
+	 */
+	private static final Comparator<Candidate> ORDER = new Comparator<Candidate>() {
+
+		@Override
+		public int compare(final Candidate c1, final Candidate c2) {
+			if (c1.run.priority != c2.run.priority)
+				return Integer.compare(c2.run.priority, c1.run.priority);
+			if (c1.client.share != c2.client.share)
+				return Double.compare(c1.client.share, c2.client.share);
+			// the shares of runs of different clients are not comparable
+			if (c1.clientIndex != c2.clientIndex)
+				return Integer.compare(c1.clientIndex, c2.clientIndex);
+			return Double.compare(c1.run.share, c2.run.share);
+		}
+	};
+
+	/**
+	 * The number of times a task may be deferred because its memory does not
+	 * fit, before no other tasks are taken until it fits.
+	 */
+	public static final int MAX_DEFERRALS = 32;
+
+	private boolean fits(final Runnable task) {
+		long memory = getMemory(task);
+		return memory == 0 || this.reservedMemory == 0
+				|| memory <= this.memoryBudget - this.reservedMemory;
+	}
+
+	/**
+	 * The lock has to be held.
+	 * 
+	 * @param reserve
+	 *            Whether the memory of the task is reserved. Otherwise the
+	 *            memory budget is ignored.
+	 * @return The next task by priority and fair share, whose memory fits
+	 *         into the budget, or null.
+	 */
+	private Runnable dequeue(final boolean reserve) {
+		if (this.count == 0)
+			return null;
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		int clientIndex = 0;
+		for (Map.Entry<String, Share> c : this.root.children.entrySet()) {
+			for (Map.Entry<String, Share> r : c.getValue().children
+					.entrySet())
+				if (!r.getValue().tasks.isEmpty())
+					candidates.add(new Candidate(c.getKey(), c.getValue(),
+							clientIndex, r.getKey(), r.getValue()));
+			clientIndex++;
+		}
+		// the sort is stable, such that ties are broken by arrival
+		candidates.sort(ORDER);
+
+		List<Task<?>> deferred = new ArrayList<Task<?>>();
+		for (Candidate candidate : candidates) {
+			Runnable task = candidate.run.tasks.peek();
+			if (reserve && !this.fits(task)) {
+				Task<?> t = (Task<?>) task;
+				if (t.deferrals >= MAX_DEFERRALS)
+					return null;
+				deferred.add(t);
+				continue;
+			}
+			for (Task<?> t : deferred)
+				t.deferrals++;
+			return this.dequeue(candidate, reserve);
+		}
+		return null;
+	}
+
+	private Runnable dequeue(final Candidate candidate, final boolean reserve) {
+		Share client = candidate.client;
+		Share run = candidate.run;
+		Runnable task = run.tasks.poll();
+		this.count--;
+		client.share += 1.0 / getWeight(this.clientWeights,
+				candidate.clientId);
+		run.share += 1.0 / getWeight(this.runWeights, candidate.runName);
+		if (run.tasks.isEmpty())
+			this.onIdle(client, candidate.clientId, run, candidate.runName);
+		if (reserve && task instanceof Task) {
+			Task<?> t = (Task<?>) task;
+			// cancelled tasks are done already and never release memory
+			if (t.memory > 0 && !t.isDone()) {
+				t.reservedBy = this;
+				this.reservedMemory += t.memory;
+			}
+		}
+		return task;
+	}
+
+	@Override
+	public Runnable poll() {
+		this.lock.lock();
+		try {
+			return this.dequeue(true);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		this.lock.lockInterruptibly();
+		try {
+			Runnable task;
+			while ((task = this.dequeue(true)) == null)
+				this.notEmpty.await();
+			return task;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		this.lock.lockInterruptibly();
+		try {
+			Runnable task;
+			while ((task = this.dequeue(true)) == null) {
+				if (nanos <= 0)
+					return null;
+				nanos = this.notEmpty.awaitNanos(nanos);
+			}
+			return task;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable peek() {
+		this.lock.lock();
+		try {
+			for (Share client : this.root.children.values())
+				for (Share run : client.children.values())
+					if (!run.tasks.isEmpty())
+						return run.tasks.peek();
+			return null;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public void put(final Runnable task) {
+		this.offer(task);
+	}
+
+	@Override
+	public boolean offer(final Runnable task, final long timeout,
+			final TimeUnit unit) {
+		return this.offer(task);
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int size() {
+		this.lock.lock();
+		try {
+			return this.count;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		if (!(o instanceof Runnable))
+			return false;
+		Runnable task = (Runnable) o;
+		this.lock.lock();
+		try {
+			Share client = this.root.children.get(getClientId(task));
+			Share run = client != null ? client.children
+					.get(getRunName(task)) : null;
+			if (run == null || !run.tasks.remove(task))
+				return false;
+			this.count--;
+			if (run.tasks.isEmpty())
+				this.onIdle(client, getClientId(task), run, getRunName(task));
+			return true;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return A snapshot of all queued tasks; removing tasks through the
+	 *         iterator removes them from this queue.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		final List<Runnable> snapshot = new ArrayList<Runnable>();
+		this.lock.lock();
+		try {
+			for (Share client : this.root.children.values())
+				for (Share run : client.children.values())
+					snapshot.addAll(run.tasks);
+		} finally {
+			this.lock.unlock();
+		}
+		final Iterator<Runnable> it = snapshot.iterator();
+		return new Iterator<Runnable>() {
+
+			private Runnable last;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Runnable next() {
+				this.last = it.next();
+				return this.last;
+			}
+
+			@Override
+			public void remove() {
+				if (this.last == null)
+					throw new IllegalStateException();
+				FairShareQueue.this.remove(this.last);
+				this.last = null;
+			}
+		};
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> c) {
+		return this.drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(final Collection<? super Runnable> c,
+			final int maxElements) {
+		if (c == this)
+			throw new IllegalArgumentException();
+		this.lock.lock();
+		try {
+			int n = 0;
+			while (n < maxElements && this.count > 0) {
+				c.add(this.dequeue(false));
+				n++;
+			}
+			return n;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+}
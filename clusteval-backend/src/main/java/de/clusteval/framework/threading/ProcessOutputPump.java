@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.framework.threading;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single thread, that copies the output of all child processes into their
+ * log files.
+ *
+ * <p>
+ * The streams of processes cannot be selected on, therefore this thread polls
+ * all registered streams for available bytes, reads them in large chunks and
+ * writes them through large buffers. The logs are flushed as soon as no more
+ * output is available, such that they can be inspected while the processes
+ * are running. Reads never block, such that a stalled process cannot delay
+ * the output of the others.
+ *
+ * <p>
+ * Processes can also write their output into their log files directly (see
+ * {@link ProcessBuilder#redirectOutput(java.lang.ProcessBuilder.Redirect)}).
+ * Those logs are only watched by this thread.
+ *
+ * <p>
+ * Output exceeding the limit of a log is discarded and a note is appended to
+ * the log.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class ProcessOutputPump extends Thread {
+
+	/**
+	 * The size of the chunks read from the streams and of the buffers of the
+	 * logs.
+	 */
+	protected static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The time in milliseconds this thread waits, if no output was available.
+	 */
+	protected static final long IDLE_WAIT = 50;
+
+	private static ProcessOutputPump instance;
+
+	/**
+	 * @return The pump of this JVM, which is started on first access and
+	 *         restarted if its thread died.
+	 */
+	public static synchronized ProcessOutputPump getInstance() {
+		if (instance == null || !instance.isAlive()) {
+			ProcessOutputPump previous = instance;
+			instance = new ProcessOutputPump();
+			// the new pump takes over the outputs of the dead one
+			if (previous != null)
+				instance.outputs.addAll(previous.outputs);
+			instance.start();
+		}
+		return instance;
+	}
+
+	/**
+	 * The output of one process.
+	 */
+	public static class ProcessOutput {
+
+		protected final Process process;
+
+		protected final File logFile;
+
+		protected final long limit;
+
+		/**
+		 * The streams to copy, or null if the process writes into the log
+		 * file.
+		 */
+		protected final InputStream[] streams;
+
+		protected final OutputStream log;
+
+		protected long written;
+
+		protected boolean truncated;
+
+		protected boolean dirty;
+
+		/**
+		 * The number of polls without output since the process terminated.
+		 */
+		protected int idlePollsAfterExit;
+
+		protected final CountDownLatch finished;
+
+		protected ProcessOutput(final Process process, final File logFile,
+				final long limit, final InputStream[] streams)
+				throws IOException {
+			super();
+			this.process = process;
+			this.logFile = logFile;
+			this.limit = limit;
+			this.streams = streams;
+			this.log = streams != null ? new BufferedOutputStream(
+					new FileOutputStream(logFile, true), BUFFER_SIZE) : null;
+			this.finished = new CountDownLatch(1);
+		}
+
+		/**
+		 * @param buffer
+		 *            The buffer to read into.
+		 * @return True, if output of the process was available.
+		 * @throws IOException
+		 */
+		protected boolean poll(final byte[] buffer) throws IOException {
+			// check before reading, such that no output is missed
+			boolean exited = !this.process.isAlive();
+			boolean read = false;
+			if (this.streams == null) {
+				if (this.logFile.length() > this.limit) {
+					try (FileChannel channel = FileChannel.open(
+							this.logFile.toPath(), StandardOpenOption.WRITE)) {
+						// the process appends to the log, thus it continues
+						// at the new end
+						channel.truncate(this.limit);
+					}
+					this.truncated = true;
+				}
+			} else {
+				for (InputStream stream : this.streams) {
+					int available = Math.min(stream.available(),
+							buffer.length);
+					if (available <= 0)
+						continue;
+					int n = stream.read(buffer, 0, available);
+					if (n > 0) {
+						this.write(buffer, n);
+						read = true;
+					}
+				}
+				if (read)
+					this.dirty = true;
+				else if (this.dirty) {
+					this.log.flush();
+					this.dirty = false;
+				}
+			}
+			if (exited && !read && ++this.idlePollsAfterExit > 1)
+				this.finish();
+			return read;
+		}
+
+		protected void write(final byte[] buffer, final int n)
+				throws IOException {
+			int m = (int) Math.min(n, this.limit - this.written);
+			if (m > 0) {
+				this.log.write(buffer, 0, m);
+				this.written += m;
+			}
+			if (m < n)
+				this.truncated = true;
+		}
+
+		/**
+		 * Closes the log and wakes up the threads waiting for this output.
+		 */
+		protected void finish() {
+			try {
+				if (this.log != null) {
+					if (this.truncated)
+						this.log.write(this.getTruncationNote());
+					this.log.close();
+				} else if (this.truncated)
+					try (OutputStream out = new FileOutputStream(
+							this.logFile, true)) {
+						out.write(this.getTruncationNote());
+					}
+			} catch (IOException e) {
+				LoggerFactory.getLogger(this.getClass()).warn(
+						"Could not write the log " + this.logFile + ": "
+								+ e.getMessage());
+			} finally {
+				this.finished.countDown();
+			}
+		}
+
+		private byte[] getTruncationNote() {
+			return String.format("%n[output truncated after %d bytes]%n",
+					this.limit).getBytes(StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return True, if the output exceeded the limit.
+		 */
+		public boolean isTruncated() {
+			return this.truncated;
+		}
+
+		/**
+		 * @return True, if the process terminated and all of its output was
+		 *         written.
+		 */
+		public boolean isFinished() {
+			return this.finished.getCount() == 0;
+		}
+
+		/**
+		 * Waits until the process terminated and all of its output was
+		 * written.
+		 *
+		 * @param timeout
+		 *            The maximal time to wait.
+		 * @param unit
+		 *            The unit of the timeout.
+		 * @return True, if the output was written completely.
+		 * @throws InterruptedException
+		 */
+		public boolean awaitFinished(final long timeout, final TimeUnit unit)
+				throws InterruptedException {
+			return this.finished.await(timeout, unit);
+		}
+	}
+
+	protected final Logger log;
+
+	protected final List<ProcessOutput> outputs;
+
+	protected final Object lock;
+
+	protected ProcessOutputPump() {
+		super();
+		this.setName(this.getName().replace("Thread",
+				this.getClass().getSimpleName()));
+		this.setDaemon(true);
+		this.log = LoggerFactory.getLogger(this.getClass());
+		this.outputs = new CopyOnWriteArrayList<ProcessOutput>();
+		this.lock = new Object();
+	}
+
+	/**
+	 * Copies the standard output and error of a process into a log file.
+	 *
+	 * @param process
+	 *            The process.
+	 * @param logFile
+	 *            The log file, to which the output is appended.
+	 * @param limit
+	 *            The maximal number of bytes to write.
+	 * @return The output of the process.
+	 * @throws IOException
+	 *             If the log file could not be opened.
+	 */
+	public ProcessOutput pump(final Process process, final File logFile,
+			final long limit) throws IOException {
+		return this.register(new ProcessOutput(process, logFile, limit,
+				new InputStream[]{process.getInputStream(),
+						process.getErrorStream()}));
+	}
+
+	/**
+	 * Watches the size of a log file, into which a process appends its output
+	 * directly.
+	 *
+	 * @param process
+	 *            The process.
+	 * @param logFile
+	 *            The log file.
+	 * @param limit
+	 *            The maximal size of the log file in bytes.
+	 * @return The output of the process.
+	 * @throws IOException
+	 */
+	public ProcessOutput watch(final Process process, final File logFile,
+			final long limit) throws IOException {
+		return this.register(new ProcessOutput(process, logFile, limit, null));
+	}
+
+	protected ProcessOutput register(final ProcessOutput output) {
+		this.outputs.add(output);
+		synchronized (this.lock) {
+			this.lock.notify();
+		}
+		return output;
+	}
+
+	/**
+	 * @return The number of processes, whose output is written right now.
+	 */
+	public int getNumberOfProcesses() {
+		return this.outputs.size();
+	}
+
+	@Override
+	public void run() {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		while (!this.isInterrupted()) {
+			boolean read = false;
+			for (ProcessOutput output : this.outputs) {
+				try {
+					read |= output.poll(buffer);
+				} catch (IOException e) {
+					this.log.warn("Could not write the output of a process into "
+							+ output.logFile + ": " + e.getMessage());
+					output.finish();
+				} catch (RuntimeException e) {
+					// one broken output must not stop the others
+					this.log.error("Error while writing the output of a process into "
+							+ output.logFile, e);
+					output.finish();
+				}
+				if (output.isFinished())
+					this.outputs.remove(output);
+			}
+			if (read)
+				continue;
+			try {
+				synchronized (this.lock) {
+					this.lock.wait(IDLE_WAIT);
+				}
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+}
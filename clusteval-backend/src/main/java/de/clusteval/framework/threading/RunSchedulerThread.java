@@ -22,9 +22,16 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,6 +64,12 @@ import de.wiwie.wiutils.file.FileUtils;
  * server {@link ClustevalBackendServer} which in turn gets its commands from a
  * client.
  *
+ * <p>
+ * Iterations of all runs share one thread pool, which takes them from a
+ * {@link FairShareQueue}: every client and every run gets a share of the
+ * threads according to its weight, such that a large run does not starve the
+ * runs of other clients.
+ *
  * @author Christian Wiwie
  *
  */
@@ -66,7 +79,7 @@ public class RunSchedulerThread extends ClustevalThread {
 	 * A queue containing all the runs that were scheduled, but not yet
 	 * executed. Every entry of the queue contains (clientId,runId,isResume).
 	 */
-	protected Queue<Triple<String, String, Boolean>> runQueue;
+	protected BlockingQueue<Triple<String, String, Boolean>> runQueue;
 
 	/**
 	 * A map containing all the runs that are executed right now. The map maps
@@ -99,7 +112,18 @@ public class RunSchedulerThread extends ClustevalThread {
 	 * iteration runnables. Iteration runnables are started by certain types of
 	 * run runnables (e.g. ParameterOptimizationRunRunnables)
 	 */
-	protected ScheduledThreadPoolExecutor iterationThreadPool;
+	protected ThreadPoolExecutor iterationThreadPool;
+
+	/**
+	 * The queue of {@link #iterationThreadPool}, which decides on the order of
+	 * the iterations of different clients and runs.
+	 */
+	protected FairShareQueue iterationQueue;
+
+	/**
+	 * The clients, that scheduled the runs executed right now.
+	 */
+	protected Map<Run, String> runToClientId;
 
 	protected Map<Thread, IterationRunnable<? extends IterationWrapper>> activeIterationRunnables;
 
@@ -118,7 +142,7 @@ public class RunSchedulerThread extends ClustevalThread {
 			final Repository repository, final int numberThreads) {
 		super(supervisorThread);
 		this.setName(this.getName().replace("Thread", "RunScheduler"));
-		this.runQueue = new ConcurrentLinkedQueue<Triple<String, String, Boolean>>();
+		this.runQueue = new LinkedBlockingQueue<Triple<String, String, Boolean>>();
 		this.clientToRuns = new HashMap<String, Collection<Run>>();
 		this.clientToRunResumes = new HashMap<String, Collection<Run>>();
 		this.repository = repository;
@@ -132,11 +156,39 @@ public class RunSchedulerThread extends ClustevalThread {
 		// the "mainthread" only waits until those threads are finished.
 		// Therefore we can assume that at each time point we have roughly
 		// numberThreads active threads.
-		this.iterationThreadPool = new ScheduledThreadPoolExecutor(
-				numberThreads);
-		this.iterationThreadPool.setMaximumPoolSize(this.iterationThreadPool
-				.getCorePoolSize());
-		this.activeIterationRunnables = new HashMap<Thread, IterationRunnable<? extends IterationWrapper>>();
+		this.iterationQueue = new FairShareQueue();
+		this.iterationQueue.setMemoryBudget(ClustevalBackendServer
+				.getBackendServerConfiguration().getIterationMemoryBudget());
+		for (Map.Entry<String, Double> e : ClustevalBackendServer
+				.getBackendServerConfiguration().getClientWeights().entrySet())
+			this.iterationQueue.setClientWeight(e.getKey(), e.getValue());
+		this.runToClientId = new ConcurrentHashMap<Run, String>();
+		this.iterationThreadPool = new ThreadPoolExecutor(numberThreads,
+				numberThreads, 0L, TimeUnit.MILLISECONDS, this.iterationQueue) {
+
+			@Override
+			protected <T> RunnableFuture<T> newTaskFor(Runnable runnable,
+					T value) {
+				if (runnable instanceof IterationRunnable) {
+					IterationRunnable<?> iterationRunnable = (IterationRunnable<?>) runnable;
+					Run run = iterationRunnable.getRun();
+					FairShareQueue.Task<T> task = new FairShareQueue.Task<T>(
+							runnable, value, getClientId(run), run.getName());
+					task.setMemory(iterationRunnable.getEstimatedMemory());
+					return task;
+				}
+				return super.newTaskFor(runnable, value);
+			}
+
+			@Override
+			protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+				return new FairShareQueue.Task<T>(callable, "", "");
+			}
+		};
+		// iterations have to pass the queue to reserve their memory, instead
+		// of being handed to newly started threads directly
+		this.iterationThreadPool.prestartAllCoreThreads();
+		this.activeIterationRunnables = new ConcurrentHashMap<Thread, IterationRunnable<? extends IterationWrapper>>();
 		this.start();
 	}
 
@@ -470,25 +522,79 @@ public class RunSchedulerThread extends ClustevalThread {
 		// wait for new runs and run resumes
 		while (!this.isInterrupted()) {
 
-			// check the run queue for a new run or run resume
-			final Triple<String, String, Boolean> pair = this.runQueue.poll();
-			if (pair != null) {
-				String clientId = pair.getFirst();
-				final String runId = pair.getSecond();
-				final Run run;
-				final RunSchedulerThread finalScheduler = this;
-				boolean isResume = pair.getThird();
-
-				if (!isResume) {
-					// take a cloned copy of the run
-					run = this.repository.getStaticObjectWithName(Run.class,
-							runId).clone();
-
-					if (!this.clientToRuns.containsKey(clientId))
-						this.clientToRuns.put(clientId, new HashSet<Run>());
-					if (this.clientToRuns.get(clientId).contains(run))
-						this.clientToRuns.get(clientId).remove(run);
-					this.clientToRuns.get(clientId).add(run);
+			// wait for a new run or run resume
+			final Triple<String, String, Boolean> pair;
+			try {
+				pair = this.runQueue.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+			String clientId = pair.getFirst();
+			final String runId = pair.getSecond();
+			final Run run;
+			final RunSchedulerThread finalScheduler = this;
+			boolean isResume = pair.getThird();
+
+			if (!isResume) {
+				// take a cloned copy of the run
+				run = this.repository.getStaticObjectWithName(Run.class,
+						runId).clone();
+
+				if (!this.clientToRuns.containsKey(clientId))
+					this.clientToRuns.put(clientId, new HashSet<Run>());
+				if (this.clientToRuns.get(clientId).contains(run))
+					this.clientToRuns.get(clientId).remove(run);
+				this.clientToRuns.get(clientId).add(run);
+				this.runToClientId.put(run, clientId);
+				this.setRunWeight(run.getName(), run.getSchedulingWeight());
+				this.setRunPriority(run.getName(), run.getSchedulingPriority());
+
+				Thread t = new Thread() {
+
+					/*
+					 * (non-Javadoc)
+					 *
+					 * @see java.lang.Runnable#run()
+					 */
+					@Override
+					public void run() {
+						try {
+							run.perform(finalScheduler);
+						} catch (IOException e1) {
+							e1.printStackTrace();
+						} catch (RunRunnableInitializationException e) {
+							e.printStackTrace();
+						} catch (RunInitializationException e) {
+							e.printStackTrace();
+						} finally {
+							runToClientId.remove(run);
+						}
+					}
+				};
+				t.start();
+			} else {
+                                    ArrayList<ParameterOptimizationResult> results = new ArrayList<ParameterOptimizationResult>();
+				try {
+					run = ParameterOptimizationResult
+                                                        .parseFromRunResultFolder2(
+                                                      										repository,
+									new File(FileUtils.buildPath(repository
+											.getBasePath(RunResult.class),
+											runId)), results, false, false,
+									false).clone();
+					run.setStatus(RUN_STATUS.SCHEDULED);
+
+					if (!this.clientToRunResumes.containsKey(clientId))
+						this.clientToRunResumes.put(clientId,
+								new HashSet<Run>());
+					if (this.clientToRunResumes.get(clientId).contains(run))
+						this.clientToRunResumes.get(clientId).remove(run);
+					this.clientToRunResumes.get(clientId).add(run);
+					this.runToClientId.put(run, clientId);
+					this.setRunWeight(run.getName(),
+							run.getSchedulingWeight());
+					this.setRunPriority(run.getName(),
+							run.getSchedulingPriority());
 
 					Thread t = new Thread() {
 
@@ -500,72 +606,28 @@ public class RunSchedulerThread extends ClustevalThread {
 						@Override
 						public void run() {
 							try {
-								run.perform(finalScheduler);
+								run.resume(finalScheduler, runId);
+							} catch (MissingParameterValueException e1) {
+								e1.printStackTrace();
 							} catch (IOException e1) {
 								e1.printStackTrace();
+							} catch (NoRunResultFormatParserException e1) {
+								e1.printStackTrace();
 							} catch (RunRunnableInitializationException e) {
 								e.printStackTrace();
 							} catch (RunInitializationException e) {
+								// TODO Auto-generated catch block
 								e.printStackTrace();
+							} finally {
+								runToClientId.remove(run);
 							}
 						}
 					};
 					t.start();
-				} else {
-                                    ArrayList<ParameterOptimizationResult> results = new ArrayList<ParameterOptimizationResult>();
-					try {
-						run = ParameterOptimizationResult
-                                                        .parseFromRunResultFolder2(
-                                                      										repository,
-										new File(FileUtils.buildPath(repository
-												.getBasePath(RunResult.class),
-												runId)), results, false, false,
-										false).clone();
-						run.setStatus(RUN_STATUS.SCHEDULED);
-
-						if (!this.clientToRunResumes.containsKey(clientId))
-							this.clientToRunResumes.put(clientId,
-									new HashSet<Run>());
-						if (this.clientToRunResumes.get(clientId).contains(run))
-							this.clientToRunResumes.get(clientId).remove(run);
-						this.clientToRunResumes.get(clientId).add(run);
-
-						Thread t = new Thread() {
-
-							/*
-							 * (non-Javadoc)
-							 *
-							 * @see java.lang.Runnable#run()
-							 */
-							@Override
-							public void run() {
-								try {
-									run.resume(finalScheduler, runId);
-								} catch (MissingParameterValueException e1) {
-									e1.printStackTrace();
-								} catch (IOException e1) {
-									e1.printStackTrace();
-								} catch (NoRunResultFormatParserException e1) {
-									e1.printStackTrace();
-								} catch (RunRunnableInitializationException e) {
-									e.printStackTrace();
-								} catch (RunInitializationException e) {
-									// TODO Auto-generated catch block
-									e.printStackTrace();
-								}
-							}
-						};
-						t.start();
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
-			}
-			try {
-				sleep(1000);
-			} catch (InterruptedException e) {
-				this.interrupt();
+
 			}
 		}
 	}
@@ -599,31 +661,97 @@ public class RunSchedulerThread extends ClustevalThread {
 		return this.threadPool.submit(runRunnable);
 	}
 
-	public Future<?> registerIterationRunnable(
+	/**
+	 * This method takes an {@link IterationRunnable} and adds it to the
+	 * iteration thread pool, which starts it as soon as its client and run
+	 * have their share of the threads available.
+	 * 
+	 * @param iterationRunnable
+	 *            The new iteration runnable to perform.
+	 * @return The future of the execution of the iteration runnable.
+	 */
+	public FairShareQueue.Task<?> registerIterationRunnable(
 			IterationRunnable iterationRunnable) {
-		return this.iterationThreadPool.submit(iterationRunnable);
+		return (FairShareQueue.Task<?>) this.iterationThreadPool
+				.submit(iterationRunnable);
 	}
 
-	public synchronized void informOnStartedIterationRunnable(final Thread t,
+	public void informOnStartedIterationRunnable(final Thread t,
 			final IterationRunnable runnable) {
 		this.activeIterationRunnables.put(t, runnable);
 	}
 
-	public synchronized void informOnFinishedIterationRunnable(final Thread t,
+	public void informOnFinishedIterationRunnable(final Thread t,
 			final IterationRunnable runnable) {
-		if (this.activeIterationRunnables.containsKey(t)
-				&& this.activeIterationRunnables.get(t).equals(runnable))
-			this.activeIterationRunnables.remove(t);
+		this.activeIterationRunnables.remove(t, runnable);
 	}
 
-	public synchronized Map<Thread, IterationRunnable<? extends IterationWrapper>> getActiveIterationRunnables() {
+	public Map<Thread, IterationRunnable<? extends IterationWrapper>> getActiveIterationRunnables() {
 		return this.activeIterationRunnables;
 	}
 
+	/**
+	 * @param run
+	 *            A run, that is executed right now.
+	 * @return The id of the client, that scheduled the run, or an empty
+	 *         string if unknown.
+	 */
+	protected String getClientId(final Run run) {
+		String clientId = this.runToClientId.get(run);
+		return clientId != null ? clientId : "";
+	}
+
+	/**
+	 * @param clientId
+	 *            The id of a client.
+	 * @param weight
+	 *            The share of the iteration threads the runs of the client get
+	 *            relative to other clients.
+	 * @see FairShareQueue#setClientWeight(String, double)
+	 */
+	public void setClientWeight(final String clientId, final double weight) {
+		this.iterationQueue.setClientWeight(clientId, weight);
+	}
+
+	/**
+	 * @param runName
+	 *            The name of a run.
+	 * @param weight
+	 *            The share of the iteration threads of its client the run gets
+	 *            relative to the other runs of the client.
+	 * @see FairShareQueue#setRunWeight(String, double)
+	 */
+	public void setRunWeight(final String runName, final double weight) {
+		this.iterationQueue.setRunWeight(runName, weight);
+	}
+
+	/**
+	 * @param runName
+	 *            The name of a run.
+	 * @param priority
+	 *            Iterations of runs with higher priorities are started first.
+	 * @see FairShareQueue#setRunPriority(String, int)
+	 */
+	public void setRunPriority(final String runName, final int priority) {
+		this.iterationQueue.setRunPriority(runName, priority);
+	}
+
 	public synchronized void updateThreadPoolSize(final int numberThreads) {
-		this.threadPool.setCorePoolSize(numberThreads);
-		this.threadPool.setMaximumPoolSize(numberThreads);
-		this.iterationThreadPool.setCorePoolSize(numberThreads);
-		this.iterationThreadPool.setMaximumPoolSize(numberThreads);
+		// the core size must never exceed the maximal size
+		if (numberThreads > this.threadPool.getMaximumPoolSize()) {
+			this.threadPool.setMaximumPoolSize(numberThreads);
+			this.threadPool.setCorePoolSize(numberThreads);
+		} else {
+			this.threadPool.setCorePoolSize(numberThreads);
+			this.threadPool.setMaximumPoolSize(numberThreads);
+		}
+		if (numberThreads > this.iterationThreadPool.getMaximumPoolSize()) {
+			this.iterationThreadPool.setMaximumPoolSize(numberThreads);
+			this.iterationThreadPool.setCorePoolSize(numberThreads);
+		} else {
+			this.iterationThreadPool.setCorePoolSize(numberThreads);
+			this.iterationThreadPool.setMaximumPoolSize(numberThreads);
+		}
+		this.iterationThreadPool.prestartAllCoreThreads();
 	}
 }
\ No newline at end of file
@@ -125,20 +125,27 @@ public class StandaloneProgram extends Program {
 			final ProgramConfig programConfig, final String[] invocationLine,
 			Map<String, String> effectiveParams,
 			Map<String, String> internalParams) throws IOException {
-		String[] envVarsArray = new String[this.envVars.size() + 1];
-		// TODO, check whether this works everywhere
-		envVarsArray[0] = "TERM=xterm";
-		int i = 1;
-		for (Map.Entry<String, String> e : this.envVars.entrySet()) {
-			envVarsArray[i] = String.format("%s=%s", e.getKey(), e.getValue());
-			i++;
-		}
+		return this.getProcessBuilder(programConfig, invocationLine).start();
+	}
 
-		return Runtime.getRuntime().exec(
-				invocationLine,
-				envVarsArray,
-				new File(programConfig.getProgram().getAbsolutePath())
-						.getParentFile());
+	/**
+	 * @param programConfig
+	 *            The program configuration of the invocation.
+	 * @param invocationLine
+	 *            The parsed invocation line.
+	 * @return A process builder for the invocation line, which runs in the
+	 *         directory of this program with only its environment variables.
+	 */
+	public ProcessBuilder getProcessBuilder(final ProgramConfig programConfig,
+			final String[] invocationLine) {
+		ProcessBuilder builder = new ProcessBuilder(invocationLine);
+		Map<String, String> environment = builder.environment();
+		environment.clear();
+		// TODO, check whether this works everywhere
+		environment.put("TERM", "xterm");
+		environment.putAll(this.envVars);
+		return builder.directory(new File(programConfig.getProgram()
+				.getAbsolutePath()).getParentFile());
 	}
 
 	/*
@@ -114,10 +114,10 @@ public abstract class AbsoluteAndRelativeDataRProgram extends RProgram {
 		boolean absoluteData = dataConfig.getDatasetConfig().getDataSet()
 				.getOriginalDataSet() instanceof AbsoluteDataSet;
 		if (absoluteData) {
-			rEngine.assign("x", x);
+			rEngine.assignCached("x", x);
 			rEngine.eval("rownames(x) <- ids");
 		} else {
-			rEngine.assign("x", x);
+			rEngine.assignCached("x", x);
 			rEngine.eval("x <- max(x)-x");
 			this.convertDistancesToAppropriateDatastructure();
 		}
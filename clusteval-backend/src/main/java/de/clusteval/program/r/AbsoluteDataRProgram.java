@@ -77,7 +77,7 @@ public abstract class AbsoluteDataRProgram extends RProgram {
 		super.beforeExec(dataConfig, programConfig, invocationLine,
 				effectiveParams, internalParams);
 
-		rEngine.assign("x", x);
+		rEngine.assignCached("x", x);
 		rEngine.eval("rownames(x) <- ids");
 	}
 
@@ -77,7 +77,7 @@ public abstract class RelativeDataRProgram extends RProgram {
 		super.beforeExec(dataConfig, programConfig, invocationLine,
 				effectiveParams, internalParams);
 
-		rEngine.assign("x", x);
+		rEngine.assignCached("x", x);
 		rEngine.eval("x <- max(x)-x");
 		rEngine.eval("x <- as.dist(x)");
 	}
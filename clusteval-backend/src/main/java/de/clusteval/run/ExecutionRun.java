@@ -132,6 +132,12 @@ public abstract class ExecutionRun extends Run {
 
 	protected List<RunResultPostprocessor> postProcessors;
 
+	/**
+	 * Whether clusterings of this run are looked up in and stored into the
+	 * clustering cache of the repository.
+	 */
+	protected boolean useClusteringCache;
+
 	/**
 	 * The constructor of this class takes a name, date and configuration. It is
 	 * protected, to force usage of the static method
@@ -173,6 +179,7 @@ public abstract class ExecutionRun extends Run {
 		this.qualityMeasures = qualityMeasures;
 		this.postProcessors = postProcessors;
 		this.maxExecutionTimes = maxExecutionTimes;
+		this.useClusteringCache = true;
 
 		initRunPairs(programConfigs, dataConfigs);
 
@@ -214,6 +221,7 @@ public abstract class ExecutionRun extends Run {
 		this.postProcessors = clonePostProcessors(other.postProcessors);
 		this.maxExecutionTimes = new HashMap<String, Integer>(
 				other.maxExecutionTimes);
+		this.useClusteringCache = other.useClusteringCache;
 
 		initRunPairs(
 				ProgramConfig.cloneProgramConfigurations(other.programConfigs),
@@ -824,4 +832,21 @@ public abstract class ExecutionRun extends Run {
 	public int getMaxExecutionTime(final ProgramConfig pc) {
 		return this.maxExecutionTimes.get(pc.getName());
 	}
+
+	/**
+	 * @return True, if clusterings of this run are looked up in and stored
+	 *         into the clustering cache of the repository.
+	 */
+	public boolean isUseClusteringCache() {
+		return this.useClusteringCache;
+	}
+
+	/**
+	 * @param useClusteringCache
+	 *            Whether clusterings of this run are looked up in and stored
+	 *            into the clustering cache of the repository.
+	 */
+	public void setUseClusteringCache(final boolean useClusteringCache) {
+		this.useClusteringCache = useClusteringCache;
+	}
 }
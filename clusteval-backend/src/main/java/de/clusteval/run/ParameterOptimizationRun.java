@@ -134,6 +134,13 @@ public class ParameterOptimizationRun extends ExecutionRun {
 	 */
 	protected List<ParameterOptimizationMethod> optimizationMethods;
 
+	/**
+	 * The fraction of the iterations of a layer, that has to be finished before
+	 * layered optimization methods speculatively start the next layer around
+	 * the best parameter set so far. 0 disables speculation.
+	 */
+	protected double optimizationSpeculation;
+
 	/**
 	 * New objects of this type are automatically registered at the repository.
 	 * 
@@ -205,6 +212,7 @@ public class ParameterOptimizationRun extends ExecutionRun {
 		super(otherRun);
 		this.optimizationMethods = ParameterOptimizationMethod.cloneOptimizationMethods(otherRun.optimizationMethods);
 		this.optimizationParameters = ProgramParameter.cloneParameterListList(otherRun.optimizationParameters);
+		this.optimizationSpeculation = otherRun.optimizationSpeculation;
 	}
 
 	/*
@@ -294,6 +302,26 @@ public class ParameterOptimizationRun extends ExecutionRun {
 		return this.optimizationMethods;
 	}
 
+	/**
+	 * @return The fraction of the iterations of a layer, that has to be
+	 *         finished before the next layer is started speculatively; 0 if
+	 *         speculation is disabled.
+	 * @see #optimizationSpeculation
+	 */
+	public double getOptimizationSpeculation() {
+		return this.optimizationSpeculation;
+	}
+
+	/**
+	 * @param optimizationSpeculation
+	 *            The fraction of the iterations of a layer, that has to be
+	 *            finished before the next layer is started speculatively; 0
+	 *            disables speculation.
+	 */
+	public void setOptimizationSpeculation(final double optimizationSpeculation) {
+		this.optimizationSpeculation = optimizationSpeculation;
+	}
+
 	@Override
 	public Map<Pair<String, String>, Pair<Double, Map<String, Pair<Map<String, String>, String>>>> getOptimizationStatus() {
 		Map<Pair<String, String>, Pair<Double, Map<String, Pair<Map<String, String>, String>>>> result = new HashMap<Pair<String, String>, Pair<Double, Map<String, Pair<Map<String, String>, String>>>>();
@@ -14,6 +14,7 @@ package de.clusteval.run;
 
 import de.clusteval.context.Context;
 import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.RengineStatistics;
 import de.clusteval.framework.repository.Repository;
 import de.clusteval.framework.repository.RepositoryEvent;
 import de.clusteval.framework.repository.RepositoryObject;
@@ -124,6 +125,12 @@ public abstract class Run extends RepositoryObject {
      */
     protected String logFilePath;
 
+    /**
+     * The statistics of the R calls of the runnables of this run during its
+     * execution, which are written into the log folder.
+     */
+    protected RengineStatistics rengineStatistics;
+
     /**
      * Keeps track of the progress of this run when it is executed. Can be used
      * to get a percental status.
@@ -163,6 +170,18 @@ public abstract class Run extends RepositoryObject {
      */
     protected Context context;
 
+    /**
+     * The share of the iteration threads this run gets relative to the other
+     * runs of its client.
+     */
+    protected double schedulingWeight;
+
+    /**
+     * Iterations of runs with higher priorities are started before those of
+     * runs with lower priorities.
+     */
+    protected int schedulingPriority;
+
     /**
      * The constructor of this class takes a date and configuration. It is
      * protected, to force usage of the static method
@@ -181,6 +200,7 @@ public abstract class Run extends RepositoryObject {
         this.runnables = new ArrayList<>();
         this.status = RUN_STATUS.INACTIVE;
         this.context = context;
+        this.schedulingWeight = 1.0;
     }
 
     /**
@@ -199,6 +219,8 @@ public abstract class Run extends RepositoryObject {
         this.runnables = new ArrayList<>();
         this.status = RUN_STATUS.INACTIVE;
         this.context = otherRun.context;
+        this.schedulingWeight = otherRun.schedulingWeight;
+        this.schedulingPriority = otherRun.schedulingPriority;
     }
 
     /*
@@ -229,6 +251,7 @@ public abstract class Run extends RepositoryObject {
                         .currentTimeMillis() - startTime)
                 + ")"
                 + System.getProperty("line.separator"));
+        this.writeRengineStatistics();
         this.log.info("Run " + this + " - All processes finished");
         this.setStatus(RUN_STATUS.FINISHED);
     }
@@ -257,10 +280,29 @@ public abstract class Run extends RepositoryObject {
                         .currentTimeMillis() - startTime)
                 + ")"
                 + System.getProperty("line.separator"));
+        this.writeRengineStatistics();
         this.log.info("Run " + this + " - All processes finished");
         this.setStatus(RUN_STATUS.FINISHED);
     }
 
+    /**
+     * Writes the statistics of the R calls during the execution of this run
+     * into the log folder, next to the log file.
+     */
+    protected void writeRengineStatistics() {
+        File file = new File(this.logFilePath.replaceAll("\\.log$", "")
+                + ".rengine.tsv");
+        if (this.rengineStatistics == null) {
+            return;
+        }
+        try {
+            this.rengineStatistics.writeToFile(file, null);
+        } catch (IOException e) {
+            this.log.warn("Could not write the R statistics to " + file + ": "
+                    + e.getMessage());
+        }
+    }
+
     /**
      * This method is invoked by {@link #perform(RunSchedulerThread)} before
      * {@link #doPerform(RunSchedulerThread)} is invoked.
@@ -291,6 +333,7 @@ public abstract class Run extends RepositoryObject {
         initRunIdentificationString();
 
         this.startTime = System.currentTimeMillis();
+        this.rengineStatistics = new RengineStatistics();
 
         this.copyConfigurationFiles(false);
 
@@ -358,6 +401,7 @@ public abstract class Run extends RepositoryObject {
             this.runIdentString = runIdentString;
 
             this.startTime = System.currentTimeMillis();
+            this.rengineStatistics = new RengineStatistics();
 
             this.copyConfigurationFiles(true);
 
@@ -511,6 +555,50 @@ public abstract class Run extends RepositoryObject {
         return this.logFilePath;
     }
 
+    /**
+     * @see #schedulingWeight
+     * @return The share of the iteration threads this run gets relative to
+     * the other runs of its client.
+     */
+    public double getSchedulingWeight() {
+        return this.schedulingWeight;
+    }
+
+    /**
+     * @param schedulingWeight The share of the iteration threads this run
+     * gets relative to the other runs of its client.
+     */
+    public void setSchedulingWeight(final double schedulingWeight) {
+        if (!(schedulingWeight > 0)) {
+            throw new IllegalArgumentException("Weights have to be positive");
+        }
+        this.schedulingWeight = schedulingWeight;
+    }
+
+    /**
+     * @see #schedulingPriority
+     * @return The priority of the iterations of this run.
+     */
+    public int getSchedulingPriority() {
+        return this.schedulingPriority;
+    }
+
+    /**
+     * @param schedulingPriority The priority of the iterations of this run.
+     */
+    public void setSchedulingPriority(final int schedulingPriority) {
+        this.schedulingPriority = schedulingPriority;
+    }
+
+    /**
+     * @see #rengineStatistics
+     * @return The statistics of the R calls of the runnables of this run
+     * during its execution.
+     */
+    public RengineStatistics getRengineStatistics() {
+        return this.rengineStatistics;
+    }
+
     /**
      * This method constructs and returns the path to the configuration
      * subdirectory in the results directory of this run execution.
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.run.result;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.clusteval.data.DataConfig;
+import de.clusteval.program.ProgramConfig;
+
+/**
+ * A cache of converted clusterings, that is shared by all runs of a
+ * repository.
+ *
+ * <p>
+ * A clustering is identified by a hash over the contents of all inputs of its
+ * calculation: the program, the program configuration, the dataset the
+ * program was applied to, the goldstandard and the effective parameter
+ * values. Therefore a clustering is found again, even if it was calculated by
+ * another run or the files were renamed in the meantime. Programs are assumed
+ * to be deterministic; runs of programs, that are not, should not use this
+ * cache (see {@link de.clusteval.run.ExecutionRun#isUseClusteringCache()}).
+ *
+ * <p>
+ * Together with a clustering the qualities assessed for it can be stored.
+ *
+ * <p>
+ * If the files of this cache exceed the maximal size, the least recently used
+ * entries are removed.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class ClusteringResultCache {
+
+	/**
+	 * The extension of the files holding the converted clusterings.
+	 */
+	protected static final String CLUSTERING_EXTENSION = ".conv";
+
+	/**
+	 * The extension of the files holding the qualities of the clusterings.
+	 */
+	protected static final String QUALITIES_EXTENSION = ".qual";
+
+	protected final Logger log;
+
+	protected final File directory;
+
+	protected final long maxSize;
+
+	/**
+	 * The size of all files of this cache. Initialized on first use.
+	 */
+	protected AtomicLong size;
+
+	/**
+	 * The digests of file contents, identified by the path, size and change
+	 * date of the files, such that large datasets are only read once.
+	 */
+	protected final Map<String, String> fileDigests;
+
+	/**
+	 * @param directory
+	 *            The directory holding the files of this cache, which is
+	 *            created if necessary.
+	 * @param maxSize
+	 *            The maximal size of all files of this cache in bytes.
+	 */
+	public ClusteringResultCache(final File directory, final long maxSize) {
+		super();
+		this.log = LoggerFactory.getLogger(this.getClass());
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.fileDigests = new ConcurrentHashMap<String, String>();
+		this.directory.mkdirs();
+	}
+
+	/**
+	 * @return The directory holding the files of this cache.
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * @return The maximal size of all files of this cache in bytes.
+	 */
+	public long getMaxSize() {
+		return this.maxSize;
+	}
+
+	protected static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	protected static String toHex(final byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * @param file
+	 *            The file.
+	 * @return A hash of the contents of the file. Directories and missing
+	 *         files are hashed by their name only.
+	 * @throws IOException
+	 */
+	public String getDigest(final File file) throws IOException {
+		if (!file.isFile())
+			return toHex(createDigest().digest(file.getName().getBytes(StandardCharsets.UTF_8)));
+		String id = file.getAbsolutePath() + "\t" + file.length() + "\t" + file.lastModified();
+		String digest = this.fileDigests.get(id);
+		if (digest == null) {
+			MessageDigest md = createDigest();
+			byte[] buffer = new byte[1 << 16];
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				int n;
+				while ((n = in.read(buffer)) > 0)
+					md.update(buffer, 0, n);
+			}
+			digest = toHex(md.digest());
+			this.fileDigests.put(id, digest);
+		}
+		return digest;
+	}
+
+	/**
+	 * Hashes all inputs of a pair of program and data configuration, that do
+	 * not change between the iterations of a run.
+	 *
+	 * <p>
+	 * This method should be invoked after the dataset was converted to the
+	 * input format of the program, such that the converted dataset is hashed.
+	 *
+	 * @param programConfig
+	 *            The program configuration.
+	 * @param dataConfig
+	 *            The data configuration.
+	 * @param invocationFormat
+	 *            The invocation format the program is invoked with, which
+	 *            depends on the type of the run.
+	 * @return A hash of the inputs.
+	 * @throws IOException
+	 */
+	public String getInputsDigest(final ProgramConfig programConfig, final DataConfig dataConfig,
+			final String invocationFormat) throws IOException {
+		MessageDigest md = createDigest();
+		update(md, programConfig.getProgram().getClass().getName());
+		update(md, invocationFormat);
+		update(md, this.getDigest(new File(programConfig.getProgram().getExecutable())));
+		update(md, this.getDigest(new File(programConfig.getAbsolutePath())));
+		update(md, this.getDigest(new File(dataConfig.getDatasetConfig().getDataSet().getAbsolutePath())));
+		if (dataConfig.hasGoldStandardConfig())
+			update(md, this.getDigest(
+					new File(dataConfig.getGoldstandardConfig().getGoldstandard().getAbsolutePath())));
+		return toHex(md.digest());
+	}
+
+	/**
+	 * @param inputsDigest
+	 *            The hash of the inputs, see
+	 *            {@link #getInputsDigest(ProgramConfig, DataConfig, String)}.
+	 * @param effectiveParams
+	 *            The parameter values the program is invoked with.
+	 * @return The key of the clustering calculated from the inputs with the
+	 *         given parameter values.
+	 */
+	public static String getKey(final String inputsDigest, final Map<String, String> effectiveParams) {
+		MessageDigest md = createDigest();
+		update(md, inputsDigest);
+		// the order of the parameters is irrelevant
+		for (Map.Entry<String, String> e : new TreeMap<String, String>(effectiveParams).entrySet()) {
+			update(md, e.getKey());
+			update(md, e.getValue());
+		}
+		return toHex(md.digest());
+	}
+
+	private static void update(final MessageDigest md, final String value) {
+		byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+		// the length separates consecutive values
+		md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+		md.update((byte) ':');
+		md.update(bytes);
+	}
+
+	protected File getClusteringFile(final String key) {
+		return new File(this.directory, key + CLUSTERING_EXTENSION);
+	}
+
+	protected File getQualitiesFile(final String key) {
+		return new File(this.directory, key + QUALITIES_EXTENSION);
+	}
+
+	/**
+	 * Copies a cached clustering.
+	 *
+	 * @param key
+	 *            The key of the clustering.
+	 * @param target
+	 *            The file the clustering is copied to.
+	 * @return True, if the clustering was cached and copied.
+	 */
+	public boolean get(final String key, final File target) {
+		File file = this.getClusteringFile(key);
+		if (!file.isFile())
+			return false;
+		try {
+			Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// the entry may have been evicted in the meantime
+			this.log.debug("Could not copy the cached clustering " + file + ": " + e.getMessage());
+			return false;
+		}
+		// entries are evicted in the order of their last usage
+		long now = System.currentTimeMillis();
+		file.setLastModified(now);
+		this.getQualitiesFile(key).setLastModified(now);
+		return true;
+	}
+
+	/**
+	 * Stores a converted clustering.
+	 *
+	 * @param key
+	 *            The key of the clustering.
+	 * @param convertedClustering
+	 *            The file holding the clustering in the standard format.
+	 */
+	public void put(final String key, final File convertedClustering) {
+		File file = this.getClusteringFile(key);
+		try {
+			long oldSize = file.length();
+			File tmp = File.createTempFile(key, ".tmp", this.directory);
+			Files.copy(convertedClustering.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			move(tmp, file);
+			this.added(file.length() - oldSize);
+		} catch (IOException e) {
+			this.log.warn("Could not cache the clustering " + convertedClustering + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @param key
+	 *            The key of the clustering.
+	 * @return The cached qualities of the clustering, mapping the names of
+	 *         the clustering quality measures to the string representations
+	 *         of the qualities. Empty, if no qualities are cached.
+	 */
+	public Map<String, String> getQualities(final String key) {
+		Map<String, String> qualities = new LinkedHashMap<String, String>();
+		File file = this.getQualitiesFile(key);
+		if (!file.isFile())
+			return qualities;
+		try {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				String[] split = line.split("\t");
+				if (split.length == 2)
+					qualities.put(split[0], split[1]);
+			}
+		} catch (IOException e) {
+			this.log.debug("Could not read the cached qualities " + file + ": " + e.getMessage());
+		}
+		return qualities;
+	}
+
+	/**
+	 * Stores qualities of a cached clustering in addition to those already
+	 * stored.
+	 *
+	 * @param key
+	 *            The key of the clustering.
+	 * @param qualities
+	 *            The qualities, mapping the names of clustering quality
+	 *            measures to the string representations of the qualities.
+	 */
+	public synchronized void putQualities(final String key, final Map<String, String> qualities) {
+		if (!this.getClusteringFile(key).isFile())
+			return;
+		File file = this.getQualitiesFile(key);
+		Map<String, String> merged = this.getQualities(key);
+		merged.putAll(qualities);
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> e : merged.entrySet())
+			sb.append(e.getKey() + "\t" + e.getValue() + "\n");
+		try {
+			long oldSize = file.length();
+			File tmp = File.createTempFile(key, ".tmp", this.directory);
+			Files.write(tmp.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+			move(tmp, file);
+			this.added(file.length() - oldSize);
+		} catch (IOException e) {
+			this.log.warn("Could not cache the qualities of " + key + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces a file, such that readers never see a partially written file.
+	 */
+	private static void move(final File source, final File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * @return The size of all files of this cache in bytes.
+	 */
+	public long getSize() {
+		return this.getSizeCounter().get();
+	}
+
+	protected synchronized AtomicLong getSizeCounter() {
+		if (this.size == null) {
+			long sum = 0;
+			for (File file : this.listEntryFiles())
+				sum += file.length();
+			this.size = new AtomicLong(sum);
+		}
+		return this.size;
+	}
+
+	protected List<File> listEntryFiles() {
+		File[] files = this.directory.listFiles(
+				(dir, name) -> name.endsWith(CLUSTERING_EXTENSION) || name.endsWith(QUALITIES_EXTENSION));
+		if (files == null)
+			return new ArrayList<File>();
+		return new ArrayList<File>(Arrays.asList(files));
+	}
+
+	protected void added(final long bytes) {
+		if (this.getSizeCounter().addAndGet(bytes) > this.maxSize)
+			this.evict();
+	}
+
+	/**
+	 * Removes the least recently used entries, until the files of this cache
+	 * do not exceed the maximal size anymore.
+	 */
+	protected synchronized void evict() {
+		List<File> files = this.listEntryFiles();
+		long sum = 0;
+		for (File file : files)
+			sum += file.length();
+		// the change dates must not change while sorting
+		final Map<File, Long> lastUsed = new HashMap<File, Long>();
+		for (File file : files)
+			lastUsed.put(file, file.lastModified());
+		files.sort(Comparator.comparing(lastUsed::get));
+		int removed = 0;
+		for (File file : files) {
+			if (sum <= this.maxSize)
+				break;
+			List<File> entry = new ArrayList<File>();
+			entry.add(file);
+			// qualities are useless without their clustering
+			if (file.getName().endsWith(CLUSTERING_EXTENSION)) {
+				String key = file.getName().substring(0,
+						file.getName().length() - CLUSTERING_EXTENSION.length());
+				entry.add(this.getQualitiesFile(key));
+				removed++;
+			}
+			for (File f : entry) {
+				long length = f.length();
+				if (f.delete())
+					sum -= length;
+			}
+		}
+		this.size.set(sum);
+		if (removed > 0)
+			this.log.debug("Evicted " + removed + " clusterings from " + this.directory);
+	}
+}
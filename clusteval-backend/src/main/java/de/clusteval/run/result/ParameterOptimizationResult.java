@@ -14,6 +14,7 @@
 package de.clusteval.run.result;
 
 import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.paramOptimization.IMultiFidelityParameterOptimizationMethod;
 import de.clusteval.cluster.paramOptimization.IncompatibleParameterOptimizationMethodException;
 import de.clusteval.cluster.paramOptimization.InvalidOptimizationParameterException;
 import de.clusteval.cluster.paramOptimization.ParameterOptimizationMethod;
@@ -476,6 +477,18 @@ public class ParameterOptimizationResult extends ExecutionRunResult
 	// return this.put(iterationNumber, last, qualities, null);
 	// }
 
+	/**
+	 * @param parameterSet
+	 *            A parameter set of this result.
+	 * @return True, if the parameter set was evaluated on a subsample of the
+	 *         dataset by a multi-fidelity optimization method.
+	 * @see IMultiFidelityParameterOptimizationMethod#FIDELITY
+	 */
+	public static boolean isSubsampled(final ParameterSet parameterSet) {
+		String fidelity = parameterSet.get(IMultiFidelityParameterOptimizationMethod.FIDELITY);
+		return fidelity != null && Double.valueOf(fidelity) < 1.0;
+	}
+
 	/**
 	 * This method adds the given qualities for the given parameter set and
 	 * resulting clustering.
@@ -505,7 +518,9 @@ public class ParameterOptimizationResult extends ExecutionRunResult
 		if (this.parameterSetToIterationNumber != null)
 			this.parameterSetToIterationNumber.put(last, iterationNumber);
 
-		if (qualities != null) {
+		// qualities assessed on subsamples of the dataset are not comparable
+		// to those assessed on the whole dataset
+		if (qualities != null && !isSubsampled(last)) {
 			for (ClusteringQualityMeasure measure : qualities.keySet()) {
 				if (optimalCriterionValue.get(measure) == null
 						|| measure.isBetterThan(qualities.get(measure), this.optimalCriterionValue.get(measure))) {
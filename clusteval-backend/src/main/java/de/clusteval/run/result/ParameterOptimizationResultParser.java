@@ -39,6 +39,7 @@ import java.util.List;
 public class ParameterOptimizationResultParser extends TextFileParser {
 
     protected List<ProgramParameter<?>> parameters = new ArrayList<ProgramParameter<?>>();
+    protected List<String> parameterNames = new ArrayList<String>();
     protected List<ClusteringQualityMeasure> qualityMeasures = new ArrayList<ClusteringQualityMeasure>();
     protected ParameterOptimizationMethod method;
     protected ParameterOptimizationRun run;
@@ -80,6 +81,9 @@ public class ParameterOptimizationResultParser extends TextFileParser {
             String[] paramSplit = StringExt.split(value[1], ",");
             for (String p : paramSplit) {
                 parameters.add(method.getProgramConfig().getParameterForName(p));
+                // columns like the fidelity of multi-fidelity methods do not
+                // correspond to a program parameter
+                parameterNames.add(p);
             }
             for (int i = 2; i < value.length; i++) {
                 String q = value[i];
@@ -124,8 +128,13 @@ public class ParameterOptimizationResultParser extends TextFileParser {
                 ParameterSet paramSet = new ParameterSet();
                 String[] paramSplit = StringExt.split(value[1], ",");
                 for (int pos = 0; pos < paramSplit.length; pos++) {
-                    ProgramParameter<?> p = this.parameters.get(pos);
-                    paramSet.put(p.getName(), paramSplit[pos]);
+                    // columns, that do not correspond to a program parameter,
+                    // are null for iterations without a value for them
+                    if (this.parameters.get(pos) == null
+                            && paramSplit[pos].equals("null")) {
+                        continue;
+                    }
+                    paramSet.put(this.parameterNames.get(pos), paramSplit[pos]);
                 }
 
                 ClusteringQualitySet qualitySet = new ClusteringQualitySet();
@@ -3,8 +3,20 @@
  */
 package de.clusteval.run.runnable;
 
+import java.io.File;
+import java.io.IOException;
+
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureR;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.DataSet;
+import de.clusteval.program.ProgramConfig;
+import de.clusteval.program.r.RProgram;
 import de.clusteval.run.ExecutionRun;
 import de.clusteval.run.result.NoRunResultFormatParserException;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.parse.BinarySimFileMatrixParser;
 
 /**
  * @author Christian Wiwie
@@ -14,6 +26,24 @@ public abstract class ExecutionIterationRunnable
 		extends
 			IterationRunnable<ExecutionIterationWrapper> {
 
+	/**
+	 * The heap memory in bytes the clustering and the qualities of one object
+	 * need.
+	 */
+	protected static final long BYTES_PER_OBJECT = 256;
+
+	/**
+	 * The average number of bytes of one similarity in a dataset text file in
+	 * standard format.
+	 */
+	protected static final long BYTES_PER_SIMILARITY_IN_TEXT_FILE = 24;
+
+	/**
+	 * The suffix of the binary copy written together with the text file of a
+	 * dataset in standard format.
+	 */
+	protected static final String BINARY_COPY_SUFFIX = ".bin";
+
 	protected Process proc;
 
 	protected NoRunResultFormatParserException noRunResultException;
@@ -33,6 +63,133 @@ public abstract class ExecutionIterationRunnable
 		return noRunResultException;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see de.clusteval.run.runnable.IterationRunnable#getException()
+	 */
+	@Override
+	public Exception getException() {
+		if (this.ioException != null)
+			return this.ioException;
+		else if (this.noRunResultException != null)
+			return this.noRunResultException;
+		return super.getException();
+	}
+
+	/**
+	 * Estimates the memory of this iteration from the number of objects of the
+	 * dataset, the precision of its similarities and the program. The
+	 * clustering and its qualities take memory linear in the number of
+	 * objects, while R programs and R quality measures get the similarities as
+	 * a double matrix, which is serialized for Rserve once more. If the
+	 * similarities are not in memory, the iteration has to load them in their
+	 * precision first.
+	 */
+	@Override
+	public long getEstimatedMemory() {
+		DataConfig dataConfig = this.iterationWrapper.getDataConfig();
+		ProgramConfig programConfig = this.iterationWrapper.getProgramConfig();
+		if (dataConfig == null || programConfig == null)
+			return super.getEstimatedMemory();
+		DataSet dataSet = dataConfig.getDatasetConfig().getDataSet();
+		if (dataSet.getInStandardFormat() != null)
+			dataSet = dataSet.getInStandardFormat();
+
+		long objects;
+		long result = super.getEstimatedMemory();
+		if (dataSet.isInMemory())
+			objects = dataSet.getIds().size();
+		else {
+			File dataSetFile = new File(dataSet.getAbsolutePath());
+			objects = getEstimatedNumberOfObjects(dataSetFile);
+			result += getEstimatedSimilarityMatrixSize(dataSetFile, dataConfig
+					.getDatasetConfig()
+					.getConversionInputToStandardConfiguration()
+					.getSimilarityPrecision());
+		}
+		long similarities = objects * objects;
+
+		result += objects * BYTES_PER_OBJECT;
+		// the program and the quality measures do not run at the same time
+		boolean rProgram = programConfig.getProgram() instanceof RProgram;
+		boolean rQualityMeasure = false;
+		for (ClusteringQualityMeasure measure : this.getRun()
+				.getQualityMeasures()) {
+			if (!(measure instanceof ClusteringQualityMeasureR))
+				continue;
+			ClusteringQualityMeasureR rMeasure = (ClusteringQualityMeasureR) measure;
+			if (rMeasure.getRequiredInputs().contains(
+					ClusteringQualityMeasureR.R_INPUT.DISSIMILARITIES))
+				rQualityMeasure = true;
+		}
+		if (rProgram || rQualityMeasure)
+			result += 2 * similarities * Double.BYTES;
+		return result;
+	}
+
+	/**
+	 * @param dataSetFile
+	 *            The file of a dataset in standard format.
+	 * @return The header of the binary similarity file the dataset is loaded
+	 *         from, or null if it is loaded from a text file.
+	 */
+	protected static BinarySimFileMatrixParser.Header getBinaryHeader(
+			final File dataSetFile) {
+		File binaryCopy = new File(dataSetFile.getAbsolutePath()
+				+ BINARY_COPY_SUFFIX);
+		for (File file : new File[]{dataSetFile, binaryCopy}) {
+			if (!file.isFile())
+				continue;
+			try {
+				BinarySimFileMatrixParser.Header header = BinarySimFileMatrixParser
+						.readHeader(file);
+				if (header != null)
+					return header;
+			} catch (IOException e) {
+				// not readable as binary file
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param dataSetFile
+	 *            The file of a dataset in standard format.
+	 * @return The number of objects of the dataset, taken from the header of
+	 *         a binary file or estimated from the size of a text file.
+	 */
+	protected static long getEstimatedNumberOfObjects(final File dataSetFile) {
+		BinarySimFileMatrixParser.Header header = getBinaryHeader(dataSetFile);
+		if (header != null)
+			return header.getRows();
+		return (long) Math.ceil(Math.sqrt(dataSetFile.length()
+				/ BYTES_PER_SIMILARITY_IN_TEXT_FILE));
+	}
+
+	/**
+	 * Estimates the heap memory of the similarity matrix loading the passed
+	 * dataset file allocates. Binary files determine the dimensions and
+	 * whether only the upper triangle is stored, while text files are parsed
+	 * into full matrices.
+	 * 
+	 * @param dataSetFile
+	 *            The file of a dataset in standard format.
+	 * @param precision
+	 *            The precision the similarities are loaded in.
+	 * @return The number of bytes of the heap the similarities take.
+	 */
+	protected static long getEstimatedSimilarityMatrixSize(
+			final File dataSetFile, final NUMBER_PRECISION precision) {
+		BinarySimFileMatrixParser.Header header = getBinaryHeader(dataSetFile);
+		if (header != null)
+			return SimilarityMatrix.getEstimatedHeapSize(header.getRows(),
+					header.getColumns(), precision, header.isSymmetric());
+		int objects = (int) getEstimatedNumberOfObjects(dataSetFile);
+		return SimilarityMatrix.getEstimatedHeapSize(objects, objects,
+				precision, false);
+	}
+
 	public int getIterationNumber() {
 		return this.iterationWrapper.getOptId();
 	}
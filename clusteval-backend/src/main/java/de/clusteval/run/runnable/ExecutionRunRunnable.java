@@ -17,7 +17,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -30,6 +32,8 @@ import org.rosuda.REngine.REngineException;
 import org.slf4j.LoggerFactory;
 
 import de.wiwie.wiutils.utils.Pair;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.SimilarityStatistics;
 import de.wiwie.wiutils.utils.StringExt;
 import de.wiwie.wiutils.utils.Triple;
 import de.wiwie.wiutils.utils.parse.TextFileParser;
@@ -39,6 +43,7 @@ import de.clusteval.cluster.Clustering;
 import de.clusteval.cluster.paramOptimization.NoParameterSetFoundException;
 import de.clusteval.cluster.quality.ClusteringQualityMeasure;
 import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualityMemo;
 import de.clusteval.cluster.quality.ClusteringQualitySet;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.AbsoluteDataSet;
@@ -55,26 +60,32 @@ import de.clusteval.data.goldstandard.GoldStandard;
 import de.clusteval.data.goldstandard.GoldStandardConfig;
 import de.clusteval.data.goldstandard.IncompleteGoldStandardException;
 import de.clusteval.data.goldstandard.format.UnknownGoldStandardFormatException;
+import de.clusteval.framework.BackendServerConfig;
 import de.clusteval.framework.ClustevalBackendServer;
 import de.clusteval.framework.RLibraryNotLoadedException;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 import de.clusteval.framework.repository.RunResultRepository;
+import de.clusteval.framework.threading.ProcessOutputPump;
+import de.clusteval.framework.threading.ProcessOutputPump.ProcessOutput;
 import de.clusteval.framework.threading.RunSchedulerThread;
 import de.clusteval.program.ParameterSet;
 import de.clusteval.program.ProgramConfig;
 import de.clusteval.program.ProgramParameter;
+import de.clusteval.program.StandaloneProgram;
 import de.clusteval.program.r.RProcess;
 import de.clusteval.program.r.RProgram;
 import de.clusteval.run.ExecutionRun;
 import de.clusteval.run.MissingParameterValueException;
 import de.clusteval.run.Run;
+import de.clusteval.run.result.ClusteringResultCache;
 import de.clusteval.run.result.ClusteringRunResult;
 import de.clusteval.run.result.NoRunResultFormatParserException;
 import de.clusteval.run.result.format.RunResultFormat;
 import de.clusteval.run.result.format.RunResultNotFoundException;
 import de.clusteval.run.result.postprocessing.RunResultPostprocessor;
 import de.clusteval.utils.FormatConversionException;
+import de.clusteval.utils.GroupCommitAppender;
 import de.clusteval.utils.InternalAttributeException;
 import de.clusteval.utils.RNotAvailableException;
 import de.clusteval.utils.plot.Plotter;
@@ -118,6 +129,38 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 */
 	protected String completeQualityOutput;
 
+	/**
+	 * Appends the lines of all iterations to the complete quality output in
+	 * batches. Opened on first use and closed by {@link #afterRun()}.
+	 */
+	protected GroupCommitAppender completeQualityAppender;
+
+	/**
+	 * The number of characters of pending lines of the complete quality
+	 * output, that are written immediately.
+	 */
+	protected static final int QUALITY_BATCH_SIZE = 1 << 16;
+
+	/**
+	 * The maximal time in milliseconds lines of the complete quality output
+	 * are pending.
+	 */
+	protected static final long QUALITY_BATCH_DELAY = 1000;
+
+	/**
+	 * The hash of the inputs of this runnable, which identifies its
+	 * clusterings in the clustering cache of the repository together with the
+	 * parameter values. Null, if the clusterings of this runnable are not
+	 * cached.
+	 */
+	protected String clusteringCacheInputs;
+
+	/**
+	 * Counts the clusterings of this runnable, whose qualities were taken
+	 * from the {@link ClusteringQualityMemo}.
+	 */
+	protected final ClusteringQualityMemo.Statistics qualityMemoStatistics = new ClusteringQualityMemo.Statistics();
+
 	/**
 	 * @param run
 	 *            The run this runnable belongs to.
@@ -164,11 +207,11 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		StringBuilder sb = new StringBuilder();
 		// 04.04.2013: adding iteration numbers into complete file
 		sb.append("iteration\t");
-		for (int p = 0; p < programConfig.getOptimizableParams().size(); p++) {
-			ProgramParameter<?> param = programConfig.getOptimizableParams().get(p);
+		List<String> paramNames = getCompleteQualityOutputParameters();
+		for (int p = 0; p < paramNames.size(); p++) {
 			if (p > 0)
 				sb.append(",");
-			sb.append(param);
+			sb.append(paramNames.get(p));
 		}
 		sb.append("\t");
 		for (ClusteringQualityMeasure measure : this.getRun().getQualityMeasures()) {
@@ -181,6 +224,50 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		FileUtils.appendStringToFile(completeQualityOutput, sb.toString());
 	}
 
+	/**
+	 * @return The names of the parameters, whose values are written into the
+	 *         complete quality output for every iteration.
+	 */
+	protected List<String> getCompleteQualityOutputParameters() {
+		List<String> result = new ArrayList<String>();
+		for (ProgramParameter<?> param : programConfig.getOptimizableParams())
+			result.add(param.getName());
+		return result;
+	}
+
+	/**
+	 * Appends lines to the complete quality output. The lines are written
+	 * asynchronously together with those of other iterations, at the latest
+	 * when this runnable finishes.
+	 * 
+	 * @param lines
+	 *            One or more complete lines.
+	 */
+	protected void appendToCompleteQualityOutput(final String lines) {
+		GroupCommitAppender appender;
+		synchronized (this) {
+			if (this.completeQualityAppender == null)
+				try {
+					this.completeQualityAppender = new GroupCommitAppender(new File(completeQualityOutput),
+							QUALITY_BATCH_SIZE, QUALITY_BATCH_DELAY,
+							ClustevalBackendServer.getBackendServerConfiguration().isSyncQualityFiles()
+									? GroupCommitAppender.SYNC_POLICY.BATCH
+									: GroupCommitAppender.SYNC_POLICY.NONE);
+				} catch (IOException e) {
+					this.log.warn("Could not open " + completeQualityOutput + ": " + e.getMessage());
+					FileUtils.appendStringToFile(completeQualityOutput, lines);
+					return;
+				}
+			appender = this.completeQualityAppender;
+		}
+		try {
+			appender.append(lines);
+		} catch (IllegalStateException e) {
+			// iterations, that were terminated late
+			FileUtils.appendStringToFile(completeQualityOutput, lines);
+		}
+	}
+
 	/**
 	 * This method checks, whether the format of the data input is compatible to
 	 * the input formats of the program configuration.
@@ -363,6 +450,8 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 * Replace the input parameter %i% in the invocation line by the absolute
 	 * path to the input file.
 	 * 
+	 * @param dataConfig
+	 *            The data configuration of the iteration.
 	 * @param invocation
 	 *            The invocation line without replaced input parameter.
 	 * @param internalParams
@@ -370,7 +459,8 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 *            path.
 	 * @return The invocation line with replaced input parameter.
 	 */
-	protected String[] parseInput(final String[] invocation, final Map<String, String> internalParams) {
+	protected String[] parseInput(final DataConfig dataConfig, final String[] invocation,
+			final Map<String, String> internalParams) {
 		internalParams.put("i", dataConfig.getDatasetConfig().getDataSet().getAbsolutePath());
 		String[] parsed = invocation.clone();
 		for (int i = 0; i < parsed.length; i++)
@@ -386,6 +476,8 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 * Replace the goldstandard parameter %gs% in the invocation line by the
 	 * absolute path to the goldstandard.
 	 * 
+	 * @param dataConfig
+	 *            The data configuration of the iteration.
 	 * @param invocation
 	 *            The invocation line without replaced goldstandard parameter.
 	 * @param internalParams
@@ -393,7 +485,8 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 *            goldstandard path.
 	 * @return The invocation line with replaced goldstandard parameter.
 	 */
-	protected String[] parseGoldStandard(final String[] invocation, final Map<String, String> internalParams) {
+	protected String[] parseGoldStandard(final DataConfig dataConfig, final String[] invocation,
+			final Map<String, String> internalParams) {
 		if (!dataConfig.hasGoldStandardConfig())
 			return invocation;
 		internalParams.put("gs", dataConfig.getGoldstandardConfig().getGoldstandard().getAbsolutePath());
@@ -484,12 +577,12 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		/*
 		 * input %i%
 		 */
-		invocation = parseInput(invocation, internalParams);
+		invocation = parseInput(iterationWrapper.getDataConfig(), invocation, internalParams);
 
 		/*
 		 * goldstandard %gs%
 		 */
-		invocation = parseGoldStandard(invocation, internalParams);
+		invocation = parseGoldStandard(iterationWrapper.getDataConfig(), invocation, internalParams);
 		/*
 		 * output %o%
 		 */
@@ -592,6 +685,19 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		return new ExecutionIterationWrapper();
 	}
 
+	/**
+	 * @param iterationWrapper
+	 *            The iteration to be decorated.
+	 * @return The data configuration, the program is applied to in the
+	 *         iteration. By default this is the data configuration of this
+	 *         runnable.
+	 * @throws RunIterationException
+	 */
+	protected DataConfig getDataConfigForIteration(final ExecutionIterationWrapper iterationWrapper)
+			throws RunIterationException {
+		return this.dataConfig;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -604,7 +710,7 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		try {
 			super.decorateIterationWrapper(iterationWrapper, currentPos);
 			iterationWrapper.setRunnable(this);
-			iterationWrapper.setDataConfig(dataConfig);
+			iterationWrapper.setDataConfig(getDataConfigForIteration(iterationWrapper));
 			iterationWrapper.setProgramConfig(programConfig.clone());
 
 			this.initAndEnsureIterationFilesAndFolders(iterationWrapper);
@@ -695,15 +801,9 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 
 			// only create new iteration runnables, if none of the old iteration
 			// runnables threw exceptions
-			for (ExecutionIterationRunnable prevItRunnable : this.iterationRunnables)
-				if (prevItRunnable.getIoException() != null)
-					throw prevItRunnable.getIoException();
-				else if (prevItRunnable.getNoRunResultException() != null)
-					throw prevItRunnable.getNoRunResultException();
-				else if (prevItRunnable.getrLibraryException() != null)
-					throw prevItRunnable.getrLibraryException();
-				else if (prevItRunnable.getrNotAvailableException() != null)
-					throw prevItRunnable.getrNotAvailableException();
+			Exception iterationException = this.getIterationException();
+			if (iterationException != null)
+				throw iterationException;
 
 			ExecutionIterationRunnable iterationRunnable = this.createIterationRunnable(iterationWrapper);
 
@@ -743,50 +843,85 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 								getRun() + " (" + programConfig + "," + dataConfig + ") Log-File is located at: \""
 										+ iterationWrapper.getLogfile().getAbsolutePath() + "\"");
 
-						final BufferedWriter bw = new BufferedWriter(new FileWriter(iterationWrapper.getLogfile()));
+						final File logFile = iterationWrapper.getLogfile();
+						// the output of the program is appended to the empty
+						// log
+						new FileWriter(logFile).close();
 
 						this.log = LoggerFactory.getLogger(this.getClass());
 						try {
-							proc = programConfig.getProgram().exec(dataConfig, programConfig,
-									iterationWrapper.getInvocation(), iterationWrapper.getEffectiveParams(),
-									iterationWrapper.getInternalParams());
-
-							if (proc != null) {
-								if (proc instanceof RProcess) {
+							final String cacheKey = getClusteringCacheKey(iterationWrapper);
+							final ClusteringRunResult cachedResult = getCachedClusteringRunResult(iterationWrapper,
+									cacheKey);
+							if (cachedResult != null) {
+								this.log.info(String.format("%s (%s,%s, Iteration %d) Found the clustering in the cache",
+										getRun(), programConfig, dataConfig, iterationWrapper.getOptId()));
+								FileUtils.appendStringToFile(logFile.getAbsolutePath(),
+										"The program was not executed, the clustering was taken from the cache (" + cacheKey
+												+ ")" + System.getProperty("line.separator"));
+								iterationWrapper.setConvertedClusteringRunResult(cachedResult);
+							} else {
+								final BackendServerConfig config = ClustevalBackendServer.getBackendServerConfiguration();
+								ProcessOutput output = null;
+								if (programConfig.getProgram() instanceof StandaloneProgram
+										&& !config.isLiveProcessOutput()) {
+									// the program writes into its log itself
+									proc = ((StandaloneProgram) programConfig.getProgram())
+											.getProcessBuilder(programConfig, iterationWrapper.getInvocation())
+											.redirectErrorStream(true).redirectOutput(Redirect.appendTo(logFile))
+											.start();
+									output = ProcessOutputPump.getInstance().watch(proc, logFile,
+											config.getProcessOutputLimit());
 								} else {
-									new StreamGobbler(proc.getInputStream(), bw).start();
-									new StreamGobbler(proc.getErrorStream(), bw).start();
+									proc = programConfig.getProgram().exec(dataConfig, programConfig,
+											iterationWrapper.getInvocation(), iterationWrapper.getEffectiveParams(),
+											iterationWrapper.getInternalParams());
+									if (proc != null && !(proc instanceof RProcess))
+										output = ProcessOutputPump.getInstance().pump(proc, logFile,
+												config.getProcessOutputLimit());
 								}
-								try {
-									int maxExecTime = getRun().hasMaxExecutionTime(programConfig)
-											? getRun().getMaxExecutionTime(programConfig)
-											: programConfig.getMaxExecutionTimeMinutes();
-									if (maxExecTime == -1) {
-										proc.waitFor();
-									} else if (!proc.waitFor(maxExecTime, TimeUnit.MINUTES)) {
-										// still running
-										this.log.info(String.format(
-												"%s (%s,%s, Iteration %d) Going to terminate clustering method as it has been running longer than "
-														+ maxExecTime + "mins.",
-												getRun(), programConfig, dataConfig, iterationWrapper.getOptId()));
-										proc.destroyForcibly();
-										proc.waitFor();
+
+								boolean killed = false;
+								if (proc != null) {
+									try {
+										int maxExecTime = getRun().hasMaxExecutionTime(programConfig)
+												? getRun().getMaxExecutionTime(programConfig)
+												: programConfig.getMaxExecutionTimeMinutes();
+										if (maxExecTime == -1) {
+											proc.waitFor();
+										} else if (!proc.waitFor(maxExecTime, TimeUnit.MINUTES)) {
+											// still running
+											this.log.info(String.format(
+													"%s (%s,%s, Iteration %d) Going to terminate clustering method as it has been running longer than "
+															+ maxExecTime + "mins.",
+													getRun(), programConfig, dataConfig, iterationWrapper.getOptId()));
+											proc.destroyForcibly();
+											proc.waitFor();
+											killed = true;
+										}
+										// the last output may still be pending
+										if (output != null && !output.awaitFinished(10, TimeUnit.SECONDS))
+											this.log.warn("The log " + logFile + " may be incomplete");
+									} catch (InterruptedException e) {
+										e.printStackTrace();
 									}
-								} catch (InterruptedException e) {
-									e.printStackTrace();
 								}
-							}
 
-							/*
-							 * We check from time to time, whether this run got
-							 * the order to terminate.
-							 */
-							if (checkForInterrupted())
-								throw new InterruptedException();
+								/*
+								 * We check from time to time, whether this run got
+								 * the order to terminate.
+								 */
+								if (checkForInterrupted())
+									throw new InterruptedException();
 
-							iterationWrapper.setConvertedClusteringRunResult(convertResult(
-									iterationWrapper.getClusteringRunResult(), iterationWrapper.getEffectiveParams(),
-									iterationWrapper.getInternalParams()));
+								iterationWrapper.setConvertedClusteringRunResult(convertResult(
+										iterationWrapper.getClusteringRunResult(), iterationWrapper.getEffectiveParams(),
+										iterationWrapper.getInternalParams()));
+								// the output of killed programs may be incomplete
+								if (!killed)
+									putIntoClusteringCache(cacheKey,
+											iterationWrapper.getConvertedClusteringRunResult());
+							}
 
 							if (iterationWrapper.getConvertedClusteringRunResult() != null) {
 								this.log.debug(getRun() + " (" + programConfig + "," + dataConfig
@@ -842,22 +977,24 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 								if (checkForInterrupted())
 									throw new InterruptedException();
 
+								// postprocessed clusterings differ from the cached
+								// ones
 								List<Pair<ParameterSet, ClusteringQualitySet>> qualities = assessQualities(
 										iterationWrapper.getConvertedClusteringRunResult(),
-										iterationWrapper.getInternalParams());
+										iterationWrapper.getInternalParams(),
+										run.getPostProcessors().isEmpty() ? cacheKey : null);
 								for (Pair<ParameterSet, ClusteringQualitySet> clustSet : qualities)
 									this.log.info(String.format("%s (%s,%s, Iteration %d) %s", getRun(), programConfig,
 											dataConfig, iterationWrapper.getOptId(), clustSet.getSecond().toString()));
-								synchronized (completeQualityOutput) {
-									// 04.04.2013: adding iteration number to
-									// qualities
-									List<Triple<ParameterSet, ClusteringQualitySet, Long>> qualitiesWithIterations = new ArrayList<Triple<ParameterSet, ClusteringQualitySet, Long>>();
-									for (Pair<ParameterSet, ClusteringQualitySet> pair : qualities)
-										qualitiesWithIterations.add(Triple.getTriple(pair.getFirst(), pair.getSecond(),
-												new Long(iterationWrapper.getOptId())));
-
-									writeQualitiesToFile(qualitiesWithIterations);
-								}
+								// 04.04.2013: adding iteration number to
+								// qualities
+								List<Triple<ParameterSet, ClusteringQualitySet, Long>> qualitiesWithIterations = new ArrayList<Triple<ParameterSet, ClusteringQualitySet, Long>>();
+								for (Pair<ParameterSet, ClusteringQualitySet> pair : qualities)
+									qualitiesWithIterations.add(Triple.getTriple(pair.getFirst(), pair.getSecond(),
+											new Long(iterationWrapper.getOptId())));
+
+								// the appender orders concurrent lines itself
+								writeQualitiesToFile(qualitiesWithIterations);
 								// synchronized!
 								// afterClustering(
 								// iterationWrapper
@@ -888,11 +1025,10 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 							handleMissingRunResult(iterationWrapper);
 						} finally {
 							if (programConfig.getProgram() instanceof RProgram) {
-								synchronized (bw) {
+								try (BufferedWriter bw = new BufferedWriter(new FileWriter(logFile, true))) {
 									if (((RProgram) (programConfig.getProgram())).getRengine() != null)
 										bw.append(
 												((RProgram) (programConfig.getProgram())).getRengine().getLastError());
-									bw.close();
 								}
 							}
 						}
@@ -927,11 +1063,14 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 * @param convertedResult
 	 *            The clustering result converted to the default format, such
 	 *            that it can be parsed.
+	 * @param cacheKey
+	 *            The key of the clustering in the clustering cache, or null if
+	 *            the qualities should not be cached.
 	 * @throws InvalidDataSetFormatVersionException
 	 * @throws RunResultNotFoundException
 	 */
 	private List<Pair<ParameterSet, ClusteringQualitySet>> assessQualities(final ClusteringRunResult convertedResult,
-			final Map<String, String> internalParams) throws RunResultNotFoundException {
+			final Map<String, String> internalParams, final String cacheKey) throws RunResultNotFoundException {
 		this.log.debug(this.getRun() + " (" + this.programConfig + "," + this.dataConfig
 				+ ") Assessing quality of results...");
 		List<Pair<ParameterSet, ClusteringQualitySet>> qualities = new ArrayList<Pair<ParameterSet, ClusteringQualitySet>>();
@@ -940,13 +1079,19 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 			convertedResult.loadIntoMemory();
 			try {
 				final Pair<ParameterSet, Clustering> pair = convertedResult.getClustering();
-				ClusteringQualitySet quals = pair.getSecond().assessQuality(dataConfig,
-						this.getRun().getQualityMeasures());
-				qualities.add(Pair.getPair(pair.getFirst(), quals));
-				for (ClusteringQualityMeasure qualityMeasure : quals.keySet()) {
-					FileUtils.appendStringToFile(qualityFile,
-							qualityMeasure.getClass().getSimpleName() + "\t" + quals.get(qualityMeasure) + "\n");
+				ClusteringQualitySet quals = this.getCachedQualities(cacheKey);
+				if (quals == null) {
+					quals = pair.getSecond().assessQuality(convertedResult.getDataConfig(),
+							this.getRun().getQualityMeasures(),
+							this.qualityMemoStatistics);
+					this.putQualitiesIntoClusteringCache(cacheKey, quals);
 				}
+				qualities.add(Pair.getPair(pair.getFirst(), quals));
+				// write the quality file of this iteration at once
+				StringBuilder sb = new StringBuilder();
+				for (ClusteringQualityMeasure qualityMeasure : quals.keySet())
+					sb.append(qualityMeasure.getClass().getSimpleName() + "\t" + quals.get(qualityMeasure) + "\n");
+				FileUtils.appendStringToFile(qualityFile, sb.toString());
 			} finally {
 				convertedResult.unloadFromMemory();
 			}
@@ -960,6 +1105,111 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		}
 	}
 
+	/**
+	 * @return The clustering cache of the repository, or null if the
+	 *         clusterings of this runnable are not cached.
+	 */
+	protected ClusteringResultCache getClusteringResultCache() {
+		if (!this.getRun().isUseClusteringCache())
+			return null;
+		return this.getRun().getRepository().getClusteringResultCache();
+	}
+
+	/**
+	 * @param iterationWrapper
+	 *            The iteration.
+	 * @return The key of the clustering of the iteration in the clustering
+	 *         cache, or null if the clusterings of this runnable are not
+	 *         cached.
+	 */
+	protected String getClusteringCacheKey(final ExecutionIterationWrapper iterationWrapper) {
+		// the inputs digest only covers the data configuration of this runnable
+		if (this.clusteringCacheInputs == null || iterationWrapper.getDataConfig() != this.dataConfig)
+			return null;
+		return ClusteringResultCache.getKey(this.clusteringCacheInputs, iterationWrapper.getEffectiveParams());
+	}
+
+	/**
+	 * Copies a cached clustering to the path, where the converted result of
+	 * the iteration is expected, and adds it to the results of the run.
+	 * 
+	 * @param iterationWrapper
+	 *            The iteration.
+	 * @param cacheKey
+	 *            The key of the clustering of the iteration.
+	 * @return The converted result of the iteration, or null if the clustering
+	 *         is not cached.
+	 * @throws RegisterException
+	 */
+	protected ClusteringRunResult getCachedClusteringRunResult(final ExecutionIterationWrapper iterationWrapper,
+			final String cacheKey) throws RegisterException {
+		ClusteringResultCache cache = this.getClusteringResultCache();
+		if (cacheKey == null || cache == null)
+			return null;
+		File convertedFile = new File(iterationWrapper.getClusteringResultFile().getAbsolutePath() + ".conv");
+		if (!cache.get(cacheKey, convertedFile))
+			return null;
+		ClusteringRunResult convertedResult = new ClusteringRunResult(this.getRun().getRepository(),
+				System.currentTimeMillis(), convertedFile, iterationWrapper.getDataConfig(),
+				iterationWrapper.getProgramConfig(), this.getRun().getContext().getStandardOutputFormat(),
+				runThreadIdentString, run);
+		synchronized (this.getRun().getResults()) {
+			this.getRun().getResults().add(convertedResult);
+		}
+		return convertedResult;
+	}
+
+	/**
+	 * @param cacheKey
+	 *            The key of the clustering.
+	 * @param convertedResult
+	 *            The clustering converted to the standard format.
+	 */
+	protected void putIntoClusteringCache(final String cacheKey, final ClusteringRunResult convertedResult) {
+		ClusteringResultCache cache = this.getClusteringResultCache();
+		if (cacheKey == null || cache == null || convertedResult == null)
+			return;
+		cache.put(cacheKey, new File(convertedResult.getAbsolutePath()));
+	}
+
+	/**
+	 * @param cacheKey
+	 *            The key of the clustering, or null.
+	 * @return The cached qualities of the clustering for all quality measures
+	 *         of the run, or null if any of them is not cached. Qualities are
+	 *         cached by {@link ClusteringQualityMeasure#getQualityKey()}.
+	 */
+	protected ClusteringQualitySet getCachedQualities(final String cacheKey) {
+		ClusteringResultCache cache = this.getClusteringResultCache();
+		if (cacheKey == null || cache == null)
+			return null;
+		Map<String, String> cached = cache.getQualities(cacheKey);
+		ClusteringQualitySet quals = new ClusteringQualitySet();
+		for (ClusteringQualityMeasure measure : this.getRun().getQualityMeasures()) {
+			String value = cached.get(measure.getQualityKey());
+			if (value == null)
+				return null;
+			quals.put(measure, ClusteringQualityMeasureValue.parseFromString(value));
+		}
+		return quals;
+	}
+
+	/**
+	 * @param cacheKey
+	 *            The key of the clustering, or null.
+	 * @param quals
+	 *            The qualities of the clustering.
+	 */
+	protected void putQualitiesIntoClusteringCache(final String cacheKey, final ClusteringQualitySet quals) {
+		ClusteringResultCache cache = this.getClusteringResultCache();
+		if (cacheKey == null || cache == null)
+			return;
+		Map<String, String> values = new HashMap<String, String>();
+		for (ClusteringQualityMeasure measure : quals.keySet())
+			values.put(measure.getQualityKey(), quals.get(measure).toString());
+		cache.putQualities(cacheKey, values);
+	}
+
 	/**
 	 * Helper method of {@link #assessQualities(ClusteringRunResult)}, invoked
 	 * to write the assessed clustering qualities into files.
@@ -977,11 +1227,11 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 			StringBuilder sb = new StringBuilder();
 			sb.append(clustSet.getThird());
 			sb.append("\t");
-			for (int p = 0; p < programConfig.getOptimizableParams().size(); p++) {
-				ProgramParameter<?> param = programConfig.getOptimizableParams().get(p);
+			List<String> paramNames = getCompleteQualityOutputParameters();
+			for (int p = 0; p < paramNames.size(); p++) {
 				if (p > 0)
 					sb.append(",");
-				sb.append(clustSet.getFirst().get(param.getName()));
+				sb.append(clustSet.getFirst().get(paramNames.get(p)));
 			}
 			sb.append("\t");
 			for (ClusteringQualityMeasure measure : this.getRun().getQualityMeasures()) {
@@ -991,7 +1241,7 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 			sb.deleteCharAt(sb.length() - 1);
 			sb.append("\n");
 
-			FileUtils.appendStringToFile(completeQualityOutput, sb.toString());
+			appendToCompleteQualityOutput(sb.toString());
 		}
 	}
 
@@ -1123,11 +1373,11 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		StringBuilder sb = new StringBuilder();
 		sb.append(optId);
 		sb.append("\t");
-		for (int p = 0; p < programConfig.getOptimizableParams().size(); p++) {
-			ProgramParameter<?> param = programConfig.getOptimizableParams().get(p);
+		List<String> paramNames = getCompleteQualityOutputParameters();
+		for (int p = 0; p < paramNames.size(); p++) {
 			if (p > 0)
 				sb.append(",");
-			sb.append(effectiveParams.get(param.getName()));
+			sb.append(effectiveParams.get(paramNames.get(p)));
 		}
 		sb.append("\t");
 		for (int i = 0; i < this.getRun().getQualityMeasures().size(); i++) {
@@ -1137,7 +1387,7 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		sb.deleteCharAt(sb.length() - 1);
 		sb.append("\n");
 
-		FileUtils.appendStringToFile(completeQualityOutput, sb.toString());
+		appendToCompleteQualityOutput(sb.toString());
 	}
 
 	// /**
@@ -1181,32 +1431,50 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 	 */
 	protected void setInternalAttributes() throws IllegalArgumentException {
 		// TODO; make use of inheritance! (relative and absolute datasets)
-		// TODO: move to place, where dataset is loaded?
 		DataSet ds = this.dataConfig.getDatasetConfig().getDataSet().getInStandardFormat();
+		NUMBER_PRECISION precision = this.dataConfig.getDatasetConfig().getConversionInputToStandardConfiguration()
+				.getSimilarityPrecision();
 
+		int numberOfElements;
 		if (ds instanceof RelativeDataSet) {
-			RelativeDataSet dataSet = (RelativeDataSet) ds;
+			// the statistics are maintained while parsing and stored next to
+			// the dataset, such that they are available before the dataset
+			// is loaded; only without them the dataset is loaded here
+			SimilarityStatistics statistics;
+			try {
+				statistics = ((RelativeDataSet) ds).getSimilarityStatistics(precision);
+			} catch (IOException | InvalidDataSetFormatVersionException e) {
+				throw new IllegalArgumentException(e);
+			}
 			this.dataConfig.getRepository()
 					.getInternalDoubleAttribute("$("
 							+ this.dataConfig.getDatasetConfig().getDataSet().getOriginalDataSet().getAbsolutePath()
 							+ ":minSimilarity)")
-					.setValue(dataSet.getDataSetContent().getMinValue());
+					.setValue(statistics.getMinValue());
 			this.dataConfig.getRepository()
 					.getInternalDoubleAttribute("$("
 							+ this.dataConfig.getDatasetConfig().getDataSet().getOriginalDataSet().getAbsolutePath()
 							+ ":maxSimilarity)")
-					.setValue(dataSet.getDataSetContent().getMaxValue());
+					.setValue(statistics.getMaxValue());
 			this.dataConfig.getRepository()
 					.getInternalDoubleAttribute("$("
 							+ this.dataConfig.getDatasetConfig().getDataSet().getOriginalDataSet().getAbsolutePath()
 							+ ":meanSimilarity)")
-					.setValue(dataSet.getDataSetContent().getMean());
+					.setValue(statistics.getMean());
+			numberOfElements = statistics.getNumberOfIds();
+		} else {
+			try {
+				ds.loadIntoMemory(precision);
+			} catch (IOException | InvalidDataSetFormatVersionException | UnknownDataSetFormatException e) {
+				throw new IllegalArgumentException(e);
+			}
+			numberOfElements = ds.getIds().size();
 		}
 		this.dataConfig.getRepository()
 				.getInternalIntegerAttribute(
 						"$(" + this.dataConfig.getDatasetConfig().getDataSet().getOriginalDataSet().getAbsolutePath()
 								+ ":numberOfElements)")
-				.setValue(ds.getIds().size());
+				.setValue(numberOfElements);
 	}
 
 	/*
@@ -1246,9 +1514,22 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 			throw ex;
 		}
 
+		// the dataset has been converted into the input format of the program
+		ClusteringResultCache cache = this.getClusteringResultCache();
+		if (cache != null)
+			try {
+				this.clusteringCacheInputs = cache.getInputsDigest(programConfig, dataConfig, getInvocationFormat());
+			} catch (IOException e) {
+				this.log.warn("The clusterings are not cached, because the inputs could not be read: " + e.getMessage());
+			}
+
 		if (checkForInterrupted())
 			throw new InterruptedException();
 
+		// resolved before the dataset is loaded, such that they can be taken
+		// from the statistics stored next to the dataset
+		setInternalAttributes();
+
 		try {
 			this.log.debug("Loading the input similarities into memory ...");
 			// Load the dataset into memory
@@ -1361,8 +1642,6 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 
 		this.submitIterationRunnable(iterationRunnable);
 
-		setInternalAttributes();
-
 		/*
 		 * Ensure that the target directory exists
 		 */
@@ -1385,6 +1664,10 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 					this.getRun().getRepository().getParent().getClusterResultsQualityBasePath()
 							.replace("%RUNIDENTSTRING", runThreadIdentString),
 					programConfig + "_" + dataConfig + ".results.qual.complete");
+
+		// remove a line, that was incomplete when the run terminated
+		if (isResume && GroupCommitAppender.repair(new File(completeQualityOutput)))
+			this.log.info("Removed an incomplete line from " + completeQualityOutput);
 	}
 
 	// /**
@@ -1417,6 +1700,18 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 		try {
 			super.afterRun();
 		} finally {
+			// all iterations finished, write their remaining qualities
+			synchronized (this) {
+				if (this.completeQualityAppender != null)
+					try {
+						this.completeQualityAppender.close();
+					} catch (IOException e) {
+						// the remaining qualities are lost
+						this.log.error("Could not write " + completeQualityOutput + ": " + e.getMessage());
+						this.exceptions.add(e);
+					}
+			}
+
 			// unload the dataset from memory
 			DataSet dataSet = this.dataConfig.getDatasetConfig().getDataSet().getInStandardFormat();
 			if (dataSet != null)
@@ -1432,6 +1727,15 @@ public abstract class ExecutionRunRunnable extends RunRunnable<ExecutionIteratio
 				dataConfig.getGoldstandardConfig().getGoldstandard().unloadFromMemory();
 		}
 
+		if (this.qualityMemoStatistics.getLookups() > 0) {
+			FileUtils.appendStringToFile(this.getRun().getLogFilePath(),
+					Formatter.currentTimeAsString(true, "MM_dd_yyyy-HH_mm_ss", Locale.UK) + "\tMemoized qualities of \""
+							+ this.getRun() + " (" + this.programConfig + "," + this.dataConfig + ")\": "
+							+ this.qualityMemoStatistics + System.getProperty("line.separator"));
+			this.log.info("Run " + this.getRun() + " (" + this.programConfig + "," + this.dataConfig
+					+ ") memoized qualities of " + this.qualityMemoStatistics);
+		}
+
 		FileUtils.appendStringToFile(this.getRun().getLogFilePath(),
 				Formatter.currentTimeAsString(true, "MM_dd_yyyy-HH_mm_ss", Locale.UK) + "\tFinished runThread \""
 						+ this.getRun() + " (" + this.programConfig + "," + this.dataConfig + ")\" (Duration "
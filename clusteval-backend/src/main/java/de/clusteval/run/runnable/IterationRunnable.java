@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.clusteval.framework.RLibraryNotLoadedException;
+import de.clusteval.framework.repository.RengineStatistics;
 import de.clusteval.framework.repository.Repository;
 import de.clusteval.framework.repository.RunResultRepository;
 import de.clusteval.framework.threading.RunSchedulerThread;
@@ -23,6 +24,11 @@ public abstract class IterationRunnable<IW extends IterationWrapper>
 		implements
 			Runnable {
 
+	/**
+	 * The heap memory in bytes an iteration needs regardless of its data.
+	 */
+	protected static final long BASE_MEMORY = 4L << 20;
+
 	protected Logger log;
 	protected IW iterationWrapper;
 	// TODO think of nicer design
@@ -33,6 +39,12 @@ public abstract class IterationRunnable<IW extends IterationWrapper>
 
 	protected long startTime;
 
+	/**
+	 * The statistics, to which the R calls of the executing thread were
+	 * attributed before this iteration started.
+	 */
+	protected RengineStatistics previousRengineStatistics;
+
 	public IterationRunnable(final IW iterationWrapper) {
 		super();
 		this.iterationWrapper = iterationWrapper;
@@ -64,6 +76,29 @@ public abstract class IterationRunnable<IW extends IterationWrapper>
 		return interruptedException;
 	}
 
+	/**
+	 * Estimates the heap memory, that this iteration needs while it runs. The
+	 * run scheduler only starts iterations, whose estimates fit into its
+	 * memory budget.
+	 * 
+	 * @return The estimated memory in bytes.
+	 */
+	public long getEstimatedMemory() {
+		return BASE_MEMORY;
+	}
+
+	/**
+	 * @return The first of the exceptions, that prevent further iterations of
+	 *         the run runnable, or null.
+	 */
+	public Exception getException() {
+		if (this.ioException != null)
+			return this.ioException;
+		else if (this.rLibraryException != null)
+			return this.rLibraryException;
+		return this.rNotAvailableException;
+	}
+
 	public RunRunnable getParentRunnable() {
 		return this.iterationWrapper.getRunnable();
 	}
@@ -98,6 +133,8 @@ public abstract class IterationRunnable<IW extends IterationWrapper>
 				.getRunScheduler();
 		scheduler
 				.informOnStartedIterationRunnable(Thread.currentThread(), this);
+		this.previousRengineStatistics = RengineStatistics.getInstance()
+				.attributeCurrentThread(getRun().getRengineStatistics());
 	}
 
 	protected abstract void doRun() throws InterruptedException;
@@ -110,6 +147,10 @@ public abstract class IterationRunnable<IW extends IterationWrapper>
 				.getRunScheduler();
 		scheduler.informOnFinishedIterationRunnable(Thread.currentThread(),
 				this);
+		// the pool thread may execute other iterations not requiring R
+		repo.clearRengineForCurrentThread();
+		RengineStatistics.getInstance().attributeCurrentThread(
+				this.previousRengineStatistics);
 	}
 
 	public long getStartTime() {
@@ -13,6 +13,7 @@
 package de.clusteval.run.runnable;
 
 import de.clusteval.cluster.paramOptimization.IDivergingParameterOptimizationMethod;
+import de.clusteval.cluster.paramOptimization.IMultiFidelityParameterOptimizationMethod;
 import de.clusteval.cluster.paramOptimization.NoParameterSetFoundException;
 import de.clusteval.cluster.paramOptimization.ParameterOptimizationException;
 import de.clusteval.cluster.paramOptimization.ParameterOptimizationMethod;
@@ -37,7 +38,6 @@ import de.clusteval.run.result.ParameterOptimizationResult;
 import de.clusteval.run.result.RunResultParseException;
 import de.clusteval.utils.InternalAttributeException;
 import de.clusteval.utils.plot.Plotter;
-import de.wiwie.wiutils.file.FileUtils;
 import de.wiwie.wiutils.utils.Triple;
 import java.io.File;
 import java.io.IOException;
@@ -209,6 +209,9 @@ public class ParameterOptimizationRunRunnable extends ExecutionRunRunnable {
      */
     @Override
     protected void afterRun() throws InterruptedException {
+        if (this.optimizationMethod instanceof IMultiFidelityParameterOptimizationMethod)
+            ((IMultiFidelityParameterOptimizationMethod) this.optimizationMethod)
+                    .unloadSubsamples();
         super.afterRun();
 
         if (this.optimizationMethod != null
@@ -273,7 +276,7 @@ public class ParameterOptimizationRunRunnable extends ExecutionRunRunnable {
             sb.append(e.getPreviousIterationNumber());
             sb.append(System.getProperty("line.separator"));
 
-            FileUtils.appendStringToFile(completeQualityOutput, sb.toString());
+            appendToCompleteQualityOutput(sb.toString());
         } catch (InternalAttributeException | RegisterException | NoParameterSetFoundException | InterruptedException e) {
             throw new RunIterationException(e);
         }
@@ -313,6 +316,46 @@ public class ParameterOptimizationRunRunnable extends ExecutionRunRunnable {
         super.decorateIterationWrapper(iterationWrapper, currentPos);
     }
 
+    /*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * de.clusteval.run.runnable.ExecutionRunRunnable#getDataConfigForIteration
+	 * (de.clusteval.run.runnable.ExecutionIterationWrapper)
+     */
+    @Override
+    protected DataConfig getDataConfigForIteration(
+            final ExecutionIterationWrapper iterationWrapper)
+            throws RunIterationException {
+        if (this.optimizationMethod instanceof IMultiFidelityParameterOptimizationMethod) {
+            try {
+                return ((IMultiFidelityParameterOptimizationMethod) this.optimizationMethod)
+                        .getDataConfigForParameterSet(iterationWrapper
+                                .getParameterSet());
+            } catch (ParameterOptimizationException e) {
+                throw new RunIterationException(e);
+            }
+        }
+        return super.getDataConfigForIteration(iterationWrapper);
+    }
+
+    /*
+	 * (non-Javadoc)
+	 *
+	 * @see de.clusteval.run.runnable.ExecutionRunRunnable#
+	 * getCompleteQualityOutputParameters()
+     */
+    @Override
+    protected List<String> getCompleteQualityOutputParameters() {
+        List<String> result = super.getCompleteQualityOutputParameters();
+        // the fidelity of every iteration is stored together with its
+        // parameter values
+        if (this.optimizationMethod instanceof IMultiFidelityParameterOptimizationMethod) {
+            result.add(IMultiFidelityParameterOptimizationMethod.FIDELITY);
+        }
+        return result;
+    }
+
     /*
 	 * (non-Javadoc)
 	 *
@@ -397,6 +440,12 @@ public class ParameterOptimizationRunRunnable extends ExecutionRunRunnable {
             paramSet.put(param.getName(),
                     qualities.get(0).getFirst().get(param.getName()));
         }
+        if (qualities.get(0).getFirst().containsKey(
+                IMultiFidelityParameterOptimizationMethod.FIDELITY)) {
+            paramSet.put(IMultiFidelityParameterOptimizationMethod.FIDELITY,
+                    qualities.get(0).getFirst().get(
+                            IMultiFidelityParameterOptimizationMethod.FIDELITY));
+        }
         this.optimizationMethod.giveQualityFeedback(paramSet, qualities.get(0)
                 .getSecond());
         super.writeQualitiesToFile(qualities);
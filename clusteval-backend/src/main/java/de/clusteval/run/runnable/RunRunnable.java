@@ -13,20 +13,20 @@
  */
 package de.clusteval.run.runnable;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +38,10 @@ import de.clusteval.data.dataset.format.UnknownDataSetFormatException;
 import de.clusteval.data.goldstandard.IncompleteGoldStandardException;
 import de.clusteval.data.goldstandard.format.UnknownGoldStandardFormatException;
 import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.ClustevalBackendServer;
+import de.clusteval.framework.repository.RengineStatistics;
 import de.clusteval.framework.repository.RunResultRepository;
+import de.clusteval.framework.threading.FairShareQueue;
 import de.clusteval.framework.threading.RunSchedulerThread;
 import de.wiwie.wiutils.backend.RUN_STATUS;
 import de.clusteval.run.Run;
@@ -124,12 +127,26 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	 */
 	protected String runThreadIdentString;
 
-	protected List<IR> iterationRunnables;
+	/**
+	 * The iteration runnables, that were submitted and have not finished yet,
+	 * by their futures. Finished iterations are removed as soon as they
+	 * complete, such that their state can be garbage collected.
+	 */
+	protected Map<Future<?>, IR> runningIterations;
 
 	/**
-	 * This list holds wrapper objects for each iteration runnable started.
+	 * One permit for every iteration, that may be submitted in addition to
+	 * the running ones. Submitting blocks while {@link #iterationWindowSize}
+	 * iterations are running.
 	 */
-	protected List<Future<?>> futures;
+	protected Semaphore iterationWindow;
+
+	protected int iterationWindowSize;
+
+	/**
+	 * The first exception thrown by a finished iteration runnable.
+	 */
+	protected AtomicReference<Exception> iterationException;
 
 	/**
 	 * This boolean helper indicates, whether this run runnable has been
@@ -143,13 +160,6 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	 */
 	protected boolean terminated;
 
-	/**
-	 * A map from futures to iteration runnables to be able to handle
-	 * termination of threads and processes started in the respective iteration
-	 * run runnable in {@link #afterRun()}
-	 */
-	protected Map<Future<?>, Runnable> futureToIterationRunnable;
-
 	/**
 	 * Instantiates a new run runnable.
 	 * 
@@ -169,9 +179,11 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 		this.isResume = isResume;
 		this.exceptions = new ArrayList<Throwable>();
 		this.runThreadIdentString = runIdentString;
-		this.iterationRunnables = new ArrayList<IR>();
-		this.futures = new ArrayList<Future<?>>();
-		this.futureToIterationRunnable = new HashMap<Future<?>, Runnable>();
+		this.runningIterations = new ConcurrentHashMap<Future<?>, IR>();
+		this.iterationWindowSize = ClustevalBackendServer
+				.getBackendServerConfiguration().getIterationWindow();
+		this.iterationWindow = new Semaphore(this.iterationWindowSize);
+		this.iterationException = new AtomicReference<Exception>();
 		this.log = LoggerFactory.getLogger(this.getClass());
 		this.progress = new ProgressPrinter(10000, false);
 	}
@@ -208,6 +220,9 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	@Override
 	public final void run() {
 		this.run.setStatus(RUN_STATUS.RUNNING);
+		// the R calls of this thread belong to the run
+		RengineStatistics.getInstance().attributeCurrentThread(
+				this.run.getRengineStatistics());
 		try {
 			beforeRun();
 			doRun();
@@ -220,6 +235,10 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 				afterRun();
 			} catch (InterruptedException e) {
 				e.printStackTrace();
+			} finally {
+				// return the R connection of this thread to the pool
+				this.run.getRepository().clearRengineForCurrentThread();
+				RengineStatistics.getInstance().attributeCurrentThread(null);
 			}
 		}
 	}
@@ -227,8 +246,7 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	public void terminate() {
 		this.log.info("Terminating runnable ...");
 		this.terminated = true;
-		// TODO: cancel all the iteration threads
-		for (Future<?> f : this.futures)
+		for (Future<?> f : this.runningIterations.keySet())
 			f.cancel(true);
 	}
 
@@ -256,7 +274,6 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 			IncompatibleDataSetFormatException,
 			UnknownGoldStandardFormatException,
 			IncompleteGoldStandardException, InterruptedException {
-		this.futures.clear();
 	}
 
 	/**
@@ -291,21 +308,18 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	 */
 	protected void afterRun() throws InterruptedException {
 		// wait for all iteration runnables to finish
-		for (Future<?> f : this.futures)
-			try {
-				f.get();
-			} catch (InterruptedException e) {
-				// here we handle termination of all threads or processes , that
-				// have been started by the iteration run runnables.
-				Runnable run = this.futureToIterationRunnable.remove(f);
+		try {
+			this.awaitIterations();
+		} catch (InterruptedException e) {
+			// here we handle termination of all threads or processes , that
+			// have been started by the iteration run runnables.
+			for (IR run : this.runningIterations.values())
 				if (run instanceof ExecutionIterationRunnable) {
 					Process p = ((ExecutionIterationRunnable) run).getProcess();
 					if (p != null)
 						p.destroyForcibly();
 				}
-			} catch (ExecutionException e) {
-				e.printStackTrace();
-			}
+		}
 
 		// print exceptions
 		if (this.exceptions.size() > 0) {
@@ -338,19 +352,7 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 	 * @throws ExecutionException
 	 */
 	public final void waitFor() throws InterruptedException, ExecutionException {
-		while (!this.futures.isEmpty()) {
-			boolean nullPointerException = true;
-			while (nullPointerException) {
-				try {
-					Future<?> f = this.futures.remove(0);
-					f.get();
-				} catch (NullPointerException e) {
-					continue;
-				} catch (CancellationException e) {
-				}
-				nullPointerException = false;
-			}
-		}
+		this.awaitIterations();
 
 		boolean nullPointerException = true;
 		while (nullPointerException) {
@@ -449,12 +451,29 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 		iterationWrapper.setResume(isResume);
 	}
 
+	/**
+	 * Submits an iteration runnable to the run scheduler. If
+	 * {@link #iterationWindowSize} iterations of this runnable are running
+	 * already, this method blocks until one of them finished.
+	 * 
+	 * @param iterationRunnable
+	 *            The iteration runnable to submit.
+	 */
 	protected void submitIterationRunnable(final IR iterationRunnable) {
+		try {
+			while (!this.iterationWindow.tryAcquire(1, TimeUnit.SECONDS))
+				if (this.terminated)
+					return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
 		// we do not accept new runnables if this run has been terminated
 		// before.
-		if (this.terminated)
+		if (this.terminated) {
+			this.iterationWindow.release();
 			return;
-		this.iterationRunnables.add(iterationRunnable);
+		}
 
 		final RunSchedulerThread runScheduler;
 		if (this.getRun().getRepository() instanceof RunResultRepository)
@@ -463,47 +482,61 @@ public abstract class RunRunnable<IR extends IterationRunnable, IW extends Itera
 		else
 			runScheduler = this.getRun().getRepository().getSupervisorThread()
 					.getRunScheduler();
-		Future<?> f = runScheduler.registerIterationRunnable(iterationRunnable);
-		this.futures.add(f);
-		this.futureToIterationRunnable.put(f, iterationRunnable);
+		final FairShareQueue.Task<?> f;
+		try {
+			f = runScheduler.registerIterationRunnable(iterationRunnable);
+		} catch (RejectedExecutionException e) {
+			this.iterationWindow.release();
+			throw e;
+		}
+		this.runningIterations.put(f, iterationRunnable);
+		f.getCompletion().whenComplete(
+				(result, t) -> this.onIterationFinished(f, iterationRunnable,
+						t));
 	}
-}
 
-/**
- * This class is responsible for reading and emptying the streams of the started
- * thread. This has to be done in order to avoid overflowing streams and thus
- * possible termination of the thread by the operating system.
- * 
- */
-class StreamGobbler extends Thread {
-
-	InputStream is;
-	BufferedWriter bw;
+	/**
+	 * Invoked by the thread, that finished or cancelled an iteration runnable
+	 * of this runnable.
+	 * 
+	 * @param f
+	 *            The future of the iteration runnable.
+	 * @param iterationRunnable
+	 *            The finished iteration runnable.
+	 * @param t
+	 *            The throwable, that terminated the iteration runnable, or
+	 *            null.
+	 */
+	protected void onIterationFinished(final Future<?> f,
+			final IR iterationRunnable, final Throwable t) {
+		try {
+			this.runningIterations.remove(f);
+			Exception e = iterationRunnable.getException();
+			if (e != null)
+				this.iterationException.compareAndSet(null, e);
+			if (t != null && !(t instanceof CancellationException))
+				this.log.warn("Iteration failed: " + t);
+		} finally {
+			this.iterationWindow.release();
+		}
+	}
 
-	public StreamGobbler(InputStream is, BufferedWriter bw) {
-		super();
-		this.setName(this.getName().replace("Thread",
-				this.getClass().getSimpleName()));
-		// TODO this.setPriority(NORM_PRIORITY-1);
-		this.is = is;
-		this.bw = bw;
+	/**
+	 * @return The first exception thrown by a finished iteration runnable of
+	 *         this runnable, or null.
+	 */
+	protected Exception getIterationException() {
+		return this.iterationException.get();
 	}
 
-	@Override
-	public void run() {
-		try {
-			InputStreamReader isr = new InputStreamReader(is);
-			BufferedReader br = new BufferedReader(isr);
-			String line = null;
-			while ((line = br.readLine()) != null)
-				synchronized (bw) {
-					bw.append(line);
-					bw.newLine();
-					bw.flush();
-				}
-		} catch (IOException ioe) {
-			// stream closed
-			// ioe.printStackTrace();
-		}
+	/**
+	 * Waits until all submitted iteration runnables of this runnable
+	 * finished.
+	 * 
+	 * @throws InterruptedException
+	 */
+	protected void awaitIterations() throws InterruptedException {
+		this.iterationWindow.acquire(this.iterationWindowSize);
+		this.iterationWindow.release(this.iterationWindowSize);
 	}
 }
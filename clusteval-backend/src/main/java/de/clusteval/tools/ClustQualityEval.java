@@ -260,22 +260,20 @@ public class ClustQualityEval {
 
 									// write the new qualities into the
 									// results.qual
-									// file
+									// file at once
+									StringBuilder sb = new StringBuilder();
 									for (ClusteringQualityMeasure m : quals
 											.keySet())
-										FileUtils
-												.appendStringToFile(
-														clusteringFile
-																.getAbsolutePath()
-																.replaceFirst(
-																		".results.conv",
-																		".results.qual"),
-														String.format(
-																"%s\t%s",
-																m.toString(),
-																quals.get(m)
-																		.getValue())
-																+ "\n");
+										sb.append(String.format("%s\t%s",
+												m.toString(), quals.get(m)
+														.getValue())
+												+ "\n");
+									FileUtils.appendStringToFile(
+											clusteringFile.getAbsolutePath()
+													.replaceFirst(
+															".results.conv",
+															".results.qual"),
+											sb.toString());
 								}
 
 								long iterationNumber = Long
@@ -0,0 +1,346 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends lines of many threads to one file in batches.
+ *
+ * <p>
+ * Appended lines are collected in memory and written together (group
+ * commit), as soon as {@link #getMaxBatchSize()} characters are pending or
+ * the oldest pending line waited for {@link #getMaxDelay()} milliseconds.
+ * While one batch is written, the next one is collected, such that appending
+ * threads never wait for the file. Depending on the {@link SYNC_POLICY},
+ * every batch is forced to the disk after it was written.
+ *
+ * <p>
+ * Every batch consists of complete lines and is written at once. If the
+ * process dies while a batch is written, only the last line of the file can
+ * be incomplete; {@link #repair(File)} removes it. If a batch cannot be
+ * written, the file is truncated to its previous size and the batch is kept
+ * in front of the pending lines, to be written by the next commit.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class GroupCommitAppender implements Closeable {
+
+    /**
+     * When the written batches are forced to the disk.
+     */
+    public enum SYNC_POLICY {
+        /**
+         * The operating system decides, when the batches are written to the
+         * disk.
+         */
+        NONE,
+        /**
+         * Every batch is forced to the disk before the next one is written.
+         */
+        BATCH
+    }
+
+    /**
+     * Writes the batches, that waited long enough, of all appenders.
+     */
+    private static final ScheduledExecutorService TIMER = Executors
+            .newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, GroupCommitAppender.class
+                        .getSimpleName());
+                t.setDaemon(true);
+                return t;
+            });
+
+    protected final Logger log;
+
+    protected final File file;
+
+    protected final int maxBatchSize;
+
+    protected final long maxDelay;
+
+    protected final SYNC_POLICY syncPolicy;
+
+    protected final FileChannel channel;
+
+    /**
+     * The lines, that were not written yet. Guarded by this appender.
+     */
+    protected final StringBuilder pending;
+
+    protected ScheduledFuture<?> scheduledCommit;
+
+    protected boolean closed;
+
+    /**
+     * Held while a batch is written, such that batches keep their order.
+     */
+    protected final Object writeLock;
+
+    protected long numberOfCommits;
+
+    /**
+     * Opens a file for appending. An incomplete last line of the file is
+     * removed.
+     *
+     * @param file The file to append to, which is created if necessary.
+     * @param maxBatchSize The number of pending characters, that are written
+     * immediately.
+     * @param maxDelay The maximal number of milliseconds a line is pending.
+     * @param syncPolicy Whether batches are forced to the disk.
+     * @throws IOException
+     */
+    public GroupCommitAppender(final File file, final int maxBatchSize,
+            final long maxDelay, final SYNC_POLICY syncPolicy)
+            throws IOException {
+        super();
+        this.log = LoggerFactory.getLogger(this.getClass());
+        this.file = file;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.syncPolicy = syncPolicy;
+        this.pending = new StringBuilder();
+        this.writeLock = new Object();
+        repair(file);
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Removes the characters after the last line break of a file, which
+     * remain if the process died while a line was written.
+     *
+     * @param file The file.
+     * @return True, if the file was changed.
+     * @throws IOException
+     */
+    public static boolean repair(final File file) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long end = size;
+            while (end > 0) {
+                int n = (int) Math.min(buffer.capacity(), end);
+                buffer.clear().limit(n);
+                long start = end - n;
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, start + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    if (buffer.get(i) == '\n') {
+                        if (start + i + 1 == size) {
+                            return false;
+                        }
+                        channel.truncate(start + i + 1);
+                        return true;
+                    }
+                }
+                end = start;
+            }
+            if (size == 0) {
+                return false;
+            }
+            channel.truncate(0);
+            return true;
+        }
+    }
+
+    /**
+     * @param lines One or more complete lines, each terminated by a line
+     * break.
+     */
+    public void append(final String lines) {
+        boolean commit;
+        synchronized (this) {
+            if (this.closed) {
+                throw new IllegalStateException("The appender of "
+                        + this.file + " has been closed");
+            }
+            this.pending.append(lines);
+            commit = this.pending.length() >= this.maxBatchSize;
+            if (!commit && this.scheduledCommit == null) {
+                this.scheduledCommit = TIMER.schedule(() -> this
+                        .commitQuietly(), this.maxDelay,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+        if (commit) {
+            this.commitQuietly();
+        }
+    }
+
+    /**
+     * Writes all pending lines into the file.
+     *
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        synchronized (this.writeLock) {
+            String batch;
+            synchronized (this) {
+                if (this.scheduledCommit != null) {
+                    this.scheduledCommit.cancel(false);
+                    this.scheduledCommit = null;
+                }
+                if (this.pending.length() == 0) {
+                    return;
+                }
+                batch = this.pending.toString();
+                this.pending.setLength(0);
+            }
+            long size = this.channel.size();
+            try {
+                this.write(StandardCharsets.UTF_8.encode(batch));
+                if (this.syncPolicy == SYNC_POLICY.BATCH) {
+                    this.channel.force(false);
+                }
+            } catch (IOException e) {
+                this.restore(batch, size);
+                throw e;
+            }
+            this.numberOfCommits++;
+        }
+    }
+
+    /**
+     * Writes a batch at the end of the file.
+     *
+     * @param buffer The encoded batch.
+     * @throws IOException
+     */
+    protected void write(final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+
+    /**
+     * Removes the part of a batch, that was written before the write failed,
+     * and puts the batch in front of the pending lines again. Unless this
+     * appender is closed, the next commit is scheduled.
+     *
+     * @param batch The batch, that could not be written.
+     * @param size The size of the file before the batch was written.
+     */
+    private void restore(final String batch, final long size) {
+        try {
+            if (this.channel.size() > size) {
+                this.channel.truncate(size);
+            }
+        } catch (IOException e) {
+            this.log.warn("Could not truncate " + this.file + ": "
+                    + e.getMessage());
+        }
+        synchronized (this) {
+            this.pending.insert(0, batch);
+            if (!this.closed && this.scheduledCommit == null) {
+                this.scheduledCommit = TIMER.schedule(() -> this
+                        .commitQuietly(), this.maxDelay,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    protected void commitQuietly() {
+        try {
+            this.commit();
+        } catch (IOException e) {
+            this.log.warn("Could not append to " + this.file + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The number of characters, that were appended and not written
+     * yet.
+     */
+    public synchronized int getNumberOfPendingCharacters() {
+        return this.pending.length();
+    }
+
+    /**
+     * @return The number of batches written so far.
+     */
+    public long getNumberOfCommits() {
+        synchronized (this.writeLock) {
+            return this.numberOfCommits;
+        }
+    }
+
+    /**
+     * @return The file appended to.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * @return The number of pending characters, that are written immediately.
+     */
+    public int getMaxBatchSize() {
+        return this.maxBatchSize;
+    }
+
+    /**
+     * @return The maximal number of milliseconds a line is pending.
+     */
+    public long getMaxDelay() {
+        return this.maxDelay;
+    }
+
+    /**
+     * Writes all pending lines and closes the file. Lines appended afterwards
+     * are rejected. If the pending lines cannot be written, the file is closed
+     * nevertheless and the exception is thrown.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+        }
+        try {
+            this.commit();
+            if (this.syncPolicy != SYNC_POLICY.NONE) {
+                this.channel.force(true);
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+}
@@ -12,18 +12,46 @@
  */
 package de.clusteval.cluster;
 
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureParameters;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.DataSet;
+import de.clusteval.data.dataset.DataSetConfig;
+import de.clusteval.data.dataset.RelativeDataSet;
+import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
+import de.clusteval.data.dataset.format.ConversionStandardToInputConfiguration;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.data.dataset.format.RelativeDataSetFormat;
+import de.clusteval.data.dataset.type.DataSetType;
+import de.clusteval.data.distance.DistanceMeasureJava;
+import de.clusteval.data.preprocessing.DataPreprocessor;
+import de.clusteval.framework.repository.Repository;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.program.ParameterSet;
 import de.clusteval.utils.AbstractClustEvalTest;
 import de.wiwie.wiutils.utils.Pair;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
@@ -121,6 +149,117 @@ public class ClusteringTest extends AbstractClustEvalTest {
                 .keySet().iterator().next());
     }
 
+    @Test
+    public void testCompactClustering() {
+        String[] ids = new String[]{"1", "2", "3", "4", "5"};
+        float[][] fuzzyCoeffs = new float[][]{{0.7f, 0.3f}, {1.0f, 0.0f},
+        {0.2f, 0.8f}, {0.0f, 1.0f}, {0.4f, 0.6f}};
+
+        Clustering clustering = Clustering.parseFromFuzzyCoeffMatrix(
+                this.getRepository(), new File(""), ids, fuzzyCoeffs);
+        CompactClustering compact = clustering.getCompactClustering();
+        assertEquals(5, clustering.size());
+        assertEquals(5.0f, clustering.fuzzySize(), 0.00001);
+        assertEquals(2, compact.getNumberOfClusters());
+        assertArrayEquals(new int[]{0, 0, 1, 1, 1}, compact.getAssignment());
+        assertEquals("1:0.7,2:1.0,3:0.2,5:0.4;1:0.3,3:0.8,4:1.0,5:0.6",
+                clustering.toFormattedString());
+
+        Clustering hard = clustering.toHardClustering();
+        assertEquals("1:1.0,2:1.0;3:1.0,5:1.0,4:1.0", hard.toFormattedString());
+        assertEquals(hard.getClusterWithId("1"),
+                hard.getClusterForItem(hard.getClusterItemWithId("5"))
+                .keySet().iterator().next());
+
+        // modifications replace the compact representation
+        Cluster cluster = new Cluster("2");
+        cluster.add(new ClusterItem("6"), 1.0f);
+        clustering.addCluster(cluster);
+        assertTrue(compact != clustering.getCompactClustering());
+        assertEquals(3, clustering.getCompactClustering()
+                .getNumberOfClusters());
+        assertEquals(6, clustering.size());
+        assertEquals(3, clustering.getClusters().size());
+    }
+
+    @Test
+    public void testConcurrentMaterialize() throws InterruptedException,
+            ExecutionException {
+        int n = 2000;
+        String[] ids = new String[n];
+        int[] clusterIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = "" + i;
+            clusterIds[i] = i % 50;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                final Clustering clustering = Clustering.parseFromIntArray(
+                        this.getRepository(), new File(""), ids, clusterIds);
+                final CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+                for (int t = 0; t < 8; t++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        // every thread sees the clustering completely filled
+                        return clustering.getClusters().size() == 50
+                                && clustering.getClusterItemWithId("" + (n - 1)) != null
+                                && clustering.fuzzySize() == n;
+                    }));
+                }
+                start.countDown();
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFingerprint() throws RegisterException {
+        String[] ids = new String[]{"1", "2", "3", "4", "5"};
+        Clustering clustering = Clustering.parseFromIntArray(
+                this.getRepository(), new File(""), ids,
+                new int[]{1, 1, 1, 2, 2});
+
+        // the same partition with other cluster ids and in another order
+        Clustering relabeled = new Clustering(this.getRepository(),
+                System.currentTimeMillis(), new File(""));
+        Cluster cluster1 = new Cluster("a");
+        cluster1.add(new ClusterItem("5"), 1.0f);
+        cluster1.add(new ClusterItem("4"), 1.0f);
+        relabeled.addCluster(cluster1);
+        Cluster cluster2 = new Cluster("b");
+        cluster2.add(new ClusterItem("3"), 1.0f);
+        cluster2.add(new ClusterItem("1"), 1.0f);
+        cluster2.add(new ClusterItem("2"), 1.0f);
+        relabeled.addCluster(cluster2);
+        assertEquals(clustering.getFingerprint(), relabeled.getFingerprint());
+
+        Clustering other = Clustering.parseFromIntArray(this.getRepository(),
+                new File(""), ids, new int[]{1, 1, 2, 2, 2});
+        assertNotEquals(clustering.getFingerprint(), other.getFingerprint());
+
+        // modifications change the fingerprint
+        String fingerprint = relabeled.getFingerprint();
+        Cluster cluster3 = new Cluster("c");
+        cluster3.add(new ClusterItem("6"), 1.0f);
+        relabeled.addCluster(cluster3);
+        assertNotEquals(fingerprint, relabeled.getFingerprint());
+
+        // fuzzy coefficients are part of the partition
+        Clustering fuzzy1 = Clustering.parseFromFuzzyCoeffMatrix(
+                this.getRepository(), new File(""), new String[]{"1", "2"},
+                new float[][]{{0.7f, 0.3f}, {1.0f, 0.0f}});
+        Clustering fuzzy2 = Clustering.parseFromFuzzyCoeffMatrix(
+                this.getRepository(), new File(""), new String[]{"1", "2"},
+                new float[][]{{0.6f, 0.4f}, {1.0f, 0.0f}});
+        assertNotEquals(fuzzy1.getFingerprint(), fuzzy2.getFingerprint());
+    }
+
     @Test
     public void testClusterIdsToFuzzyCoeff() {
         int[] clusterIds = new int[]{1, 2, 2, 2, 5, 3, 4, 1, 1};
@@ -239,4 +378,154 @@ public class ClusteringTest extends AbstractClustEvalTest {
             assertEquals(expectedClusters.get(i), i.getFuzzyClusters());
         }
     }
+
+    /**
+     * A measure, whose quality is its parameter "value".
+     */
+    public static class ParameterValueMeasure extends ClusteringQualityMeasure {
+
+        static final AtomicInteger assessed = new AtomicInteger();
+
+        public ParameterValueMeasure(final Repository repo,
+                final String value) throws RegisterException {
+            super(repo, false, System.currentTimeMillis(), new File(
+                    "ParameterValueMeasure"), parameters(value));
+        }
+
+        private static ClusteringQualityMeasureParameters parameters(
+                final String value) {
+            ClusteringQualityMeasureParameters result = new ClusteringQualityMeasureParameters();
+            result.put("value", value);
+            return result;
+        }
+
+        @Override
+        public ClusteringQualityMeasureValue getQualityOfClustering(
+                final Clustering clustering, final Clustering goldStandard,
+                final DataConfig dataConfig) {
+            assessed.incrementAndGet();
+            return ClusteringQualityMeasureValue.getForDouble(Double
+                    .parseDouble(this.parameters.get("value")));
+        }
+
+        @Override
+        public boolean supportsFuzzyClusterings() {
+            return true;
+        }
+
+        @Override
+        protected boolean isBetterThanHelper(
+                final ClusteringQualityMeasureValue quality1,
+                final ClusteringQualityMeasureValue quality2) {
+            return quality1.getValue() > quality2.getValue();
+        }
+
+        @Override
+        public double getMinimum() {
+            return 0.0;
+        }
+
+        @Override
+        public double getMaximum() {
+            return 1.0;
+        }
+
+        @Override
+        public boolean requiresGoldstandard() {
+            return false;
+        }
+
+        @Override
+        public String getAlias() {
+            return "Parameter value";
+        }
+    }
+
+    /**
+     * Measures of the same class with different parameters do not share
+     * their memoized qualities.
+     */
+    @Test
+    public void testAssessQualityParameterisedMeasures() throws Exception {
+        File file = File.createTempFile("assessQuality", ".SimMatrix");
+        file.deleteOnExit();
+        RelativeDataSet dataSet = new RelativeDataSet(getRepository(), false,
+                System.currentTimeMillis(), file, "assessQuality",
+                (RelativeDataSetFormat) DataSetFormat.parseFromString(
+                        getRepository(), "SimMatrixDataSetFormat"),
+                DataSetType.parseFromString(getRepository(), "PPIDataSetType"),
+                DataSet.WEBSITE_VISIBILITY.HIDE) {
+
+            @Override
+            public DataSet getInStandardFormat() {
+                return this;
+            }
+        };
+        dataSet.setDataSetContent(new SimilarityMatrix(new String[]{"a", "b",
+            "c"}, new double[][]{new double[]{1.0, 0.5, 0.25},
+            new double[]{0.5, 1.0, 0.125}, new double[]{0.25, 0.125, 1.0}}));
+        dataSet.writeToFile(false);
+        ConversionInputToStandardConfiguration configInputToStandard = new ConversionInputToStandardConfiguration(
+                new DistanceMeasureJava(getRepository(), false,
+                        System.currentTimeMillis(), new File("TestDistance")) {
+
+                    @Override
+                    protected double getDistanceHelper(double[] point1,
+                            double[] point2) {
+                        return 0.0;
+                    }
+
+                    @Override
+                    public boolean supportsMatrix() {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isSymmetric() {
+                        return true;
+                    }
+
+                    @Override
+                    public boolean register() {
+                        // not a dynamic class known to the repository
+                        return false;
+                    }
+                }, NUMBER_PRECISION.DOUBLE,
+                new ArrayList<DataPreprocessor>(),
+                new ArrayList<DataPreprocessor>());
+        ConversionStandardToInputConfiguration configStandardToInput = new ConversionStandardToInputConfiguration();
+        DataConfig dataConfig = new DataConfig(getRepository(),
+                System.currentTimeMillis(), new File(file.getAbsolutePath()
+                        + ".dataconfig"), new DataSetConfig(getRepository(),
+                        System.currentTimeMillis(), new File(file
+                                .getAbsolutePath() + ".datasetconfig"),
+                        dataSet, configInputToStandard, configStandardToInput),
+                null);
+
+        Clustering clustering = Clustering.parseFromIntArray(getRepository(),
+                new File(""), new String[]{"a", "b", "c"}, new int[]{0, 0, 1});
+        ParameterValueMeasure.assessed.set(0);
+        ClusteringQualitySet qualities = clustering.assessQuality(dataConfig,
+                Arrays.<ClusteringQualityMeasure>asList(new ParameterValueMeasure(
+                        getRepository(), "0.25")));
+        assertEquals(0.25, qualities.values().iterator().next().getValue(),
+                0.0);
+        assertEquals(1, ParameterValueMeasure.assessed.get());
+
+        // an equal measure with another parameter is assessed again
+        qualities = clustering.assessQuality(dataConfig, Arrays
+                .<ClusteringQualityMeasure>asList(new ParameterValueMeasure(
+                        getRepository(), "0.75")));
+        assertEquals(0.75, qualities.values().iterator().next().getValue(),
+                0.0);
+        assertEquals(2, ParameterValueMeasure.assessed.get());
+
+        // the same parameter is memoized
+        qualities = clustering.assessQuality(dataConfig, Arrays
+                .<ClusteringQualityMeasure>asList(new ParameterValueMeasure(
+                        getRepository(), "0.25")));
+        assertEquals(0.25, qualities.values().iterator().next().getValue(),
+                0.0);
+        assertEquals(2, ParameterValueMeasure.assessed.get());
+    }
 }
@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.clusteval.program.ParameterSet;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestLayerSpeculation {
+
+	/**
+	 * A layer of integer values.
+	 */
+	private static class Layer {
+
+		private final List<Integer> values;
+		private int started;
+		private int finished;
+
+		Layer(final Integer... values) {
+			this.values = Arrays.asList(values);
+		}
+	}
+
+	/**
+	 * A layered method on one integer parameter with quality -|x-27|. The
+	 * first layer covers 0 to 40, every further layer four values around the
+	 * best value so far. Evaluations are simulated to finish in the order
+	 * they were started; waiting for quality feedback finishes the oldest
+	 * running evaluation.
+	 */
+	private static class LayeredMethod
+			implements
+				ILayeredParameterOptimizationMethod<Layer> {
+
+		private static final int[] DISTANCE = new int[]{0, 3, 1};
+
+		private final List<Integer> started = new ArrayList<Integer>();
+		private final Deque<Object[]> running = new ArrayDeque<Object[]>();
+		private Layer current;
+		private int layer;
+		private Integer best;
+
+		private Layer layerAround(final int layerNumber, final Integer center) {
+			if (center == null)
+				return new Layer(0, 10, 20, 30, 40);
+			int d = DISTANCE[layerNumber];
+			return new Layer(center - 2 * d, center - d, center + d,
+					center + 2 * d);
+		}
+
+		private static ParameterSet parameterSet(final Integer x) {
+			if (x == null)
+				return null;
+			ParameterSet result = new ParameterSet();
+			result.put("x", x + "");
+			return result;
+		}
+
+		void start(final int parallelism) {
+			Integer x = this.current.values.get(this.current.started++);
+			this.started.add(x);
+			this.running.add(new Object[]{this.current, x});
+			if (this.running.size() >= parallelism)
+				this.finishOldest();
+		}
+
+		void finishOldest() {
+			Object[] evaluation = this.running.poll();
+			((Layer) evaluation[0]).finished++;
+			int x = (Integer) evaluation[1];
+			if (this.best == null
+					|| Math.abs(x - 27) < Math.abs(this.best - 27))
+				this.best = x;
+		}
+
+		@Override
+		public Layer getCurrentLayer() {
+			return this.current;
+		}
+
+		@Override
+		public boolean hasNext(final Layer layer) {
+			return layer.started < layer.values.size();
+		}
+
+		@Override
+		public boolean isLastLayerStarted() {
+			return this.layer >= DISTANCE.length;
+		}
+
+		@Override
+		public boolean isStartedBy(final Layer layer,
+				final ParameterSet paramSet) {
+			return layer.values.subList(0, layer.started).contains(
+					Integer.valueOf(paramSet.get("x")));
+		}
+
+		@Override
+		public boolean isLayerFinished(final Layer layer) {
+			return layer.finished == layer.started;
+		}
+
+		@Override
+		public double getLayerFinishedFraction(final Layer layer) {
+			return layer.finished / (double) layer.started;
+		}
+
+		@Override
+		public void adoptOptimum(final Layer layer) {
+			// the best value is updated on every feedback
+		}
+
+		@Override
+		public ParameterSet getOptimalParameterSet() {
+			return parameterSet(this.best);
+		}
+
+		@Override
+		public void startNextLayer() {
+			this.current = this.layerAround(this.layer++, this.best);
+		}
+
+		@Override
+		public void startSpeculativeLayer(final ParameterSet center) {
+			this.current = this.layerAround(this.layer++,
+					Integer.valueOf(center.get("x")));
+		}
+
+		@Override
+		public void confirmSpeculativeLayer() {
+		}
+
+		@Override
+		public void restartSpeculativeLayer(final ParameterSet center) {
+			this.current = this.layerAround(this.layer - 1,
+					Integer.valueOf(center.get("x")));
+		}
+
+		@Override
+		public void waitForQualityFeedback() {
+			if (this.running.isEmpty())
+				throw new IllegalStateException("Waiting without evaluations");
+			this.finishOldest();
+		}
+	}
+
+	private static LayerSpeculation<Layer> optimize(
+			final LayeredMethod method, final double threshold,
+			final int parallelism) throws Exception {
+		LayerSpeculation<Layer> speculation = new LayerSpeculation<Layer>(
+				method, threshold);
+		while (speculation.hasNext()) {
+			speculation.prepareLayer();
+			method.start(parallelism);
+		}
+		while (!method.running.isEmpty())
+			method.finishOldest();
+		return speculation;
+	}
+
+	@Test
+	public void testNoSpeculation() throws Exception {
+		List<Integer> expected = Arrays.asList(0, 10, 20, 30, 40, 24, 27, 33,
+				36, 25, 26, 28, 29);
+
+		LayeredMethod sequential = new LayeredMethod();
+		optimize(sequential, 0.0, 1);
+		assertEquals(expected, sequential.started);
+
+		// with parallel evaluations every layer still waits for the previous
+		LayeredMethod parallel = new LayeredMethod();
+		LayerSpeculation<Layer> speculation = optimize(parallel, 0.0, 3);
+		assertFalse(speculation.isSpeculating());
+		assertEquals(expected, parallel.started);
+		assertEquals(0, speculation.getSpeculatedLayerCount());
+		assertEquals(0, speculation.getCancelledLayerCount());
+	}
+
+	@Test
+	public void testChangedBestRestartsSpeculativeLayer() throws Exception {
+		LayeredMethod method = new LayeredMethod();
+		LayerSpeculation<Layer> speculation = optimize(method, 0.5, 3);
+
+		/*
+		 * After 0, 10 and 20 have finished, the second layer is started
+		 * around 20. When 30 finishes, the speculation is cancelled after 14
+		 * and 17 have been started, and the layer is started again around
+		 * 30. The third layer is started around 27 after half of the second
+		 * layer has finished, and is kept.
+		 */
+		assertEquals(Arrays.asList(0, 10, 20, 30, 40, 14, 17, 24, 27, 33, 36,
+				25, 26, 28, 29), method.started);
+		assertEquals(2, speculation.getSpeculatedLayerCount());
+		assertEquals(1, speculation.getCancelledLayerCount());
+		assertNull(speculation.getFinishingLayer());
+	}
+}
@@ -15,6 +15,7 @@
  */
 package de.clusteval.cluster.paramOptimization;
 
+import de.clusteval.program.ParameterSet;
 import de.clusteval.run.Run;
 import de.clusteval.run.result.ParameterOptimizationResult;
 import de.clusteval.utils.AbstractClustEvalTest;
@@ -22,6 +23,8 @@ import de.clusteval.utils.plot.Plotter;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 
 /**
@@ -47,4 +50,17 @@ public class TestParameterOptimizationResult extends AbstractClustEvalTest {
         }
         System.out.println(result);
     }
+
+    @Test
+    public void testIsSubsampled() {
+        ParameterSet set = new ParameterSet();
+        set.put("T", "0.5");
+        assertFalse(ParameterOptimizationResult.isSubsampled(set));
+
+        set.put(IMultiFidelityParameterOptimizationMethod.FIDELITY, "0.1111");
+        assertTrue(ParameterOptimizationResult.isSubsampled(set));
+
+        set.put(IMultiFidelityParameterOptimizationMethod.FIDELITY, "1.0");
+        assertFalse(ParameterOptimizationResult.isSubsampled(set));
+    }
 }
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.utils.AbstractClustEvalTest;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestClusterDissimilarities extends AbstractClustEvalTest {
+
+	private static final String[] IDS = new String[]{"1", "2", "3", "4", "5"};
+
+	private static final double[][] SIMILARITIES = new double[][]{
+			{1.0, 0.9, 0.8, 0.1, 0.2}, {0.9, 1.0, 0.7, 0.3, 0.1},
+			{0.8, 0.7, 1.0, 0.4, 0.2}, {0.1, 0.3, 0.4, 1.0, 0.6},
+			{0.2, 0.1, 0.2, 0.6, 1.0}};
+
+	private static final int[] CLUSTERS = new int[]{1, 1, 1, 2, 2};
+
+	private SimilarityMatrix getMatrix() {
+		SimilarityMatrix matrix = new SimilarityMatrix(IDS, IDS.length,
+				IDS.length, NUMBER_PRECISION.DOUBLE, true);
+		for (int i = 0; i < IDS.length; i++)
+			for (int j = i; j < IDS.length; j++)
+				matrix.setSimilarity(i, j, SIMILARITIES[i][j]);
+		return matrix;
+	}
+
+	private static double averageDissimilarity(final int item,
+			final int cluster) {
+		double sum = 0.0;
+		int count = 0;
+		for (int other = 0; other < IDS.length; other++) {
+			if (other == item || CLUSTERS[other] != cluster)
+				continue;
+			sum += 1.0 - SIMILARITIES[item][other];
+			count++;
+		}
+		return sum / count;
+	}
+
+	private static double averageLinkage(final int cluster1,
+			final int cluster2) {
+		double sum = 0.0;
+		int count = 0;
+		for (int i = 0; i < IDS.length; i++)
+			for (int j = 0; j < IDS.length; j++)
+				if (i != j && CLUSTERS[i] == cluster1
+						&& CLUSTERS[j] == cluster2) {
+					sum += 1.0 - SIMILARITIES[i][j];
+					count++;
+				}
+		return sum / count;
+	}
+
+	@Test
+	public void testSilhouette() {
+		SimilarityMatrix matrix = this.getMatrix();
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), IDS, CLUSTERS);
+		ClusterDissimilarities dissimilarities = clustering
+				.getClusterDissimilarities(matrix);
+
+		double expected = 0.0;
+		for (int i = 0; i < IDS.length; i++) {
+			double a = averageDissimilarity(i, CLUSTERS[i]);
+			double b = averageDissimilarity(i, 3 - CLUSTERS[i]);
+			double s = (b - a) / Math.max(a, b);
+			assertEquals(s, dissimilarities.getSilhouette(i), 0.000001);
+			expected += s;
+		}
+		assertEquals(expected / IDS.length,
+				dissimilarities.getSilhouetteValue(), 0.000001);
+
+		// the aggregates are shared between the measures
+		assertSame(dissimilarities, clustering.toHardClustering()
+				.getClusterDissimilarities(matrix));
+	}
+
+	@Test
+	public void testDunnAndDaviesBouldin() {
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), IDS, CLUSTERS);
+		ClusterDissimilarities dissimilarities = clustering
+				.getClusterDissimilarities(this.getMatrix());
+
+		double intra1 = averageLinkage(1, 1);
+		double intra2 = averageLinkage(2, 2);
+		double inter = averageLinkage(1, 2);
+		assertEquals(inter / Math.max(intra1, intra2),
+				dissimilarities.getDunnIndex(), 0.000001);
+		assertEquals((intra1 + intra2) / inter,
+				dissimilarities.getDaviesBouldinIndex(), 0.000001);
+	}
+
+	@Test
+	public void testSingleCluster() {
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), IDS, new int[]{1, 1, 1,
+						1, 1});
+		ClusterDissimilarities dissimilarities = clustering
+				.getClusterDissimilarities(this.getMatrix());
+		assertEquals(-1.0, dissimilarities.getSilhouetteValue(), 0.0);
+		assertEquals(Double.NaN, dissimilarities.getDunnIndex(), 0.0);
+	}
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.rosuda.REngine.REXPDouble;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureR.R_INPUT;
+import de.clusteval.data.DataConfig;
+import de.clusteval.framework.repository.MyRengine;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.utils.AbstractClustEvalTest;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestClusteringQualityMeasureR extends AbstractClustEvalTest {
+
+	@Test
+	public void testClusterIds() {
+		// the rows of the matrix are ordered differently than the clustering
+		SimilarityMatrix simMatrix = new SimilarityMatrix(new String[]{"3",
+				"1", "4", "2", "5"}, new double[5][5]);
+		String[] ids = new String[]{"1", "2", "3", "4"};
+		int[] clusterIds = new int[]{1, 2, 1, 3};
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), ids, clusterIds);
+
+		int[] result = ClusteringQualityMeasureR.getClusterIds(clustering,
+				simMatrix);
+		assertEquals(5, result.length);
+		// objects missing in the clustering get no cluster
+		assertEquals(0, result[simMatrix.getIds().get("5")]);
+		for (int i = 0; i < ids.length; i++) {
+			int cluster = result[simMatrix.getIds().get(ids[i])];
+			assertTrue(cluster >= 1 && cluster <= 3);
+			for (int j = 0; j < ids.length; j++)
+				assertEquals(clusterIds[i] == clusterIds[j],
+						cluster == result[simMatrix.getIds().get(ids[j])]);
+		}
+	}
+
+	@Test
+	public void testBatchExpression() {
+		assertEquals(
+				"tryCatch(as.numeric((function() {a <- 1; a + 1})())[1], error=function(e) NA)",
+				ClusteringQualityMeasureR
+						.getBatchExpression("a <- 1; a + 1"));
+	}
+
+	@Test
+	public void testBatchCommand() throws RegisterException {
+		ClusteringQualityMeasureR first = new ExpressionMeasure(
+				this.getRepository(), "1");
+		ClusteringQualityMeasureR second = new ExpressionMeasure(
+				this.getRepository(), "stop('failed')");
+		assertEquals(
+				"c("
+						+ ClusteringQualityMeasureR.getBatchExpression("1")
+						+ ","
+						+ ClusteringQualityMeasureR
+								.getBatchExpression("stop('failed')") + ")",
+				ClusteringQualityMeasureR.getBatchCommand(Arrays.asList(
+						first, second)));
+		// a single measure is evaluated as a batch of size one
+		assertEquals(
+				"c(" + ClusteringQualityMeasureR.getBatchExpression("1") + ")",
+				ClusteringQualityMeasureR.getBatchCommand(Arrays
+						.asList(first)));
+	}
+
+	@Test
+	public void testQualityForValue() throws RegisterException {
+		ClusteringQualityMeasureR measure = new ExpressionMeasure(
+				this.getRepository(), "1");
+		assertEquals(0.5, measure.getQualityForValue(0.5).getValue(), 0.0);
+		// failed expressions evaluate to NA in a batch and yield the worst
+		// value of the measure
+		assertEquals(0.0, measure.getQualityForValue(REXPDouble.NA)
+				.getValue(), 0.0);
+		assertEquals(0.0, measure.getQualityForValue(Double.NaN).getValue(),
+				0.0);
+	}
+
+	@Test
+	public void testLegacyMeasure() throws RegisterException {
+		// measures compiled against older versions only override the helper
+		ClusteringQualityMeasureR measure = new LegacyMeasure(
+				this.getRepository());
+		assertNull(measure.getQualityExpression());
+		assertEquals(EnumSet.allOf(R_INPUT.class),
+				measure.getRequiredInputs());
+	}
+
+	/**
+	 * An R measure between 0 and 1 (higher is better) evaluating a fixed
+	 * expression.
+	 */
+	static class ExpressionMeasure extends UnitMeasure {
+
+		private final String expression;
+
+		ExpressionMeasure(final Repository repo, final String expression)
+				throws RegisterException {
+			super(repo);
+			this.expression = expression;
+		}
+
+		@Override
+		public Set<R_INPUT> getRequiredInputs() {
+			return EnumSet.noneOf(R_INPUT.class);
+		}
+
+		@Override
+		public String getQualityExpression() {
+			return this.expression;
+		}
+	}
+
+	/**
+	 * An R measure written against the previous version of
+	 * {@link ClusteringQualityMeasureR}, which calculates its quality in the
+	 * helper.
+	 */
+	static class LegacyMeasure extends UnitMeasure {
+
+		LegacyMeasure(final Repository repo) throws RegisterException {
+			super(repo);
+		}
+
+		@Override
+		public ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+				Clustering clustering, Clustering goldStandard,
+				DataConfig dataConfig, MyRengine rEngine) {
+			return ClusteringQualityMeasureValue.getForDouble(1.0);
+		}
+	}
+
+	/**
+	 * An R measure between 0 and 1 (higher is better).
+	 */
+	abstract static class UnitMeasure extends ClusteringQualityMeasureR {
+
+		UnitMeasure(final Repository repo) throws RegisterException {
+			super(repo, false, System.currentTimeMillis(), new File(
+					"ExpressionMeasure"),
+					new ClusteringQualityMeasureParameters());
+		}
+
+		@Override
+		public boolean supportsFuzzyClusterings() {
+			return false;
+		}
+
+		@Override
+		protected boolean isBetterThanHelper(
+				ClusteringQualityMeasureValue quality1,
+				ClusteringQualityMeasureValue quality2) {
+			return quality1.getValue() > quality2.getValue();
+		}
+
+		@Override
+		public double getMinimum() {
+			return 0.0;
+		}
+
+		@Override
+		public double getMaximum() {
+			return 1.0;
+		}
+
+		@Override
+		public boolean requiresGoldstandard() {
+			return false;
+		}
+
+		@Override
+		public String getAlias() {
+			return "Expression";
+		}
+	}
+}
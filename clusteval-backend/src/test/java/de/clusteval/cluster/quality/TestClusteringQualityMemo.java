@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.clusteval.utils.AbstractClustEvalTest;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestClusteringQualityMemo extends AbstractClustEvalTest {
+
+	@Test
+	public void testMemo() throws UnknownClusteringQualityMeasureException {
+		ClusteringQualityMeasure randIndex = ClusteringQualityMeasure.parseFromString(getRepository(),
+				"RandIndexClusteringQualityMeasure", new ClusteringQualityMeasureParameters());
+		ClusteringQualityMeasure vMeasure = ClusteringQualityMeasure.parseFromString(getRepository(),
+				"VMeasureClusteringQualityMeasure", new ClusteringQualityMeasureParameters());
+		List<ClusteringQualityMeasure> measures = Arrays.asList(randIndex, vMeasure);
+
+		ClusteringQualityMemo memo = ClusteringQualityMemo.getForKey("testMemo" + System.nanoTime());
+		ClusteringQualityMemo.Statistics statistics = new ClusteringQualityMemo.Statistics();
+		assertTrue(memo.get("fingerprint", measures, statistics).isEmpty());
+
+		ClusteringQualitySet qualities = new ClusteringQualitySet();
+		qualities.put(randIndex, ClusteringQualityMeasureValue.getForDouble(0.8));
+		// qualities, that could not be assessed, are not memoized
+		qualities.put(vMeasure, ClusteringQualityMeasureValue.getForDouble(Double.NaN));
+		memo.put("fingerprint", qualities);
+
+		ClusteringQualitySet memoized = memo.get("fingerprint", measures, statistics);
+		assertEquals(1, memoized.size());
+		assertEquals(0.8, memoized.get(randIndex).getValue(), 0.0);
+
+		qualities = new ClusteringQualitySet();
+		qualities.put(vMeasure, ClusteringQualityMeasureValue.getForDouble(0.5));
+		memo.put("fingerprint", qualities);
+		assertEquals(2, memo.get("fingerprint", measures, statistics).size());
+		assertEquals(1, memo.size());
+
+		assertEquals(3, statistics.getLookups());
+		assertEquals(1, statistics.getHits());
+		assertEquals(3, memo.getStatistics().getLookups());
+	}
+
+	@Test
+	public void testMemoPerKey() {
+		String key = "testMemoPerKey" + System.nanoTime();
+		assertSame(ClusteringQualityMemo.getForKey(key), ClusteringQualityMemo.getForKey(key));
+		assertTrue(ClusteringQualityMemo.getForKey(key) != ClusteringQualityMemo.getForKey(key + "2"));
+	}
+
+	@Test
+	public void testQualityKey() throws UnknownClusteringQualityMeasureException {
+		ClusteringQualityMeasure plain = ClusteringQualityMeasure.parseFromString(getRepository(),
+				"RandIndexClusteringQualityMeasure", new ClusteringQualityMeasureParameters());
+		// measures without parameters keep the keys of existing caches
+		assertEquals("RandIndexClusteringQualityMeasure", plain.getQualityKey());
+
+		ClusteringQualityMeasureParameters parameters = new ClusteringQualityMeasureParameters();
+		parameters.put("beta", "2");
+		parameters.put("alpha", "1");
+		ClusteringQualityMeasure parameterised = ClusteringQualityMeasure.parseFromString(getRepository(),
+				"RandIndexClusteringQualityMeasure", parameters);
+		assertEquals(plain, parameterised);
+		assertEquals("RandIndexClusteringQualityMeasure{alpha=1, beta=2}", parameterised.getQualityKey());
+		assertNotEquals(plain.getQualityKey(), parameterised.getQualityKey());
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.utils.AbstractClustEvalTest;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestContingencyTable extends AbstractClustEvalTest {
+
+	@Test
+	public void testPairCounts() {
+		String[] ids = new String[]{"1", "2", "3", "4", "5", "6", "7"};
+		int[] clusterIds = new int[]{1, 1, 1, 2, 2, 3, 3};
+		int[] classIds = new int[]{1, 1, 2, 2, 2, 2, 3};
+
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), ids, clusterIds);
+		Clustering goldStandard = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), ids, classIds);
+		ContingencyTable table = clustering.getContingencyTable(goldStandard);
+
+		// count all pairs
+		double tp = 0, fp = 0, fn = 0, tn = 0;
+		for (int i = 0; i < ids.length; i++) {
+			for (int j = i + 1; j < ids.length; j++) {
+				boolean sameCluster = clusterIds[i] == clusterIds[j];
+				boolean sameClass = classIds[i] == classIds[j];
+				if (sameCluster && sameClass)
+					tp++;
+				else if (sameCluster)
+					fp++;
+				else if (sameClass)
+					fn++;
+				else
+					tn++;
+			}
+		}
+
+		assertEquals(7.0, table.getTotal(), 0.0);
+		assertEquals(21.0, table.getNumberOfPairs(), 0.0);
+		assertEquals(tp, table.getTruePositives(), 0.0);
+		assertEquals(fp, table.getFalsePositives(), 0.0);
+		assertEquals(fn, table.getFalseNegatives(), 0.0);
+		assertEquals(tn, table.getTrueNegatives(), 0.0);
+
+		// the table is reused for the same pair of clusterings
+		assertSame(table, clustering.toHardClustering().getContingencyTable(
+				goldStandard));
+	}
+
+	@Test
+	public void testOnlyCommonItems() {
+		Clustering clustering = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), new String[]{"1", "2",
+						"3", "4"}, new int[]{1, 1, 2, 2});
+		Clustering goldStandard = Clustering.parseFromIntArray(
+				this.getRepository(), new File(""), new String[]{"2", "3",
+						"4", "5"}, new int[]{1, 1, 1, 1});
+		ContingencyTable table = clustering.getContingencyTable(goldStandard);
+
+		assertEquals(3.0, table.getTotal(), 0.0);
+		assertEquals(2, table.getNumberOfCells());
+		assertEquals(1.0, table.getClusterSum(0), 0.0);
+		assertEquals(2.0, table.getClusterSize(0), 0.0);
+		assertEquals(4.0, table.getClassSize(0), 0.0);
+		assertEquals(1.0, table.getTruePositives(), 0.0);
+		assertEquals(2.0, table.getFalseNegatives(), 0.0);
+		assertEquals(0.0, table.getFalsePositives(), 0.0);
+	}
+}
@@ -28,6 +28,7 @@ import org.junit.Test;
 
 import de.wiwie.wiutils.utils.SimilarityMatrix;
 import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.SimilarityStatistics;
 import ch.qos.logback.classic.Level;
 import de.clusteval.cluster.paramOptimization.IncompatibleParameterOptimizationMethodException;
 import de.clusteval.cluster.paramOptimization.InvalidOptimizationParameterException;
@@ -1684,4 +1685,51 @@ public class TestDataSet extends AbstractClustEvalTest {
 						new ArrayList<DataPreprocessor>()),
 				new ConversionStandardToInputConfiguration());
 	}
+
+	/**
+	 * The statistics of a relative dataset are stored next to it when it is
+	 * written and can be obtained afterwards without loading it again.
+	 */
+	@Test
+	public void testGetSimilarityStatisticsUnloaded()
+			throws UnknownDataSetFormatException, UnknownDataSetTypeException,
+			RegisterException, IOException,
+			InvalidDataSetFormatVersionException {
+		File file = File.createTempFile("statistics", ".SimMatrix");
+		RelativeDataSet dataSet = new RelativeDataSet(getRepository(), false,
+				System.currentTimeMillis(), file, "statistics",
+				(RelativeDataSetFormat) DataSetFormat.parseFromString(
+						getRepository(), "SimMatrixDataSetFormat"),
+				DataSetType.parseFromString(getRepository(), "PPIDataSetType"),
+				WEBSITE_VISIBILITY.HIDE);
+		try {
+			SimilarityMatrix matrix = new SimilarityMatrix(new String[]{"a",
+					"b", "c"}, new double[][]{new double[]{1.0, 0.5, 0.25},
+					new double[]{0.5, 1.0, 0.125},
+					new double[]{0.25, 0.125, 1.0}});
+			dataSet.setDataSetContent(matrix);
+			Assert.assertTrue(dataSet.writeToFile(false));
+			Assert.assertTrue(dataSet.getStatisticsFile().exists());
+			dataSet.unloadFromMemory();
+
+			SimilarityStatistics statistics = dataSet
+					.getSimilarityStatistics(NUMBER_PRECISION.DOUBLE);
+			Assert.assertFalse(dataSet.isInMemory());
+			Assert.assertEquals(0.125, statistics.getMinValue());
+			Assert.assertEquals(1.0, statistics.getMaxValue());
+			Assert.assertEquals(matrix.getMean(), statistics.getMean());
+			Assert.assertEquals(3, statistics.getNumberOfIds());
+
+			// statistics of another version of the dataset file are outdated,
+			// even if the statistics file is newer
+			Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+			Assert.assertFalse(dataSet.hasCurrentStatisticsFile());
+			Assert.assertEquals(0.125, dataSet.getSimilarityStatistics()
+					.getMinValue());
+			Assert.assertTrue(dataSet.hasCurrentStatisticsFile());
+		} finally {
+			dataSet.getStatisticsFile().delete();
+			file.delete();
+		}
+	}
 }
@@ -0,0 +1,130 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.data.distance;
+
+import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.utils.AbstractClustEvalTest;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestDistanceMeasureJava extends AbstractClustEvalTest {
+
+    /**
+     * A spearman correlation distance, which is symmetric or not.
+     */
+    private static class SpearmanDistance extends DistanceMeasureJava {
+
+        private final boolean symmetric;
+
+        SpearmanDistance(Repository repository, boolean symmetric)
+                throws RegisterException {
+            super(repository, false, System.currentTimeMillis(), new File(
+                    "SpearmanDistance"));
+            this.symmetric = symmetric;
+        }
+
+        @Override
+        protected double[][] prepare(double[][] matrix) {
+            return center(rank(matrix));
+        }
+
+        @Override
+        protected double getDistanceHelper(double[] point1, double[] point2) {
+            return 1.0 - (correlation(point1, point2) + 1) / 2;
+        }
+
+        @Override
+        public boolean supportsMatrix() {
+            return true;
+        }
+
+        @Override
+        public boolean isSymmetric() {
+            return symmetric;
+        }
+    }
+
+    @Test
+    public void testRank() {
+        assertArrayEquals(new double[]{1.5, 3, 1.5, 4},
+                DistanceMeasureJava.rank(new double[][]{new double[]{1, 2,
+                    1, 5}})[0], 0.0);
+    }
+
+    @Test
+    public void testSpearman() throws RegisterException, InterruptedException {
+        DistanceMeasureJava measure = new SpearmanDistance(getRepository(), true);
+        ConversionInputToStandardConfiguration config = new ConversionInputToStandardConfiguration(
+                measure, NUMBER_PRECISION.FLOAT,
+                new ArrayList<>(),
+                new ArrayList<>());
+
+        double[][] matrix = new double[][]{new double[]{1, 2, 1},
+        new double[]{4, 5, 6}, new double[]{7, 8, 9},
+        new double[]{7, 6, 5}};
+
+        double[][] result = measure.getDistances(config, matrix).toArray();
+
+        assertArrayEquals(new double[][]{new double[]{0, 0.5, 0.5, 0.5},
+        new double[]{0.5, 0, 0, 1}, new double[]{0.5, 0, 0, 1},
+        new double[]{0.5, 1, 1, 0}}, result);
+    }
+
+    @Test
+    public void testTiles() throws RegisterException, InterruptedException {
+        // several tiles, the last ones are incomplete
+        Random random = new Random(42);
+        double[][] matrix = new double[2 * DistanceMeasureJava.TILE_SIZE + 7][5];
+        for (double[] row : matrix) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextDouble();
+            }
+        }
+
+        for (boolean symmetric : new boolean[]{true, false}) {
+            DistanceMeasureJava measure = new SpearmanDistance(getRepository(),
+                    symmetric);
+            ConversionInputToStandardConfiguration config = new ConversionInputToStandardConfiguration(
+                    measure, NUMBER_PRECISION.DOUBLE,
+                    new ArrayList<>(),
+                    new ArrayList<>());
+            SimilarityMatrix result = measure.getDistances(config, matrix);
+            assertEquals(symmetric, result.isSymmetric());
+
+            double sum = 0.0;
+            for (int i = 0; i < matrix.length; i++) {
+                for (int j = 0; j < matrix.length; j++) {
+                    double expected = measure.getDistance(matrix[i],
+                            matrix[j]);
+                    assertEquals(expected, result.getSimilarity(i, j),
+                            0.000001);
+                    sum += expected;
+                }
+            }
+            assertEquals(sum / (matrix.length * matrix.length),
+                    result.getMean(), 0.000001);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestMyRengine {
+
+    @Test
+    public void testContentKey() {
+        double[][] matrix = new double[][]{new double[]{1, 2, 3},
+        new double[]{4, 5, 6}};
+        double[][] copy = new double[][]{new double[]{1, 2, 3},
+        new double[]{4, 5, 6}};
+        assertEquals(MyRengine.getContentKey(matrix),
+                MyRengine.getContentKey(copy));
+
+        copy[1][2] = 6.000001;
+        assertNotEquals(MyRengine.getContentKey(matrix),
+                MyRengine.getContentKey(copy));
+
+        // same values, different dimensions
+        assertNotEquals(MyRengine.getContentKey(matrix),
+                MyRengine.getContentKey(new double[][]{new double[]{1, 2},
+                    new double[]{3, 4}, new double[]{5, 6}}));
+    }
+
+    @Test
+    public void testContentKeyWithoutArray() {
+        double[][] matrix = new double[][]{new double[]{1, 2, 3},
+        new double[]{4, 5, 6}};
+        // the same key is computed without materialising the array
+        assertEquals(MyRengine.getContentKey(matrix),
+                MyRengine.getContentKey(2, 3, (i, j) -> 3 * i + j + 1));
+        assertNotEquals(MyRengine.getContentKey(matrix),
+                MyRengine.getContentKey(2, 3, (i, j) -> 6 - 3 * i - j));
+    }
+
+    @Test
+    public void testColumnMajorTransfer() throws IOException {
+        // larger than the buffer, such that doubles are split between reads
+        Random random = new Random(3);
+        double[][] matrix = new double[1001][131];
+        for (double[] row : matrix) {
+            for (int j = 0; j < row.length; j++) {
+                row[j] = random.nextGaussian();
+            }
+        }
+        File file = File.createTempFile("clusteval", ".bin");
+        try {
+            MyRengine.writeColumnMajor(file, matrix);
+            assertEquals(8L * 1001 * 131, file.length());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                // the second entry of the first column, little endian
+                raf.seek(8);
+                assertEquals(matrix[1][0], Double.longBitsToDouble(Long
+                        .reverseBytes(raf.readLong())), 0.0);
+            }
+            double[][] read = MyRengine.readColumnMajor(file, 1001, 131);
+            for (int i = 0; i < matrix.length; i++) {
+                assertArrayEquals(matrix[i], read[i], 0.0);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDeleteStaleTransferFiles() throws IOException {
+        File directory = Files.createTempDirectory("transfer").toFile();
+        try {
+            File stale = new File(directory,
+                    MyRengine.TRANSFER_FILE_PREFIX + "1.bin");
+            File current = new File(directory,
+                    MyRengine.TRANSFER_FILE_PREFIX + "2.bin");
+            File other = new File(directory, "other.bin");
+            for (File file : new File[]{stale, current, other}) {
+                assertTrue(file.createNewFile());
+            }
+            // written before this JVM was started
+            stale.setLastModified(ManagementFactory.getRuntimeMXBean()
+                    .getStartTime() - 60000);
+            other.setLastModified(0);
+
+            assertEquals(1, MyRengine.deleteStaleTransferFiles(directory));
+            assertFalse(stale.exists());
+            assertTrue(current.exists());
+            assertTrue(other.exists());
+            assertEquals(0, MyRengine.deleteStaleTransferFiles(null));
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+import de.clusteval.framework.BackendServerConfig;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.rosuda.REngine.Rserve.RserveException;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestRengineConnectionPool {
+
+    @Test
+    public void testConfig() {
+        BackendServerConfig config = new BackendServerConfig();
+        config.setRservePort(6312);
+        assertArrayEquals(new int[]{6312}, config.getRservePorts());
+        config.setRservePorts(new int[]{6312, 6313});
+        assertArrayEquals(new int[]{6312, 6313}, config.getRservePorts());
+        assertEquals(2 * config.getNumberOfThreads() + 4,
+                config.getRservePoolSize());
+        config.setRservePoolSize(3);
+        assertEquals(3, config.getRservePoolSize());
+    }
+
+    @Test
+    public void testFailedConnectionIsNotLeased() {
+        BackendServerConfig config = new BackendServerConfig();
+        // no Rserve is listening on this port
+        config.setRservePort(1);
+        config.setRservePoolSize(1);
+        RengineConnectionPool pool = new RengineConnectionPool(config);
+        for (int i = 0; i < 2; i++) {
+            try {
+                pool.get(Thread.currentThread());
+                fail();
+            } catch (RserveException e) {
+                // the permit is returned, otherwise the second attempt blocks
+                assertEquals(0, pool.getNumberOfLeased());
+            }
+        }
+        pool.release(Thread.currentThread());
+        assertEquals(0, pool.getNumberOfIdle());
+    }
+}
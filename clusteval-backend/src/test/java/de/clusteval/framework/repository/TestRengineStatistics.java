@@ -0,0 +1,113 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.framework.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestRengineStatistics {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, RengineStatistics.getBucket(999));
+        assertEquals(1, RengineStatistics.getBucket(1000));
+        assertEquals(2, RengineStatistics.getBucket(3999));
+        assertEquals(11, RengineStatistics.getBucket(1024000));
+        assertEquals(RengineStatistics.NUMBER_OF_BUCKETS - 1,
+                RengineStatistics.getBucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testWriteToFile() throws IOException {
+        RengineStatistics statistics = new RengineStatistics();
+        statistics.record("ProgramA", "eval", 2000000, 100, false);
+        Map<String, long[]> snapshot = statistics.snapshot();
+
+        statistics.record("ProgramA", "eval", 3000000, 200, true);
+        statistics.record("ProgramA", "eval", 1000000, 50, false);
+        statistics.record("MeasureB", "assign", 10000000, 8000, false);
+
+        File file = File.createTempFile("clusteval", ".tsv");
+        try {
+            statistics.writeToFile(file, snapshot);
+            List<String> lines = Files.readAllLines(file.toPath());
+            assertEquals(3, lines.size());
+            // the call sites with the highest total time first
+            assertEquals(
+                    "MeasureB\tassign\t1\t0\t8000\t10.000\t10.000\t16.384\t16.384",
+                    lines.get(1));
+            assertEquals(
+                    "ProgramA\teval\t2\t1\t250\t4.000\t2.000\t1.024\t4.096",
+                    lines.get(2));
+        } finally {
+            file.delete();
+        }
+        assertEquals(4, statistics.getNumberOfCalls());
+        assertEquals(8350, statistics.getBytesTransferred());
+    }
+
+    @Test
+    public void testAttributeCurrentThread() throws InterruptedException {
+        RengineStatistics global = new RengineStatistics();
+        RengineStatistics run1 = new RengineStatistics();
+        RengineStatistics run2 = new RengineStatistics();
+
+        assertNull(global.attributeCurrentThread(run1));
+        global.record("ProgramA", "eval", 1000, 8, false);
+
+        // calls of other threads are attributed to their own run
+        Thread other = new Thread(() -> {
+            global.attributeCurrentThread(run2);
+            global.record("ProgramB", "eval", 1000, 16, false);
+            global.record("ProgramB", "eval", 1000, 16, false);
+            global.attributeCurrentThread(null);
+            global.record("ProgramC", "eval", 1000, 32, false);
+        });
+        other.start();
+        other.join();
+
+        assertSame(run1, global.attributeCurrentThread(null));
+        global.record("ProgramA", "eval", 1000, 8, false);
+
+        assertEquals(5, global.getNumberOfCalls());
+        assertEquals(1, run1.getNumberOfCalls());
+        assertEquals(8, run1.getBytesTransferred());
+        assertEquals(2, run2.getNumberOfCalls());
+        assertEquals(32, run2.getBytesTransferred());
+    }
+
+    @Test
+    public void testJMX() throws JMException {
+        RengineStatistics.getInstance().record(
+                TestRengineStatistics.class.getSimpleName(), "eval", 1000, 8,
+                false);
+        long calls = (Long) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(RengineStatistics.OBJECT_NAME),
+                        "NumberOfCalls");
+        assertEquals(RengineStatistics.getInstance().getNumberOfCalls(), calls);
+    }
+}
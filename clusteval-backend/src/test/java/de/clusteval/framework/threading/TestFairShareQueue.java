@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.framework.threading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestFairShareQueue {
+
+	private static FairShareQueue.Task<Void> task(final String clientId,
+			final String runName) {
+		return new FairShareQueue.Task<Void>(new Runnable() {
+
+			@Override
+			public void run() {
+			}
+		}, null, clientId, runName);
+	}
+
+	private static String take(final FairShareQueue queue)
+			throws InterruptedException {
+		FairShareQueue.Task<?> task = (FairShareQueue.Task<?>) queue.poll(0,
+				TimeUnit.MILLISECONDS);
+		return task.clientId + ":" + task.runName;
+	}
+
+	@Test
+	public void testClientsShareFairly() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		// a large run of one client is queued first and already started
+		for (int i = 0; i < 100; i++)
+			queue.offer(task("a", "large"));
+		assertEquals("a:large", take(queue));
+
+		// the other clients start at the share of the active client
+		queue.offer(task("b", "small"));
+		queue.offer(task("b", "small"));
+		queue.offer(task("c", "small"));
+		assertEquals("a:large", take(queue));
+		assertEquals("b:small", take(queue));
+		assertEquals("c:small", take(queue));
+		assertEquals("a:large", take(queue));
+		assertEquals("b:small", take(queue));
+		assertEquals("a:large", take(queue));
+		assertEquals(96, queue.size());
+	}
+
+	@Test
+	public void testWeights() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		queue.setClientWeight("a", 3.0);
+		for (int i = 0; i < 40; i++) {
+			queue.offer(task("a", "run"));
+			queue.offer(task("b", "run"));
+		}
+		int a = 0;
+		for (int i = 0; i < 40; i++)
+			if (take(queue).startsWith("a"))
+				a++;
+		assertEquals(30, a);
+	}
+
+	@Test
+	public void testRunsWithinClient() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		queue.setRunWeight("r2", 2.0);
+		for (int i = 0; i < 30; i++) {
+			queue.offer(task("a", "r1"));
+			queue.offer(task("a", "r2"));
+		}
+		int r2 = 0;
+		for (int i = 0; i < 30; i++)
+			if (take(queue).endsWith("r2"))
+				r2++;
+		assertEquals(20, r2);
+	}
+
+	@Test
+	public void testPriority() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		queue.setRunPriority("urgent", 1);
+		queue.offer(task("a", "normal"));
+		queue.offer(task("a", "normal"));
+		queue.offer(task("b", "urgent"));
+		queue.offer(task("b", "urgent"));
+		assertEquals("b:urgent", take(queue));
+		assertEquals("b:urgent", take(queue));
+		assertEquals("a:normal", take(queue));
+		assertEquals("a:normal", take(queue));
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRemove() {
+		FairShareQueue queue = new FairShareQueue();
+		FairShareQueue.Task<Void> t1 = task("a", "run");
+		FairShareQueue.Task<Void> t2 = task("a", "run");
+		queue.offer(t1);
+		queue.offer(t2);
+		assertTrue(queue.remove(t1));
+		assertEquals(1, queue.size());
+		List<Runnable> drained = new ArrayList<Runnable>();
+		assertEquals(1, queue.drainTo(drained));
+		assertEquals(t2, drained.get(0));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testExecutor() throws InterruptedException {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0L,
+				TimeUnit.MILLISECONDS, new FairShareQueue());
+		final List<Integer> executed = new ArrayList<Integer>();
+		for (int i = 0; i < 10; i++) {
+			final int n = i;
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					synchronized (executed) {
+						executed.add(n);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(10, executed.size());
+	}
+
+	@Test
+	public void testCompletion() throws Exception {
+		FairShareQueue.Task<String> task = new FairShareQueue.Task<String>(
+				() -> "result", "client", "run");
+		final List<String> completed = new ArrayList<String>();
+		CompletableFuture<Void> stage = task.getCompletion().thenAccept(
+				r -> completed.add(r));
+		assertTrue(completed.isEmpty());
+		task.run();
+		stage.get(10, TimeUnit.SECONDS);
+		assertEquals("[result]", completed.toString());
+
+		FairShareQueue.Task<String> failing = new FairShareQueue.Task<String>(
+				() -> {
+					throw new IllegalStateException();
+				}, "client", "run");
+		failing.run();
+		assertTrue(failing.getCompletion().isCompletedExceptionally());
+		assertTrue(failing.getCompletion().handle((r, t) -> t).get()
+				instanceof IllegalStateException);
+
+		FairShareQueue.Task<String> cancelled = new FairShareQueue.Task<String>(
+				() -> "result", "client", "run");
+		cancelled.cancel(true);
+		assertTrue(cancelled.getCompletion().isCancelled());
+	}
+
+	private static FairShareQueue.Task<Void> task(final String clientId,
+			final String runName, final long memory) {
+		FairShareQueue.Task<Void> task = task(clientId, runName);
+		task.setMemory(memory);
+		return task;
+	}
+
+	@Test
+	public void testMemoryBudget() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		queue.setMemoryBudget(100);
+		FairShareQueue.Task<Void> heavy1 = task("c1", "heavy", 60);
+		FairShareQueue.Task<Void> heavy2 = task("c1", "heavy", 60);
+		FairShareQueue.Task<Void> light = task("c2", "light", 30);
+		queue.offer(heavy1);
+		queue.offer(heavy2);
+		queue.offer(light);
+
+		assertEquals(heavy1, queue.poll());
+		assertEquals(60, queue.getReservedMemory());
+		// the second heavy task is deferred in favour of the light one
+		assertEquals(light, queue.poll());
+		assertEquals(90, queue.getReservedMemory());
+		assertNull(queue.poll());
+		assertEquals(1, queue.size());
+
+		heavy1.run();
+		light.run();
+		assertEquals(0, queue.getReservedMemory());
+		assertEquals(heavy2, queue.poll());
+		heavy2.cancel(false);
+		assertEquals(0, queue.getReservedMemory());
+	}
+
+	@Test
+	public void testMemoryBudgetDeferrals() throws InterruptedException {
+		FairShareQueue queue = new FairShareQueue();
+		queue.setMemoryBudget(100);
+		FairShareQueue.Task<Void> running = task("c1", "r1", 50);
+		queue.offer(running);
+		assertEquals(running, queue.poll());
+
+		FairShareQueue.Task<Void> heavy = task("c1", "r1", 80);
+		queue.offer(heavy);
+		for (int i = 0; i < FairShareQueue.MAX_DEFERRALS; i++) {
+			FairShareQueue.Task<Void> light = task("c2", "r2", 10);
+			queue.offer(light);
+			assertEquals(light, queue.poll());
+			light.run();
+		}
+		// the heavy task was deferred too often
+		queue.offer(task("c2", "r2", 10));
+		assertNull(queue.poll());
+
+		running.run();
+		assertEquals(heavy, queue.poll());
+	}
+
+	/**
+	 * Run r1 takes three tasks and runs empty, then r2 starts and takes one
+	 * task, then r1 queues two tasks again.
+	 */
+	private static List<String> takeAfterIdleRun(final FairShareQueue queue,
+			final long[] time) throws InterruptedException {
+		for (int i = 0; i < 3; i++)
+			queue.offer(task("a", "r1"));
+		for (int i = 0; i < 3; i++)
+			take(queue);
+		time[0] += 1000;
+		for (int i = 0; i < 3; i++)
+			queue.offer(task("a", "r2"));
+		List<String> result = new ArrayList<String>();
+		result.add(take(queue));
+		queue.offer(task("a", "r1"));
+		queue.offer(task("a", "r1"));
+		while (!queue.isEmpty())
+			result.add(take(queue));
+		return result;
+	}
+
+	private static FairShareQueue queue(final long[] time) {
+		return new FairShareQueue() {
+
+			@Override
+			protected long now() {
+				return TimeUnit.MILLISECONDS.toNanos(time[0]);
+			}
+		};
+	}
+
+	@Test
+	public void testIdleGracePeriod() throws InterruptedException {
+		long[] time = new long[1];
+		// within the grace period r1 keeps the share of the tasks it took
+		FairShareQueue queue = queue(time);
+		assertEquals("[a:r2, a:r2, a:r2, a:r1, a:r1]",
+				takeAfterIdleRun(queue, time).toString());
+
+		// otherwise r1 starts over at the share of r2
+		time[0] = 0;
+		queue = queue(time);
+		queue.setIdleGracePeriod(500);
+		assertEquals("[a:r2, a:r2, a:r1, a:r2, a:r1]",
+				takeAfterIdleRun(queue, time).toString());
+
+		time[0] = 0;
+		queue = queue(time);
+		queue.setIdleGracePeriod(0);
+		assertEquals("[a:r2, a:r2, a:r1, a:r2, a:r1]",
+				takeAfterIdleRun(queue, time).toString());
+	}
+}
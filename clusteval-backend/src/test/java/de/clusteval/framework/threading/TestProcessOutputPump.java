@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.framework.threading;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.clusteval.framework.threading.ProcessOutputPump.ProcessOutput;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestProcessOutputPump {
+
+	private static String read(final File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()),
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testPump() throws IOException, InterruptedException {
+		File log = File.createTempFile("pump", ".log");
+		log.deleteOnExit();
+		Process process = new ProcessBuilder("sh", "-c",
+				"echo out; echo err 1>&2").start();
+		ProcessOutput output = ProcessOutputPump.getInstance().pump(process,
+				log, Long.MAX_VALUE);
+		assertTrue(output.awaitFinished(10, TimeUnit.SECONDS));
+		assertFalse(output.isTruncated());
+		String content = read(log);
+		assertTrue(content.contains("out\n"));
+		assertTrue(content.contains("err\n"));
+	}
+
+	@Test
+	public void testPumpLimit() throws IOException, InterruptedException {
+		File log = File.createTempFile("pump", ".log");
+		log.deleteOnExit();
+		Process process = new ProcessBuilder("sh", "-c",
+				"i=0; while [ $i -lt 1000 ]; do echo 0123456789; i=$((i+1)); done")
+				.start();
+		ProcessOutput output = ProcessOutputPump.getInstance().pump(process,
+				log, 100);
+		assertTrue(output.awaitFinished(10, TimeUnit.SECONDS));
+		assertTrue(output.isTruncated());
+		String content = read(log);
+		assertTrue(content.startsWith("0123456789\n0123456789\n"));
+		assertTrue(content.contains("[output truncated after 100 bytes]"));
+		assertEquals(100, content.indexOf("\n[output truncated"));
+	}
+
+	@Test
+	public void testWatch() throws IOException, InterruptedException {
+		File log = File.createTempFile("pump", ".log");
+		log.deleteOnExit();
+		Process process = new ProcessBuilder("sh", "-c", "echo out")
+				.redirectErrorStream(true)
+				.redirectOutput(Redirect.appendTo(log)).start();
+		ProcessOutput output = ProcessOutputPump.getInstance().watch(process,
+				log, Long.MAX_VALUE);
+		assertTrue(output.awaitFinished(10, TimeUnit.SECONDS));
+		assertEquals("out\n", read(log));
+	}
+
+	@Test
+	public void testPumpContinuesAfterRuntimeException() throws IOException,
+			InterruptedException {
+		File brokenLog = File.createTempFile("pump", ".log");
+		brokenLog.deleteOnExit();
+		Process brokenProcess = new ProcessBuilder("sh", "-c", "sleep 5")
+				.start();
+		ProcessOutputPump pump = ProcessOutputPump.getInstance();
+		ProcessOutput broken = pump.register(new ProcessOutput(brokenProcess,
+				brokenLog, Long.MAX_VALUE, null) {
+			@Override
+			protected boolean poll(final byte[] buffer) {
+				throw new IllegalStateException("broken");
+			}
+		});
+		try {
+			assertTrue(broken.awaitFinished(10, TimeUnit.SECONDS));
+			assertTrue(pump.isAlive());
+
+			File log = File.createTempFile("pump", ".log");
+			log.deleteOnExit();
+			Process process = new ProcessBuilder("sh", "-c", "echo out")
+					.start();
+			ProcessOutput output = ProcessOutputPump.getInstance().pump(
+					process, log, Long.MAX_VALUE);
+			assertTrue(output.awaitFinished(10, TimeUnit.SECONDS));
+			assertEquals("out\n", read(log));
+		} finally {
+			brokenProcess.destroy();
+		}
+	}
+
+	@Test
+	public void testRestartDeadPump() throws IOException, InterruptedException {
+		ProcessOutputPump pump = ProcessOutputPump.getInstance();
+		pump.interrupt();
+		pump.join(10000);
+		assertFalse(pump.isAlive());
+
+		ProcessOutputPump restarted = ProcessOutputPump.getInstance();
+		assertNotSame(pump, restarted);
+		assertTrue(restarted.isAlive());
+
+		File log = File.createTempFile("pump", ".log");
+		log.deleteOnExit();
+		Process process = new ProcessBuilder("sh", "-c", "echo out").start();
+		ProcessOutput output = restarted.pump(process, log, Long.MAX_VALUE);
+		assertTrue(output.awaitFinished(10, TimeUnit.SECONDS));
+		assertEquals("out\n", read(log));
+	}
+}
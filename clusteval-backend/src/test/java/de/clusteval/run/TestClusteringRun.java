@@ -5,6 +5,7 @@ package de.clusteval.run;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
 
 import junit.framework.Assert;
 
@@ -152,4 +153,33 @@ public class TestClusteringRun extends AbstractClustEvalTest {
 			newRepo.terminateSupervisorThread();
 		}
 	}
+
+	/**
+	 * The scheduling options of the run file have to survive the parser chain
+	 * of execution runs.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void testParseSchedulingOptions() throws Exception {
+		File runFile = new File("testCaseRepository/runs/testSchedulingOptions.run").getAbsoluteFile();
+		try {
+			try (PrintWriter writer = new PrintWriter(runFile)) {
+				writer.println("programConfig = MCL_1");
+				writer.println("dataConfig = sfld_1");
+				writer.println("qualityMeasures = TransClustF2ClusteringQualityMeasure");
+				writer.println("mode = clustering");
+				writer.println("schedulingWeight = 2.5");
+				writer.println("schedulingPriority = 3");
+				writer.println("useClusteringCache = false");
+			}
+			ClusteringRun run = Parser.parseFromFile(ClusteringRun.class, runFile);
+
+			Assert.assertEquals(2.5, run.getSchedulingWeight());
+			Assert.assertEquals(3, run.getSchedulingPriority());
+			Assert.assertFalse(run.isUseClusteringCache());
+		} finally {
+			runFile.delete();
+		}
+	}
 }
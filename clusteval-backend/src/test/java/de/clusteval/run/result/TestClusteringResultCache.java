@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.run.result;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestClusteringResultCache {
+
+	protected File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		this.directory = Files.createTempDirectory("cache").toFile();
+		this.directory.deleteOnExit();
+	}
+
+	private static File createFile(final String content) throws IOException {
+		File file = File.createTempFile("clustering", ".conv");
+		file.deleteOnExit();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static String read(final File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()),
+				StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testKey() {
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		params.put("T", "0.5");
+		params.put("k", "3");
+		Map<String, String> reordered = new LinkedHashMap<String, String>();
+		reordered.put("k", "3");
+		reordered.put("T", "0.5");
+		String key = ClusteringResultCache.getKey("inputs", params);
+		assertEquals(key, ClusteringResultCache.getKey("inputs", reordered));
+		assertNotEquals(key, ClusteringResultCache.getKey("other", params));
+
+		reordered.put("T", "0.6");
+		assertNotEquals(key, ClusteringResultCache.getKey("inputs", reordered));
+	}
+
+	@Test
+	public void testDigest() throws IOException {
+		ClusteringResultCache cache = new ClusteringResultCache(
+				this.directory, Long.MAX_VALUE);
+		File file1 = createFile("1\t2\t0.5\n");
+		File file2 = createFile("1\t2\t0.5\n");
+		File file3 = createFile("1\t2\t0.6\n");
+		assertEquals(cache.getDigest(file1), cache.getDigest(file2));
+		assertNotEquals(cache.getDigest(file1), cache.getDigest(file3));
+	}
+
+	@Test
+	public void testGetAndPut() throws IOException {
+		ClusteringResultCache cache = new ClusteringResultCache(
+				this.directory, Long.MAX_VALUE);
+		File target = File.createTempFile("clustering", ".conv");
+		target.deleteOnExit();
+		assertFalse(cache.get("key", target));
+
+		File clustering = createFile("T\tClustering\n0.5\t1:1.0;2:1.0\n");
+		cache.put("key", clustering);
+		assertTrue(cache.get("key", target));
+		assertEquals(read(clustering), read(target));
+
+		Map<String, String> qualities = new HashMap<String, String>();
+		qualities.put("SilhouetteValueRClusteringQualityMeasure", "0.7");
+		cache.putQualities("key", qualities);
+		qualities = new HashMap<String, String>();
+		qualities.put("TransClustF2ClusteringQualityMeasure", "NT");
+		cache.putQualities("key", qualities);
+		qualities = cache.getQualities("key");
+		assertEquals(2, qualities.size());
+		assertEquals("0.7",
+				qualities.get("SilhouetteValueRClusteringQualityMeasure"));
+		assertEquals("NT", qualities.get("TransClustF2ClusteringQualityMeasure"));
+
+		// qualities of clusterings, that are not cached, are not stored
+		cache.putQualities("other", qualities);
+		assertTrue(cache.getQualities("other").isEmpty());
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		File clustering = createFile(new String(new char[100]).replace('\0',
+				'x'));
+		ClusteringResultCache cache = new ClusteringResultCache(
+				this.directory, 250);
+		cache.put("key1", clustering);
+		cache.put("key2", clustering);
+		assertEquals(200, cache.getSize());
+
+		// key1 is used more recently than key2
+		new File(this.directory, "key2.conv")
+				.setLastModified(System.currentTimeMillis() - 10000);
+		File target = File.createTempFile("clustering", ".conv");
+		target.deleteOnExit();
+		assertTrue(cache.get("key1", target));
+
+		cache.put("key3", clustering);
+		assertEquals(200, cache.getSize());
+		assertTrue(cache.get("key1", target));
+		assertFalse(cache.get("key2", target));
+		assertTrue(cache.get("key3", target));
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ * 
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ * 
+ */
+package de.clusteval.run.runnable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.parse.BinarySimFileMatrixParser;
+
+/**
+ * @author Christian Wiwie
+ * 
+ */
+public class TestExecutionIterationRunnable {
+
+	protected File dataSetFile;
+
+	@Before
+	public void setUp() throws IOException {
+		dataSetFile = File.createTempFile("dataSet", ".SimMatrix");
+	}
+
+	@After
+	public void tearDown() {
+		new File(dataSetFile.getAbsolutePath() + ".bin").delete();
+		dataSetFile.delete();
+	}
+
+	protected void writeBinary(final File file, final int n,
+			final NUMBER_PRECISION filePrecision, final boolean isSymmetric)
+			throws IOException {
+		BinarySimFileMatrixParser.writeToFile(new SimilarityMatrix(null, n, n,
+				filePrecision, isSymmetric), file,
+				"dataSetFormat = BinarySimMatrixDataSetFormat");
+	}
+
+	@Test
+	public void testEstimatedSimilarityMatrixSizeBinary() throws IOException {
+		int n = 40;
+		for (NUMBER_PRECISION filePrecision : new NUMBER_PRECISION[]{
+				NUMBER_PRECISION.DOUBLE, NUMBER_PRECISION.FLOAT}) {
+			for (boolean isSymmetric : new boolean[]{true, false}) {
+				writeBinary(dataSetFile, n, filePrecision, isSymmetric);
+				Assert.assertEquals(n, ExecutionIterationRunnable
+						.getEstimatedNumberOfObjects(dataSetFile));
+
+				long entries = isSymmetric ? n * (n + 1) / 2 : n * n;
+				Assert.assertEquals(entries * 8, ExecutionIterationRunnable
+						.getEstimatedSimilarityMatrixSize(dataSetFile,
+								NUMBER_PRECISION.DOUBLE));
+				Assert.assertEquals(entries * 4, ExecutionIterationRunnable
+						.getEstimatedSimilarityMatrixSize(dataSetFile,
+								NUMBER_PRECISION.FLOAT));
+				// short similarities are stored in int backends
+				Assert.assertEquals(entries * 4, ExecutionIterationRunnable
+						.getEstimatedSimilarityMatrixSize(dataSetFile,
+								NUMBER_PRECISION.SHORT));
+				Assert.assertEquals(0, ExecutionIterationRunnable
+						.getEstimatedSimilarityMatrixSize(dataSetFile,
+								NUMBER_PRECISION.MAPPED_DOUBLE));
+				Assert.assertEquals(0, ExecutionIterationRunnable
+						.getEstimatedSimilarityMatrixSize(dataSetFile,
+								NUMBER_PRECISION.MAPPED_FLOAT));
+			}
+		}
+	}
+
+	@Test
+	public void testEstimatedSimilarityMatrixSizeBinaryCopy()
+			throws IOException {
+		int n = 25;
+		try (PrintWriter writer = new PrintWriter(dataSetFile)) {
+			writer.println("// dataSetFormat = SimMatrixDataSetFormat");
+		}
+		writeBinary(new File(dataSetFile.getAbsolutePath() + ".bin"), n,
+				NUMBER_PRECISION.FLOAT, true);
+
+		Assert.assertEquals(n,
+				ExecutionIterationRunnable.getEstimatedNumberOfObjects(dataSetFile));
+		Assert.assertEquals(n * (n + 1) / 2 * 8, ExecutionIterationRunnable
+				.getEstimatedSimilarityMatrixSize(dataSetFile,
+						NUMBER_PRECISION.DOUBLE));
+	}
+
+	@Test
+	public void testEstimatedSimilarityMatrixSizeText() throws IOException {
+		int n = 30;
+		// the text file has the average size of a text file of n objects
+		try (PrintWriter writer = new PrintWriter(dataSetFile)) {
+			for (long i = 0; i < n * n
+					* ExecutionIterationRunnable.BYTES_PER_SIMILARITY_IN_TEXT_FILE; i++)
+				writer.print('0');
+		}
+		Assert.assertEquals(n,
+				ExecutionIterationRunnable.getEstimatedNumberOfObjects(dataSetFile));
+		// the text parser allocates full matrices
+		Assert.assertEquals(n * n * 8, ExecutionIterationRunnable
+				.getEstimatedSimilarityMatrixSize(dataSetFile,
+						NUMBER_PRECISION.DOUBLE));
+		Assert.assertEquals(n * n * 4, ExecutionIterationRunnable
+				.getEstimatedSimilarityMatrixSize(dataSetFile,
+						NUMBER_PRECISION.SHORT));
+	}
+}
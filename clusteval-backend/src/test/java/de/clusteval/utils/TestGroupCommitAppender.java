@@ -0,0 +1,153 @@
+/**
+ * *****************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ *****************************************************************************
+ */
+package de.clusteval.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestGroupCommitAppender {
+
+    private static File createFile(final String content) throws IOException {
+        File file = File.createTempFile("appender", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String read(final File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testRepair() throws IOException {
+        File file = createFile("header\n1\t0.5\n2\t0.");
+        assertTrue(GroupCommitAppender.repair(file));
+        assertEquals("header\n1\t0.5\n", read(file));
+        assertFalse(GroupCommitAppender.repair(file));
+
+        file = createFile("incomplete header");
+        assertTrue(GroupCommitAppender.repair(file));
+        assertEquals("", read(file));
+    }
+
+    @Test
+    public void testBatches() throws IOException, InterruptedException {
+        File file = createFile("header\n");
+        GroupCommitAppender appender = new GroupCommitAppender(file, 100,
+                60000, GroupCommitAppender.SYNC_POLICY.NONE);
+        appender.append("1\t0.5\n");
+        appender.append("2\t0.6\n");
+        // neither the size nor the time threshold is reached
+        assertEquals("header\n", read(file));
+        assertEquals(0, appender.getNumberOfCommits());
+        appender.close();
+        assertEquals("header\n1\t0.5\n2\t0.6\n", read(file));
+        assertEquals(1, appender.getNumberOfCommits());
+    }
+
+    @Test
+    public void testDelay() throws IOException, InterruptedException {
+        File file = createFile("");
+        GroupCommitAppender appender = new GroupCommitAppender(file, 1 << 16,
+                10, GroupCommitAppender.SYNC_POLICY.BATCH);
+        appender.append("1\n");
+        long start = System.currentTimeMillis();
+        while (appender.getNumberOfCommits() == 0
+                && System.currentTimeMillis() - start < 10000) {
+            Thread.sleep(10);
+        }
+        assertEquals("1\n", read(file));
+        appender.close();
+    }
+
+    @Test
+    public void testConcurrentAppends() throws IOException,
+            InterruptedException {
+        File file = createFile("");
+        final GroupCommitAppender appender = new GroupCommitAppender(file, 64,
+                5, GroupCommitAppender.SYNC_POLICY.NONE);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    appender.append(thread + "\t" + i + "\n");
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        appender.close();
+
+        Set<String> lines = new HashSet<>(Files.readAllLines(file.toPath()));
+        assertEquals(8 * 500, lines.size());
+        assertTrue(lines.contains("7\t499"));
+        assertTrue(appender.getNumberOfCommits() > 1);
+    }
+
+    @Test
+    public void testFailedCommit() throws IOException {
+        File file = createFile("header\n");
+        final int[] failures = new int[]{1};
+        GroupCommitAppender appender = new GroupCommitAppender(file, 1 << 16,
+                60000, GroupCommitAppender.SYNC_POLICY.NONE) {
+
+            @Override
+            protected void write(final ByteBuffer buffer) throws IOException {
+                if (failures[0]-- > 0) {
+                    // a part of the batch reaches the file
+                    ByteBuffer part = buffer.duplicate();
+                    part.limit(part.position() + 3);
+                    this.channel.write(part);
+                    throw new IOException("disk full");
+                }
+                super.write(buffer);
+            }
+        };
+        appender.append("1\t0.5\n");
+        try {
+            appender.commit();
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        // the batch is kept and the partial write is removed
+        assertEquals("header\n", read(file));
+        assertEquals(6, appender.getNumberOfPendingCharacters());
+        appender.append("2\t0.6\n");
+        appender.close();
+        assertEquals("header\n1\t0.5\n2\t0.6\n", read(file));
+        assertEquals(1, appender.getNumberOfCommits());
+    }
+}
@@ -256,7 +256,7 @@ public class APDivisiveParameterOptimizationMethod
 	 * giveQualityFeedback(cluster.quality.ClusteringQualitySet)
 	 */
 	@Override
-	public void giveQualityFeedback(final ParameterSet parameterSet,
+	public synchronized void giveQualityFeedback(final ParameterSet parameterSet,
 			ClusteringQualitySet qualities) {
 		super.giveQualityFeedback(parameterSet, qualities);
 		this.lastIterationNotTerminated = false;
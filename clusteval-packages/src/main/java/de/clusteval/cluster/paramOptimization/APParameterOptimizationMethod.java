@@ -129,6 +129,20 @@ public class APParameterOptimizationMethod
 		return result;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * cluster.paramOptimization.LayeredDivisiveParameterOptimizationMethod#
+	 * isSpeculating()
+	 */
+	@Override
+	protected boolean isSpeculating() {
+		// the layers only see the preference parameter, while the evaluated
+		// parameter sets also contain the iteration parameters
+		return false;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
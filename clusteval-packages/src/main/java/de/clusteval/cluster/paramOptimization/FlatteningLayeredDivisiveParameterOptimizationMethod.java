@@ -43,7 +43,9 @@ import de.clusteval.utils.InternalAttributeException;
 @LoadableClassParentAnnotation(parent = "DivisiveParameterOptimizationMethod")
 public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		extends
-			ParameterOptimizationMethod {
+			ParameterOptimizationMethod
+		implements
+			ILayeredParameterOptimizationMethod<DivisiveParameterOptimizationMethod> {
 
 	protected int remainingIterationCount;
 
@@ -58,6 +60,24 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 	// private int totalIterationCount;
 	protected Map<String, Pair<?, ?>> paramToValueRange;
 
+	/**
+	 * Starts the layers speculatively, if the run has an optimization
+	 * speculation (see
+	 * {@link ParameterOptimizationRun#getOptimizationSpeculation()}).
+	 */
+	protected LayerSpeculation<DivisiveParameterOptimizationMethod> speculation;
+
+	/**
+	 * The value ranges of the speculative layer, which are taken over, if the
+	 * speculation is confirmed.
+	 */
+	protected Map<String, Pair<?, ?>> speculationValueRange;
+
+	/**
+	 * The number of iterations of the speculative layer.
+	 */
+	protected int speculationIterations;
+
 	/**
 	 * @param repo
 	 * @param register
@@ -86,6 +106,8 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		this.originalParameters = params;
 		this.layerCount = (int) Math.sqrt(this.totalIterationCount);
 		this.paramToValueRange = new HashMap<String, Pair<?, ?>>();
+		this.speculation = new LayerSpeculation<DivisiveParameterOptimizationMethod>(
+				this, 0.0);
 
 		if (register)
 			this.register();
@@ -116,6 +138,8 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		this.layerCount = other.layerCount;
 		this.iterationsPerLayer = other.iterationsPerLayer;
 		this.paramToValueRange = new HashMap<String, Pair<?, ?>>();
+		this.speculation = new LayerSpeculation<DivisiveParameterOptimizationMethod>(
+				this, 0.0);
 	}
 
 	/*
@@ -131,7 +155,9 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 			throws InternalAttributeException, RegisterException,
 			NoParameterSetFoundException, InterruptedException,
 			ParameterSetAlreadyEvaluatedException {
-		if (this.currentDivisiveMethod == null
+		if (this.isSpeculating() && forcedParameterSet == null)
+			this.speculation.prepareLayer();
+		else if (this.currentDivisiveMethod == null
 				|| (!this.currentDivisiveMethod.hasNext() && this.currentLayer < this.layerCount)) {
 			boolean allParamSetsFinished = false;
 			while (!allParamSetsFinished) {
@@ -181,6 +207,225 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 					param.evaluateMaxValue(dataConfig, programConfig)));
 	}
 
+	/**
+	 * @return True, if next layers are started speculatively.
+	 */
+	protected boolean isSpeculating() {
+		return this.speculation.isSpeculating();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * getCurrentLayer()
+	 */
+	@Override
+	public DivisiveParameterOptimizationMethod getCurrentLayer() {
+		return this.currentDivisiveMethod;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * cluster.paramOptimization.ILayeredParameterOptimizationMethod#hasNext
+	 * (java.lang.Object)
+	 */
+	@Override
+	public boolean hasNext(final DivisiveParameterOptimizationMethod layer) {
+		return layer.hasNext();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * isLastLayerStarted()
+	 */
+	@Override
+	public boolean isLastLayerStarted() {
+		return this.currentLayer >= this.layerCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * cluster.paramOptimization.ILayeredParameterOptimizationMethod#isStartedBy
+	 * (java.lang.Object, program.ParameterSet)
+	 */
+	@Override
+	public boolean isStartedBy(final DivisiveParameterOptimizationMethod layer,
+			final ParameterSet paramSet) {
+		return layer.getResult().getParameterSets().contains(paramSet);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * isLayerFinished(java.lang.Object)
+	 */
+	@Override
+	public boolean isLayerFinished(
+			final DivisiveParameterOptimizationMethod method) {
+		for (ParameterSet set : method.getResult().getParameterSets())
+			if (this.getResult().get(set) == null)
+				return false;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * getLayerFinishedFraction(java.lang.Object)
+	 */
+	@Override
+	public double getLayerFinishedFraction(
+			final DivisiveParameterOptimizationMethod method) {
+		List<ParameterSet> sets = method.getResult().getParameterSets();
+		if (sets.isEmpty())
+			return 1.0;
+		int finished = 0;
+		for (ParameterSet set : sets)
+			if (this.getResult().get(set) != null)
+				finished++;
+		return finished / (double) sets.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * getOptimalParameterSet()
+	 */
+	@Override
+	public ParameterSet getOptimalParameterSet() {
+		return this.getResult().getOptimalParameterSets()
+				.get(this.optimizationCriterion);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * startNextLayer()
+	 */
+	@Override
+	public void startNextLayer() throws InternalAttributeException,
+			RegisterException, InterruptedException {
+		this.applyNextDivisiveMethod();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * startSpeculativeLayer(program.ParameterSet)
+	 */
+	@Override
+	public void startSpeculativeLayer(final ParameterSet center)
+			throws InternalAttributeException, RegisterException,
+			InterruptedException {
+		Map<String, Pair<?, ?>> valueRange = new HashMap<String, Pair<?, ?>>(
+				this.paramToValueRange);
+		List<ProgramParameter<?>> newParams = this.getNextLayerParameters(
+				center, valueRange);
+		int newIterationsPerParameter = getNextIterationsPerLayer();
+
+		this.speculationValueRange = valueRange;
+		this.speculationIterations = newIterationsPerParameter;
+		this.startDivisiveMethod(newParams, newIterationsPerParameter);
+		this.currentLayer++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * confirmSpeculativeLayer()
+	 */
+	@Override
+	public void confirmSpeculativeLayer() {
+		this.paramToValueRange.putAll(this.speculationValueRange);
+		this.speculationValueRange = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * restartSpeculativeLayer(program.ParameterSet)
+	 */
+	@Override
+	public void restartSpeculativeLayer(final ParameterSet center)
+			throws InternalAttributeException, RegisterException,
+			InterruptedException {
+		this.log.debug(this.run + " (" + this.programConfig + ","
+				+ this.dataConfig + ") Cancelling speculative layer "
+				+ this.currentLayer + " and restarting it around " + center);
+		List<ProgramParameter<?>> newParams = this.getNextLayerParameters(
+				center, this.paramToValueRange);
+		this.startDivisiveMethod(newParams, this.speculationIterations);
+		this.speculationValueRange = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * waitForQualityFeedback()
+	 */
+	@Override
+	public synchronized void waitForQualityFeedback()
+			throws InterruptedException {
+		this.wait(1000);
+	}
+
+	/**
+	 * @return The number of layers, that have been started speculatively.
+	 */
+	public int getSpeculatedLayerCount() {
+		return this.speculation.getSpeculatedLayerCount();
+	}
+
+	/**
+	 * @return The number of speculatively started layers, that were cancelled
+	 *         because the best parameter set changed.
+	 */
+	public int getCancelledLayerCount() {
+		return this.speculation.getCancelledLayerCount();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see cluster.paramOptimization.ILayeredParameterOptimizationMethod#
+	 * adoptOptimum(java.lang.Object)
+	 */
+	@Override
+	public void adoptOptimum(final DivisiveParameterOptimizationMethod method) {
+		for (ClusteringQualityMeasure measure : method.getResult()
+				.getOptimalCriterionValue().keySet()) {
+			if (measure.isBetterThan(method.getResult()
+					.getOptimalCriterionValue().get(measure), this.getResult()
+					.getOptimalCriterionValue().get(measure))) {
+				this.getResult()
+						.getOptimalCriterionValue()
+						.put(measure,
+								method.getResult().getOptimalCriterionValue()
+										.get(measure));
+				this.getResult()
+						.getOptimalParameterSets()
+						.put(measure,
+								method.getResult().getOptimalParameterSets()
+										.get(measure));
+			}
+		}
+	}
+
 	/**
 	 * @throws InternalAttributeException
 	 * @throws RegisterException
@@ -193,27 +438,34 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		 * First we take the new optimum of the last divisive layer, if there
 		 * was one
 		 */
-		if (this.currentDivisiveMethod != null) {
-			for (ClusteringQualityMeasure measure : this.currentDivisiveMethod
-					.getResult().getOptimalCriterionValue().keySet()) {
-				if (measure.isBetterThan(this.currentDivisiveMethod.getResult()
-						.getOptimalCriterionValue().get(measure), this
-						.getResult().getOptimalCriterionValue().get(measure))) {
-					this.getResult()
-							.getOptimalCriterionValue()
-							.put(measure,
-									this.currentDivisiveMethod.getResult()
-											.getOptimalCriterionValue()
-											.get(measure));
-					this.getResult()
-							.getOptimalParameterSets()
-							.put(measure,
-									this.currentDivisiveMethod.getResult()
-											.getOptimalParameterSets()
-											.get(measure));
-				}
-			}
-		}
+		if (this.currentDivisiveMethod != null)
+			this.adoptOptimum(this.currentDivisiveMethod);
+
+		List<ProgramParameter<?>> newParams = this.getNextLayerParameters(
+				this.currentDivisiveMethod != null ? this.getResult()
+						.getOptimalParameterSets()
+						.get(this.optimizationCriterion) : null,
+				this.paramToValueRange);
+
+		int newIterationsPerParameter = getNextIterationsPerLayer();
+		this.startDivisiveMethod(newParams, newIterationsPerParameter);
+		this.currentLayer++;
+	}
+
+	/**
+	 * @param center
+	 *            The best parameter set the value ranges are centered around;
+	 *            null for the first layer.
+	 * @param valueRange
+	 *            The value ranges of the previous layer, which are replaced by
+	 *            the value ranges of the next layer.
+	 * @return The parameters of the next layer.
+	 * @throws InternalAttributeException
+	 */
+	protected List<ProgramParameter<?>> getNextLayerParameters(
+			final ParameterSet center,
+			final Map<String, Pair<?, ?>> valueRange)
+			throws InternalAttributeException {
 		/*
 		 * We adapt the ranges of the parameters to control which points the
 		 * divisive method evaluates
@@ -224,42 +476,41 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 			newParams.add(param);
 			// if this is the first layer or the parameter is a string parameter
 			// with options, we do not change the value range
-			if (this.currentDivisiveMethod != null
+			if (center != null
 					&& !(param instanceof StringProgramParameter && param
 							.isOptionsSet())) {
 				/*
 				 * In the next layer we half the domains of every parameter
 				 * centered around that point with maximal quality
 				 */
-				double paramOptValue = Double.valueOf(this.getResult()
-						.getOptimalParameterSets()
-						.get(this.optimizationCriterion).get(param.getName()));
+				double paramOptValue = Double.valueOf(center.get(param
+						.getName()));
 
 				double oldMinValue;
 				double oldMaxValue;
 
 				try {
 					if (param instanceof DoubleProgramParameter)
-						oldMinValue = (Double) (paramToValueRange.get(param
+						oldMinValue = (Double) (valueRange.get(param
 								.getName()).getFirst());
 					else
-						oldMinValue = (Integer) (paramToValueRange.get(param
+						oldMinValue = (Integer) (valueRange.get(param
 								.getName()).getFirst());
 					if (param instanceof DoubleProgramParameter)
-						oldMaxValue = (Double) (paramToValueRange.get(param
+						oldMaxValue = (Double) (valueRange.get(param
 								.getName()).getSecond());
 					else
-						oldMaxValue = (Integer) (paramToValueRange.get(param
+						oldMaxValue = (Integer) (valueRange.get(param
 								.getName()).getSecond());
 				} catch (ClassCastException e) {
 					System.out.println(param);
-					System.out.println(paramToValueRange.get(param.getName()));
-					System.out.println(paramToValueRange.get(param.getName())
+					System.out.println(valueRange.get(param.getName()));
+					System.out.println(valueRange.get(param.getName())
 							.getFirst().getClass()
 							+ " "
-							+ paramToValueRange.get(param.getName())
+							+ valueRange.get(param.getName())
 									.getSecond().getClass());
-					System.out.println(paramToValueRange.get(param.getName())
+					System.out.println(valueRange.get(param.getName())
 							.getFirst());
 					throw e;
 				}
@@ -297,7 +548,7 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 				}
 
 				if (param.getClass().equals(DoubleProgramParameter.class)) {
-					paramToValueRange.put(param.getName(),
+					valueRange.put(param.getName(),
 							Pair.getPair(newMinValue, newMaxValue));
 
 					param.setMinValue(newMinValue + "");
@@ -305,7 +556,7 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 					param.setDefault(newMinValue + "");
 				} else if (param.getClass().equals(
 						IntegerProgramParameter.class)) {
-					paramToValueRange.put(param.getName(),
+					valueRange.put(param.getName(),
 							Pair.getPair((int) newMinValue, (int) newMaxValue));
 
 					param.setMinValue(newMinValue + "");
@@ -319,7 +570,12 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 			 */
 		}
 
-		int newIterationsPerParameter = getNextIterationsPerLayer();
+		return newParams;
+	}
+
+	protected void startDivisiveMethod(List<ProgramParameter<?>> newParams,
+			int newIterationsPerParameter) throws InternalAttributeException,
+			RegisterException, InterruptedException {
 		try {
 			this.currentDivisiveMethod = createDivisiveMethod(newParams,
 					newIterationsPerParameter);
@@ -330,7 +586,6 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		} catch (RunResultParseException e) {
 			e.printStackTrace();
 		}
-		this.currentLayer++;
 	}
 
 	protected int getNextIterationsPerLayer() {
@@ -389,14 +644,13 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 	 * @see cluster.paramOptimization.ParameterOptimizationMethod#hasNext()
 	 */
 	@Override
-	public boolean hasNext() {
-		boolean layerHasNext = (this.currentDivisiveMethod != null
-				? this.currentDivisiveMethod.hasNext()
-				: false);
-		if (!layerHasNext) {
-			return this.currentLayer < this.layerCount;
+	public synchronized boolean hasNext() {
+		try {
+			return this.speculation.hasNext();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
-		return layerHasNext;
 	}
 
 	/*
@@ -410,7 +664,8 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 	public synchronized void giveQualityFeedback(final ParameterSet paramSet,
 			ClusteringQualitySet qualities) {
 		super.giveQualityFeedback(paramSet, qualities);
-		this.currentDivisiveMethod.giveQualityFeedback(paramSet, qualities);
+		this.speculation.getLayerForParameterSet(paramSet)
+				.giveQualityFeedback(paramSet, qualities);
 		// wake up all threads, which are waiting for the parameter sets of the
 		// last divisive method to finish.
 		this.notifyAll();
@@ -430,6 +685,11 @@ public class FlatteningLayeredDivisiveParameterOptimizationMethod
 		if (this.originalParameters != null)
 			this.params = this.originalParameters;
 		this.currentDivisiveMethod = null;
+		this.speculationValueRange = null;
+		this.speculation = new LayerSpeculation<DivisiveParameterOptimizationMethod>(
+				this, this.run != null
+						? this.run.getOptimizationSpeculation()
+						: 0.0);
 		super.reset(absResultPath);
 	}
 
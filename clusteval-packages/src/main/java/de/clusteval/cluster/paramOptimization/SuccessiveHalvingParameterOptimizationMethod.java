@@ -0,0 +1,938 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.clusteval.cluster.Cluster;
+import de.clusteval.cluster.ClusterItem;
+import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.AbsoluteDataSet;
+import de.clusteval.data.dataset.DataSet;
+import de.clusteval.data.dataset.DataSet.WEBSITE_VISIBILITY;
+import de.clusteval.data.dataset.DataSetConfig;
+import de.clusteval.data.dataset.RelativeDataSet;
+import de.clusteval.data.dataset.format.AbsoluteDataSetFormat;
+import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.data.dataset.format.InvalidDataSetFormatVersionException;
+import de.clusteval.data.dataset.format.RelativeDataSetFormat;
+import de.clusteval.data.dataset.format.UnknownDataSetFormatException;
+import de.clusteval.data.goldstandard.GoldStandard;
+import de.clusteval.data.goldstandard.GoldStandardConfig;
+import de.clusteval.data.goldstandard.format.UnknownGoldStandardFormatException;
+import de.clusteval.data.preprocessing.DataPreprocessor;
+import de.clusteval.framework.ClustevalBackendServer;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.program.DoubleProgramParameter;
+import de.clusteval.program.IntegerProgramParameter;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.program.ProgramConfig;
+import de.clusteval.program.ProgramParameter;
+import de.clusteval.run.ParameterOptimizationRun;
+import de.clusteval.utils.FormatConversionException;
+import de.clusteval.utils.InternalAttributeException;
+import de.clusteval.utils.RNotAvailableException;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+
+/**
+ * A multi-fidelity parameter optimization method following the successive
+ * halving approach.
+ *
+ * <p>
+ * Parameter sets drawn uniformly at random are first evaluated on a small
+ * subsample of the dataset. Only the best fraction 1/{@link #ETA} of them
+ * according to the optimization criterion is promoted to the next level,
+ * whose subsample is {@link #ETA} times larger, until the remaining parameter
+ * sets are evaluated on the whole dataset. The number of parameter sets of the
+ * first level is chosen, such that all levels together do not exceed the
+ * iteration count of the run.
+ *
+ * <p>
+ * The subsamples are stratified by the goldstandard, i.e. every class of the
+ * goldstandard keeps its share of the objects. Each subsample is written next
+ * to the input dataset of the program, when it is needed first, and is reused
+ * by all parameter sets of its level and by later runs on the same versions
+ * of the dataset and goldstandard. The subsamples are unloaded from memory
+ * after the run. The fidelity of every iteration is
+ * stored in the parameter optimization result (see {@link #FIDELITY}); only
+ * parameter sets evaluated on the whole dataset can become optimal.
+ *
+ * <p>
+ * All parameter sets of a level have to be evaluated, before the next level
+ * is started.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class SuccessiveHalvingParameterOptimizationMethod
+		extends
+			ParameterOptimizationMethod
+		implements
+			IMultiFidelityParameterOptimizationMethod {
+
+	/**
+	 * The factor, by which the number of parameter sets shrinks and the size
+	 * of the subsample grows from one level to the next.
+	 */
+	protected static final int ETA = 3;
+
+	/**
+	 * The number of levels including the last one on the whole dataset.
+	 */
+	protected static final int FIDELITY_LEVEL_COUNT = 3;
+
+	/**
+	 * The minimal number of objects of a subsample.
+	 */
+	protected static final int MIN_SUBSAMPLE_SIZE = 30;
+
+	/**
+	 * How often a new parameter set is drawn, if the drawn one has already
+	 * been drawn before.
+	 */
+	protected static final int MAX_DUPLICATE_TRIES = 10;
+
+	/**
+	 * The seed of {@link #random} and of the subsamples, such that repeated
+	 * runs evaluate the same parameter sets on the same subsamples.
+	 */
+	protected static final long SEED = 42;
+
+	protected Random random;
+
+	/**
+	 * The minimal and maximal values of the double and integer parameters
+	 * without options.
+	 */
+	protected Map<String, double[]> valueRanges;
+
+	/**
+	 * The options of parameters, that have options.
+	 */
+	protected Map<String, String[]> parameterOptions;
+
+	/**
+	 * The number of parameter sets evaluated on every level.
+	 */
+	protected int[] levelSizes;
+
+	/**
+	 * The parameter sets to be evaluated on the current level, without their
+	 * fidelity.
+	 */
+	protected List<ParameterSet> levelCandidates;
+
+	/**
+	 * The started parameter sets of every level.
+	 */
+	protected List<List<ParameterSet>> levelParameterSets;
+
+	protected int currentLevel;
+
+	/**
+	 * The position of the next parameter set in {@link #levelCandidates}.
+	 */
+	protected int currentPosition;
+
+	/**
+	 * The data configurations of the subsamples by their fidelity. Guarded by
+	 * itself.
+	 */
+	protected Map<String, DataConfig> subsamples;
+
+	/**
+	 * @param repo
+	 * @param register
+	 * @param changeDate
+	 * @param absPath
+	 * @param run
+	 *            The run this method belongs to.
+	 * @param programConfig
+	 *            The program configuration this method was created for.
+	 * @param dataConfig
+	 *            The data configuration this method was created for.
+	 * @param params
+	 *            This list holds the program parameters that are to be
+	 *            optimized by the parameter optimization run.
+	 * @param optimizationCriterion
+	 *            The quality measure used as the optimization criterion (see
+	 *            {@link #optimizationCriterion}).
+	 * @param terminateCount
+	 *            The maximal number of iterations of all levels together.
+	 * @param isResume
+	 *            This boolean indiciates, whether the run is a resumption of a
+	 *            previous run execution or a completely new execution.
+	 * @throws RegisterException
+	 */
+	public SuccessiveHalvingParameterOptimizationMethod(final Repository repo,
+			final boolean register, final long changeDate, final File absPath,
+			final ParameterOptimizationRun run,
+			final ProgramConfig programConfig, final DataConfig dataConfig,
+			final List<ProgramParameter<?>> params,
+			final ClusteringQualityMeasure optimizationCriterion,
+			final int terminateCount, final boolean isResume)
+			throws RegisterException {
+		super(repo, false, changeDate, absPath, run, programConfig, dataConfig,
+				params, optimizationCriterion, terminateCount, isResume);
+		this.random = new Random(SEED);
+		this.subsamples = new HashMap<String, DataConfig>();
+
+		if (register)
+			this.register();
+	}
+
+	/**
+	 * The copy constructor for this method.
+	 *
+	 * @param other
+	 *            The object to clone.
+	 * @throws RegisterException
+	 */
+	public SuccessiveHalvingParameterOptimizationMethod(
+			final SuccessiveHalvingParameterOptimizationMethod other)
+			throws RegisterException {
+		super(other);
+		this.random = new Random(SEED);
+		this.subsamples = new HashMap<String, DataConfig>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#initParameterValues
+	 * ()
+	 */
+	@Override
+	protected void initParameterValues() throws ParameterOptimizationException,
+			InternalAttributeException {
+		super.initParameterValues();
+		this.random = new Random(SEED);
+		this.valueRanges = new HashMap<String, double[]>();
+		this.parameterOptions = new HashMap<String, String[]>();
+		for (ProgramParameter<?> param : this.params) {
+			if (param.isOptionsSet()) {
+				Object[] options = param.evaluateOptions(dataConfig,
+						programConfig);
+				if (options.length == 0)
+					throw new ParameterOptimizationException(String.format(
+							"There are no possible values for parameter %s",
+							param.getName()));
+				String[] optionsStr = new String[options.length];
+				for (int i = 0; i < options.length; i++)
+					optionsStr[i] = options[i].toString();
+				this.parameterOptions.put(param.getName(), optionsStr);
+			} else if (param instanceof DoubleProgramParameter) {
+				DoubleProgramParameter paCast = (DoubleProgramParameter) param;
+				this.valueRanges.put(
+						param.getName(),
+						new double[]{
+								paCast.evaluateMinValue(dataConfig,
+										programConfig),
+								paCast.evaluateMaxValue(dataConfig,
+										programConfig)});
+			} else if (param instanceof IntegerProgramParameter) {
+				IntegerProgramParameter paCast = (IntegerProgramParameter) param;
+				this.valueRanges.put(
+						param.getName(),
+						new double[]{
+								paCast.evaluateMinValue(dataConfig,
+										programConfig),
+								paCast.evaluateMaxValue(dataConfig,
+										programConfig)});
+			} else
+				throw new ParameterOptimizationException(String.format(
+						"The parameter %s has neither options nor a range",
+						param.getName()));
+		}
+		this.initLevels();
+	}
+
+	/**
+	 * Draws the parameter sets of the first level and starts it.
+	 */
+	protected void initLevels() {
+		this.levelCandidates = this.drawParameterSets(this
+				.getInitialParameterSetCount());
+		this.levelSizes = getLevelSizes(this.levelCandidates.size());
+		this.levelParameterSets = new ArrayList<List<ParameterSet>>();
+		for (int level = 0; level < this.levelSizes.length; level++)
+			this.levelParameterSets.add(new ArrayList<ParameterSet>());
+		this.currentLevel = 0;
+		this.currentPosition = 0;
+	}
+
+	/**
+	 * @param initialCount
+	 *            The number of parameter sets of the first level.
+	 * @return The number of parameter sets of every level.
+	 */
+	protected static int[] getLevelSizes(final int initialCount) {
+		int[] result = new int[FIDELITY_LEVEL_COUNT];
+		result[0] = initialCount;
+		for (int level = 1; level < result.length; level++)
+			result[level] = (int) Math.ceil(result[level - 1] / (double) ETA);
+		return result;
+	}
+
+	/**
+	 * @return The maximal number of parameter sets of the first level, such
+	 *         that all levels together do not exceed the total iteration
+	 *         count.
+	 */
+	protected int getInitialParameterSetCount() {
+		for (int count = this.totalIterationCount; count > 1; count--) {
+			int sum = 0;
+			for (int size : getLevelSizes(count))
+				sum += size;
+			if (sum <= this.totalIterationCount)
+				return count;
+		}
+		return 1;
+	}
+
+	/**
+	 * @param count
+	 *            The number of parameter sets to draw.
+	 * @return Distinct parameter sets with values drawn uniformly at random;
+	 *         fewer than requested, if the parameters do not have enough
+	 *         distinct values.
+	 */
+	protected List<ParameterSet> drawParameterSets(final int count) {
+		Set<ParameterSet> result = new LinkedHashSet<ParameterSet>();
+		for (int i = 0; i < count * MAX_DUPLICATE_TRIES
+				&& result.size() < count; i++) {
+			ParameterSet set = new ParameterSet();
+			for (ProgramParameter<?> param : this.params) {
+				String[] options = this.parameterOptions.get(param.getName());
+				if (options != null)
+					set.put(param.getName(),
+							options[this.random.nextInt(options.length)]);
+				else
+					set.put(param.getName(),
+							this.toValue(param, this.random.nextDouble()));
+			}
+			result.add(set);
+		}
+		return new ArrayList<ParameterSet>(result);
+	}
+
+	/**
+	 * @param param
+	 *            A double or integer parameter.
+	 * @param normalized
+	 *            A value of the normalized value range [0,1].
+	 * @return The corresponding value of the parameter.
+	 */
+	protected String toValue(final ProgramParameter<?> param,
+			final double normalized) {
+		double[] range = this.valueRanges.get(param.getName());
+		double value = range[0] + normalized * (range[1] - range[0]);
+		if (param instanceof IntegerProgramParameter)
+			return Integer.toString((int) Math.round(value));
+		return Double.toString(value);
+	}
+
+	/**
+	 * @param level
+	 *            A level before the last one.
+	 * @return The fraction of the objects of the dataset contained in the
+	 *         subsample of the level.
+	 */
+	protected String getFidelity(final int level) {
+		return String.format(Locale.UK, "%.4f",
+				Math.pow(ETA, level - (this.levelSizes.length - 1)));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#getNextParameterSet
+	 * ()
+	 */
+	@Override
+	protected synchronized ParameterSet getNextParameterSet(
+			final ParameterSet forcedParameterSet)
+			throws InternalAttributeException, RegisterException,
+			NoParameterSetFoundException, InterruptedException {
+		if (this.currentPosition == this.levelCandidates.size())
+			this.promoteParameterSets();
+
+		ParameterSet candidate = this.levelCandidates
+				.get(this.currentPosition++);
+		ParameterSet result = forcedParameterSet;
+		if (result == null) {
+			result = new ParameterSet();
+			result.putAll(candidate);
+			// parameter sets of the last level are evaluated on the whole
+			// dataset
+			if (this.currentLevel < this.levelSizes.length - 1)
+				result.put(FIDELITY, this.getFidelity(this.currentLevel));
+		}
+		this.levelParameterSets.get(this.currentLevel).add(result);
+		return result;
+	}
+
+	/**
+	 * Waits until all parameter sets of the current level have been
+	 * evaluated and takes the best of them as the candidates of the next
+	 * level.
+	 *
+	 * @throws InterruptedException
+	 */
+	protected void promoteParameterSets() throws InterruptedException {
+		List<ParameterSet> started = this.levelParameterSets
+				.get(this.currentLevel);
+		while (!this.isLevelFinished(started))
+			this.wait();
+
+		List<ParameterSet> ranked = this.rankParameterSets(started);
+		int count = Math.min(this.levelSizes[this.currentLevel + 1],
+				ranked.size());
+		this.levelCandidates = new ArrayList<ParameterSet>();
+		for (ParameterSet set : ranked.subList(0, count)) {
+			ParameterSet candidate = new ParameterSet();
+			for (ProgramParameter<?> param : this.params)
+				candidate.put(param.getName(), set.get(param.getName()));
+			this.levelCandidates.add(candidate);
+		}
+		this.currentLevel++;
+		this.currentPosition = 0;
+
+		this.log.debug(String.format(
+				"%s (%s,%s) Promoting %d of %d parameter sets to level %d",
+				this.run, this.programConfig, this.dataConfig, count,
+				ranked.size(), this.currentLevel + 1));
+	}
+
+	/**
+	 * @param started
+	 *            The started parameter sets of a level.
+	 * @return True, if all of them have been evaluated.
+	 */
+	protected boolean isLevelFinished(final List<ParameterSet> started) {
+		for (ParameterSet set : started)
+			if (this.getResult().get(set) == null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * @param set
+	 *            An evaluated parameter set.
+	 * @return The quality of the optimization criterion for the parameter set,
+	 *         or null if its evaluation did not terminate.
+	 */
+	protected ClusteringQualityMeasureValue getCriterionValue(
+			final ParameterSet set) {
+		ClusteringQualitySet qualities = this.getResult().get(set);
+		if (qualities == null)
+			return null;
+		ClusteringQualityMeasureValue value = qualities
+				.get(this.optimizationCriterion);
+		if (value == null || !value.isTerminated()
+				|| Double.isNaN(value.getValue()))
+			return null;
+		return value;
+	}
+
+	/**
+	 * @param sets
+	 *            The evaluated parameter sets of a level.
+	 * @return The parameter sets, the best first. Parameter sets, whose
+	 *         evaluation did not terminate, are ranked last.
+	 */
+	protected List<ParameterSet> rankParameterSets(final List<ParameterSet> sets) {
+		final Map<ParameterSet, ClusteringQualityMeasureValue> values = new HashMap<ParameterSet, ClusteringQualityMeasureValue>();
+		for (ParameterSet set : sets)
+			values.put(set, this.getCriterionValue(set));
+		List<ParameterSet> result = new ArrayList<ParameterSet>(sets);
+		Collections.sort(result, new Comparator<ParameterSet>() {
+
+			@Override
+			public int compare(ParameterSet o1, ParameterSet o2) {
+				ClusteringQualityMeasureValue v1 = values.get(o1);
+				ClusteringQualityMeasureValue v2 = values.get(o2);
+				if (v1 == null || v2 == null)
+					return v1 == null ? (v2 == null ? 0 : 1) : -1;
+				if (optimizationCriterion.isBetterThan(v1, v2))
+					return -1;
+				if (optimizationCriterion.isBetterThan(v2, v1))
+					return 1;
+				return 0;
+			}
+		});
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#giveQualityFeedback
+	 * (java.util.Map)
+	 */
+	@Override
+	public synchronized void giveQualityFeedback(final ParameterSet paramSet,
+			ClusteringQualitySet qualities) {
+		try {
+			super.giveQualityFeedback(paramSet, qualities);
+		} finally {
+			// wake up the thread waiting for the current level to finish
+			this.notifyAll();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.IMultiFidelityParameterOptimizationMethod#
+	 * getDataConfigForParameterSet(program.ParameterSet)
+	 */
+	@Override
+	public DataConfig getDataConfigForParameterSet(
+			final ParameterSet parameterSet)
+			throws ParameterOptimizationException {
+		String fidelity = parameterSet.get(FIDELITY);
+		if (fidelity == null)
+			return this.dataConfig;
+		synchronized (this.subsamples) {
+			DataConfig result = this.subsamples.get(fidelity);
+			if (result == null) {
+				try {
+					result = this.createSubsample(fidelity);
+				} catch (IOException | RegisterException
+						| InvalidDataSetFormatVersionException
+						| UnknownDataSetFormatException
+						| UnknownGoldStandardFormatException
+						| FormatConversionException | RNotAvailableException
+						| InterruptedException e) {
+					throw new ParameterOptimizationException(String.format(
+							"The subsample of %s with fidelity %s could not be created: %s",
+							this.dataConfig, fidelity, e.getMessage()));
+				}
+				this.subsamples.put(fidelity, result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Writes a stratified subsample of the dataset and goldstandard and
+	 * converts it like the whole dataset into the input format of the
+	 * program.
+	 *
+	 * <p>
+	 * Absolute datasets are subsampled before their conversion to the
+	 * standard format, such that the subsample passes the same preprocessing
+	 * and distance conversion. Relative datasets are subsampled in the
+	 * standard format.
+	 *
+	 * @param fidelity
+	 *            The fraction of the objects of the dataset, the subsample
+	 *            contains.
+	 * @return The data configuration of the subsample, or the data
+	 *         configuration of this method, if the subsample would contain
+	 *         all objects.
+	 */
+	protected DataConfig createSubsample(final String fidelity)
+			throws IOException, RegisterException,
+			InvalidDataSetFormatVersionException,
+			UnknownDataSetFormatException, UnknownGoldStandardFormatException,
+			FormatConversionException, RNotAvailableException,
+			InterruptedException, ParameterOptimizationException {
+		final DataSetConfig dataSetConfig = this.dataConfig.getDatasetConfig();
+		final DataSet input = dataSetConfig.getDataSet();
+		final boolean absolute = input.getOriginalDataSet() instanceof AbsoluteDataSet;
+		final DataSet source = absolute
+				? input.getOriginalDataSet()
+				: input.getInStandardFormat();
+		ConversionInputToStandardConfiguration configInputToStandard = dataSetConfig
+				.getConversionInputToStandardConfiguration();
+
+		if (!source.isInMemory()) {
+			if (absolute)
+				source.loadIntoMemory();
+			else
+				source.loadIntoMemory(configInputToStandard
+						.getSimilarityPrecision());
+		}
+		final String[] ids = absolute
+				? ((AbsoluteDataSet) source).getDataSetContent().getIds()
+				: ((RelativeDataSet) source).getDataSetContent().getIdsArray();
+		int size = Math.min(ids.length, Math.max(MIN_SUBSAMPLE_SIZE,
+				(int) Math.round(Double.valueOf(fidelity) * ids.length)));
+		if (size >= ids.length)
+			return this.dataConfig;
+
+		final Clustering gsClustering = this.dataConfig
+				.hasGoldStandardConfig() ? this.dataConfig
+				.getGoldstandardConfig().getGoldstandard().getClustering() : null;
+		final int[] sample = this.drawStratifiedSample(ids, gsClustering, size);
+
+		/*
+		 * The subsample depends on the contents of the dataset and the
+		 * goldstandard. We key its files by their modification date, such
+		 * that subsamples of older versions are not reused.
+		 */
+		long version = new File(source.getAbsolutePath()).lastModified();
+		if (gsClustering != null)
+			version = Math.max(version, new File(this.dataConfig
+					.getGoldstandardConfig().getGoldstandard()
+					.getAbsolutePath()).lastModified());
+		final String suffix = "_subsample" + fidelity + "_" + version;
+		final String alias = source.getAlias() + suffix;
+		File dataSetFile = new File(input.getAbsolutePath() + suffix);
+		// only one subsample is written into a file at a time
+		synchronized (ClustevalBackendServer.getCommonFile(dataSetFile)) {
+			if (!dataSetFile.exists()) {
+				File tmpFile = createTempFile(dataSetFile);
+				BufferedWriter writer = new BufferedWriter(new FileWriter(
+						tmpFile));
+				try {
+					writer.append("// alias = " + alias);
+					writer.newLine();
+					writer.append("// dataSetFormat = "
+							+ (absolute
+									? "MatrixDataSetFormat"
+									: "SimMatrixDataSetFormat"));
+					writer.newLine();
+					writer.append("// dataSetType = "
+							+ source.getDataSetType().getClass()
+									.getSimpleName());
+					writer.newLine();
+					writer.append("// dataSetFormatVersion = 1");
+					writer.newLine();
+					if (absolute) {
+						double[][] coords = ((AbsoluteDataSet) source)
+								.getDataSetContent().getData();
+						for (int row : sample) {
+							writer.append(ids[row]);
+							for (int col = 0; col < coords[row].length; col++)
+								writer.append(String.format("\t%s",
+										coords[row][col]));
+							writer.newLine();
+						}
+					} else {
+						SimilarityMatrix matrix = ((RelativeDataSet) source)
+								.getDataSetContent();
+						for (int col : sample)
+							writer.append(String.format("\t%s", ids[col]));
+						writer.newLine();
+						for (int row : sample) {
+							writer.append(ids[row]);
+							for (int col : sample)
+								writer.append(String.format("\t%s",
+										matrix.getSimilarity(row, col)));
+							writer.newLine();
+						}
+					}
+				} finally {
+					writer.close();
+				}
+				moveAtomically(tmpFile, dataSetFile);
+			}
+		}
+
+		GoldStandardConfig goldStandardConfig = null;
+		if (gsClustering != null) {
+			GoldStandardConfig gsConfig = this.dataConfig
+					.getGoldstandardConfig();
+			File goldStandardFile = new File(gsConfig.getGoldstandard()
+					.getAbsolutePath() + suffix);
+			synchronized (ClustevalBackendServer
+					.getCommonFile(goldStandardFile)) {
+				if (!goldStandardFile.exists()) {
+					File tmpFile = createTempFile(goldStandardFile);
+					BufferedWriter writer = new BufferedWriter(new FileWriter(
+							tmpFile));
+					try {
+						for (int row : sample) {
+							ClusterItem item = gsClustering
+									.getClusterItemWithId(ids[row]);
+							if (item == null)
+								continue;
+							StringBuilder sb = new StringBuilder();
+							for (Map.Entry<Cluster, Float> e : gsClustering
+									.getClusterForItem(item).entrySet()) {
+								if (sb.length() > 0)
+									sb.append(";");
+								sb.append(e.getKey().getId() + ":"
+										+ e.getValue());
+							}
+							writer.append(ids[row] + "\t" + sb);
+							writer.newLine();
+						}
+					} finally {
+						writer.close();
+					}
+					moveAtomically(tmpFile, goldStandardFile);
+				}
+			}
+			GoldStandard goldStandard = new GoldStandard(this.repository,
+					goldStandardFile.lastModified(), goldStandardFile);
+			goldStandard.loadIntoMemory();
+			goldStandardConfig = new GoldStandardConfig(this.repository,
+					System.currentTimeMillis(), getSubsampleFile(
+							gsConfig.getAbsolutePath(), ".gsconfig", suffix),
+					goldStandard);
+		}
+
+		DataSet subsample;
+		if (absolute)
+			subsample = new AbsoluteDataSet(this.repository, false,
+					dataSetFile.lastModified(), dataSetFile, alias,
+					(AbsoluteDataSetFormat) DataSetFormat.parseFromString(
+							this.repository, "MatrixDataSetFormat"),
+					source.getDataSetType(), WEBSITE_VISIBILITY.HIDE);
+		else {
+			subsample = new RelativeDataSet(this.repository, false,
+					dataSetFile.lastModified(), dataSetFile, alias,
+					(RelativeDataSetFormat) DataSetFormat.parseFromString(
+							this.repository, "SimMatrixDataSetFormat"),
+					source.getDataSetType(), WEBSITE_VISIBILITY.HIDE);
+			// the standard format has been preprocessed already
+			configInputToStandard = new ConversionInputToStandardConfiguration(
+					configInputToStandard.getDistanceMeasureAbsoluteToRelative(),
+					configInputToStandard.getSimilarityPrecision(),
+					new ArrayList<DataPreprocessor>(),
+					new ArrayList<DataPreprocessor>());
+		}
+		DataSet converted = subsample.preprocessAndConvertTo(
+				this.run.getContext(), input.getDataSetFormat(),
+				configInputToStandard,
+				dataSetConfig.getConversionStandardToInputConfiguration());
+		if (converted == null)
+			throw new ParameterOptimizationException(String.format(
+					"The subsample %s could not be converted to %s",
+					dataSetFile, input.getDataSetFormat()));
+
+		// the quality measures and programs expect the contents in memory
+		converted.getInStandardFormat().loadIntoMemory(
+				configInputToStandard.getSimilarityPrecision());
+		if (converted.getOriginalDataSet() instanceof AbsoluteDataSet)
+			converted.getOriginalDataSet().loadIntoMemory();
+
+		this.log.info(String.format(
+				"%s (%s,%s) Evaluating fidelity %s on a subsample of %d of %d objects",
+				this.run, this.programConfig, this.dataConfig, fidelity,
+				sample.length, ids.length));
+
+		DataSetConfig subsampleDataSetConfig = new DataSetConfig(
+				this.repository, System.currentTimeMillis(), getSubsampleFile(
+						dataSetConfig.getAbsolutePath(), ".dsconfig", suffix),
+				converted, configInputToStandard,
+				dataSetConfig.getConversionStandardToInputConfiguration());
+		return new DataConfig(this.repository, System.currentTimeMillis(),
+				getSubsampleFile(this.dataConfig.getAbsolutePath(),
+						".dataconfig", suffix), subsampleDataSetConfig,
+				goldStandardConfig);
+	}
+
+	/**
+	 * Subsample files are written into a temporary file first and then moved
+	 * to their final name, such that other runs never read a partially
+	 * written subsample.
+	 *
+	 * @param file
+	 *            The subsample file to be written.
+	 * @return A new temporary file in the directory of the subsample file.
+	 * @throws IOException
+	 */
+	protected static File createTempFile(final File file) throws IOException {
+		return File.createTempFile("." + file.getName(), ".tmp",
+				file.getParentFile());
+	}
+
+	/**
+	 * @param tmpFile
+	 *            The completely written temporary file.
+	 * @param file
+	 *            The subsample file.
+	 * @throws IOException
+	 */
+	protected static void moveAtomically(final File tmpFile, final File file)
+			throws IOException {
+		try {
+			try {
+				Files.move(tmpFile.toPath(), file.toPath(),
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmpFile.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			tmpFile.delete();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.IMultiFidelityParameterOptimizationMethod#
+	 * unloadSubsamples()
+	 */
+	@Override
+	public void unloadSubsamples() {
+		synchronized (this.subsamples) {
+			for (DataConfig subsample : this.subsamples.values()) {
+				// small datasets are not subsampled
+				if (subsample == this.dataConfig)
+					continue;
+				DataSet dataSet = subsample.getDatasetConfig().getDataSet();
+				if (dataSet.getInStandardFormat() != null)
+					dataSet.getInStandardFormat().unloadFromMemory();
+				if (dataSet.getOriginalDataSet() instanceof AbsoluteDataSet)
+					dataSet.getOriginalDataSet().unloadFromMemory();
+				if (subsample.hasGoldStandardConfig())
+					subsample.getGoldstandardConfig().getGoldstandard()
+							.unloadFromMemory();
+			}
+			this.subsamples.clear();
+		}
+	}
+
+	/**
+	 * @return The path of a configuration file with the suffix inserted
+	 *         before its extension.
+	 */
+	protected static File getSubsampleFile(final String path,
+			final String extension, final String suffix) {
+		return new File(path.replace(extension, "") + suffix + extension);
+	}
+
+	/**
+	 * @param ids
+	 *            The ids of the objects of the dataset.
+	 * @param gsClustering
+	 *            The goldstandard, or null.
+	 * @param size
+	 *            The requested number of objects.
+	 * @return The sorted indices of the objects of the subsample. Every class
+	 *         of the goldstandard keeps its share of the objects, but at least
+	 *         one object. Objects are assigned to the class with their highest
+	 *         fuzzy coefficient; objects missing in the goldstandard form a
+	 *         class of their own.
+	 */
+	protected int[] drawStratifiedSample(final String[] ids,
+			final Clustering gsClustering, final int size) {
+		Map<String, List<Integer>> strata = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < ids.length; i++) {
+			String stratum = null;
+			ClusterItem item = gsClustering != null ? gsClustering
+					.getClusterItemWithId(ids[i]) : null;
+			if (item != null) {
+				float best = Float.NEGATIVE_INFINITY;
+				for (Map.Entry<Cluster, Float> e : gsClustering
+						.getClusterForItem(item).entrySet())
+					if (e.getValue() > best) {
+						best = e.getValue();
+						stratum = e.getKey().getId();
+					}
+			}
+			if (!strata.containsKey(stratum))
+				strata.put(stratum, new ArrayList<Integer>());
+			strata.get(stratum).add(i);
+		}
+
+		Random random = new Random(SEED);
+		List<Integer> sample = new ArrayList<Integer>();
+		for (List<Integer> stratum : strata.values()) {
+			Collections.shuffle(stratum, random);
+			int count = Math.max(1,
+					(int) Math.round(stratum.size() * (double) size / ids.length));
+			sample.addAll(stratum.subList(0, Math.min(count, stratum.size())));
+		}
+		Collections.sort(sample);
+
+		int[] result = new int[sample.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = sample.get(i);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#hasNext()
+	 */
+	@Override
+	public synchronized boolean hasNext() {
+		return this.currentLevel < this.levelSizes.length - 1
+				|| this.currentPosition < this.levelCandidates.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#getTotalIterationCount
+	 * ()
+	 */
+	@Override
+	public int getTotalIterationCount() {
+		if (this.levelSizes == null)
+			return this.totalIterationCount;
+		int result = 0;
+		for (int size : this.levelSizes)
+			result += size;
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#
+	 * getCompatibleDataSetFormatBaseClasses()
+	 */
+	@Override
+	public List<Class<? extends DataSetFormat>> getCompatibleDataSetFormatBaseClasses() {
+		return new ArrayList<Class<? extends DataSetFormat>>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#
+	 * getCompatibleProgramClasses()
+	 */
+	@Override
+	public List<String> getCompatibleProgramNames() {
+		return new ArrayList<String>();
+	}
+}
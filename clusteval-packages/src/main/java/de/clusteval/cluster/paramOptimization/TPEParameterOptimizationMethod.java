@@ -0,0 +1,566 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.program.DoubleProgramParameter;
+import de.clusteval.program.IntegerProgramParameter;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.program.ProgramConfig;
+import de.clusteval.program.ProgramParameter;
+import de.clusteval.program.StringProgramParameter;
+import de.clusteval.run.ParameterOptimizationRun;
+import de.clusteval.utils.InternalAttributeException;
+
+/**
+ * A model-based parameter optimization method following the Tree-structured
+ * Parzen Estimator (TPE) approach.
+ *
+ * <p>
+ * The first parameter sets are drawn uniformly at random. As soon as
+ * {@link #getStartupIterationCount()} parameter sets have been evaluated,
+ * the evaluated parameter sets are split into the best fraction
+ * {@link #GAMMA} according to the optimization criterion and the rest. For
+ * every parameter, candidate values are drawn from a density l(x) estimated
+ * from the best parameter sets, and the candidate maximizing l(x)/g(x) is
+ * taken, where g(x) is the density estimated from the remaining parameter
+ * sets. Double and integer parameters are modelled by gaussian kernels on
+ * their normalized value range, parameters with options by smoothed
+ * frequencies of the options.
+ *
+ * <p>
+ * This method never waits for running iterations. Parameter sets, whose
+ * evaluation has not finished yet, are assumed to have the worst quality of
+ * all (constant liar), i.e. they are counted for g(x). Thereby parallel
+ * iterations are spread over the promising regions instead of proposing the
+ * same parameter set again.
+ *
+ * <p>
+ * Every parameter needs either options or a value range. A
+ * {@link StringProgramParameter} without options has neither, such that
+ * {@link #reset(File)} throws a {@link ParameterOptimizationException}.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class TPEParameterOptimizationMethod extends ParameterOptimizationMethod {
+
+	/**
+	 * The fraction of the evaluated parameter sets, from which the density of
+	 * good parameter values is estimated.
+	 */
+	protected static final double GAMMA = 0.25;
+
+	/**
+	 * The number of candidate values drawn for every parameter.
+	 */
+	protected static final int CANDIDATE_COUNT = 24;
+
+	/**
+	 * The maximal number of parameter sets evaluated before the model is
+	 * used.
+	 */
+	protected static final int STARTUP_ITERATION_COUNT = 10;
+
+	/**
+	 * How often a new parameter set is drawn, if the drawn one has already
+	 * been started.
+	 */
+	protected static final int MAX_DUPLICATE_TRIES = 10;
+
+	/**
+	 * The minimal bandwidth of the kernels on the normalized value ranges.
+	 */
+	protected static final double MIN_BANDWIDTH = 0.01;
+
+	/**
+	 * The seed of {@link #random}, such that repeated runs evaluate the same
+	 * parameter sets given the same qualities.
+	 */
+	protected static final long SEED = 42;
+
+	protected Random random;
+
+	/**
+	 * The minimal and maximal values of the double and integer parameters
+	 * without options.
+	 */
+	protected Map<String, double[]> valueRanges;
+
+	/**
+	 * The options of parameters, that have options.
+	 */
+	protected Map<String, String[]> parameterOptions;
+
+	/**
+	 * @param repo
+	 * @param register
+	 * @param changeDate
+	 * @param absPath
+	 * @param run
+	 *            The run this method belongs to.
+	 * @param programConfig
+	 *            The program configuration this method was created for.
+	 * @param dataConfig
+	 *            The data configuration this method was created for.
+	 * @param params
+	 *            This list holds the program parameters that are to be
+	 *            optimized by the parameter optimization run.
+	 * @param optimizationCriterion
+	 *            The quality measure used as the optimization criterion (see
+	 *            {@link #optimizationCriterion}).
+	 * @param terminateCount
+	 *            The total number of iterations to be performed.
+	 * @param isResume
+	 *            This boolean indiciates, whether the run is a resumption of a
+	 *            previous run execution or a completely new execution.
+	 * @throws RegisterException
+	 */
+	public TPEParameterOptimizationMethod(final Repository repo,
+			final boolean register, final long changeDate, final File absPath,
+			final ParameterOptimizationRun run,
+			final ProgramConfig programConfig, final DataConfig dataConfig,
+			final List<ProgramParameter<?>> params,
+			final ClusteringQualityMeasure optimizationCriterion,
+			final int terminateCount, final boolean isResume)
+			throws RegisterException {
+		super(repo, false, changeDate, absPath, run, programConfig, dataConfig,
+				params, optimizationCriterion, terminateCount, isResume);
+		this.random = new Random(SEED);
+
+		if (register)
+			this.register();
+	}
+
+	/**
+	 * The copy constructor for this method.
+	 *
+	 * @param other
+	 *            The object to clone.
+	 * @throws RegisterException
+	 */
+	public TPEParameterOptimizationMethod(
+			final TPEParameterOptimizationMethod other)
+			throws RegisterException {
+		super(other);
+		this.random = new Random(SEED);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#initParameterValues
+	 * ()
+	 */
+	@Override
+	protected void initParameterValues() throws ParameterOptimizationException,
+			InternalAttributeException {
+		super.initParameterValues();
+		this.random = new Random(SEED);
+		this.valueRanges = new HashMap<String, double[]>();
+		this.parameterOptions = new HashMap<String, String[]>();
+		for (ProgramParameter<?> param : this.params) {
+			if (param.isOptionsSet()) {
+				Object[] options = param.evaluateOptions(dataConfig,
+						programConfig);
+				String[] optionsStr = new String[options.length];
+				for (int i = 0; i < options.length; i++)
+					optionsStr[i] = options[i].toString();
+				this.parameterOptions.put(param.getName(), optionsStr);
+			} else if (param instanceof DoubleProgramParameter) {
+				DoubleProgramParameter paCast = (DoubleProgramParameter) param;
+				this.valueRanges.put(
+						param.getName(),
+						new double[]{
+								paCast.evaluateMinValue(dataConfig,
+										programConfig),
+								paCast.evaluateMaxValue(dataConfig,
+										programConfig)});
+			} else if (param instanceof IntegerProgramParameter) {
+				IntegerProgramParameter paCast = (IntegerProgramParameter) param;
+				this.valueRanges.put(
+						param.getName(),
+						new double[]{
+								paCast.evaluateMinValue(dataConfig,
+										programConfig),
+								paCast.evaluateMaxValue(dataConfig,
+										programConfig)});
+			} else
+				throw new ParameterOptimizationException(String.format(
+						"The parameter %s has neither options nor a range",
+						param.getName()));
+		}
+	}
+
+	/**
+	 * @return The number of parameter sets, that have to be evaluated before
+	 *         parameter sets are drawn from the model.
+	 */
+	protected int getStartupIterationCount() {
+		return Math.max(
+				Math.min(STARTUP_ITERATION_COUNT, this.totalIterationCount / 4),
+				1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#getNextParameterSet
+	 * ()
+	 */
+	@Override
+	protected synchronized ParameterSet getNextParameterSet(
+			final ParameterSet forcedParameterSet)
+			throws InternalAttributeException, RegisterException,
+			NoParameterSetFoundException, InterruptedException {
+		if (forcedParameterSet != null)
+			return forcedParameterSet;
+
+		for (String param : this.parameterOptions.keySet())
+			if (this.parameterOptions.get(param).length == 0)
+				throw new NoParameterSetFoundException(
+						String.format(
+								"No new parameter set could be found: There are no possible values for parameter %s",
+								param));
+
+		Set<ParameterSet> started = new LinkedHashSet<ParameterSet>(this
+				.getResult().getParameterSets());
+		List<ParameterSet> ranked = this.rankParameterSets(started);
+		int evaluatedCount = 0;
+		for (ParameterSet set : ranked)
+			if (this.getCriterionValue(set) != null)
+				evaluatedCount++;
+
+		ParameterSet result = null;
+		for (int i = 0; i < MAX_DUPLICATE_TRIES; i++) {
+			if (evaluatedCount < this.getStartupIterationCount())
+				result = this.drawRandomParameterSet();
+			else {
+				int goodCount = (int) Math.ceil(GAMMA * evaluatedCount);
+				result = this.drawModelParameterSet(
+						ranked.subList(0, goodCount),
+						ranked.subList(goodCount, ranked.size()));
+			}
+			if (!started.contains(result))
+				break;
+		}
+		return result;
+	}
+
+	/**
+	 * @param set
+	 *            A started parameter set.
+	 * @return The quality of the optimization criterion for the parameter set,
+	 *         or null if its evaluation has not finished yet or did not
+	 *         terminate.
+	 */
+	protected ClusteringQualityMeasureValue getCriterionValue(
+			final ParameterSet set) {
+		ClusteringQualitySet qualities = this.getResult().get(set);
+		if (qualities == null)
+			return null;
+		ClusteringQualityMeasureValue value = qualities
+				.get(this.optimizationCriterion);
+		if (value == null || !value.isTerminated()
+				|| Double.isNaN(value.getValue()))
+			return null;
+		return value;
+	}
+
+	/**
+	 * @param started
+	 *            The started parameter sets.
+	 * @return The started parameter sets, the best first. Parameter sets
+	 *         without a quality (still running or not terminated) are ranked
+	 *         last.
+	 */
+	protected List<ParameterSet> rankParameterSets(
+			final Set<ParameterSet> started) {
+		final Map<ParameterSet, ClusteringQualityMeasureValue> values = new HashMap<ParameterSet, ClusteringQualityMeasureValue>();
+		for (ParameterSet set : started)
+			values.put(set, this.getCriterionValue(set));
+		List<ParameterSet> result = new ArrayList<ParameterSet>(started);
+		Collections.sort(result, new Comparator<ParameterSet>() {
+
+			@Override
+			public int compare(ParameterSet o1, ParameterSet o2) {
+				ClusteringQualityMeasureValue v1 = values.get(o1);
+				ClusteringQualityMeasureValue v2 = values.get(o2);
+				if (v1 == null || v2 == null)
+					return v1 == null ? (v2 == null ? 0 : 1) : -1;
+				if (optimizationCriterion.isBetterThan(v1, v2))
+					return -1;
+				if (optimizationCriterion.isBetterThan(v2, v1))
+					return 1;
+				return 0;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * @return A parameter set with values drawn uniformly at random.
+	 */
+	protected ParameterSet drawRandomParameterSet() {
+		ParameterSet result = new ParameterSet();
+		for (ProgramParameter<?> param : this.params) {
+			String[] options = this.parameterOptions.get(param.getName());
+			if (options != null)
+				result.put(param.getName(),
+						options[this.random.nextInt(options.length)]);
+			else
+				result.put(param.getName(),
+						this.toValue(param, this.random.nextDouble()));
+		}
+		return result;
+	}
+
+	/**
+	 * @param good
+	 *            The best evaluated parameter sets.
+	 * @param bad
+	 *            The remaining started parameter sets.
+	 * @return A parameter set, whose values maximize l(x)/g(x) among the
+	 *         drawn candidates.
+	 */
+	protected ParameterSet drawModelParameterSet(final List<ParameterSet> good,
+			final List<ParameterSet> bad) {
+		ParameterSet result = new ParameterSet();
+		for (ProgramParameter<?> param : this.params) {
+			String name = param.getName();
+			String[] options = this.parameterOptions.get(name);
+			if (options != null)
+				result.put(name, this.drawOption(name, options, good, bad));
+			else
+				result.put(
+						name,
+						this.toValue(param,
+								this.drawNumeric(param, good, bad)));
+		}
+		return result;
+	}
+
+	/**
+	 * @return The option with the maximal ratio of the smoothed option
+	 *         frequencies among good and bad parameter sets, among candidates
+	 *         drawn from the frequencies among the good parameter sets.
+	 */
+	protected String drawOption(final String name, final String[] options,
+			final List<ParameterSet> good, final List<ParameterSet> bad) {
+		double[] goodWeights = this.getOptionWeights(name, options, good);
+		double[] badWeights = this.getOptionWeights(name, options, bad);
+
+		int best = -1;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int c = 0; c < CANDIDATE_COUNT; c++) {
+			double r = this.random.nextDouble();
+			int candidate = 0;
+			while (candidate < options.length - 1
+					&& r >= goodWeights[candidate]) {
+				r -= goodWeights[candidate];
+				candidate++;
+			}
+			double score = Math.log(goodWeights[candidate])
+					- Math.log(badWeights[candidate]);
+			if (score > bestScore) {
+				bestScore = score;
+				best = candidate;
+			}
+		}
+		return options[best];
+	}
+
+	/**
+	 * @return The frequencies of the options among the parameter sets, where
+	 *         every option is counted once in addition.
+	 */
+	protected double[] getOptionWeights(final String name,
+			final String[] options, final List<ParameterSet> sets) {
+		double[] weights = new double[options.length];
+		for (int i = 0; i < options.length; i++)
+			weights[i] = 1.0;
+		for (ParameterSet set : sets)
+			for (int i = 0; i < options.length; i++)
+				if (options[i].equals(set.get(name))) {
+					weights[i]++;
+					break;
+				}
+		double sum = options.length + sets.size();
+		for (int i = 0; i < options.length; i++)
+			weights[i] /= sum;
+		return weights;
+	}
+
+	/**
+	 * @return A value of the normalized value range of the parameter, which
+	 *         maximizes l(x)/g(x) among candidates drawn from l(x).
+	 */
+	protected double drawNumeric(final ProgramParameter<?> param,
+			final List<ParameterSet> good, final List<ParameterSet> bad) {
+		double[] goodPoints = this.getNormalizedValues(param, good);
+		double[] badPoints = this.getNormalizedValues(param, bad);
+		double goodBandwidth = getBandwidth(goodPoints);
+		double badBandwidth = getBandwidth(badPoints);
+
+		double best = 0.0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int c = 0; c < CANDIDATE_COUNT; c++) {
+			// the uniform prior is one of the components
+			int component = this.random.nextInt(goodPoints.length + 1);
+			double candidate;
+			if (component == goodPoints.length)
+				candidate = this.random.nextDouble();
+			else
+				candidate = Math.min(1.0, Math.max(0.0, goodPoints[component]
+						+ this.random.nextGaussian() * goodBandwidth));
+			double score = Math.log(getDensity(candidate, goodPoints,
+					goodBandwidth))
+					- Math.log(getDensity(candidate, badPoints, badBandwidth));
+			if (score > bestScore) {
+				bestScore = score;
+				best = candidate;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * @return The values of the parameter in the parameter sets, normalized
+	 *         to [0,1] by its value range.
+	 */
+	protected double[] getNormalizedValues(final ProgramParameter<?> param,
+			final List<ParameterSet> sets) {
+		double[] range = this.valueRanges.get(param.getName());
+		double[] result = new double[sets.size()];
+		for (int i = 0; i < sets.size(); i++) {
+			double value = Double.valueOf(sets.get(i).get(param.getName()));
+			result[i] = range[1] > range[0] ? (value - range[0])
+					/ (range[1] - range[0]) : 0.0;
+		}
+		return result;
+	}
+
+	/**
+	 * @return The bandwidth of the gaussian kernels following Scott's rule,
+	 *         which shrinks with the number of points.
+	 */
+	protected static double getBandwidth(final double[] points) {
+		if (points.length < 2)
+			return 0.25;
+		double mean = 0.0;
+		for (double p : points)
+			mean += p;
+		mean /= points.length;
+		double variance = 0.0;
+		for (double p : points)
+			variance += (p - mean) * (p - mean);
+		variance /= points.length - 1;
+		return Math.min(1.0, Math.max(MIN_BANDWIDTH, 1.06 * Math.sqrt(variance)
+				* Math.pow(points.length, -0.2)));
+	}
+
+	/**
+	 * @return The density at x of a mixture of gaussian kernels at the points
+	 *         and a uniform prior on [0,1], all with equal weights.
+	 */
+	protected static double getDensity(final double x, final double[] points,
+			final double bandwidth) {
+		double density = 1.0;
+		for (double p : points) {
+			double z = (x - p) / bandwidth;
+			density += Math.exp(-0.5 * z * z)
+					/ (bandwidth * Math.sqrt(2 * Math.PI));
+		}
+		return density / (points.length + 1);
+	}
+
+	/**
+	 * @param param
+	 *            A double or integer parameter.
+	 * @param normalized
+	 *            A value of the normalized value range [0,1].
+	 * @return The corresponding value of the parameter.
+	 */
+	protected String toValue(final ProgramParameter<?> param,
+			final double normalized) {
+		double[] range = this.valueRanges.get(param.getName());
+		double value = range[0] + normalized * (range[1] - range[0]);
+		if (param instanceof IntegerProgramParameter)
+			return Integer.toString((int) Math.round(value));
+		return Double.toString(value);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		return this.currentCount < this.totalIterationCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * cluster.paramOptimization.ParameterOptimizationMethod#getTotalIterationCount
+	 * ()
+	 */
+	@Override
+	public int getTotalIterationCount() {
+		return this.totalIterationCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#
+	 * getCompatibleDataSetFormatBaseClasses()
+	 */
+	@Override
+	public List<Class<? extends DataSetFormat>> getCompatibleDataSetFormatBaseClasses() {
+		return new ArrayList<Class<? extends DataSetFormat>>();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see cluster.paramOptimization.ParameterOptimizationMethod#
+	 * getCompatibleProgramClasses()
+	 */
+	@Override
+	public List<String> getCompatibleProgramNames() {
+		return new ArrayList<String>();
+	}
+}
@@ -14,33 +14,20 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
-import org.rosuda.REngine.REXP;
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.wiwie.wiutils.utils.ArraysExt;
 import de.wiwie.wiutils.utils.SimilarityMatrix;
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.RelativeDataSet;
-import de.clusteval.framework.RLibraryRequirement;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
 /**
  * @author Christian Wiwie
  */
-@RLibraryRequirement(requiredRLibraries = {"clv"})
 public class DaviesBouldinIndexRClusteringQualityMeasure
 		extends
-			ClusteringQualityMeasureR {
+			ClusteringQualityMeasure {
 
 	/**
 	 * @param repo
@@ -88,64 +75,18 @@ public class DaviesBouldinIndexRClusteringQualityMeasure
 	 */
 	@SuppressWarnings("unused")
 	@Override
-	public ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+	public ClusteringQualityMeasureValue getQualityOfClustering(
 			final Clustering clustering, Clustering gsClustering,
-			final DataConfig dataConfig, final MyRengine rEngine)
-			throws IllegalArgumentException, REngineException,
-			REXPMismatchException, InterruptedException {
+			final DataConfig dataConfig) {
 
 		RelativeDataSet dataSet = (RelativeDataSet) (dataConfig
 				.getDatasetConfig().getDataSet().getInStandardFormat());
 
 		SimilarityMatrix simMatrix = dataSet.getDataSetContent();
 
-		/*
-		 * Create an array with all the cluster ids for every item
-		 */
-		Map<Cluster, Integer> clusterToId = new HashMap<Cluster, Integer>();
-		for (Cluster cl : clustering.getClusters())
-			clusterToId.put(cl, clusterToId.size() + 1);
-
-		int[] clusterIds = new int[simMatrix.getIds().size()];
-		Map<String, Integer> keyToId = simMatrix.getIds();
-		Iterator<ClusterItem> itemIter = clustering.getClusterItems()
-				.iterator();
-		while (itemIter.hasNext()) {
-			ClusterItem item = itemIter.next();
-			/*
-			 * TODO: Take the first one, does not work for fuzzy clusters
-			 */
-			clusterIds[keyToId.get(item.getId())] = clusterToId.get(item
-					.getFuzzyClusters().keySet().iterator().next());
-		}
-		double[][] similarities = simMatrix.toArray();
-		/*
-		 * Convert to dissimilarities
-		 */
-		similarities = ArraysExt.subtract(simMatrix.getMaxValue(),
-				similarities, true);
-
-		/*
-		 * Pass the arrays to R
-		 */
-		double result;
-		rEngine.assign("clusterIds", clusterIds);
-		rEngine.eval("names(clusterIds) <- as.character(1:"
-				+ similarities.length + ")");
-
-		rEngine.assign("sim", similarities);
-		rEngine.eval("rownames(sim) <- as.character(1:" + similarities.length
-				+ ")");
-		rEngine.eval("colnames(sim) <- as.character(1:" + similarities.length
-				+ ")");
-
-		rEngine.eval("library(clv)");
-		rEngine.eval("diss <- cls.scatt.diss.mx(sim, clusterIds)");
-		rEngine.eval("db <- clv.Davies.Bouldin(diss,'average','average')");
-		REXP exp = rEngine.eval("db");
-		if (exp != null)
-			result = exp.asDouble();
-		else
+		double result = clustering.getClusterDissimilarities(simMatrix)
+				.getDaviesBouldinIndex();
+		if (Double.isNaN(result))
 			result = this.getMaximum();
 
 		return ClusteringQualityMeasureValue.getForDouble(result);
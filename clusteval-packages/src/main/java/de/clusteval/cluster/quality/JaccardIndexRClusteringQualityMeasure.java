@@ -14,21 +14,9 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
 
-import org.rosuda.REngine.REXP;
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
-import de.clusteval.framework.RLibraryRequirement;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
@@ -36,10 +24,9 @@ import de.clusteval.framework.repository.Repository;
  * @author Christian Wiwie
  * 
  */
-@RLibraryRequirement(requiredRLibraries = {"clv"})
 public class JaccardIndexRClusteringQualityMeasure
 		extends
-			ClusteringQualityMeasureR {
+			ClusteringQualityMeasure {
 
 	/**
 	 * @param repo
@@ -87,68 +74,18 @@ public class JaccardIndexRClusteringQualityMeasure
 	 */
 	@SuppressWarnings("unused")
 	@Override
-	public ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+	public ClusteringQualityMeasureValue getQualityOfClustering(
 			Clustering clustering, Clustering gsClustering,
-			DataConfig dataConfig, final MyRengine rEngine)
-			throws REXPMismatchException, REngineException,
-			InterruptedException {
-
-		/*
-		 * Create an array with all the cluster ids for every cluster
-		 */
-		Map<Cluster, Integer> clusterToId = new HashMap<Cluster, Integer>();
-		for (Cluster cl : clustering.getClusters())
-			clusterToId.put(cl, clusterToId.size() + 1);
-
-		/*
-		 * Create an array with all the goldstandard ids for every cluster
-		 */
-		Map<Cluster, Integer> gsClusterToId = new HashMap<Cluster, Integer>();
-		for (Cluster cl : gsClustering.getClusters())
-			gsClusterToId.put(cl, gsClusterToId.size() + 1);
-
-		Set<ClusterItem> items = clustering.getClusterItems();
-
-		int[] clusterIds = new int[items.size()];
-		int[] gsClusterIds = new int[items.size()];
-		Iterator<ClusterItem> itemIter = items.iterator();
-		for (int i = 0; i < items.size(); i++) {
-			ClusterItem item = itemIter.next();
-
-			/*
-			 * TODO: Take the first one, does not work for fuzzy clusters
-			 */
-			Cluster cluster = item.getFuzzyClusters().keySet().iterator()
-					.next();
-			Cluster clazz = gsClustering
-					.getClusterForItem(
-							gsClustering.getClusterItemWithId(item.getId()))
-					.keySet().iterator().next();
-			clusterIds[i] = clusterToId.get(cluster);
-			gsClusterIds[i] = gsClusterToId.get(clazz);
-		}
-
-		/*
-		 * Pass the arrays to R
-		 */
-		double result;
-		rEngine.assign("clusterIds", clusterIds);
-		rEngine.eval("names(clusterIds) <- as.character(1:" + clusterIds.length
-				+ ")");
-		rEngine.assign("goldstandardIds", gsClusterIds);
-		rEngine.eval("names(goldstandardIds) <- as.character(1:"
-				+ gsClusterIds.length + ")");
-
-		rEngine.eval("library(clv)");
-		rEngine.eval("stdext <- std.ext(clusterIds, goldstandardIds)");
-		rEngine.eval("jaccard <- clv.Jaccard(stdext)");
-		REXP exp = rEngine.eval("jaccard");
-		if (exp != null)
-			result = exp.asDouble();
-		else
-			result = this.getMinimum();
-
-		return ClusteringQualityMeasureValue.getForDouble(result);
+			DataConfig dataConfig) {
+
+		ContingencyTable table = clustering.getContingencyTable(gsClustering);
+		double tp = table.getTruePositives();
+		// without any pair in the same cluster and class the index is 0,
+		// also if there are no pairs in the same cluster or class at all
+		if (tp == 0.0)
+			return ClusteringQualityMeasureValue.getForDouble(0.0);
+		return ClusteringQualityMeasureValue.getForDouble(tp
+				/ (tp + table.getFalsePositives() + table.getFalseNegatives()));
 	}
 
 	/*
@@ -15,10 +15,7 @@ package de.clusteval.cluster.quality;
 
 import java.io.File;
 import java.io.Serializable;
-import java.util.Map;
 
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.framework.repository.RegisterException;
@@ -88,82 +85,31 @@ public class PairwiseF2ClusteringQualityMeasure
 			final Clustering clustering, Clustering gsClustering,
 			final DataConfig dataConfig) {
 
-		final float proteins = clustering.size();
+		ContingencyTable table = clustering.getContingencyTable(gsClustering);
+
+		// the best matching cluster of every class
+		double[] maxValues = new double[table.getNumberOfClasses()];
+		for (int cell = 0; cell < table.getNumberOfCells(); cell++) {
+			int clazz = table.getCellClass(cell);
+			double value = (2 * table.getCellCount(cell))
+					/ (table.getClassSize(clazz) + table.getClusterSize(table
+							.getCellCluster(cell)));
+			if (value > maxValues[clazz])
+				maxValues[clazz] = value;
+		}
 
 		double fmeasure = 0;
-
-		for (Cluster gsCluster : gsClustering) {
-			final float proteinsInReference = gsCluster.fuzzySize();
-			final double maxValue = findMax(clustering, gsCluster);
-			fmeasure += (maxValue * proteinsInReference);
+		for (int clazz = 0; clazz < maxValues.length; clazz++) {
+			double maxValue = maxValues[clazz];
+			if (maxValue == 0 && table.getClassItemCount(clazz) == 1)
+				maxValue = 1;
+			fmeasure += (maxValue * table.getClassSize(clazz));
 		}
-		fmeasure /= proteins;
+		fmeasure /= table.getNumberOfClusteringItems();
 
 		return ClusteringQualityMeasureValue.getForDouble(fmeasure);
 	}
 
-	/**
-	 * Find max.
-	 * 
-	 * @param proteinsInReference
-	 *            the proteins in reference
-	 * @param clustering
-	 *            the clustering
-	 * @param gsCluster
-	 *            the gs cluster
-	 * @return the double
-	 */
-	private static double findMax(final Clustering clustering,
-			final Cluster gsCluster) {
-		double max = 0;
-		double maxCommon = 0;
-
-		for (Cluster cluster : clustering) {
-			double dummy = 0;
-			double common = 0;
-
-			// performance reasons
-			if (gsCluster.size() < cluster.size()) {
-				common = calculateCommonProteins(gsCluster, cluster);
-			} else {
-				common = calculateCommonProteins(cluster, gsCluster);
-			}
-			dummy = (2 * common)
-					/ (gsCluster.fuzzySize() + cluster.fuzzySize());
-			if (dummy > max) {
-				max = dummy;
-				maxCommon = common;
-			}
-		}
-		if (maxCommon == 0 && gsCluster.size() == 1) {
-			return 1;
-		}
-		return max;
-	}
-
-	/**
-	 * Calculate common proteins.
-	 * 
-	 * @param c1
-	 *            the c1
-	 * @param c2
-	 *            the c2
-	 * @return the float
-	 */
-	private static float calculateCommonProteins(final Cluster c1,
-			final Cluster c2) {
-		float common = 0;
-
-		Map<ClusterItem, Float> items = c1.getFuzzyItems();
-
-		for (ClusterItem item : items.keySet()) {
-			if (c2.contains(item)) {
-				common += items.get(item);
-			}
-		}
-		return common;
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
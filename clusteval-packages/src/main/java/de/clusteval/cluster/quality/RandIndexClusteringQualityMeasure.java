@@ -14,10 +14,7 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Set;
 
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.framework.repository.RegisterException;
@@ -78,72 +75,10 @@ public class RandIndexClusteringQualityMeasure extends ClusteringQualityMeasure
 			Clustering clustering, Clustering gsClustering,
 			DataConfig dataConfig) {
 
-		double tp = 0.0;
-		double fp = 0.0;
-		double tn = 0.0;
-		double fn = 0.0;
-
-		/*
-		 * Ensure, that goldstandard contains only objects, that are also in the
-		 * dataset. Otherwise precision will be calculated incorrectly, because
-		 * it directly depends on the number of items in a cluster in the
-		 * goldstandard.
-		 */
-		Set<ClusterItem> gsClusterItems = new HashSet<ClusterItem>(
-				gsClustering.getClusterItems());
-		Set<ClusterItem> clusterItems = new HashSet<ClusterItem>(
-				clustering.getClusterItems());
-		gsClusterItems.removeAll(clusterItems);
-		for (ClusterItem onlyInGs : gsClusterItems)
-			gsClustering.removeClusterItem(onlyInGs);
-
-		/*
-		 * Ensure, that clustering contains only objects, that are also in the
-		 * goldstandard.
-		 */
-		gsClusterItems = new HashSet<ClusterItem>(
-				gsClustering.getClusterItems());
-		clusterItems.removeAll(gsClusterItems);
-		for (ClusterItem onlyInClustering : clusterItems)
-			clustering.removeClusterItem(onlyInClustering);
-
-		ClusterItem[] items = gsClusterItems.toArray(new ClusterItem[0]);
-		/*
-		 * Iterate over all pairs
-		 */
-		for (int i = 0; i < items.length; i++) {
-			ClusterItem first = items[i];
-			for (int j = i + 1; j < items.length; j++) {
-				ClusterItem second = items[j];
-
-				// TODO: no fuzzy support yet
-				boolean gsSame = first
-						.getFuzzyClusters()
-						.keySet()
-						.iterator()
-						.next()
-						.equals(second.getFuzzyClusters().keySet().iterator()
-								.next());
-				boolean clusteringSame = clustering
-						.getClusterForItem(first)
-						.keySet()
-						.iterator()
-						.next()
-						.equals(clustering.getClusterForItem(second).keySet()
-								.iterator().next());
-				if (gsSame && clusteringSame)
-					tp++;
-				else if (gsSame && !clusteringSame)
-					fn++;
-				else if (!gsSame && !clusteringSame)
-					tn++;
-				else if (!gsSame && clusteringSame)
-					fp++;
-			}
-		}
-
-		return ClusteringQualityMeasureValue.getForDouble((tp + tn)
-				/ (tp + tn + fp + fn));
+		ContingencyTable table = clustering.getContingencyTable(gsClustering);
+		return ClusteringQualityMeasureValue.getForDouble((table
+				.getTruePositives() + table.getTrueNegatives())
+				/ table.getNumberOfPairs());
 	}
 
 	/*
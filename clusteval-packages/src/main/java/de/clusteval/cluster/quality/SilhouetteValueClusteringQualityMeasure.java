@@ -14,13 +14,8 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
 import de.wiwie.wiutils.utils.SimilarityMatrix;
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.RelativeDataSet;
@@ -82,85 +77,15 @@ public class SilhouetteValueClusteringQualityMeasure
 	@Override
 	public ClusteringQualityMeasureValue getQualityOfClustering(
 			final Clustering clustering, Clustering gsClustering,
-			final DataConfig dataConfig) throws IllegalArgumentException {
-
-		if (clustering.getClusters().size() < 2)
-			return ClusteringQualityMeasureValue.getForDouble(-1.0);
+			final DataConfig dataConfig) {
 
 		RelativeDataSet dataSet = (RelativeDataSet) (dataConfig
 				.getDatasetConfig().getDataSet().getInStandardFormat());
 
 		SimilarityMatrix simMatrix = dataSet.getDataSetContent();
 
-		double result = 0.0;
-
-		for (ClusterItem item : clustering.getClusterItems())
-			result += getQualityOfDatum(simMatrix, clustering, item);
-		result /= clustering.getClusterItems().size();
-
-		return ClusteringQualityMeasureValue.getForDouble(result);
-	}
-
-	private double getQualityOfDatum(final SimilarityMatrix simMatrix,
-			final Clustering clustering, final ClusterItem item) {
-		Set<Cluster> ownClusters = item.getFuzzyClusters().keySet();
-		Set<Cluster> otherClusters = new HashSet<Cluster>(
-				clustering.getClusters());
-		otherClusters.removeAll(ownClusters);
-
-		double a;
-		if (ownClusters.iterator().next().size() > 1)
-			a = getAverageDissimilarityToFuzzyClusters(simMatrix, item,
-					ownClusters);
-		else
-			return 0.0;
-		double b = Double.MAX_VALUE;
-		for (Cluster other : otherClusters)
-			b = Math.min(
-					b,
-					getAverageDissimilarityToFuzzyCluster(simMatrix, item,
-							other));
-
-		/*
-		 * Avoid division by zero in extreme cases.
-		 */
-		return (a == b && a == 0 ? 0 : (b - a) / Math.max(a, b));
-	}
-
-	private double getAverageDissimilarityToFuzzyClusters(
-			final SimilarityMatrix simMatrix, final ClusterItem item,
-			final Set<Cluster> clusters) {
-		double result = 0.0;
-
-		for (Cluster cl : clusters) {
-			result += getAverageDissimilarityToFuzzyCluster(simMatrix, item, cl);
-		}
-
-		return result;
-	}
-
-	private double getAverageDissimilarityToFuzzyCluster(
-			final SimilarityMatrix simMatrix, final ClusterItem item,
-			final Cluster fuzzyCluster) {
-		double result = 0.0;
-
-		String itemId = item.getId();
-		for (Map.Entry<ClusterItem, Float> other : fuzzyCluster.getFuzzyItems()
-				.entrySet()) {
-			ClusterItem otherItem = other.getKey();
-			if (otherItem.equals(item))
-				continue;
-			result += (simMatrix.getMaxValue() - simMatrix.getSimilarity(
-					itemId, otherItem.getId())) * other.getValue();
-		}
-		// TODO
-		if (fuzzyCluster.contains(item)) {
-			result /= fuzzyCluster.fuzzySize() - 1;
-			// result *= fuzzyCluster.getFuzzyItems().get(item);
-		} else
-			result /= fuzzyCluster.fuzzySize();
-
-		return result;
+		return ClusteringQualityMeasureValue.getForDouble(clustering
+				.getClusterDissimilarities(simMatrix).getSilhouetteValue());
 	}
 
 	/*
@@ -14,33 +14,22 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
-import org.rosuda.REngine.REXP;
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.wiwie.wiutils.utils.ArraysExt;
 import de.wiwie.wiutils.utils.SimilarityMatrix;
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.CompactClustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.RelativeDataSet;
-import de.clusteval.framework.RLibraryRequirement;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
 /**
  * @author Christian Wiwie
  */
-@RLibraryRequirement(requiredRLibraries = {"cluster"})
 public class SilhouetteValueFuzzyRClusteringQualityMeasure
 		extends
-			ClusteringQualityMeasureR {
+			ClusteringQualityMeasure {
 
 	/**
 	 * @param repo
@@ -88,13 +77,12 @@ public class SilhouetteValueFuzzyRClusteringQualityMeasure
 	 */
 	@SuppressWarnings("unused")
 	@Override
-	public ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+	public ClusteringQualityMeasureValue getQualityOfClustering(
 			final Clustering clustering, Clustering gsClustering,
-			final DataConfig dataConfig, final MyRengine rEngine)
-			throws IllegalArgumentException, REngineException,
-			REXPMismatchException, InterruptedException {
+			final DataConfig dataConfig) {
 
-		if (clustering.getClusters().size() < 2)
+		CompactClustering compact = clustering.getCompactClustering();
+		if (compact.getNumberOfClusters() < 2)
 			return ClusteringQualityMeasureValue.getForDouble(-1.0);
 
 		// fuzzyfactor
@@ -107,76 +95,44 @@ public class SilhouetteValueFuzzyRClusteringQualityMeasure
 		SimilarityMatrix simMatrix = dataSet.getDataSetContent();
 
 		/*
-		 * Create an array with all the cluster ids for every item
+		 * The two largest fuzzy coefficients of every item
 		 */
-		Map<Cluster, Integer> clusterToId = new HashMap<Cluster, Integer>();
-		for (Cluster cl : clustering.getClusters())
-			clusterToId.put(cl, clusterToId.size() + 1);
-
-		double[][] fuzzyCoeffs = new double[simMatrix.getIds().size()][2];
-		int[][] fuzzyClusters = new int[simMatrix.getIds().size()][2];
-
-		Map<String, Integer> keyToId = simMatrix.getIds();
-		Iterator<ClusterItem> itemIter = clustering.getClusterItems()
-				.iterator();
-		while (itemIter.hasNext()) {
-			ClusterItem item = itemIter.next();
-
-			int itemIndex = keyToId.get(item.getId());
-
-			for (Map.Entry<Cluster, Float> e : item.getFuzzyClusters()
-					.entrySet()) {
-
-				int clusterIndex = clusterToId.get(e.getKey());
-
-				// maintain clusters with two largest fuzzy coefficient
-				if (e.getValue() > fuzzyCoeffs[itemIndex][0]) {
-					fuzzyCoeffs[itemIndex][1] = fuzzyCoeffs[itemIndex][0];
-					fuzzyClusters[itemIndex][1] = fuzzyClusters[itemIndex][0];
-
-					fuzzyCoeffs[itemIndex][0] = e.getValue();
-					fuzzyClusters[itemIndex][0] = clusterIndex;
-				} else if (e.getValue() > fuzzyCoeffs[itemIndex][1]) {
-					fuzzyCoeffs[itemIndex][1] = e.getValue();
-					fuzzyClusters[itemIndex][1] = clusterIndex;
-				}
+		float[] firstCoeffs = new float[compact.getNumberOfItems()];
+		float[] secondCoeffs = new float[compact.getNumberOfItems()];
+		for (int c = 0; c < compact.getNumberOfClusters(); c++) {
+			for (int pos = compact.getClusterStart(c); pos < compact
+					.getClusterEnd(c); pos++) {
+				int item = compact.getMemberItem(pos);
+				float coeff = compact.getMemberCoefficient(pos);
+				if (coeff > firstCoeffs[item]) {
+					secondCoeffs[item] = firstCoeffs[item];
+					firstCoeffs[item] = coeff;
+				} else if (coeff > secondCoeffs[item])
+					secondCoeffs[item] = coeff;
 			}
-
 		}
-		double[][] similarities = simMatrix.toArray();
-		/*
-		 * Convert to dissimilarities
-		 */
-		similarities = ArraysExt.subtract(simMatrix.getMaxValue(),
-				similarities, true);
 
 		/*
-		 * Pass the arrays to R
+		 * Weight the silhouettes in the clusters with the largest fuzzy
+		 * coefficients
 		 */
-		double result;
-		rEngine.assign("fuzzyCoeffs", fuzzyCoeffs);
-		rEngine.assign("fuzzyClusters", fuzzyClusters);
-		rEngine.eval("alpha <- " + alpha);
-		rEngine.eval("clusterIds <- fuzzyClusters[,1]");
-		rEngine.eval("names(clusterIds) <- as.character(1:"
-				+ similarities.length + ")");
-
-		rEngine.assign("sim", similarities);
-		rEngine.eval("rownames(sim) <- as.character(1:" + similarities.length
-				+ ")");
-		rEngine.eval("colnames(sim) <- as.character(1:" + similarities.length
-				+ ")");
-
-		rEngine.eval("library(cluster)");
-		rEngine.eval("sil <- silhouette(x=clusterIds,dmatrix=sim)");
-		REXP exp = rEngine
-				.eval("sum((fuzzyCoeffs[,1]-fuzzyCoeffs[,2])**alpha * sil[,3])/sum((fuzzyCoeffs[,1]-fuzzyCoeffs[,2])**alpha)");
-		if (exp != null) {
-			result = exp.asDouble();
-		} else
-			result = this.getMinimum();
-
-		return ClusteringQualityMeasureValue.getForDouble(result);
+		ClusterDissimilarities dissimilarities = clustering
+				.getClusterDissimilarities(simMatrix);
+		Map<String, Integer> keyToId = simMatrix.getIds();
+		double weightedSum = 0.0;
+		double weights = 0.0;
+		for (int item = 0; item < compact.getNumberOfItems(); item++) {
+			Integer row = keyToId.get(compact.getItemId(item));
+			if (row == null)
+				continue;
+			double weight = Math.pow(firstCoeffs[item] - secondCoeffs[item],
+					alpha);
+			weightedSum += weight * dissimilarities.getSilhouette(row);
+			weights += weight;
+		}
+
+		return ClusteringQualityMeasureValue.getForDouble(weightedSum
+				/ weights);
 	}
 
 	/*
@@ -14,22 +14,11 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
-import org.rosuda.REngine.REXP;
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.wiwie.wiutils.utils.ArraysExt;
 import de.wiwie.wiutils.utils.SimilarityMatrix;
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.data.dataset.RelativeDataSet;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
@@ -38,7 +27,7 @@ import de.clusteval.framework.repository.Repository;
  */
 public class SilhouetteValueGlobalRClusteringQualityMeasure
 		extends
-			ClusteringQualityMeasureR {
+			ClusteringQualityMeasure {
 
 	/**
 	 * @param repo
@@ -86,91 +75,18 @@ public class SilhouetteValueGlobalRClusteringQualityMeasure
 	 */
 	@SuppressWarnings("unused")
 	@Override
-	public ClusteringQualityMeasureValue getQualityOfClusteringHelper(
+	public ClusteringQualityMeasureValue getQualityOfClustering(
 			final Clustering clustering, Clustering gsClustering,
-			final DataConfig dataConfig, final MyRengine rEngine)
-			throws IllegalArgumentException, REngineException,
-			REXPMismatchException, InterruptedException {
-
-		if (clustering.getClusters().size() < 2)
-			return ClusteringQualityMeasureValue.getForDouble(-1.0);
+			final DataConfig dataConfig) {
 
 		RelativeDataSet dataSet = (RelativeDataSet) (dataConfig
 				.getDatasetConfig().getDataSet().getInStandardFormat());
 
 		SimilarityMatrix simMatrix = dataSet.getDataSetContent();
 
-		/*
-		 * Create an array with all the cluster ids for every item
-		 */
-		Map<Cluster, Integer> clusterToId = new HashMap<Cluster, Integer>();
-		for (Cluster cl : clustering.getClusters())
-			clusterToId.put(cl, clusterToId.size() + 1);
-
-		int[] clusterIds = new int[simMatrix.getIds().size()];
-		Map<String, Integer> keyToId = simMatrix.getIds();
-		Iterator<ClusterItem> itemIter = clustering.getClusterItems()
-				.iterator();
-		while (itemIter.hasNext()) {
-			ClusterItem item = itemIter.next();
-			/*
-			 * TODO: Take the first one, does not work for fuzzy clusters
-			 */
-			clusterIds[keyToId.get(item.getId())] = clusterToId.get(item
-					.getFuzzyClusters().keySet().iterator().next());
-		}
-		double[][] similarities = simMatrix.toArray();
-		/*
-		 * Convert to dissimilarities
-		 */
-		similarities = ArraysExt.subtract(simMatrix.getMaxValue(),
-				similarities, true);
-
-		/*
-		 * Pass the arrays to R
-		 */
-		double result;
-		rEngine.assign("clusterIds", clusterIds);
-		rEngine.eval("names(clusterIds) <- as.character(1:"
-				+ similarities.length + ")");
-
-		rEngine.assign("sim", similarities);
-		rEngine.eval("rownames(sim) <- as.character(1:" + similarities.length
-				+ ")");
-		rEngine.eval("colnames(sim) <- as.character(1:" + similarities.length
-				+ ");");
-
-		String fct = "si <- function(dissims, rowSums, clusterIds, clustering, clusterToItems, item) {"
-				+ "  clId = clustering[item];"
-				+ "  clusterElems = clusterToItems[[clId]];"
-				+ "  if (length(clusterElems)==1)"
-				+ "    return (0);"
-				+ "  disSumOwnCluster <- sum(dissims[item,clusterElems])-dissims[item,item];"
-				+ "  ai = disSumOwnCluster/length(clusterElems);"
-				+ "  bi <- (rowSums[item]-disSumOwnCluster)/(length(clustering)-length(clusterElems));"
-				+ "  m = max(bi,ai,na.rm=T);"
-				+ "  if (m == 0)"
-				+ "    return (0);" + "  return ((bi-ai)/m);" + "};" + "0;";
-		rEngine.eval(fct);
-		fct = "silhouetteGlobal <- function(dissims,clustering) {"
-				+ "  clusterIds <- unique(clustering);"
-				+ "  if (length(clusterIds) == 1)"
-				+ "    return (-1.0);"
-				+ "  clusterToItems = list();"
-				+ "  for (clusterId in clusterIds) {"
-				+ "    clusterToItems[clusterId] <- list(which(clustering==clusterId));"
-				+ "  };"
-				+ "  rs <- rowSums(dissims);"
-				+ "  sis <- sapply(1:length(clustering),FUN=function(x){si(dissims,rs,clusterIds,clustering, clusterToItems,x)});"
-				+ "  return (mean(sis));" + "};" + "0;";
-		rEngine.eval(fct);
-		REXP exp = rEngine.eval("silhouetteGlobal(sim, clusterIds)");
-		if (exp != null)
-			result = exp.asDouble();
-		else
-			result = this.getMinimum();
-
-		return ClusteringQualityMeasureValue.getForDouble(result);
+		return ClusteringQualityMeasureValue.getForDouble(clustering
+				.getClusterDissimilarities(simMatrix)
+				.getGlobalSilhouetteValue());
 	}
 
 	/*
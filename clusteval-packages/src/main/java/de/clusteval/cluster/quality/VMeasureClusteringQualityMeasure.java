@@ -14,13 +14,7 @@
 package de.clusteval.cluster.quality;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
 
-import de.clusteval.cluster.Cluster;
-import de.clusteval.cluster.ClusterItem;
 import de.clusteval.cluster.Clustering;
 import de.clusteval.data.DataConfig;
 import de.clusteval.framework.repository.RegisterException;
@@ -67,109 +61,37 @@ public class VMeasureClusteringQualityMeasure extends ClusteringQualityMeasure {
 			Clustering clustering, Clustering gsClustering,
 			DataConfig dataConfig) {
 
-		Set<ClusterItem> gsClusterItems = new HashSet<ClusterItem>(
-				gsClustering.getClusterItems());
-		Set<ClusterItem> clusterItems = new HashSet<ClusterItem>(
-				clustering.getClusterItems());
-		gsClusterItems.removeAll(clusterItems);
-		for (ClusterItem onlyInGs : gsClusterItems)
-			gsClustering.removeClusterItem(onlyInGs);
-
-		/*
-		 * Ensure, that clustering contains only objects, that are also in the
-		 * goldstandard.
-		 */
-		gsClusterItems = new HashSet<ClusterItem>(
-				gsClustering.getClusterItems());
-		clusterItems.removeAll(gsClusterItems);
-		for (ClusterItem onlyInClustering : clusterItems)
-			clustering.removeClusterItem(onlyInClustering);
-
-		// class labels
-		Map<Cluster, Integer> classLabels = new HashMap<Cluster, Integer>();
-		for (Cluster cl : gsClustering.getClusters())
-			classLabels.put(cl, classLabels.size());
-
-		// cluster labels
-		Map<Cluster, Integer> clusterLabels = new HashMap<Cluster, Integer>();
-		for (Cluster cl : clustering.getClusters())
-			clusterLabels.put(cl, clusterLabels.size());
-
-		// number classes X number clusters
-		double[][] contingency = new double[classLabels.size()][clusterLabels
-				.size()];
-		for (ClusterItem item : gsClustering.getClusterItems()) {
-			Map<Cluster, Float> clusters = clustering.getClusterForItem(item);
-			Map<Cluster, Float> classes = gsClustering.getClusterForItem(item);
-			for (Cluster cluster : clusters.keySet()) {
-				int clusterLabel = clusterLabels.get(cluster);
-				for (Cluster clazz : classes.keySet()) {
-					int classLabel = classLabels.get(clazz);
-					contingency[classLabel][clusterLabel] += Math.min(
-							clusters.get(cluster), classes.get(clazz));
-				}
-			}
-		}
-
-		double[] contingency_sum_c = new double[clusterLabels.size()];
-		for (int cluster = 0; cluster < contingency_sum_c.length; cluster++)
-			for (int clazz = 0; clazz < classLabels.size(); clazz++) {
-				contingency_sum_c[cluster] += contingency[clazz][cluster];
-			}
-
-		double[] contingency_sum_k = new double[classLabels.size()];
-		for (int clazz = 0; clazz < contingency_sum_k.length; clazz++) {
-			for (int cluster = 0; cluster < clusterLabels.size(); cluster++)
-				contingency_sum_k[clazz] += contingency[clazz][cluster];
-		}
+		ContingencyTable table = clustering.getContingencyTable(gsClustering);
+		double n = table.getTotal();
 
-		// homogeneity
+		// conditional entropies of the classes given the clusters and vice
+		// versa
 		double h_c_k = 0.0;
-		for (Cluster cluster : clusterLabels.keySet()) {
-			for (Cluster clazz : classLabels.keySet()) {
-				int clusterLabel = clusterLabels.get(cluster);
-				double a_c_k = contingency[classLabels.get(clazz)][clusterLabels
-						.get(cluster)];
-				if (a_c_k == 0)
-					continue;
-				h_c_k += -(a_c_k / gsClustering.size() * Math.log(a_c_k
-						/ contingency_sum_c[clusterLabel]));
-			}
+		double h_k_c = 0.0;
+		for (int cell = 0; cell < table.getNumberOfCells(); cell++) {
+			double a_c_k = table.getCellCount(cell);
+			h_c_k += -(a_c_k / n * Math.log(a_c_k
+					/ table.getClusterSum(table.getCellCluster(cell))));
+			h_k_c += -(a_c_k / n * Math.log(a_c_k
+					/ table.getClassSum(table.getCellClass(cell))));
 		}
 
-		int n = gsClustering.getClusters().size();
-		int m = clustering.getClusters().size();
-
+		// homogeneity
 		double h_c = 0.0;
-		for (Cluster clazz : classLabels.keySet()) {
-			int classLabel = classLabels.get(clazz);
-			if (contingency_sum_k[classLabel] > 0.0)
-				h_c += -(contingency_sum_k[classLabel] / gsClustering.size() * Math
-						.log(contingency_sum_k[classLabel]
-								/ gsClustering.size()));
+		for (int clazz = 0; clazz < table.getNumberOfClasses(); clazz++) {
+			double sum = table.getClassSum(clazz);
+			if (sum > 0.0)
+				h_c += -(sum / n * Math.log(sum / n));
 		}
 
 		double homogeneity = h_c == 0.0 ? 1 : (1 - h_c_k / h_c);
 
 		// completeness
-		double h_k_c = 0.0;
-		for (Cluster clazz : classLabels.keySet()) {
-			int classLabel = classLabels.get(clazz);
-			for (Cluster cluster : clusterLabels.keySet()) {
-				double a_c_k = contingency[classLabel][clusterLabels
-						.get(cluster)];
-				if (a_c_k == 0)
-					continue;
-				h_k_c += -(a_c_k / gsClustering.size() * Math.log(a_c_k
-						/ contingency_sum_k[classLabel]));
-			}
-		}
-
 		double h_k = 0.0;
-		for (Cluster cluster : clusterLabels.keySet()) {
-			int clusterLabel = clusterLabels.get(cluster);
-			h_k += -(contingency_sum_c[clusterLabel] / gsClustering.size() * Math
-					.log(contingency_sum_c[clusterLabel] / gsClustering.size()));
+		for (int cluster = 0; cluster < table.getNumberOfClusters(); cluster++) {
+			double sum = table.getClusterSum(cluster);
+			if (sum > 0.0)
+				h_k += -(sum / n * Math.log(sum / n));
 		}
 
 		double completeness = h_k == 0.0 ? 1 : (1 - h_k_c / h_k);
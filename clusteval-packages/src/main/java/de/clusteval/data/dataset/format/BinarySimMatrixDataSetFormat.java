@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ * 
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+package de.clusteval.data.dataset.format;
+
+import java.io.File;
+
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.utils.FormatVersion;
+
+/**
+ * A similarity matrix stored in a binary file (see
+ * {@link de.wiwie.wiutils.utils.parse.BinarySimFileMatrixParser}). In contrast
+ * to the {@link SimMatrixDataSetFormat} no text has to be parsed, when a
+ * dataset of this format is loaded.
+ * 
+ * @author Christian Wiwie
+ * 
+ */
+@FormatVersion(version = 1)
+public class BinarySimMatrixDataSetFormat extends RelativeDataSetFormat {
+
+	/**
+	 * Instantiates a new binary sim matrix data set format.
+	 * 
+	 * @param repo
+	 * @param register
+	 * @param changeDate
+	 * @param absPath
+	 * 
+	 * @param version
+	 * @throws RegisterException
+	 * 
+	 */
+	public BinarySimMatrixDataSetFormat(final Repository repo,
+			final boolean register, final long changeDate, final File absPath,
+			final int version) throws RegisterException {
+		super(repo, register, changeDate, absPath, version);
+	}
+
+	/**
+	 * The copy constructor for this format.
+	 * 
+	 * @param other
+	 *            The object to clone.
+	 * @throws RegisterException
+	 */
+	public BinarySimMatrixDataSetFormat(final BinarySimMatrixDataSetFormat other)
+			throws RegisterException {
+		super(other);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see data.dataset.format.DataSetFormat#getAlias()
+	 */
+	@Override
+	public String getAlias() {
+		return "Binary Similarity Matrix";
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormat#getDataSetFormatParser()
+	 */
+	@Override
+	protected DataSetFormatParser getDataSetFormatParser() {
+		return new BinarySimMatrixDataSetFormatParser();
+	}
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.data.dataset.format;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.parse.BinarySimFileMatrixParser;
+import de.clusteval.data.dataset.DataSet;
+import de.clusteval.data.dataset.DataSet.WEBSITE_VISIBILITY;
+import de.clusteval.data.dataset.RelativeDataSet;
+import de.clusteval.framework.ClustevalBackendServer;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.utils.FormatVersion;
+
+/**
+ * @author Christian Wiwie
+ */
+@FormatVersion(version = 1)
+public class BinarySimMatrixDataSetFormatParser extends DataSetFormatParser {
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see data.dataset.format.DataSetFormat#parseDataSet(data.dataset.DataSet)
+	 */
+	@Override
+	protected SimilarityMatrix parse(DataSet dataSet, NUMBER_PRECISION precision)
+			throws IOException, InvalidDataSetFormatVersionException {
+		switch (dataSet.getDataSetFormat().getVersion()) {
+			case 1 :
+				return parse_v1(dataSet, precision);
+			default :
+				throw new InvalidDataSetFormatVersionException("Version "
+						+ dataSet.getDataSetFormat().getVersion()
+						+ " is unknown for DataSetFormat "
+						+ dataSet.getDataSetFormat());
+		}
+	}
+
+	protected SimilarityMatrix parse_v1(DataSet dataSet,
+			NUMBER_PRECISION precision) throws InvalidDataSetFormatVersionException {
+		File sourceFile = ClustevalBackendServer.getCommonFile(new File(dataSet
+				.getAbsolutePath()));
+		synchronized (sourceFile) {
+			try {
+				return new BinarySimFileMatrixParser(dataSet.getAbsolutePath(),
+						precision).process().getSimilarities();
+			} catch (IOException e) {
+				throw new InvalidDataSetFormatVersionException(e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormatParser#convertToStandardFormat
+	 * (de.clusteval.data.dataset.DataSet,
+	 * de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration)
+	 */
+	@Override
+	protected DataSet convertToStandardFormat(DataSet dataSet,
+			ConversionInputToStandardConfiguration config) throws IOException,
+			InvalidDataSetFormatVersionException, RegisterException,
+			UnknownDataSetFormatException {
+		// binary -> SIM_MATRIX
+		String resultFileName = dataSet.getAbsolutePath();
+		resultFileName = removeResultFileNameSuffix(resultFileName);
+		resultFileName += ".SimMatrix";
+		final File resultFile = new File(resultFileName);
+
+		RelativeDataSet newDataSet = new RelativeDataSet(
+				dataSet.getRepository(), false, System.currentTimeMillis(),
+				resultFile, dataSet.getAlias(),
+				(RelativeDataSetFormat) DataSetFormat.parseFromString(
+						dataSet.getRepository(), "SimMatrixDataSetFormat"),
+				dataSet.getDataSetType(), WEBSITE_VISIBILITY.HIDE);
+
+		if (!resultFile.exists()) {
+			this.log.debug("Converting input file...");
+			SimilarityMatrix matrix = this.parse(dataSet,
+					config.getSimilarityPrecision());
+			if (this.normalize)
+				matrix.normalize();
+			newDataSet.setDataSetContent(matrix);
+			newDataSet.writeToFile(false);
+			newDataSet.unloadFromMemory();
+		}
+		return newDataSet;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormatParser#convertToThisFormat
+	 * (de.clusteval.data.dataset.DataSet,
+	 * de.clusteval.data.dataset.format.DataSetFormat,
+	 * de.clusteval.data.dataset.format.ConversionConfiguration)
+	 */
+	@SuppressWarnings("unused")
+	@Override
+	protected DataSet convertToThisFormat(DataSet dataSet,
+			DataSetFormat dataSetFormat, ConversionConfiguration config)
+			throws IOException, InvalidDataSetFormatVersionException,
+			RegisterException, UnknownDataSetFormatException {
+		// SIM_MATRIX -> binary
+		String resultFileName = dataSet.getAbsolutePath();
+		resultFileName = removeResultFileNameSuffix(resultFileName);
+		resultFileName += ".BinarySimMatrix";
+		final File resultFile = new File(resultFileName);
+
+		if (!resultFile.exists()) {
+			this.log.debug("Converting input file...");
+			boolean wasInMemory = dataSet.isInMemory();
+			if (!wasInMemory)
+				dataSet.loadIntoMemory();
+			SimilarityMatrix matrix = ((RelativeDataSet) dataSet)
+					.getDataSetContent();
+			if (dataSetFormat.getNormalized())
+				matrix.normalize();
+			BinarySimFileMatrixParser.writeToFile(matrix, resultFile);
+			if (!wasInMemory)
+				dataSet.unloadFromMemory();
+		}
+		return new RelativeDataSet(dataSet.getRepository(), false,
+				dataSet.getChangeDate(), resultFile, dataSet.getAlias(),
+				new BinarySimMatrixDataSetFormat(dataSet.getRepository(),
+						false, dataSet.getChangeDate(), resultFile, dataSet
+								.getRepository().getCurrentDataSetFormatVersion(
+										BinarySimMatrixDataSetFormat.class
+												.getSimpleName())),
+				dataSet.getDataSetType(), WEBSITE_VISIBILITY.HIDE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormatParser#writeToFileHelper
+	 * (de.clusteval.data.dataset.DataSet, java.io.File, boolean)
+	 */
+	@Override
+	protected final void writeToFileHelper(DataSet dataSet, File dataSetFile,
+			boolean withHeader) throws IOException {
+		SimilarityMatrix matrix = ((RelativeDataSet) dataSet)
+				.getDataSetContent();
+		try (FileOutputStream out = new FileOutputStream(dataSetFile);
+				FileChannel channel = out.getChannel()) {
+			if (withHeader) {
+				// the header lines are text, the binary part follows directly
+				BufferedWriter writer = new BufferedWriter(
+						new OutputStreamWriter(out, StandardCharsets.UTF_8));
+				writeHeaderIntoFile(dataSet, writer);
+				writer.flush();
+			}
+			BinarySimFileMatrixParser.writeToChannel(matrix, channel);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormatParser#writeToFileHelper
+	 * (de.clusteval.data.dataset.DataSet, java.io.BufferedWriter)
+	 */
+	@Override
+	protected final void writeToFileHelper(DataSet dataSet,
+			BufferedWriter writer) throws IOException {
+		// the text writer is only used by the default implementation of
+		// writeToFileHelper(DataSet, File, boolean), which is replaced by
+		// the binary one above owning the output file. binary contents
+		// cannot be written into a character stream.
+		throw new UnsupportedOperationException(
+				"Binary similarity matrices cannot be written into a text writer");
+	}
+}
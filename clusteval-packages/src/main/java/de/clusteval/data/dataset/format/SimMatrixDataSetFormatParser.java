@@ -16,10 +16,13 @@ package de.clusteval.data.dataset.format;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 
 import de.wiwie.wiutils.utils.SimilarityMatrix;
 import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.parse.BinarySimFileMatrixParser;
 import de.wiwie.wiutils.utils.parse.SimFileMatrixParser;
 import de.wiwie.wiutils.utils.parse.SimFileParser.SIM_FILE_FORMAT;
 import de.wiwie.wiutils.utils.parse.TextFileParser.OUTPUT_MODE;
@@ -49,12 +52,35 @@ public class SimMatrixDataSetFormatParser extends DataSetFormatParser {
 				.getAbsolutePath()));
 		synchronized (sourceFile) {
 			// TODO: symmetry
+			// a binary copy written together with the text file can be loaded
+			// without parsing, as long as it was written from the current
+			// version (size and modification date) of the text file
+			File binaryFile = getBinaryFile(dataSet);
+			if (ClustevalBackendServer.getBackendServerConfiguration()
+					.isBinarySimMatrixCopies() && binaryFile.exists()) {
+				try {
+					if (BinarySimFileMatrixParser.readHeaderLines(binaryFile)
+							.contains(getSourceHeaderLine(sourceFile)))
+						return new BinarySimFileMatrixParser(
+								binaryFile.getAbsolutePath(), precision)
+								.process().getSimilarities();
+					this.log.debug(String.format(
+							"Binary copy '%s' is outdated, parsing text file instead",
+							binaryFile));
+				} catch (IOException e) {
+					this.log.warn(String.format(
+							"Could not read binary copy '%s', parsing text file instead: %s",
+							binaryFile, e.getMessage()));
+				}
+			}
+
 			final SimFileMatrixParser p;
 
 			try {
 				p = new SimFileMatrixParser(dataSet.getAbsolutePath(),
 						SIM_FILE_FORMAT.MATRIX_HEADER, null, OUTPUT_MODE.BURST,
 						SIM_FILE_FORMAT.MATRIX_HEADER, precision);
+				p.setParallelism(Runtime.getRuntime().availableProcessors());
 				p.process();
 				return p.getSimilarities();
 			} catch (IOException e) {
@@ -63,6 +89,32 @@ public class SimMatrixDataSetFormatParser extends DataSetFormatParser {
 		}
 	}
 
+	/**
+	 * @param dataSet
+	 * @return The file holding the binary copy of the passed dataset, that is
+	 *         written together with the text file if enabled in the
+	 *         {@link de.clusteval.framework.BackendServerConfig}.
+	 */
+	protected static File getBinaryFile(final DataSet dataSet) {
+		return new File(dataSet.getAbsolutePath() + ".bin");
+	}
+
+	/**
+	 * The binary copy of a dataset holds this header line, which identifies
+	 * the version of the text file it was written from by its size and
+	 * modification date. Both are read from the file system, such that
+	 * checking whether the binary copy is current does not read the text
+	 * file.
+	 * 
+	 * @param sourceFile
+	 *            The text file of the dataset.
+	 * @return The header line identifying the version of the text file.
+	 */
+	protected static String getSourceHeaderLine(final File sourceFile) {
+		return String.format("source = %d:%d", sourceFile.length(),
+				sourceFile.lastModified());
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -97,6 +149,32 @@ public class SimMatrixDataSetFormatParser extends DataSetFormatParser {
 		return null;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * de.clusteval.data.dataset.format.DataSetFormatParser#writeToFileHelper
+	 * (de.clusteval.data.dataset.DataSet, java.io.File, boolean)
+	 */
+	@Override
+	protected void writeToFileHelper(DataSet dataSet, File dataSetFile,
+			boolean withHeader) throws IOException {
+		super.writeToFileHelper(dataSet, dataSetFile, withHeader);
+		if (!ClustevalBackendServer.getBackendServerConfiguration()
+				.isBinarySimMatrixCopies())
+			return;
+		// the binary copy is written into a temporary file first, such that
+		// a partially written copy is never picked up
+		File binaryFile = getBinaryFile(dataSet);
+		File tmpFile = new File(binaryFile.getAbsolutePath() + ".tmp");
+		BinarySimFileMatrixParser.writeToFile(
+				((RelativeDataSet) dataSet).getDataSetContent(), tmpFile,
+				getSourceHeaderLine(dataSetFile));
+		Files.move(tmpFile.toPath(), binaryFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -121,21 +199,19 @@ public class SimMatrixDataSetFormatParser extends DataSetFormatParser {
 			writer.append("\t");
 			writer.append(id);
 		}
-		// we write it line-was, such that we only keep the string for one line
-		// in the memory. otherwise we might encounter problems with huge
-		// datasets.
-		writer.append(System.getProperty("line.separator"));
+		// we write directly into the buffered writer, such that we do not
+		// keep the string of a whole line in the memory. otherwise we might
+		// encounter problems with huge datasets.
+		String lineSeparator = System.getProperty("line.separator");
+		writer.append(lineSeparator);
 		for (int i = 0; i < matrix.getRows(); i++) {
-			StringBuilder sb = new StringBuilder();
-			sb.append(ids[i]);
-			sb.append("\t");
+			writer.append(ids[i]);
 			for (int j = 0; j < matrix.getColumns(); j++) {
-				sb.append(matrix.getSimilarity(i, j) + "\t");
+				writer.append('\t');
+				writer.append(Double.toString(matrix.getSimilarity(i, j)));
 			}
-			sb.deleteCharAt(sb.length() - 1);
 			if (i < matrix.getRows() - 1)
-				sb.append(System.getProperty("line.separator"));
-			writer.append(sb.toString());
+				writer.append(lineSeparator);
 		}
 	}
 }
@@ -15,13 +15,6 @@ package de.clusteval.data.distance;
 
 import java.io.File;
 
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.wiwie.wiutils.utils.ArraysExt;
-import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
-import de.clusteval.framework.RLibraryRequirement;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
@@ -29,8 +22,7 @@ import de.clusteval.framework.repository.Repository;
  * @author Christian Wiwie
  * 
  */
-@RLibraryRequirement(requiredRLibraries = {"proxy"})
-public class AbsoluteDistanceMeasure extends DistanceMeasureR {
+public class AbsoluteDistanceMeasure extends DistanceMeasureJava {
 
 	/**
 	 * @param repository
@@ -59,53 +51,35 @@ public class AbsoluteDistanceMeasure extends DistanceMeasureR {
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see data.distance.DistanceMeasure#supportsMatrix()
+	 * @see
+	 * de.clusteval.data.distance.DistanceMeasureJava#getDistanceHelper(double[],
+	 * double[])
 	 */
 	@Override
-	public boolean supportsMatrix() {
-		return true;
+	protected double getDistanceHelper(double[] point1, double[] point2) {
+		double result = 0.0;
+		for (int i = 0; i < point1.length; i++)
+			result += Math.abs(point1[i] - point2[i]);
+		return result;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see de.clusteval.data.distance.DistanceMeasure#isSymmetric()
+	 * @see data.distance.DistanceMeasure#supportsMatrix()
 	 */
 	@Override
-	public boolean isSymmetric() {
+	public boolean supportsMatrix() {
 		return true;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see
-	 * de.clusteval.data.distance.DistanceMeasureR#getDistanceHelper(double[],
-	 * double[], de.clusteval.framework.repository.MyRengine)
-	 */
-	@Override
-	protected double getDistanceHelper(double[] point1, double[] point2,
-			MyRengine rEngine) throws REngineException, REXPMismatchException {
-		return ArraysExt.sum(ArraysExt.abs(ArraysExt.subtract(point1, point2)));
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see
-	 * de.clusteval.data.distance.DistanceMeasureR#getDistancesHelper(de.clusteval
-	 * .data.dataset.format.ConversionInputToStandardConfiguration, double[][],
-	 * de.clusteval.framework.repository.MyRengine, int)
+	 * @see de.clusteval.data.distance.DistanceMeasure#isSymmetric()
 	 */
 	@Override
-	protected double[][] getDistancesHelper(
-			ConversionInputToStandardConfiguration config, double[][] matrix,
-			MyRengine rEngine, int firstRow, int lastRow)
-			throws REngineException, REXPMismatchException,
-			InterruptedException {
-		return rEngine
-				.eval(String
-						.format("proxy::dist(rbind(matrix[%d:%d,]), rbind(matrix), method='Manhattan')",
-								firstRow, lastRow)).asDoubleMatrix();
+	public boolean isSymmetric() {
+		return true;
 	}
 }
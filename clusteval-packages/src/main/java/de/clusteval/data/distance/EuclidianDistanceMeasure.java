@@ -15,22 +15,15 @@
  */
 package de.clusteval.data.distance;
 
-import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
-import de.clusteval.framework.RLibraryRequirement;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 import java.io.File;
-import java.security.InvalidParameterException;
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
 
 /**
  * @author Christian Wiwie
  *
  */
-@RLibraryRequirement(requiredRLibraries = {"proxy"})
-public class EuclidianDistanceMeasure extends DistanceMeasureR {
+public class EuclidianDistanceMeasure extends DistanceMeasureJava {
 
     /**
      * @param repository
@@ -79,41 +72,16 @@ public class EuclidianDistanceMeasure extends DistanceMeasureR {
      * (non-Javadoc)
      *
      * @see
-     * de.clusteval.data.distance.DistanceMeasureR#getDistanceHelper(double[],
-     * double[], de.clusteval.framework.repository.MyRengine)
+     * de.clusteval.data.distance.DistanceMeasureJava#getDistanceHelper(double[],
+     * double[])
      */
     @Override
-    protected double getDistanceHelper(double[] point1, double[] point2,
-            MyRengine rEngine) throws REngineException, REXPMismatchException {
+    protected double getDistanceHelper(double[] point1, double[] point2) {
         double result = 0.0;
-        if (point1.length != point2.length) {
-            throw new InvalidParameterException(
-                    "The dimensions of the points need to be the same.");
-        }
         for (int i = 0; i < point1.length; i++) {
-            result += Math.pow(point1[i] - point2[i], 2.0);
+            double diff = point1[i] - point2[i];
+            result += diff * diff;
         }
-        result = Math.sqrt(result);
-        return result;
-    }
-
-    /*
-     * (non-Javadoc)
-     *
-     * @see
-     * de.clusteval.data.distance.DistanceMeasureR#getDistancesHelper(de.clusteval
-     * .data.dataset.format.ConversionInputToStandardConfiguration, double[][],
-     * de.clusteval.framework.repository.MyRengine, int)
-     */
-    @Override
-    protected double[][] getDistancesHelper(
-            ConversionInputToStandardConfiguration config, double[][] matrix,
-            MyRengine rEngine, int firstRow, int lastRow)
-            throws REngineException, REXPMismatchException,
-                   InterruptedException {
-        return rEngine
-                .eval(String
-                        .format("proxy::dist(rbind(matrix[%d:%d,]), rbind(matrix), method='Euclidean')",
-                                firstRow, lastRow)).asDoubleMatrix();
+        return Math.sqrt(result);
     }
 }
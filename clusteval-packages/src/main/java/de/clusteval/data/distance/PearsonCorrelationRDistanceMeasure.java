@@ -15,11 +15,6 @@ package de.clusteval.data.distance;
 
 import java.io.File;
 
-import org.rosuda.REngine.REXPMismatchException;
-import org.rosuda.REngine.REngineException;
-
-import de.clusteval.data.dataset.format.ConversionInputToStandardConfiguration;
-import de.clusteval.framework.repository.MyRengine;
 import de.clusteval.framework.repository.RegisterException;
 import de.clusteval.framework.repository.Repository;
 
@@ -27,7 +22,7 @@ import de.clusteval.framework.repository.Repository;
  * @author Christian Wiwie
  * 
  */
-public class PearsonCorrelationRDistanceMeasure extends DistanceMeasureR {
+public class PearsonCorrelationRDistanceMeasure extends DistanceMeasureJava {
 
 	/**
 	 * @param repository
@@ -58,53 +53,44 @@ public class PearsonCorrelationRDistanceMeasure extends DistanceMeasureR {
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see utils.Distance#getDistance(double[], double[])
+	 * @see
+	 * de.clusteval.data.distance.DistanceMeasureJava#prepare(double[][])
 	 */
 	@Override
-	public double getDistanceHelper(double[] point1, double[] point2,
-			final MyRengine rEngine) throws REXPMismatchException,
-			REngineException, InterruptedException {
-		rEngine.assign("p1", point1);
-		rEngine.assign("p2", point2);
-		double result = rEngine.eval("cor(p1,p2,method='pearson')").asDouble();
-		// convert to distance
-		return 1.0 - (result + 1) / 2;
+	protected double[][] prepare(double[][] matrix) {
+		return center(matrix);
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see data.distance.DistanceMeasure#supportsMatrix()
+	 * @see
+	 * de.clusteval.data.distance.DistanceMeasureJava#getDistanceHelper(double[],
+	 * double[])
 	 */
 	@Override
-	public boolean supportsMatrix() {
-		return true;
+	protected double getDistanceHelper(double[] point1, double[] point2) {
+		// convert to distance
+		return 1.0 - (correlation(point1, point2) + 1) / 2;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see de.clusteval.data.distance.DistanceMeasure#isSymmetric()
+	 * @see data.distance.DistanceMeasure#supportsMatrix()
 	 */
 	@Override
-	public boolean isSymmetric() {
+	public boolean supportsMatrix() {
 		return true;
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see data.distance.DistanceMeasure#getDistances(double[][])
+	 * @see de.clusteval.data.distance.DistanceMeasure#isSymmetric()
 	 */
 	@Override
-	public double[][] getDistancesHelper(
-			ConversionInputToStandardConfiguration config, double[][] matrix,
-			final MyRengine rEngine, int firstRow, int lastRow)
-			throws REngineException, REXPMismatchException,
-			InterruptedException {
-		return rEngine
-				.eval(String
-						.format("1-(cor(cbind(matrix.t[,%d:%d]), cbind(matrix.t), method='pearson')+1)/2",
-								firstRow, lastRow)).asDoubleMatrix();
+	public boolean isSymmetric() {
+		return true;
 	}
 }
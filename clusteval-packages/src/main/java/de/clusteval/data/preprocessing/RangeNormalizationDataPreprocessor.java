@@ -86,7 +86,7 @@ public class RangeNormalizationDataPreprocessor extends DataPreprocessor {
 					rEngine.assign("x", matrix.getData());
 					rEngine.eval("x.norm <- t(x) - apply(x,MARGIN=2,min)");
 					rEngine.eval("x.norm <- t(x.norm / apply(x.norm,MARGIN=1,max))");
-					double[][] result = rEngine.eval("x.norm").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("x.norm");
 
 					DataMatrix newMatrix = new DataMatrix(matrix.getIds(),
 							result);
@@ -91,7 +91,7 @@ public class RemoveSymmetricZeroFeaturesDataPreprocessor
 					// get 0-features
 					rEngine.eval("zeroFeatures <- colSums(matrix != 0) == 0");
 					rEngine.eval("matrix <- matrix[-c(zeroFeatures),-c(zeroFeatures)]");
-					double[][] result = rEngine.eval("matrix").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("matrix");
 					String[] ids = rEngine.eval("row.names(matrix)")
 							.asStrings();
 
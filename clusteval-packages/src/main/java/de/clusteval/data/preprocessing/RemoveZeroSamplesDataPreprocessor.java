@@ -86,7 +86,7 @@ public class RemoveZeroSamplesDataPreprocessor extends DataPreprocessor {
 					rEngine.eval("naRows <- which(apply(matrix,1,function(x) {all(is.na(x))}))");
 					rEngine.eval("zeroRows <- which(apply(matrix,1,function(x) {all(x==0)}))");
 					rEngine.eval("matrix <- matrix[-c(naRows,zeroRows),-c(naRows,zeroRows)]");
-					double[][] result = rEngine.eval("matrix").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("matrix");
 					String[] ids = rEngine.eval("row.names(matrix)")
 							.asStrings();
 
@@ -87,7 +87,7 @@ public class SampleRangeNormalizationDataPreprocessor extends DataPreprocessor {
 					rEngine.assign("x", matrix.getData());
 					rEngine.eval("x.norm <- x - apply(x,MARGIN=1,min)");
 					rEngine.eval("x.norm <- x.norm / apply(x.norm,MARGIN=1,max)");
-					double[][] result = rEngine.eval("x.norm").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("x.norm");
 
 					DataMatrix newMatrix = new DataMatrix(matrix.getIds(),
 							result);
@@ -88,7 +88,7 @@ public class SampleVarianceNormalizationDataPreprocessor
 				try {
 					rEngine.assign("x", matrix.getData());
 					rEngine.eval("x.norm <- x/sqrt(apply(x,MARGIN=1,var))");
-					double[][] result = rEngine.eval("x.norm").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("x.norm");
 
 					DataMatrix newMatrix = new DataMatrix(matrix.getIds(),
 							result);
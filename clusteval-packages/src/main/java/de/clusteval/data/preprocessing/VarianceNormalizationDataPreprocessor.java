@@ -86,7 +86,7 @@ public class VarianceNormalizationDataPreprocessor extends DataPreprocessor {
 				try {
 					rEngine.assign("x", matrix.getData());
 					rEngine.eval("x.norm <- t(t(x)/sqrt(apply(x,MARGIN=2,var)))");
-					double[][] result = rEngine.eval("x.norm").asDoubleMatrix();
+					double[][] result = rEngine.evalToDoubleMatrix("x.norm");
 
 					DataMatrix newMatrix = new DataMatrix(matrix.getIds(),
 							result);
@@ -0,0 +1,325 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.Cluster;
+import de.clusteval.cluster.ClusterItem;
+import de.clusteval.cluster.Clustering;
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureParameters;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.cluster.quality.SensitivityClusteringQualityMeasure;
+import de.clusteval.context.Context;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.program.IntegerProgramParameter;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.program.ProgramConfig;
+import de.clusteval.program.ProgramParameter;
+import de.clusteval.run.ParameterOptimizationRun;
+import de.clusteval.run.result.ParameterOptimizationResult;
+import de.clusteval.run.result.postprocessing.RunResultPostprocessor;
+import de.clusteval.utils.AbstractClustEvalTest;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestSuccessiveHalvingParameterOptimizationMethod
+		extends
+			AbstractClustEvalTest {
+
+	protected ClusteringQualityMeasure criterion;
+
+	protected ProgramConfig programConfig;
+
+	private ProgramConfig getProgramConfig() throws RegisterException {
+		if (this.programConfig == null)
+			this.programConfig = new ProgramConfig(getRepository(), false,
+					System.currentTimeMillis(), new File(
+							"SuccessiveHalvingProgramConfig"), null, null,
+					new ArrayList<DataSetFormat>(), "", "", "", "",
+					new ArrayList<ProgramParameter<?>>(),
+					new ArrayList<ProgramParameter<?>>(), false, -1);
+		return this.programConfig;
+	}
+
+	private IntegerProgramParameter integerParameter(final String name,
+			final int min, final int max) throws Exception {
+		IntegerProgramParameter result = new IntegerProgramParameter(
+				getRepository(), false, getProgramConfig(), name, "", min + "",
+				max + "", new String[0], min + "");
+		getProgramConfig().getParams().add(result);
+		return result;
+	}
+
+	private ClusteringQualitySet quality(final double value) {
+		ClusteringQualitySet result = new ClusteringQualitySet();
+		result.put(this.criterion,
+				ClusteringQualityMeasureValue.getForDouble(value));
+		return result;
+	}
+
+	private SuccessiveHalvingParameterOptimizationMethod createMethod(
+			final int iterations, final ProgramParameter<?>... params)
+			throws Exception {
+		this.criterion = new SensitivityClusteringQualityMeasure(
+				getRepository(), false, System.currentTimeMillis(), new File(
+						"SensitivityClusteringQualityMeasure"),
+				new ClusteringQualityMeasureParameters());
+		List<ProgramParameter<?>> paramList = new ArrayList<ProgramParameter<?>>(
+				Arrays.asList(params));
+		SuccessiveHalvingParameterOptimizationMethod method = new SuccessiveHalvingParameterOptimizationMethod(
+				getRepository(), false, System.currentTimeMillis(), new File(
+						"SuccessiveHalvingParameterOptimizationMethod"), null,
+				getProgramConfig(), getDataConfig(), paramList,
+				this.criterion, iterations, false) {
+
+			@Override
+			protected void initParameterValues() {
+				// the plain numbers of the value ranges do not have to be
+				// evaluated by the repository
+				this.random = new Random(SEED);
+				this.valueRanges = new HashMap<String, double[]>();
+				this.parameterOptions = new HashMap<String, String[]>();
+				for (ProgramParameter<?> param : this.params)
+					this.valueRanges.put(
+							param.getName(),
+							new double[]{Double.valueOf(param.getMinValue()),
+									Double.valueOf(param.getMaxValue())});
+				this.initLevels();
+			}
+		};
+		method.reset(new File(
+				"testCaseRepository/results/successiveHalving/clusters/TransClust_2_synthetic_cassini250.results.qual.complete"));
+		return method;
+	}
+
+	private DataConfig getDataConfig() {
+		return getRepository().getStaticObjectWithName(DataConfig.class,
+				"synthetic_cassini250");
+	}
+
+	/**
+	 * Evaluates all parameter sets of the current level with the quality
+	 * k/100.
+	 */
+	private List<ParameterSet> evaluateLevel(
+			final SuccessiveHalvingParameterOptimizationMethod method,
+			final int size) throws Exception {
+		List<ParameterSet> result = new ArrayList<ParameterSet>();
+		for (int i = 0; i < size; i++) {
+			ParameterSet set = method.next();
+			method.giveQualityFeedback(set,
+					quality(Integer.valueOf(set.get("k")) / 100.0));
+			result.add(set);
+		}
+		return result;
+	}
+
+	private static List<Integer> getValues(final List<ParameterSet> sets) {
+		List<Integer> result = new ArrayList<Integer>();
+		for (ParameterSet set : sets)
+			result.add(Integer.valueOf(set.get("k")));
+		return result;
+	}
+
+	@Test
+	public void testGetLevelSizes() {
+		assertArrayEquals(new int[]{27, 9, 3},
+				SuccessiveHalvingParameterOptimizationMethod.getLevelSizes(27));
+		assertArrayEquals(new int[]{10, 4, 2},
+				SuccessiveHalvingParameterOptimizationMethod.getLevelSizes(10));
+		// every level keeps at least one parameter set
+		assertArrayEquals(new int[]{1, 1, 1},
+				SuccessiveHalvingParameterOptimizationMethod.getLevelSizes(1));
+	}
+
+	@Test
+	public void testGetInitialParameterSetCount() throws Exception {
+		// 9 + 3 + 1
+		SuccessiveHalvingParameterOptimizationMethod method = createMethod(13,
+				integerParameter("k", 0, 100));
+		assertEquals(9, method.getInitialParameterSetCount());
+		assertEquals(13, method.getTotalIterationCount());
+
+		// 69 + 23 + 8; 70 would need 102 iterations
+		method = createMethod(100, integerParameter("k", 0, 100));
+		assertEquals(69, method.getInitialParameterSetCount());
+		assertEquals(100, method.getTotalIterationCount());
+
+		// every level needs at least one iteration
+		method = createMethod(2, integerParameter("k", 0, 100));
+		assertEquals(1, method.getInitialParameterSetCount());
+		assertEquals(3, method.getTotalIterationCount());
+	}
+
+	@Test
+	public void testDrawStratifiedSample() throws Exception {
+		SuccessiveHalvingParameterOptimizationMethod method = createMethod(13,
+				integerParameter("k", 0, 100));
+		String[] ids = new String[100];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = "id" + i;
+
+		// 60, 30 and 9 objects; the last object is missing in the goldstandard
+		Clustering gs = new Clustering(getRepository(),
+				System.currentTimeMillis(), new File(""));
+		Cluster[] clusters = new Cluster[]{new Cluster("1"), new Cluster("2"),
+				new Cluster("3")};
+		for (int i = 0; i < ids.length - 1; i++)
+			clusters[i < 60 ? 0 : (i < 90 ? 1 : 2)].add(
+					new ClusterItem(ids[i]), 1.0f);
+		for (Cluster cluster : clusters)
+			gs.addCluster(cluster);
+
+		int[] sample = method.drawStratifiedSample(ids, gs, 10);
+		int[] counts = new int[4];
+		for (int i = 0; i < sample.length; i++) {
+			if (i > 0)
+				assertTrue(sample[i - 1] < sample[i]);
+			counts[sample[i] < 60 ? 0 : (sample[i] < 90 ? 1 : (sample[i] < 99
+					? 2
+					: 3))]++;
+		}
+		// every class keeps its share, but at least one object
+		assertArrayEquals(new int[]{6, 3, 1, 1}, counts);
+
+		// repeated runs evaluate on the same subsample
+		assertArrayEquals(sample, method.drawStratifiedSample(ids, gs, 10));
+
+		// without goldstandard all objects form one class
+		assertEquals(10, method.drawStratifiedSample(ids, null, 10).length);
+	}
+
+	@Test
+	public void testPromoteParameterSets() throws Exception {
+		SuccessiveHalvingParameterOptimizationMethod method = createMethod(13,
+				integerParameter("k", 0, 100));
+
+		List<ParameterSet> first = evaluateLevel(method, 9);
+		for (ParameterSet set : first)
+			assertEquals("0.1111",
+					set.get(IMultiFidelityParameterOptimizationMethod.FIDELITY));
+		// subsampled parameter sets do not become optimal
+		assertNull(method.getResult().getOptimalParameterSet());
+
+		// the best third is evaluated on the next larger subsample
+		List<Integer> expected = getValues(first);
+		Collections.sort(expected, Collections.reverseOrder());
+		List<ParameterSet> second = evaluateLevel(method, 3);
+		for (ParameterSet set : second)
+			assertEquals("0.3333",
+					set.get(IMultiFidelityParameterOptimizationMethod.FIDELITY));
+		assertEquals(expected.subList(0, 3), getValues(second));
+
+		// the best parameter set is evaluated on the whole dataset
+		assertTrue(method.hasNext());
+		List<ParameterSet> last = evaluateLevel(method, 1);
+		assertEquals(Arrays.asList(expected.get(0)), getValues(last));
+		assertFalse(last.get(0).containsKey(
+				IMultiFidelityParameterOptimizationMethod.FIDELITY));
+		assertFalse(method.hasNext());
+		assertEquals(last.get(0), method.getResult().getOptimalParameterSet());
+	}
+
+	/**
+	 * Writes the parameter sets into a complete quality file the way the
+	 * parameter optimization runnable does and parses them again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void testFidelityColumnRoundTrip() throws Exception {
+		SuccessiveHalvingParameterOptimizationMethod method = createMethod(13,
+				integerParameter("k", 0, 100));
+		List<ParameterSet> sets = new ArrayList<ParameterSet>();
+		sets.addAll(evaluateLevel(method, 9));
+		sets.addAll(evaluateLevel(method, 3));
+		sets.addAll(evaluateLevel(method, 1));
+
+		List<String> lines = new ArrayList<String>();
+		lines.add("iteration\tk,"
+				+ IMultiFidelityParameterOptimizationMethod.FIDELITY + "\t"
+				+ this.criterion.getClass().getSimpleName());
+		for (int i = 0; i < sets.size(); i++) {
+			ParameterSet set = sets.get(i);
+			// the quality on the whole dataset is worse than on the
+			// subsamples
+			double quality = Integer.valueOf(set.get("k"))
+					/ (i < sets.size() - 1 ? 100.0 : 200.0);
+			lines.add((i + 1)
+					+ "\t"
+					+ set.get("k")
+					+ ","
+					+ set.get(IMultiFidelityParameterOptimizationMethod.FIDELITY)
+					+ "\t" + quality);
+		}
+		File directory = Files.createTempDirectory("successiveHalving")
+				.toFile();
+		directory.deleteOnExit();
+		File clusters = new File(directory, "clusters");
+		clusters.mkdir();
+		clusters.deleteOnExit();
+		File completeFile = new File(clusters,
+				"SuccessiveHalvingProgramConfig_synthetic_cassini250.results.qual.complete");
+		completeFile.deleteOnExit();
+		Files.write(completeFile.toPath(), lines, StandardCharsets.UTF_8);
+
+		ParameterOptimizationRun run = new ParameterOptimizationRun(
+				getRepository(), Context.parseFromString(getRepository(),
+						"ClusteringContext"), System.currentTimeMillis(),
+				new File(directory, "successiveHalving.run"),
+				new ArrayList<ProgramConfig>(), new ArrayList<DataConfig>(),
+				Arrays.asList(this.criterion),
+				new ArrayList<Map<ProgramParameter<?>, String>>(),
+				new ArrayList<List<ProgramParameter<?>>>(),
+				new ArrayList<ParameterOptimizationMethod>(),
+				new ArrayList<RunResultPostprocessor>(),
+				new HashMap<String, Integer>());
+		ParameterOptimizationResult result = ParameterOptimizationResult
+				.parseFromRunResultCompleteFile(getRepository(), run, method,
+						completeFile, false, false, false);
+		result.loadIntoMemory();
+		try {
+			// parameter sets of the last level do not contain the fidelity
+			assertEquals(sets, result.getParameterSets());
+			assertEquals(sets.get(sets.size() - 1),
+					result.getOptimalParameterSet());
+		} finally {
+			result.unloadFromMemory();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.paramOptimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.quality.ClusteringQualityMeasure;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureParameters;
+import de.clusteval.cluster.quality.ClusteringQualityMeasureValue;
+import de.clusteval.cluster.quality.ClusteringQualitySet;
+import de.clusteval.cluster.quality.SensitivityClusteringQualityMeasure;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.framework.repository.RegisterException;
+import de.clusteval.program.IntegerProgramParameter;
+import de.clusteval.program.ParameterSet;
+import de.clusteval.program.ProgramConfig;
+import de.clusteval.program.ProgramParameter;
+import de.clusteval.program.StringProgramParameter;
+import de.clusteval.utils.AbstractClustEvalTest;
+
+/**
+ * @author Christian Wiwie
+ *
+ */
+public class TestTPEParameterOptimizationMethod extends AbstractClustEvalTest {
+
+	protected ClusteringQualityMeasure criterion;
+
+	protected ProgramConfig programConfig;
+
+	private ProgramConfig getProgramConfig() throws RegisterException {
+		if (this.programConfig == null)
+			this.programConfig = new ProgramConfig(getRepository(), false,
+					System.currentTimeMillis(), new File("TPEProgramConfig"),
+					null, null, new ArrayList<DataSetFormat>(), "", "", "",
+					"", new ArrayList<ProgramParameter<?>>(),
+					new ArrayList<ProgramParameter<?>>(), false, -1);
+		return this.programConfig;
+	}
+
+	private IntegerProgramParameter integerParameter(final String name,
+			final int min, final int max) throws Exception {
+		return new IntegerProgramParameter(getRepository(), false,
+				getProgramConfig(), name, "", min + "", max + "",
+				new String[0], min + "");
+	}
+
+	private StringProgramParameter stringParameter(final String name,
+			final String... options) throws Exception {
+		return new StringProgramParameter(getRepository(), false,
+				getProgramConfig(), name, "", options, options.length > 0
+						? options[0]
+						: "");
+	}
+
+	private static ParameterSet parameterSet(final String name,
+			final String value) {
+		ParameterSet result = new ParameterSet();
+		result.put(name, value);
+		return result;
+	}
+
+	private ClusteringQualitySet quality(final ClusteringQualityMeasureValue value) {
+		ClusteringQualitySet result = new ClusteringQualitySet();
+		result.put(this.criterion, value);
+		return result;
+	}
+
+	private TPEParameterOptimizationMethod createMethod(final int iterations,
+			final boolean evaluateParameters,
+			final ProgramParameter<?>... params) throws Exception {
+		this.criterion = new SensitivityClusteringQualityMeasure(
+				getRepository(), false, System.currentTimeMillis(), new File(
+						"SensitivityClusteringQualityMeasure"),
+				new ClusteringQualityMeasureParameters());
+		List<ProgramParameter<?>> paramList = new ArrayList<ProgramParameter<?>>(
+				Arrays.asList(params));
+		TPEParameterOptimizationMethod method;
+		if (evaluateParameters)
+			method = new TPEParameterOptimizationMethod(getRepository(), false,
+					System.currentTimeMillis(), new File(
+							"TPEParameterOptimizationMethod"), null,
+					getProgramConfig(), getDataConfig(), paramList,
+					this.criterion, iterations, false);
+		else
+			method = new TPEParameterOptimizationMethod(getRepository(), false,
+					System.currentTimeMillis(), new File(
+							"TPEParameterOptimizationMethod"), null,
+					getProgramConfig(), getDataConfig(), paramList,
+					this.criterion, iterations, false) {
+
+				@Override
+				protected void initParameterValues() {
+					// the plain numbers of the value ranges do not have to be
+					// evaluated by the repository
+					this.random = new Random(SEED);
+					this.valueRanges = new HashMap<String, double[]>();
+					this.parameterOptions = new HashMap<String, String[]>();
+					for (ProgramParameter<?> param : this.params) {
+						if (param.isOptionsSet())
+							this.parameterOptions.put(param.getName(),
+									param.getOptions());
+						else
+							this.valueRanges.put(
+									param.getName(),
+									new double[]{
+											Double.valueOf(param.getMinValue()),
+											Double.valueOf(param.getMaxValue())});
+					}
+				}
+			};
+		method.reset(new File(
+				"testCaseRepository/results/tpe/clusters/TransClust_2_synthetic_cassini250.results.qual.complete"));
+		return method;
+	}
+
+	private DataConfig getDataConfig() {
+		return getRepository().getStaticObjectWithName(DataConfig.class,
+				"synthetic_cassini250");
+	}
+
+	@Test
+	public void testRankParameterSets() throws Exception {
+		TPEParameterOptimizationMethod method = createMethod(20, false,
+				integerParameter("k", 0, 100));
+		double[] qualities = new double[]{0.2, 0.9, Double.NaN, 0.5, -1};
+		for (int i = 0; i < qualities.length; i++) {
+			ParameterSet set = method.next(parameterSet("k", i + ""), i + 1);
+			if (Double.isNaN(qualities[i]))
+				method.giveQualityFeedback(set, quality(ClusteringQualityMeasureValue
+						.getForNotTerminated()));
+			else if (qualities[i] >= 0)
+				method.giveQualityFeedback(set,
+						quality(ClusteringQualityMeasureValue
+								.getForDouble(qualities[i])));
+			// the last parameter set is still running
+		}
+
+		List<ParameterSet> ranked = method
+				.rankParameterSets(new LinkedHashSet<ParameterSet>(method
+						.getResult().getParameterSets()));
+		assertEquals(parameterSet("k", "1"), ranked.get(0));
+		assertEquals(parameterSet("k", "3"), ranked.get(1));
+		assertEquals(parameterSet("k", "0"), ranked.get(2));
+		// not terminated and running parameter sets are ranked last
+		assertEquals(new HashSet<ParameterSet>(Arrays.asList(
+				parameterSet("k", "2"), parameterSet("k", "4"))),
+				new HashSet<ParameterSet>(ranked.subList(3, 5)));
+	}
+
+	@Test
+	public void testBandwidth() {
+		// too few points for a variance
+		assertEquals(0.25,
+				TPEParameterOptimizationMethod.getBandwidth(new double[]{0.5}),
+				0.0);
+		assertEquals(TPEParameterOptimizationMethod.MIN_BANDWIDTH,
+				TPEParameterOptimizationMethod.getBandwidth(new double[]{0.3,
+						0.3, 0.3}), 0.0);
+		assertEquals(1.06 * Math.sqrt(0.5) * Math.pow(2, -0.2),
+				TPEParameterOptimizationMethod.getBandwidth(new double[]{0.0,
+						1.0}), 1e-12);
+		// the bandwidth shrinks with the number of points
+		assertTrue(TPEParameterOptimizationMethod.getBandwidth(new double[]{
+				0.4, 0.6, 0.4, 0.6}) < TPEParameterOptimizationMethod
+				.getBandwidth(new double[]{0.4, 0.6}));
+	}
+
+	@Test
+	public void testDensity() {
+		// only the uniform prior
+		assertEquals(1.0,
+				TPEParameterOptimizationMethod.getDensity(0.3, new double[0],
+						0.1), 0.0);
+		assertEquals((1.0 + 1.0 / (0.1 * Math.sqrt(2 * Math.PI))) / 2,
+				TPEParameterOptimizationMethod.getDensity(0.5,
+						new double[]{0.5}, 0.1), 1e-12);
+
+		// kernels far from the borders integrate to one on [0,1]
+		double[] points = new double[]{0.4, 0.5, 0.6};
+		double integral = 0.0;
+		int steps = 10000;
+		for (int i = 0; i < steps; i++)
+			integral += TPEParameterOptimizationMethod.getDensity((i + 0.5)
+					/ steps, points, 0.05)
+					/ steps;
+		assertEquals(1.0, integral, 1e-6);
+	}
+
+	@Test
+	public void testDrawOption() throws Exception {
+		TPEParameterOptimizationMethod method = createMethod(20, false,
+				stringParameter("m", "a", "b", "c"));
+		String[] options = new String[]{"a", "b", "c"};
+		List<ParameterSet> good = Arrays.asList(parameterSet("m", "b"),
+				parameterSet("m", "b"), parameterSet("m", "a"));
+		List<ParameterSet> bad = Arrays.asList(parameterSet("m", "a"),
+				parameterSet("m", "a"), parameterSet("m", "c"),
+				parameterSet("m", "c"), parameterSet("m", "b"));
+
+		double[] weights = method.getOptionWeights("m", options, good);
+		assertEquals(2.0 / 6, weights[0], 1e-12);
+		assertEquals(3.0 / 6, weights[1], 1e-12);
+		assertEquals(1.0 / 6, weights[2], 1e-12);
+
+		// b has the maximal ratio of good to bad frequencies
+		for (int i = 0; i < 10; i++)
+			assertEquals("b", method.drawOption("m", options, good, bad));
+	}
+
+	@Test
+	public void testGetNextParameterSetWithOutstandingEvaluations()
+			throws Exception {
+		TPEParameterOptimizationMethod method = createMethod(40, false,
+				integerParameter("k", 0, 100));
+		assertEquals(10, method.getStartupIterationCount());
+
+		for (int i = 0; i < method.getStartupIterationCount(); i++) {
+			ParameterSet set = method.next();
+			int k = Integer.valueOf(set.get("k"));
+			method.giveQualityFeedback(set,
+					quality(ClusteringQualityMeasureValue
+							.getForDouble(1.0 - Math.abs(k - 50) / 100.0)));
+		}
+
+		/*
+		 * The next parameter sets are drawn from the model without waiting
+		 * for the running ones. Running parameter sets count as bad ones, such
+		 * that they are not proposed again.
+		 */
+		Set<ParameterSet> running = new HashSet<ParameterSet>();
+		for (int i = 0; i < 5; i++) {
+			ParameterSet set = method.next();
+			assertFalse(set + " proposed twice", running.contains(set));
+			running.add(set);
+		}
+		assertEquals(15, new HashSet<ParameterSet>(method.getResult()
+				.getParameterSets()).size());
+		assertEquals(10, method.getFinishedCount());
+	}
+
+	@Test(expected = ParameterOptimizationException.class)
+	public void testStringParameterWithoutOptions() throws Exception {
+		createMethod(20, true, stringParameter("m"));
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.data.DataConfig;
+import de.clusteval.data.dataset.DataSet;
+import de.clusteval.data.dataset.DataSetConfig;
+import de.clusteval.data.dataset.RelativeDataSet;
+import de.clusteval.data.dataset.format.DataSetFormat;
+import de.clusteval.data.dataset.format.RelativeDataSetFormat;
+import de.clusteval.data.dataset.type.DataSetType;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.utils.AbstractClustEvalTest;
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+
+/**
+ * Compares the internal quality measures derived from the cluster
+ * dissimilarities with values calculated by hand from their definitions, with
+ * the dissimilarities being 1 minus the similarities.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class TestClusterDissimilaritiesQualityMeasures
+		extends
+			AbstractClustEvalTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static final String[] IDS = new String[]{"a", "b", "c", "d", "e",
+			"f"};
+
+	private static final double[][] SIMILARITIES = new double[][]{
+			{1.0, 0.9, 0.8, 0.1, 0.2, 0.3}, {0.9, 1.0, 0.7, 0.3, 0.1, 0.2},
+			{0.8, 0.7, 1.0, 0.4, 0.2, 0.1}, {0.1, 0.3, 0.4, 1.0, 0.6, 0.2},
+			{0.2, 0.1, 0.2, 0.6, 1.0, 0.5}, {0.3, 0.2, 0.1, 0.2, 0.5, 1.0}};
+
+	protected DataConfig dataConfig;
+
+	private DataConfig getDataConfig() throws Exception {
+		if (this.dataConfig != null)
+			return this.dataConfig;
+		RelativeDataSet dataSet = new RelativeDataSet(getRepository(), false,
+				System.currentTimeMillis(), new File("dissimilarities"),
+				"dissimilarities",
+				(RelativeDataSetFormat) DataSetFormat.parseFromString(
+						getRepository(), "SimMatrixDataSetFormat"),
+				DataSetType.parseFromString(getRepository(), "PPIDataSetType"),
+				DataSet.WEBSITE_VISIBILITY.HIDE) {
+
+			@Override
+			public DataSet getInStandardFormat() {
+				return this;
+			}
+		};
+		dataSet.setDataSetContent(new SimilarityMatrix(IDS, SIMILARITIES));
+		DataSetConfig dataSetConfig = new DataSetConfig(getRepository(),
+				System.currentTimeMillis(), new File(
+						"dissimilarities.datasetconfig"), dataSet, null, null) {
+
+			@Override
+			public boolean register() {
+				// the conversions are not needed for the measures
+				return false;
+			}
+		};
+		this.dataConfig = new DataConfig(getRepository(),
+				System.currentTimeMillis(), new File(
+						"dissimilarities.dataconfig"), dataSetConfig, null);
+		return this.dataConfig;
+	}
+
+	private double quality(final Class<? extends ClusteringQualityMeasure> c,
+			final Clustering clustering) throws Exception {
+		ClusteringQualityMeasure measure = c.getConstructor(Repository.class,
+				boolean.class, long.class, File.class,
+				ClusteringQualityMeasureParameters.class).newInstance(
+				getRepository(), false, System.currentTimeMillis(),
+				new File(c.getSimpleName()),
+				new ClusteringQualityMeasureParameters());
+		return measure.getQualityOfClustering(clustering, null,
+				this.getDataConfig()).getValue();
+	}
+
+	private void assertQualities(final Clustering clustering,
+			final double silhouette, final double globalSilhouette,
+			final double dunn, final double daviesBouldin) throws Exception {
+		assertEquals(silhouette, quality(
+				SilhouetteValueClusteringQualityMeasure.class, clustering),
+				DELTA);
+		assertEquals(silhouette, quality(
+				SilhouetteValueRClusteringQualityMeasure.class, clustering),
+				DELTA);
+		// every item of a hard clustering has the same weight
+		assertEquals(silhouette, quality(
+				SilhouetteValueFuzzyRClusteringQualityMeasure.class,
+				clustering), DELTA);
+		assertEquals(globalSilhouette, quality(
+				SilhouetteValueGlobalRClusteringQualityMeasure.class,
+				clustering), DELTA);
+		assertEquals(dunn, quality(DunnIndexRClusteringQualityMeasure.class,
+				clustering), DELTA);
+		assertEquals(daviesBouldin, quality(
+				DaviesBouldinIndexRClusteringQualityMeasure.class, clustering),
+				DELTA);
+	}
+
+	private Clustering hard(final int... clusterIds) {
+		return Clustering.parseFromIntArray(getRepository(), new File(""),
+				IDS, clusterIds);
+	}
+
+	@Test
+	public void testTwoClusters() throws Exception {
+		/*
+		 * The average dissimilarities within the clusters are 0.2 and 1.7/3,
+		 * between them 7.1/9.
+		 */
+		assertQualities(hard(1, 1, 1, 2, 2, 2), 0.5109552042160738,
+				0.6739701361440492, 71.0 / 51, 69.0 / 71);
+	}
+
+	@Test
+	public void testSingletonCluster() throws Exception {
+		/*
+		 * The silhouette of f is 0. The average dissimilarities within the
+		 * clusters are 0.2, 0.4 and 0, the smallest one between two clusters
+		 * is 0.65 for {d,e} and {f}.
+		 */
+		assertQualities(hard(1, 1, 1, 2, 2, 3), 0.4721861471861472,
+				0.6596014492753624, 0.65 / 0.4, 0.7157665030005456);
+	}
+
+	@Test
+	public void testSingletonClusters() throws Exception {
+		// no cluster has a dissimilarity within, thus the Dunn index is
+		// infinite
+		assertQualities(hard(1, 2, 3, 4, 5, 6), 0, 0,
+				Double.POSITIVE_INFINITY, 0);
+	}
+
+	@Test
+	public void testSingleCluster() throws Exception {
+		// without a second cluster the measures take their worst values
+		assertQualities(hard(1, 1, 1, 1, 1, 1), -1, -1,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	@Test
+	public void testFuzzyClustering() throws Exception {
+		/*
+		 * c and f are weighted with the differences of their two largest
+		 * coefficients, 0.2 and 0.4, the silhouettes are those of the hard
+		 * clustering {a,b,c}, {d,e,f}.
+		 */
+		Clustering clustering = Clustering.parseFromFuzzyCoeffMatrix(
+				getRepository(), new File(""), IDS, new float[][]{
+						new float[]{1, 0}, new float[]{1, 0},
+						new float[]{0.6f, 0.4f}, new float[]{0, 1},
+						new float[]{0, 1}, new float[]{0.3f, 0.7f}});
+		assertEquals(0.5248045196769202, quality(
+				SilhouetteValueFuzzyRClusteringQualityMeasure.class,
+				clustering), 1e-6);
+		assertEquals(0.5109552042160738, quality(
+				SilhouetteValueClusteringQualityMeasure.class, clustering),
+				DELTA);
+	}
+}
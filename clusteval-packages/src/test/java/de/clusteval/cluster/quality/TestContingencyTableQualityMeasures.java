@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Christian Wiwie.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ *
+ * Contributors:
+ *     Christian Wiwie - initial API and implementation
+ ******************************************************************************/
+/**
+ *
+ */
+package de.clusteval.cluster.quality;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import de.clusteval.cluster.Clustering;
+import de.clusteval.framework.repository.Repository;
+import de.clusteval.utils.AbstractClustEvalTest;
+
+/**
+ * Compares the external quality measures derived from the contingency table
+ * with values calculated by hand from their definitions.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class TestContingencyTableQualityMeasures extends AbstractClustEvalTest {
+
+	private static final double DELTA = 1e-10;
+
+	private static String[] ids(final String ids) {
+		String[] result = new String[ids.length()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = ids.charAt(i) + "";
+		return result;
+	}
+
+	private Clustering hard(final String ids, final int... clusterIds) {
+		return Clustering.parseFromIntArray(getRepository(), new File(""),
+				ids(ids), clusterIds);
+	}
+
+	private Clustering fuzzy(final String ids, final float[]... fuzzyCoeffs) {
+		return Clustering.parseFromFuzzyCoeffMatrix(getRepository(),
+				new File(""), ids(ids), fuzzyCoeffs);
+	}
+
+	private double quality(final Class<? extends ClusteringQualityMeasure> c,
+			final Clustering clustering, final Clustering goldStandard)
+			throws Exception {
+		ClusteringQualityMeasure measure = c.getConstructor(Repository.class,
+				boolean.class, long.class, File.class,
+				ClusteringQualityMeasureParameters.class).newInstance(
+				getRepository(), false, System.currentTimeMillis(),
+				new File(c.getSimpleName()),
+				new ClusteringQualityMeasureParameters());
+		return measure.getQualityOfClustering(clustering, goldStandard, null)
+				.getValue();
+	}
+
+	private void assertQualities(final Clustering clustering,
+			final Clustering goldStandard, final double rand,
+			final double jaccard, final double fowlkesMallows,
+			final double f2, final double vmeasure) throws Exception {
+		assertEquals(rand, quality(RandIndexClusteringQualityMeasure.class,
+				clustering, goldStandard), DELTA);
+		assertEquals(jaccard, quality(
+				JaccardIndexRClusteringQualityMeasure.class, clustering,
+				goldStandard), DELTA);
+		assertEquals(fowlkesMallows, quality(
+				FowlkesMallowsIndexRClusteringQualityMeasure.class,
+				clustering, goldStandard), DELTA);
+		assertEquals(f2, quality(PairwiseF2ClusteringQualityMeasure.class,
+				clustering, goldStandard), DELTA);
+		assertEquals(vmeasure, quality(VMeasureClusteringQualityMeasure.class,
+				clustering, goldStandard), DELTA);
+	}
+
+	@Test
+	public void testHardClustering() throws Exception {
+		// tp=2, fp=3, fn=5, tn=11 of 21 pairs
+		assertQualities(hard("abcdefg", 1, 1, 1, 2, 2, 3, 3),
+				hard("abcdefg", 1, 1, 2, 2, 2, 2, 3), 13.0 / 21, 2.0 / 10,
+				2 / Math.sqrt(5 * 7), 74.0 / 105, 0.4765989442359071);
+	}
+
+	@Test
+	public void testSingletonClusters() throws Exception {
+		// the singletons agree, the only pair is a true positive
+		assertQualities(hard("abcd", 1, 2, 3, 3), hard("abcd", 1, 2, 3, 3), 1,
+				1, 1, 1, 1);
+
+		// no pair is a true positive, the classes match 2/(4+1) each
+		assertQualities(hard("abcd", 1, 2, 3, 4), hard("abcd", 1, 1, 1, 1), 0,
+				0, 0, 2.0 / 5, 0);
+	}
+
+	@Test
+	public void testTies() throws Exception {
+		// the class is split into two clusters matching equally well
+		assertQualities(hard("abcd", 1, 1, 2, 2), hard("abcd", 1, 1, 1, 1),
+				1.0 / 3, 1.0 / 3, 1 / Math.sqrt(3), 2.0 / 3, 0);
+	}
+
+	@Test
+	public void testItemsMissingInGoldStandard() throws Exception {
+		/*
+		 * The pairs are counted on the common items a-e only, tp=2, fp=2,
+		 * fn=2, tn=4, while the pairwise F2 takes all items of the clustering
+		 * into account.
+		 */
+		assertQualities(hard("abcdexy", 1, 1, 1, 2, 2, 2, 3),
+				hard("abcde", 1, 1, 2, 2, 2), 6.0 / 10, 1.0 / 3, 0.5,
+				18.0 / 35, 0.4325380677663125);
+	}
+
+	@Test
+	public void testUnassignedItems() throws Exception {
+		/*
+		 * The common items are clustered perfectly. The pairwise F2 weights
+		 * every class with its full size and counts the unassigned singleton
+		 * class f as found, but normalizes with the size of the clustering,
+		 * as TransClust does: (2 * 1 + 3 * 4/5 + 1 * 1) / 4.
+		 */
+		assertQualities(hard("abcd", 1, 1, 2, 2),
+				hard("abcdef", 1, 1, 2, 2, 2, 3), 1, 1, 1, 27.0 / 20, 1);
+	}
+
+	@Test
+	public void testFuzzyClustering() throws Exception {
+		/*
+		 * c belongs to both clusters by halves, e has no coefficient and is
+		 * unassigned. The cells contribute the minimum of both coefficients:
+		 * (0,1)=2, (0,2)=0.5, (1,2)=1.5, thus tp=1.25, fp=1, fn=0.75, tn=3.
+		 */
+		Clustering clustering = fuzzy("abcde", new float[]{1, 0}, new float[]{
+				1, 0}, new float[]{0.5f, 0.5f}, new float[]{0, 1},
+				new float[]{0, 0});
+		assertQualities(clustering, hard("abcde", 1, 1, 2, 2, 2),
+				17.0 / 24, 5.0 / 12, 1.25 / Math.sqrt(2.25 * 2), 17.0 / 18,
+				0.5615896365639194);
+	}
+}
@@ -0,0 +1,249 @@
+/**
+ *
+ */
+package de.wiwie.wiutils.statistics;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A streaming quantile sketch in the style of KLL (Karnin, Lang, Liberty
+ * 2016). The values are kept in a hierarchy of compactors; every item of level
+ * h represents 2^h of the original values. If a level is full, it is sorted
+ * and every other item is promoted to the next level. Therefore only
+ * O(k log(n/k)) values are kept in memory, independent of the number of
+ * values seen.
+ *
+ * <p>
+ * Sketches of disjoint parts of the data can be merged, such that large
+ * inputs can be summarized in parallel. The rank error of the returned
+ * quantiles is roughly 1.7/k.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class QuantileSketch {
+
+	/** The default capacity of the top level compactor. */
+	public static final int DEFAULT_K = 200;
+
+	/** The minimal capacity of any compactor. */
+	protected static final int MIN_CAPACITY = 8;
+
+	/** The capacity of the top level compactor. */
+	protected final int k;
+
+	/** The items of every level. */
+	protected double[][] items;
+
+	/** The number of items in every level. */
+	protected int[] sizes;
+
+	/** The number of levels in use. */
+	protected int numLevels;
+
+	/** The number of values added to this sketch. */
+	protected long count;
+
+	protected double minValue = Double.POSITIVE_INFINITY,
+			maxValue = Double.NEGATIVE_INFINITY;
+
+	protected final Random random;
+
+	/** The sorted items and their cumulative weights; null if outdated. */
+	protected double[] sortedItems;
+	protected long[] cumulativeWeights;
+
+	public QuantileSketch() {
+		this(DEFAULT_K);
+	}
+
+	/**
+	 * @param k
+	 *            The capacity of the top level compactor; larger values give
+	 *            more accurate quantiles.
+	 */
+	public QuantileSketch(final int k) {
+		super();
+		this.k = Math.max(k, MIN_CAPACITY);
+		this.items = new double[1][MIN_CAPACITY];
+		this.sizes = new int[1];
+		this.numLevels = 1;
+		// a fixed seed keeps sequential summaries reproducible
+		this.random = new Random(k);
+	}
+
+	/**
+	 * @param value
+	 *            The value to add to this sketch.
+	 */
+	public void update(final double value) {
+		this.count++;
+		if (value < this.minValue)
+			this.minValue = value;
+		if (value > this.maxValue)
+			this.maxValue = value;
+		this.append(0, value);
+		if (this.sizes[0] >= this.capacity(0))
+			this.compress();
+		this.sortedItems = null;
+	}
+
+	/**
+	 * Adds all values summarized by the other sketch to this sketch.
+	 *
+	 * @param other
+	 *            The sketch to merge into this one.
+	 */
+	public void merge(final QuantileSketch other) {
+		while (this.numLevels < other.numLevels)
+			this.addLevel();
+		for (int h = 0; h < other.numLevels; h++)
+			for (int i = 0; i < other.sizes[h]; i++)
+				this.append(h, other.items[h][i]);
+		this.count += other.count;
+		this.minValue = Math.min(this.minValue, other.minValue);
+		this.maxValue = Math.max(this.maxValue, other.maxValue);
+		this.compress();
+		this.sortedItems = null;
+	}
+
+	/**
+	 * @return The number of values added to this sketch.
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return The smallest value added to this sketch.
+	 */
+	public double getMinValue() {
+		return this.minValue;
+	}
+
+	/**
+	 * @return The largest value added to this sketch.
+	 */
+	public double getMaxValue() {
+		return this.maxValue;
+	}
+
+	/**
+	 * Estimates the value with rank floor(q*(n-1)) among the n values added
+	 * to this sketch, that is the value at that position in the sorted
+	 * values.
+	 *
+	 * @param q
+	 *            The quantile between 0 and 1.
+	 * @return The estimated quantile or NaN, if the sketch is empty.
+	 */
+	public double getQuantile(final double q) {
+		if (this.count == 0)
+			return Double.NaN;
+		if (q <= 0.0)
+			return this.minValue;
+		if (q >= 1.0)
+			return this.maxValue;
+		if (this.sortedItems == null)
+			this.sortItems();
+
+		// the weights of all items sum up to the number of values
+		final long rank = (long) Math.floor(q * (this.count - 1));
+		int pos = Arrays.binarySearch(this.cumulativeWeights, rank + 1);
+		if (pos < 0)
+			pos = -pos - 1;
+		return this.sortedItems[Math.min(pos, this.sortedItems.length - 1)];
+	}
+
+	/**
+	 * @return The number of values kept in memory.
+	 */
+	public int getRetainedItems() {
+		int result = 0;
+		for (int h = 0; h < this.numLevels; h++)
+			result += this.sizes[h];
+		return result;
+	}
+
+	protected int capacity(final int level) {
+		final int depth = this.numLevels - 1 - level;
+		return Math.max(MIN_CAPACITY,
+				(int) Math.ceil(this.k * Math.pow(2.0 / 3.0, depth)));
+	}
+
+	protected void append(final int level, final double value) {
+		if (this.sizes[level] == this.items[level].length)
+			this.items[level] = Arrays.copyOf(this.items[level],
+					2 * this.items[level].length);
+		this.items[level][this.sizes[level]++] = value;
+	}
+
+	protected void addLevel() {
+		this.items = Arrays.copyOf(this.items, this.numLevels + 1);
+		this.sizes = Arrays.copyOf(this.sizes, this.numLevels + 1);
+		this.items[this.numLevels] = new double[MIN_CAPACITY];
+		this.numLevels++;
+	}
+
+	/**
+	 * Compacts all levels exceeding their capacity, starting at the lowest.
+	 */
+	protected void compress() {
+		for (int h = 0; h < this.numLevels; h++) {
+			if (this.sizes[h] >= this.capacity(h)) {
+				if (h + 1 == this.numLevels)
+					this.addLevel();
+				this.compact(h);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the items of a level and promotes every other item to the next
+	 * level, where each item has twice the weight.
+	 *
+	 * @param level
+	 */
+	protected void compact(final int level) {
+		final double[] levelItems = this.items[level];
+		final int size = this.sizes[level];
+		Arrays.sort(levelItems, 0, size);
+		// with an odd number of items the largest one stays in this level
+		final int evenSize = size - (size % 2);
+		for (int i = this.random.nextBoolean() ? 1 : 0; i < evenSize; i += 2)
+			this.append(level + 1, levelItems[i]);
+		if (evenSize < size) {
+			levelItems[0] = levelItems[size - 1];
+			this.sizes[level] = 1;
+		} else
+			this.sizes[level] = 0;
+	}
+
+	protected void sortItems() {
+		final int size = this.getRetainedItems();
+		final double[] values = new double[size];
+		final long[] weights = new long[size];
+		// sort the item weights along with the values by sorting the indices
+		final Integer[] order = new Integer[size];
+		int pos = 0;
+		for (int h = 0; h < this.numLevels; h++) {
+			for (int i = 0; i < this.sizes[h]; i++) {
+				values[pos] = this.items[h][i];
+				weights[pos] = 1L << h;
+				order[pos] = pos;
+				pos++;
+			}
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+		this.sortedItems = new double[size];
+		this.cumulativeWeights = new long[size];
+		long sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += weights[order[i]];
+			this.sortedItems[i] = values[order[i]];
+			this.cumulativeWeights[i] = sum;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2016 deric
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package de.wiwie.wiutils.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Similarity matrix which keeps its values outside of the java heap in a
+ * memory-mapped temporary file. The file is split into several mapped chunks,
+ * such that matrices larger than 2GB can be stored. Reading and writing goes
+ * through the page cache of the operating system, thus matrices larger than
+ * the heap (or even the physical memory) can be handled.
+ *
+ * <p>
+ * Symmetric matrices only store the upper triangle.
+ *
+ * @author deric
+ */
+public class MappedSimilarityMatrix extends AbstractSimilarityMatrix {
+
+    /**
+     * Maximal size of a single mapped chunk in bytes; a multiple of all
+     * supported element sizes.
+     */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    /**
+     * The directory in which the backing files are created.
+     */
+    private static File directory = new File(
+            System.getProperty("java.io.tmpdir"));
+
+    private final int rows;
+
+    private final int columns;
+
+    private final boolean isSymmetric;
+
+    private final boolean isDouble;
+
+    private final int elementSize;
+
+    /**
+     * Size of a single mapped chunk in bytes.
+     */
+    private final long chunkSize;
+
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * @param rows
+     * @param columns
+     * @param isDouble Whether to store the values as doubles (8 bytes) or as
+     * floats (4 bytes).
+     * @param isSymmetric Whether only the upper triangle should be stored.
+     * @throws IOException If the backing file could not be created or mapped.
+     */
+    public MappedSimilarityMatrix(int rows, int columns, boolean isDouble,
+            boolean isSymmetric) throws IOException {
+        this(rows, columns, isDouble, isSymmetric, CHUNK_SIZE);
+    }
+
+    /**
+     * @param rows
+     * @param columns
+     * @param isDouble Whether to store the values as doubles (8 bytes) or as
+     * floats (4 bytes).
+     * @param isSymmetric Whether only the upper triangle should be stored.
+     * @param chunkSize Size of a single mapped chunk in bytes; a multiple of
+     * all supported element sizes.
+     * @throws IOException If the backing file could not be created or mapped.
+     */
+    MappedSimilarityMatrix(int rows, int columns, boolean isDouble,
+            boolean isSymmetric, long chunkSize) throws IOException {
+        super(rows, columns);
+        if (chunkSize <= 0 || chunkSize % 8 != 0) {
+            throw new IllegalArgumentException(
+                    "The chunk size has to be a positive multiple of 8: "
+                    + chunkSize);
+        }
+        if (isSymmetric && rows != columns) {
+            throw new IllegalArgumentException(
+                    "A symmetric matrix has to be quadratic: " + rows + "x"
+                    + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.isSymmetric = isSymmetric;
+        this.isDouble = isDouble;
+        this.elementSize = isDouble ? 8 : 4;
+        this.chunkSize = chunkSize;
+
+        long entries = isSymmetric
+                       ? (long) rows * (rows + 1) / 2
+                       : (long) rows * columns;
+        long size = Math.max(entries * elementSize, elementSize);
+
+        File file = File.createTempFile("simMatrix", ".bin", directory);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            raf.setLength(size);
+            this.chunks = new MappedByteBuffer[(int) ((size - 1) / chunkSize) + 1];
+            for (int c = 0; c < chunks.length; c++) {
+                long offset = c * chunkSize;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        offset, Math.min(chunkSize, size - offset));
+                chunks[c].order(ByteOrder.nativeOrder());
+            }
+        } finally {
+            // the mapping stays valid after the file has been unlinked
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * @param dir The directory in which backing files of new memory-mapped
+     * matrices are created.
+     */
+    public static void setDirectory(final File dir) {
+        directory = dir;
+    }
+
+    /**
+     * @return The directory in which backing files of new memory-mapped
+     * matrices are created.
+     */
+    public static File getDirectory() {
+        return directory;
+    }
+
+    private long offset(int id1, int id2) {
+        long index;
+        if (isSymmetric) {
+            if (id1 > id2) {
+                int tmp = id1;
+                id1 = id2;
+                id2 = tmp;
+            }
+            // entries of all previous rows of the upper triangle
+            index = (long) id1 * rows - (long) id1 * (id1 - 1) / 2 + (id2 - id1);
+        } else {
+            index = (long) id1 * columns + id2;
+        }
+        return index * elementSize;
+    }
+
+    @Override
+    public double get(int id1, int id2) {
+        long offset = offset(id1, id2);
+        MappedByteBuffer chunk = chunks[(int) (offset / chunkSize)];
+        int pos = (int) (offset % chunkSize);
+        return isDouble ? chunk.getDouble(pos) : chunk.getFloat(pos);
+    }
+
+    @Override
+    int getRows() {
+        return rows;
+    }
+
+    @Override
+    int getColumns() {
+        return columns;
+    }
+
+    @Override
+    boolean isSymmetric() {
+        return isSymmetric;
+    }
+
+    @Override
+    void set(int id1, int id2, double similarity) {
+        long offset = offset(id1, id2);
+        MappedByteBuffer chunk = chunks[(int) (offset / chunkSize)];
+        int pos = (int) (offset % chunkSize);
+        if (isDouble) {
+            chunk.putDouble(pos, similarity);
+        } else {
+            chunk.putFloat(pos, (float) similarity);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof MappedSimilarityMatrix)) {
+            return false;
+        }
+
+        MappedSimilarityMatrix other = (MappedSimilarityMatrix) obj;
+        if (rows != other.rows || columns != other.columns
+                || isSymmetric != other.isSymmetric
+                || isDouble != other.isDouble) {
+            return false;
+        }
+        for (int i = 0; i < rows; i++) {
+            for (int j = isSymmetric ? i : 0; j < columns; j++) {
+                if (Double.compare(get(i, j), other.get(i, j)) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 17;
+        result = 31 * result + rows;
+        result = 31 * result + columns;
+        result = 31 * result + (isSymmetric ? 1 : 0);
+        return result;
+    }
+
+}
@@ -5,13 +5,16 @@ package de.wiwie.wiutils.utils;
 
 import cern.colt.function.tdouble.DoubleProcedure;
 import cern.colt.matrix.tdouble.impl.SparseDoubleMatrix2D;
+import de.wiwie.wiutils.statistics.QuantileSketch;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -19,6 +22,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 /**
  * @author Christian Wiwie
@@ -26,12 +30,18 @@ import java.util.Set;
  */
 public class SimilarityMatrix {
 
+    /**
+     * The numeric precision in which similarities are stored. The MAPPED_*
+     * precisions keep the values off-heap in a memory-mapped file.
+     */
     public enum NUMBER_PRECISION {
-        DOUBLE, FLOAT, SHORT
+        DOUBLE, FLOAT, SHORT, MAPPED_DOUBLE, MAPPED_FLOAT
     }
 
     protected Map<String, Integer> ids;
 
+    protected NUMBER_PRECISION precision;
+
     protected AbstractSimilarityMatrix similarities;
 
     protected SparseDoubleMatrix2D sparseSimilarities;
@@ -42,6 +52,18 @@ public class SimilarityMatrix {
 
     protected double similaritySum;
 
+    /**
+     * Matrices storing at most this many values have their quantiles computed
+     * exactly, larger ones are summarized by a {@link QuantileSketch}.
+     */
+    public static final long MAX_VALUES_FOR_EXACT_QUANTILES = 1L << 25;
+
+    /**
+     * The maximal length of the array holding all sorted values, when
+     * quantiles are computed exactly.
+     */
+    protected static final long MAX_SORTED_VALUES = Integer.MAX_VALUE - 8;
+
     /**
      * @param rows
      * @param columns
@@ -84,24 +106,19 @@ public class SimilarityMatrix {
             }
         }
 
+        this.precision = precision;
         try {
-            switch (precision) {
-                case DOUBLE:
-                    this.similarities = new SimilarityMatrixDouble(rows, columns);
-                    break;
-                case FLOAT:
-                    this.similarities = new SimilarityMatrixFloat(rows, columns);
-                    break;
-                case SHORT:
-                    this.similarities = new SimilarityMatrixInt(rows, columns);
-                    break;
-                default:
-                    break;
-            }
+            this.similarities = createMatrix(rows, columns, precision,
+                    isSymmetric && rows == columns);
         } catch (OutOfMemoryError e) {
-            // in this case we try to parse the file into a sparse matrix data
-            // structure
-            this.sparseSimilarities = new SparseDoubleMatrix2D(rows, columns);
+            this.similarities = createMappedMatrixOrNull(rows, columns,
+                    precision, isSymmetric && rows == columns);
+            if (this.similarities == null) {
+                // in this case we try to parse the file into a sparse matrix
+                // data structure
+                this.sparseSimilarities = new SparseDoubleMatrix2D(rows,
+                        columns);
+            }
         }
     }
 
@@ -136,29 +153,19 @@ public class SimilarityMatrix {
                 this.ids.put(id, this.ids.size());
             }
         }
+        this.precision = precision;
         try {
-            // TODO
-            switch (precision) {
-                case DOUBLE:
-                    this.similarities = new SimilarityMatrixDouble(similarities.length,
-                            similarities[0].length);
-                    break;
-                case FLOAT:
-                    this.similarities = new SimilarityMatrixFloat(similarities.length,
-                            similarities[0].length);
-                    break;
-                case SHORT:
-                    this.similarities = new SimilarityMatrixInt(similarities.length,
-                            similarities[0].length);
-                    break;
-                default:
-                    break;
-            }
+            this.similarities = createMatrix(similarities.length,
+                    similarities[0].length, precision, false);
         } catch (OutOfMemoryError e) {
-            // in this case we try to parse the file into a sparse matrix data
-            // structure
-            this.sparseSimilarities = new SparseDoubleMatrix2D(
-                    similarities.length, similarities[0].length);
+            this.similarities = createMappedMatrixOrNull(similarities.length,
+                    similarities[0].length, precision, false);
+            if (this.similarities == null) {
+                // in this case we try to parse the file into a sparse matrix
+                // data structure
+                this.sparseSimilarities = new SparseDoubleMatrix2D(
+                        similarities.length, similarities[0].length);
+            }
         }
         for (int i = 0; i < similarities.length; i++) {
             for (int j = 0; j < similarities[i].length; j++) {
@@ -167,6 +174,122 @@ public class SimilarityMatrix {
         }
     }
 
+    /**
+     * Creates the backend storing the similarities. Symmetric matrices only
+     * keep the upper triangle in memory.
+     *
+     * @param rows
+     * @param columns
+     * @param precision
+     * @param isSymmetric
+     * @return
+     */
+    protected static AbstractSimilarityMatrix createMatrix(final int rows,
+            final int columns, final NUMBER_PRECISION precision,
+            final boolean isSymmetric) {
+        switch (precision) {
+            case DOUBLE:
+                return isSymmetric
+                       ? new SymmetricSimilarityMatrixDouble(rows, columns)
+                       : new SimilarityMatrixDouble(rows, columns);
+            case FLOAT:
+                return isSymmetric
+                       ? new SymmetricSimilarityMatrixFloat(rows, columns)
+                       : new SimilarityMatrixFloat(rows, columns);
+            case SHORT:
+                return isSymmetric
+                       ? new SymmetricSimilarityMatrixInt(rows, columns)
+                       : new SimilarityMatrixInt(rows, columns);
+            case MAPPED_DOUBLE:
+            case MAPPED_FLOAT:
+                try {
+                    return new MappedSimilarityMatrix(rows, columns,
+                            precision == NUMBER_PRECISION.MAPPED_DOUBLE,
+                            isSymmetric);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Estimates the heap memory of the backend {@link #createMatrix} allocates
+     * for a matrix with the given dimensions.
+     *
+     * @param rows
+     * @param columns
+     * @param precision
+     * @param isSymmetric
+     * @return The number of bytes the similarities take on the heap.
+     */
+    public static long getEstimatedHeapSize(final int rows, final int columns,
+            final NUMBER_PRECISION precision, final boolean isSymmetric) {
+        long entries = isSymmetric && rows == columns
+                       ? (long) rows * (rows + 1) / 2
+                       : (long) rows * columns;
+        return entries * getBytesPerSimilarity(precision);
+    }
+
+    /**
+     * @param precision
+     * @return The number of bytes of the heap one similarity takes in the
+     * backend {@link #createMatrix} allocates for the given precision.
+     */
+    public static long getBytesPerSimilarity(final NUMBER_PRECISION precision) {
+        switch (precision) {
+            case DOUBLE:
+                return Double.BYTES;
+            case FLOAT:
+                return Float.BYTES;
+            case SHORT:
+                // the int backends store the scaled similarities
+                return Integer.BYTES;
+            default:
+                // memory mapped similarities are not kept on the heap
+                return 0;
+        }
+    }
+
+    /**
+     * Used if a heap backend could not be allocated: Tries to store the
+     * similarities in a memory-mapped file instead.
+     *
+     * @param rows
+     * @param columns
+     * @param precision
+     * @param isSymmetric
+     * @return The memory-mapped backend or null, if it could not be created.
+     */
+    protected static AbstractSimilarityMatrix createMappedMatrixOrNull(
+            final int rows, final int columns,
+            final NUMBER_PRECISION precision, final boolean isSymmetric) {
+        try {
+            return new MappedSimilarityMatrix(rows, columns,
+                    precision == NUMBER_PRECISION.DOUBLE
+                    || precision == NUMBER_PRECISION.MAPPED_DOUBLE,
+                    isSymmetric);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The numeric precision in which the similarities are stored.
+     */
+    public NUMBER_PRECISION getPrecision() {
+        return this.precision;
+    }
+
+    /**
+     * @return True, if only one triangle of this matrix is stored and
+     * (i,j) and (j,i) always hold the same similarity.
+     */
+    public boolean isSymmetric() {
+        return this.similarities != null && this.similarities.isSymmetric();
+    }
+
     protected void updateSimilarityStatistics() {
         this.maxSimilarity = Double.MIN_VALUE;
         this.minSimilarity = Double.MAX_VALUE;
@@ -229,6 +352,19 @@ public class SimilarityMatrix {
      */
     public void setSimilarity(final int id1, final int id2,
             final double similarity) {
+        if (this.isSymmetric()) {
+            // (id1,id2) and (id2,id1) are the same stored entry, which may
+            // be written twice; it counts twice into the sum off the
+            // diagonal
+            final double previous = this.similarities.get(id1, id2);
+            this.similarities.set(id1, id2, similarity);
+            this.updateSimilarityStatistics(similarity);
+            this.similaritySum -= previous;
+            if (id1 != id2) {
+                this.similaritySum += similarity - previous;
+            }
+            return;
+        }
         if (this.similarities != null) {
             this.similarities.set(id1, id2, similarity);
         } else {
@@ -238,6 +374,75 @@ public class SimilarityMatrix {
         this.updateSimilarityStatistics(similarity);
     }
 
+    /**
+     * Sets a rectangular block of similarities, where block[i][j] is stored
+     * at (firstRow+i,firstColumn+j). For symmetric matrices the entries of
+     * the block below the diagonal are ignored.
+     *
+     * <p>
+     * This method may be invoked concurrently for disjoint blocks: Dense
+     * matrices are written without locking and only the statistics of the
+     * block are merged under a lock.
+     *
+     * @param firstRow
+     * @param firstColumn
+     * @param block
+     */
+    public void setSimilarities(final int firstRow, final int firstColumn,
+            final double[][] block) {
+        if (this.similarities == null) {
+            // the sparse matrix is not thread-safe
+            synchronized (this) {
+                for (int i = 0; i < block.length; i++) {
+                    for (int j = 0; j < block[i].length; j++) {
+                        this.setSimilarity(firstRow + i, firstColumn + j,
+                                block[i][j]);
+                    }
+                }
+            }
+            return;
+        }
+
+        final boolean symmetric = this.isSymmetric();
+        double min = Double.MAX_VALUE;
+        double max = Double.MIN_VALUE;
+        double sum = 0.0;
+        for (int i = 0; i < block.length; i++) {
+            final int row = firstRow + i;
+            final double[] values = block[i];
+            for (int j = symmetric ? Math.max(0, row - firstColumn) : 0; j < values.length; j++) {
+                final int column = firstColumn + j;
+                final double similarity = values[j];
+                if (symmetric) {
+                    // replace a previously written value of the entry
+                    final double previous = this.similarities.get(row, column);
+                    sum -= row != column ? 2 * previous : previous;
+                }
+                this.similarities.set(row, column, similarity);
+                if (similarity > max) {
+                    max = similarity;
+                }
+                if (similarity < min) {
+                    min = similarity;
+                }
+                sum += similarity;
+                // the mirrored entry (column,row) holds the same similarity
+                if (symmetric && row != column) {
+                    sum += similarity;
+                }
+            }
+        }
+        synchronized (this) {
+            if (max > this.maxSimilarity) {
+                this.maxSimilarity = max;
+            }
+            if (min < this.minSimilarity) {
+                this.minSimilarity = min;
+            }
+            this.similaritySum += sum;
+        }
+    }
+
     /**
      * @param id1
      * @param id2
@@ -291,14 +496,23 @@ public class SimilarityMatrix {
         return this.similaritySum / (this.getRows() * this.getColumns());
     }
 
+    /**
+     * @return A summary of the similarities of this matrix, which is kept up
+     * to date while the similarities are set.
+     */
+    public SimilarityStatistics getStatistics() {
+        return new SimilarityStatistics(this.getMinValue(), this.getMaxValue(),
+                this.similaritySum, (long) this.getRows() * this.getColumns(),
+                this.ids != null ? this.ids.size() : 0);
+    }
+
     public void invert() {
         double oldMin = this.getMinValue();
         double sum = this.similaritySum;
 
         double maxVal = this.getMaxValue();
         for (int i = 0; i < getRows(); i++) {
-            for (int j = 0; j < (this.similarities != null
-                    && this.similarities.isSymmetric() ? i + 1 : getColumns()); j++) {
+            for (int j = 0; j < (this.isSymmetric() ? i + 1 : getColumns()); j++) {
                 double old = this.getSimilarity(i, j);
                 this.setSimilarity(i, j, maxVal - old);
             }
@@ -316,7 +530,7 @@ public class SimilarityMatrix {
 
     public void subtract(double x) {
         for (int i = 0; i < getRows(); i++) {
-            for (int j = 0; j < getColumns(); j++) {
+            for (int j = (this.isSymmetric() ? i : 0); j < getColumns(); j++) {
                 double old = this.getSimilarity(i, j);
                 this.setSimilarity(i, j, old - x);
             }
@@ -329,7 +543,7 @@ public class SimilarityMatrix {
 
     public void scaleBy(double factor, boolean down) {
         for (int i = 0; i < getRows(); i++) {
-            for (int j = 0; j < getColumns(); j++) {
+            for (int j = (this.isSymmetric() ? i : 0); j < getColumns(); j++) {
                 double old = this.getSimilarity(i, j);
                 this.setSimilarity(i, j, down ? (old / factor) : (old * factor));
             }
@@ -415,11 +629,7 @@ public class SimilarityMatrix {
         DistributionBuilder builder = new DistributionBuilder(this,
                 numberBuckets);
 
-        for (int i = 0; i < this.getRows(); i++) {
-            for (int j = 0; j < this.getColumns(); j++) {
-                builder.apply(this.getSimilarity(i, j));
-            }
-        }
+        builder.fillArray(this);
 
         return builder.getResult();
     }
@@ -479,16 +689,157 @@ public class SimilarityMatrix {
      */
     public double[] getQuantiles(final int numberOfQuantiles)
             throws RangeCreationException {
-        List<Double> orderedList = toOrderedList();
-        int[] range = ArraysExt.range(0, orderedList.size() - 1,
-                numberOfQuantiles, true);
-        double[] result = new double[range.length];
-        for (int i = 0; i < range.length; i++) {
-            result[i] = orderedList.get(range[i]);
+        return this.getQuantiles(numberOfQuantiles,
+                this.getStoredValueCount() <= MAX_VALUES_FOR_EXACT_QUANTILES);
+    }
+
+    /**
+     * @param numberOfQuantiles
+     * @param exact If true, all values are sorted in a primitive array,
+     * otherwise the quantiles are estimated using a {@link QuantileSketch}.
+     * Matrices with more values than fit into an array are always
+     * summarized by a sketch.
+     * @return
+     * @throws RangeCreationException
+     */
+    public double[] getQuantiles(final int numberOfQuantiles,
+            final boolean exact) throws RangeCreationException {
+        final long count = (long) this.getRows() * this.getColumns();
+        if (count - 1 < numberOfQuantiles - 1) {
+            throw new RangeCreationException(
+                    "Range will contain duplicate values");
+        }
+        // positions of the quantiles within all sorted values
+        final long[] ranks = new long[numberOfQuantiles];
+        double[] range = ArraysExt.range(0.0, count - 1, numberOfQuantiles,
+                true);
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = (long) range[i];
+        }
+
+        if (!exact || this.getStoredValueCount() > MAX_SORTED_VALUES) {
+            QuantileSketch sketch = this.toQuantileSketch();
+            double[] result = new double[ranks.length];
+            for (int i = 0; i < ranks.length; i++) {
+                result[i] = sketch.getQuantile(count > 1
+                        ? (double) ranks[i] / (count - 1)
+                        : 0.0);
+            }
+            return result;
+        }
+        return this.getValuesAtRanks(ranks);
+    }
+
+    /**
+     * @return The number of similarities actually stored; for symmetric
+     * matrices only the upper triangle.
+     */
+    protected long getStoredValueCount() {
+        long rows = this.getRows();
+        return this.isSymmetric()
+               ? rows * (rows + 1) / 2
+               : rows * this.getColumns();
+    }
+
+    /**
+     * Sorts all similarities and returns the ones at the given positions.
+     * Symmetric matrices only sort their upper triangle, where each value
+     * off the diagonal counts twice.
+     *
+     * @param ranks The ascending positions within all sorted values.
+     * @return
+     * @throws IllegalStateException If the stored values do not fit into a
+     * single array.
+     */
+    protected double[] getValuesAtRanks(final long[] ranks) {
+        if (this.getStoredValueCount() > MAX_SORTED_VALUES) {
+            throw new IllegalStateException(String.format(
+                    "Cannot sort %d similarities in one array, use a quantile sketch instead",
+                    this.getStoredValueCount()));
+        }
+        final int rows = this.getRows();
+        final double[] result = new double[ranks.length];
+        if (!this.isSymmetric()) {
+            final int columns = this.getColumns();
+            final double[] values = new double[(int) ((long) rows * columns)];
+            IntStream.range(0, rows).parallel().forEach(i -> {
+                int offset = (int) ((long) i * columns);
+                for (int j = 0; j < columns; j++) {
+                    values[offset + j] = this.getSimilarity(i, j);
+                }
+            });
+            Arrays.parallelSort(values);
+            for (int i = 0; i < ranks.length; i++) {
+                result[i] = values[(int) ranks[i]];
+            }
+            return result;
+        }
+
+        final double[] diagonal = new double[rows];
+        final double[] offDiagonal = new double[(int) ((long) rows
+                * (rows - 1) / 2)];
+        IntStream.range(0, rows).parallel().forEach(i -> {
+            diagonal[i] = this.getSimilarity(i, i);
+            // entries of all previous rows right of the diagonal
+            int offset = (int) ((long) i * (rows - 1) - (long) i * (i - 1)
+                    / 2);
+            for (int j = i + 1; j < rows; j++) {
+                offDiagonal[offset++] = this.getSimilarity(i, j);
+            }
+        });
+        Arrays.parallelSort(diagonal);
+        Arrays.parallelSort(offDiagonal);
+
+        // merge both sorted arrays until reaching each rank
+        int d = 0, o = 0;
+        long position = 0;
+        for (int r = 0; r < ranks.length; r++) {
+            while (true) {
+                boolean takeDiagonal = o == offDiagonal.length
+                        || (d < diagonal.length && diagonal[d] <= offDiagonal[o]);
+                long weight = takeDiagonal ? 1 : 2;
+                if (position + weight > ranks[r]) {
+                    result[r] = takeDiagonal ? diagonal[d] : offDiagonal[o];
+                    break;
+                }
+                position += weight;
+                if (takeDiagonal) {
+                    d++;
+                } else {
+                    o++;
+                }
+            }
         }
         return result;
     }
 
+    /**
+     * Summarizes all similarities of this matrix in a quantile sketch. The
+     * rows are processed in parallel and the partial sketches are merged.
+     *
+     * @return
+     */
+    public QuantileSketch toQuantileSketch() {
+        final int rows = this.getRows();
+        final int columns = this.getColumns();
+        final boolean isSymmetric = this.isSymmetric();
+        return IntStream.range(0, rows).parallel().collect(
+                QuantileSketch::new, (sketch, i) -> {
+                    if (isSymmetric) {
+                        sketch.update(this.getSimilarity(i, i));
+                        for (int j = i + 1; j < rows; j++) {
+                            double value = this.getSimilarity(i, j);
+                            sketch.update(value);
+                            sketch.update(value);
+                        }
+                    } else {
+                        for (int j = 0; j < columns; j++) {
+                            sketch.update(this.getSimilarity(i, j));
+                        }
+                    }
+                }, QuantileSketch::merge);
+    }
+
     /**
      * @param numberBuckets
      * @return
@@ -498,11 +849,7 @@ public class SimilarityMatrix {
         DistributionBuilder builder = new DistributionBuilder(this,
                 numberBuckets);
 
-        for (int i = 0; i < this.getRows(); i++) {
-            for (int j = 0; j < this.getColumns(); j++) {
-                builder.apply(this.getSimilarity(i, j));
-            }
-        }
+        builder.fillArray(this);
 
         return builder.getResultAsArray();
     }
@@ -669,6 +1016,49 @@ class DistributionBuilder implements DoubleProcedure {
      */
     @Override
     public boolean apply(double argument) {
+        int bucket = this.getBucket(argument);
+        this.result.put(this.range[bucket],
+                this.result.get(this.range[bucket]) + 1);
+        this.resultArray[bucket]++;
+        return true;
+    }
+
+    /**
+     * Counts all similarities of the matrix. The rows are counted in parallel
+     * into primitive arrays; symmetric matrices only visit their upper
+     * triangle.
+     *
+     * @param matrix
+     */
+    public void fillArray(final SimilarityMatrix matrix) {
+        final int rows = matrix.getRows();
+        final int columns = matrix.getColumns();
+        final boolean isSymmetric = matrix.isSymmetric();
+        int[] counts = IntStream.range(0, rows).parallel().collect(
+                () -> new int[this.range.length], (c, i) -> {
+                    if (isSymmetric) {
+                        c[this.getBucket(matrix.getSimilarity(i, i))]++;
+                        for (int j = i + 1; j < rows; j++) {
+                            c[this.getBucket(matrix.getSimilarity(i, j))] += 2;
+                        }
+                    } else {
+                        for (int j = 0; j < columns; j++) {
+                            c[this.getBucket(matrix.getSimilarity(i, j))]++;
+                        }
+                    }
+                }, (c1, c2) -> {
+                    for (int b = 0; b < c1.length; b++) {
+                        c1[b] += c2[b];
+                    }
+                });
+        for (int b = 0; b < counts.length; b++) {
+            this.resultArray[b] += counts[b];
+            this.result.put(this.range[b],
+                    this.result.get(this.range[b]) + counts[b]);
+        }
+    }
+
+    protected int getBucket(double argument) {
         /*
 		 * Do binary search for bucket
          */
@@ -691,10 +1081,7 @@ class DistributionBuilder implements DoubleProcedure {
             }
         }
 
-        this.result.put(this.range[lower],
-                this.result.get(this.range[lower]) + 1);
-        this.resultArray[lower]++;
-        return true;
+        return lower;
     }
 
     public HashMap<Double, Integer> getResult() {
@@ -44,7 +44,6 @@ public class SimilarityMatrixFloat extends AbstractSimilarityMatrix {
 
     @Override
     boolean isSymmetric() {
-        //TODO: not supported?
         return false;
     }
 
@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package de.wiwie.wiutils.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Summary statistics of the similarities of a {@link SimilarityMatrix}. They
+ * can be stored in a small file next to a dataset, such that they are
+ * available without parsing the whole matrix again.
+ *
+ * @author Christian Wiwie
+ *
+ */
+public class SimilarityStatistics {
+
+    protected final double minValue;
+
+    protected final double maxValue;
+
+    protected final double sum;
+
+    protected final long count;
+
+    protected final int numberOfIds;
+
+    /**
+     * @param minValue The minimal similarity.
+     * @param maxValue The maximal similarity.
+     * @param sum The sum of all similarities.
+     * @param count The number of similarities, i.e. rows times columns.
+     * @param numberOfIds The number of ids of the matrix.
+     */
+    public SimilarityStatistics(final double minValue, final double maxValue,
+            final double sum, final long count, final int numberOfIds) {
+        super();
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.sum = sum;
+        this.count = count;
+        this.numberOfIds = numberOfIds;
+    }
+
+    /**
+     * @return The minimal similarity.
+     */
+    public double getMinValue() {
+        return this.minValue;
+    }
+
+    /**
+     * @return The maximal similarity.
+     */
+    public double getMaxValue() {
+        return this.maxValue;
+    }
+
+    /**
+     * @return The sum of all similarities.
+     */
+    public double getSum() {
+        return this.sum;
+    }
+
+    /**
+     * @return The number of similarities, i.e. rows times columns.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return The number of ids of the matrix.
+     */
+    public int getNumberOfIds() {
+        return this.numberOfIds;
+    }
+
+    /**
+     * @return The mean similarity.
+     */
+    public double getMean() {
+        return this.sum / this.count;
+    }
+
+    /**
+     * @param file The file to write these statistics into.
+     * @throws IOException
+     */
+    public void writeToFile(final File file) throws IOException {
+        this.writeToFile(file, null);
+    }
+
+    /**
+     * @param file The file to write these statistics into.
+     * @param source Identifies the version of the data these statistics were
+     * computed from, or null.
+     * @throws IOException
+     */
+    public void writeToFile(final File file, final String source)
+            throws IOException {
+        Properties props = new Properties();
+        props.setProperty("minValue", Double.toString(this.minValue));
+        props.setProperty("maxValue", Double.toString(this.maxValue));
+        props.setProperty("sum", Double.toString(this.sum));
+        props.setProperty("count", Long.toString(this.count));
+        props.setProperty("numberOfIds", Integer.toString(this.numberOfIds));
+        if (source != null) {
+            props.setProperty("source", source);
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "similarity statistics");
+        }
+    }
+
+    /**
+     * @param file A file written by {@link #writeToFile(File)}.
+     * @return The statistics stored in the file.
+     * @throws IOException If the file could not be read or is incomplete.
+     */
+    public static SimilarityStatistics readFromFile(final File file)
+            throws IOException {
+        return readFromFile(file, null);
+    }
+
+    /**
+     * @param file A file written by {@link #writeToFile(File, String)}.
+     * @param source The version of the data the statistics have to be computed
+     * from, or null to accept any version.
+     * @return The statistics stored in the file, or null if they were computed
+     * from another version of the data.
+     * @throws IOException If the file could not be read or is incomplete.
+     */
+    public static SimilarityStatistics readFromFile(final File file,
+            final String source) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        }
+        if (source != null && !source.equals(props.getProperty("source"))) {
+            return null;
+        }
+        try {
+            return new SimilarityStatistics(
+                    Double.parseDouble(props.getProperty("minValue")),
+                    Double.parseDouble(props.getProperty("maxValue")),
+                    Double.parseDouble(props.getProperty("sum")),
+                    Long.parseLong(props.getProperty("count")),
+                    Integer.parseInt(props.getProperty("numberOfIds")));
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IOException("Invalid similarity statistics file: "
+                    + file, e);
+        }
+    }
+}
@@ -75,4 +75,42 @@ public class StringExt {
 			elems[i] = tok.nextToken();
 		return elems;
 	}
+
+	/**
+	 * Splits the given string at every occurrence of the delimiter character
+	 * without using a regular expression. The result is the same as the one of
+	 * String.split() with the quoted delimiter: empty substrings in between
+	 * delimiters and at the beginning are kept, trailing empty substrings are
+	 * removed.
+	 * 
+	 * @param s
+	 *            The string to split.
+	 * @param delimiter
+	 *            The character which delimits the substrings
+	 * @return An array of the substrings of the given string delimited by the
+	 *         delimiter.
+	 */
+	public static String[] split(final String s, final char delimiter) {
+		// ignore trailing delimiters
+		int end = s.length();
+		while (end > 0 && s.charAt(end - 1) == delimiter)
+			end--;
+		if (end == 0)
+			return s.isEmpty() ? new String[]{s} : new String[0];
+
+		int count = 1;
+		for (int i = 0; i < end; i++)
+			if (s.charAt(i) == delimiter)
+				count++;
+
+		final String[] elems = new String[count];
+		int start = 0;
+		for (int i = 0; i < count - 1; i++) {
+			int pos = s.indexOf(delimiter, start);
+			elems[i] = s.substring(start, pos);
+			start = pos + 1;
+		}
+		elems[count - 1] = s.substring(start, end);
+		return elems;
+	}
 }
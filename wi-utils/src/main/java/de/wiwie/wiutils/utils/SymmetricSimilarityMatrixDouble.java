@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2016 deric
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package de.wiwie.wiutils.utils;
+
+import java.util.Arrays;
+
+/**
+ * Symmetric similarity matrix which only stores the upper triangle (including
+ * the diagonal). Row i holds the entries (i,i) to (i,n-1), so each row is a
+ * separate array and the matrix is not limited to 2^31 entries.
+ *
+ * @author deric
+ */
+public class SymmetricSimilarityMatrixDouble extends AbstractSimilarityMatrix {
+
+    private final double[][] matrix;
+
+    public SymmetricSimilarityMatrixDouble(int rows, int columns) {
+        super(rows, columns);
+        if (rows != columns) {
+            throw new IllegalArgumentException(
+                    "A symmetric matrix has to be quadratic: " + rows + "x"
+                    + columns);
+        }
+        this.matrix = new double[rows][];
+        for (int i = 0; i < rows; i++) {
+            this.matrix[i] = new double[rows - i];
+        }
+    }
+
+    @Override
+    public double get(int id1, int id2) {
+        if (id1 <= id2) {
+            return matrix[id1][id2 - id1];
+        }
+        return matrix[id2][id1 - id2];
+    }
+
+    @Override
+    int getRows() {
+        return matrix.length;
+    }
+
+    @Override
+    boolean isSymmetric() {
+        return true;
+    }
+
+    @Override
+    void set(int id1, int id2, double similarity) {
+        if (id1 <= id2) {
+            matrix[id1][id2 - id1] = similarity;
+        } else {
+            matrix[id2][id1 - id2] = similarity;
+        }
+    }
+
+    @Override
+    int getColumns() {
+        return matrix.length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof SymmetricSimilarityMatrixDouble)) {
+            return false;
+        }
+
+        SymmetricSimilarityMatrixDouble other = (SymmetricSimilarityMatrixDouble) obj;
+        return Arrays.deepEquals(matrix, other.matrix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.deepHashCode(matrix);
+    }
+
+}
@@ -0,0 +1,446 @@
+package de.wiwie.wiutils.utils.parse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+
+/**
+ * Parser and writer for similarity matrices stored in a binary file.
+ *
+ * <p>
+ * The file may start with header lines prefixed by '//' (as written for
+ * dataset files). After that the binary part follows, all numbers in little
+ * endian byte order:
+ * <ul>
+ * <li>the magic bytes 'SIMB'</li>
+ * <li>the format version (int)</li>
+ * <li>the precision of the values (byte; 0 = double, 1 = float)</li>
+ * <li>the symmetry flag (byte; 1 = only the upper triangle is stored)</li>
+ * <li>the number of rows and columns (int, int)</li>
+ * <li>the number of ids (int), followed by each id as its length in bytes
+ * (int) and its UTF-8 bytes</li>
+ * <li>the raw values row by row (for symmetric matrices each row i starts at
+ * column i)</li>
+ * </ul>
+ *
+ * <p>
+ * The values are read from a memory-mapped view of the file in a single pass
+ * without any text parsing.
+ *
+ * @author Christian Wiwie
+ */
+public class BinarySimFileMatrixParser {
+
+	/** The magic bytes at the beginning of the binary part. */
+	protected static final byte[] MAGIC = new byte[]{'S', 'I', 'M', 'B'};
+
+	/** The version of the binary layout. */
+	protected static final int VERSION = 1;
+
+	/** The size of the buffer used for writing. */
+	protected static final int BUFFER_SIZE = 1 << 20;
+
+	/** The maximal size of a single mapped region while reading. */
+	protected static final long MAP_SIZE = 1L << 30;
+
+	/** The abs file path. */
+	protected String absFilePath;
+
+	/**
+	 * The precision in which the similarities are stored in memory; if null,
+	 * the precision of the file is used.
+	 */
+	protected NUMBER_PRECISION precision;
+
+	/** The similarities. */
+	protected SimilarityMatrix similarities;
+
+	/**
+	 * @param absFilePath
+	 *            the abs file path
+	 * @param precision
+	 *            The numeric precision in which to store the similarities
+	 */
+	public BinarySimFileMatrixParser(final String absFilePath,
+			final NUMBER_PRECISION precision) {
+		super();
+		this.absFilePath = absFilePath;
+		this.precision = precision;
+	}
+
+	/**
+	 * @return the similarities
+	 */
+	public SimilarityMatrix getSimilarities() {
+		return this.similarities;
+	}
+
+	/**
+	 * Parses the file into a similarity matrix.
+	 *
+	 * @return this parser
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred or that the file
+	 *             is not a valid binary similarity file.
+	 */
+	public BinarySimFileMatrixParser process() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(absFilePath, "r");
+				FileChannel channel = raf.getChannel()) {
+			long pos = skipHeaderLines(channel);
+
+			// the header of the binary part fits into the first mapped region
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+					pos, Math.min(MAP_SIZE, channel.size() - pos));
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			Header header = readHeader(buf);
+			if (header == null)
+				throw new IOException(String.format(
+						"'%s' is not a binary similarity file", absFilePath));
+			boolean isDouble = header.isDouble;
+			boolean isSymmetric = header.isSymmetric;
+			int rows = header.rows;
+			int columns = header.columns;
+			String[] ids = new String[buf.getInt()];
+			for (int i = 0; i < ids.length; i++) {
+				byte[] id = new byte[buf.getInt()];
+				buf.get(id);
+				ids[i] = new String(id, StandardCharsets.UTF_8);
+			}
+
+			NUMBER_PRECISION targetPrecision = this.precision;
+			if (targetPrecision == null)
+				targetPrecision = isDouble
+						? NUMBER_PRECISION.DOUBLE
+						: NUMBER_PRECISION.FLOAT;
+			this.similarities = new SimilarityMatrix(ids.length > 0
+					? ids
+					: null, rows, columns, targetPrecision, isSymmetric);
+
+			int elementSize = isDouble ? 8 : 4;
+			pos += buf.position();
+			// remap such that the values start at the beginning of a region
+			// and no value is split between two regions
+			long regionSize = MAP_SIZE - MAP_SIZE % elementSize;
+			long remaining = 0;
+			DoubleBuffer doubles = null;
+			FloatBuffer floats = null;
+			for (int i = 0; i < rows; i++) {
+				for (int j = isSymmetric ? i : 0; j < columns; j++) {
+					if (remaining == 0) {
+						long size = Math.min(regionSize, channel.size() - pos);
+						if (size < elementSize)
+							throw new IOException(String.format(
+									"Unexpected end of binary similarity file '%s'",
+									absFilePath));
+						buf = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+								size);
+						buf.order(ByteOrder.LITTLE_ENDIAN);
+						if (isDouble)
+							doubles = buf.asDoubleBuffer();
+						else
+							floats = buf.asFloatBuffer();
+						remaining = size / elementSize;
+						pos += remaining * elementSize;
+					}
+					this.similarities.setSimilarity(i, j, isDouble ? doubles
+							.get() : floats.get());
+					remaining--;
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Reads the header of the binary part from the passed buffer.
+	 *
+	 * @param buf
+	 *            The buffer positioned at the beginning of the binary part.
+	 * @return The header or null, if the buffer does not start with the magic
+	 *         bytes.
+	 * @throws IOException
+	 *             If the format version is not supported.
+	 */
+	protected static Header readHeader(final ByteBuffer buf)
+			throws IOException {
+		if (buf.remaining() < Header.SIZE)
+			return null;
+		for (byte b : MAGIC)
+			if (buf.get() != b)
+				return null;
+		int version = buf.getInt();
+		if (version != VERSION)
+			throw new IOException(String.format(
+					"Unsupported binary similarity file version %d", version));
+		boolean isDouble = buf.get() == 0;
+		boolean isSymmetric = buf.get() == 1;
+		int rows = buf.getInt();
+		int columns = buf.getInt();
+		return new Header(isDouble, isSymmetric, rows, columns);
+	}
+
+	/**
+	 * Reads the header of the binary part of the passed file, without reading
+	 * the ids and values.
+	 *
+	 * @param file
+	 *            The file to read.
+	 * @return The header or null, if the file is not a binary similarity file.
+	 * @throws IOException
+	 */
+	public static Header readHeader(final File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			ByteBuffer buf = ByteBuffer.allocate(Header.SIZE);
+			buf.order(ByteOrder.LITTLE_ENDIAN);
+			long pos = skipHeaderLines(channel);
+			while (buf.hasRemaining()
+					&& channel.read(buf, pos + buf.position()) > 0);
+			buf.flip();
+			return readHeader(buf);
+		}
+	}
+
+	/**
+	 * Determines the position of the first byte after all leading header
+	 * lines starting with '//'.
+	 *
+	 * @param channel
+	 * @return The position of the binary part.
+	 * @throws IOException
+	 */
+	protected static long skipHeaderLines(final FileChannel channel)
+			throws IOException {
+		long pos = 0;
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		while (true) {
+			buf.clear();
+			int read = channel.read(buf, pos);
+			if (read < 2)
+				return pos;
+			buf.flip();
+			if (buf.get(0) != '/' || buf.get(1) != '/')
+				return pos;
+			// skip the rest of this line
+			int i = 2;
+			long lineStart = pos;
+			while (true) {
+				if (i == buf.limit()) {
+					pos = lineStart + i;
+					lineStart = pos;
+					buf.clear();
+					read = channel.read(buf, pos);
+					if (read <= 0)
+						return pos;
+					buf.flip();
+					i = 0;
+				}
+				if (buf.get(i++) == '\n')
+					break;
+			}
+			pos = lineStart + i;
+		}
+	}
+
+	/**
+	 * Reads the header lines starting with '//' at the beginning of the
+	 * passed file, without reading the binary part.
+	 *
+	 * @param file
+	 *            The binary similarity file.
+	 * @return The header lines without their '//' prefix.
+	 * @throws IOException
+	 */
+	public static List<String> readHeaderLines(final File file)
+			throws IOException {
+		List<String> result = new ArrayList<String>();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+				FileChannel channel = raf.getChannel()) {
+			long pos = skipHeaderLines(channel);
+			if (pos == 0)
+				return result;
+			ByteBuffer buf = ByteBuffer.allocate((int) pos);
+			while (buf.hasRemaining() && channel.read(buf, buf.position()) > 0);
+			String header = new String(buf.array(), StandardCharsets.UTF_8);
+			for (String line : header.split("\n"))
+				result.add(line.substring(2).trim());
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the given similarity matrix in the binary format into the passed
+	 * channel.
+	 *
+	 * <p>
+	 * Matrices with precision {@link NUMBER_PRECISION#DOUBLE} or
+	 * {@link NUMBER_PRECISION#MAPPED_DOUBLE} are written as doubles, all
+	 * others as floats.
+	 *
+	 * @param matrix
+	 *            The matrix to write.
+	 * @param channel
+	 *            The channel to write into.
+	 * @throws IOException
+	 */
+	public static void writeToChannel(final SimilarityMatrix matrix,
+			final WritableByteChannel channel) throws IOException {
+		boolean isDouble = matrix.getPrecision() == null
+				|| matrix.getPrecision() == NUMBER_PRECISION.DOUBLE
+				|| matrix.getPrecision() == NUMBER_PRECISION.MAPPED_DOUBLE;
+		boolean isSymmetric = matrix.isSymmetric();
+		String[] ids = matrix.getIds() != null
+				? matrix.getIdsArray()
+				: new String[0];
+
+		ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+		buf.put(MAGIC);
+		buf.putInt(VERSION);
+		buf.put((byte) (isDouble ? 0 : 1));
+		buf.put((byte) (isSymmetric ? 1 : 0));
+		buf.putInt(matrix.getRows());
+		buf.putInt(matrix.getColumns());
+		buf.putInt(ids.length);
+		for (String id : ids) {
+			byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+			if (buf.remaining() < bytes.length + 4)
+				flush(buf, channel);
+			buf.putInt(bytes.length);
+			buf.put(bytes);
+		}
+
+		int elementSize = isDouble ? 8 : 4;
+		for (int i = 0; i < matrix.getRows(); i++) {
+			for (int j = isSymmetric ? i : 0; j < matrix.getColumns(); j++) {
+				if (buf.remaining() < elementSize)
+					flush(buf, channel);
+				if (isDouble)
+					buf.putDouble(matrix.getSimilarity(i, j));
+				else
+					buf.putFloat((float) matrix.getSimilarity(i, j));
+			}
+		}
+		flush(buf, channel);
+	}
+
+	/**
+	 * Writes the given similarity matrix in the binary format into the passed
+	 * file, replacing its previous contents.
+	 *
+	 * @param matrix
+	 *            The matrix to write.
+	 * @param file
+	 *            The target file.
+	 * @throws IOException
+	 */
+	public static void writeToFile(final SimilarityMatrix matrix,
+			final File file) throws IOException {
+		writeToFile(matrix, file, new String[0]);
+	}
+
+	/**
+	 * Writes the given similarity matrix in the binary format into the passed
+	 * file, preceded by the given header lines, replacing its previous
+	 * contents.
+	 *
+	 * @param matrix
+	 *            The matrix to write.
+	 * @param file
+	 *            The target file.
+	 * @param headerLines
+	 *            The header lines, which are prefixed by '//' and can be read
+	 *            with {@link #readHeaderLines(File)}.
+	 * @throws IOException
+	 */
+	public static void writeToFile(final SimilarityMatrix matrix,
+			final File file, final String... headerLines) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+				FileChannel channel = raf.getChannel()) {
+			channel.truncate(0);
+			for (String line : headerLines) {
+				ByteBuffer buf = ByteBuffer.wrap(("// " + line + "\n")
+						.getBytes(StandardCharsets.UTF_8));
+				while (buf.hasRemaining())
+					channel.write(buf);
+			}
+			writeToChannel(matrix, channel);
+		}
+	}
+
+	private static void flush(final ByteBuffer buf,
+			final WritableByteChannel channel) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining())
+			channel.write(buf);
+		buf.clear();
+	}
+
+	/**
+	 * The layout of the values in a binary similarity file.
+	 */
+	public static class Header {
+
+		/** The size of the header in bytes, up to the number of ids. */
+		protected static final int SIZE = MAGIC.length + 4 + 1 + 1 + 4 + 4;
+
+		protected final boolean isDouble;
+
+		protected final boolean isSymmetric;
+
+		protected final int rows;
+
+		protected final int columns;
+
+		protected Header(final boolean isDouble, final boolean isSymmetric,
+				final int rows, final int columns) {
+			super();
+			this.isDouble = isDouble;
+			this.isSymmetric = isSymmetric;
+			this.rows = rows;
+			this.columns = columns;
+		}
+
+		/**
+		 * @return True, if the values are stored as doubles, false if they
+		 *         are stored as floats.
+		 */
+		public boolean isDouble() {
+			return this.isDouble;
+		}
+
+		/**
+		 * @return True, if only the upper triangle is stored.
+		 */
+		public boolean isSymmetric() {
+			return this.isSymmetric;
+		}
+
+		/**
+		 * @return The number of rows of the matrix.
+		 */
+		public int getRows() {
+			return this.rows;
+		}
+
+		/**
+		 * @return The number of columns of the matrix.
+		 */
+		public int getColumns() {
+			return this.columns;
+		}
+	}
+}
@@ -24,6 +24,13 @@ public class SimFileMatrixParser extends SimFileParser {
 
 	protected double sparseReplaceValue = 0.0;
 
+	/**
+	 * The number of matrix lines processed so far, if the file is parsed
+	 * sequentially. Like in the chunked path, skipped empty lines are not
+	 * counted.
+	 */
+	protected long processedMatrixLines;
+
 	/**
 	 * Instantiates a new sim file2 d array parser.
 	 * 
@@ -279,6 +286,17 @@ public class SimFileMatrixParser extends SimFileParser {
 					this.sequenceCount, precision);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see utils.parse.TextFileParser#initProcess()
+	 */
+	@Override
+	public void initProcess() throws IOException {
+		super.initProcess();
+		this.processedMatrixLines = 0;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -317,23 +335,42 @@ public class SimFileMatrixParser extends SimFileParser {
 		} else if (this.simFileFormat.equals(SIM_FILE_FORMAT.BLAST)) {
 			i = this.getIdForKey(key[0]);
 			j = this.getIdForKey(key[1]);
-		} else if (this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX)) {
-			i = (int) (this.currentLine);
-			for (j = 0; j < sequenceCount; j++) {
-				if (value[j].equals("NA"))
-					continue;
-
-				if (this.outputMode != null
-						&& this.outputMode.equals(OUTPUT_MODE.STREAM))
-					this.similarities.setSimilarity(0, j,
-							Double.valueOf(value[j]));
-				else
-					this.similarities.setSimilarity(i, j,
-							Double.valueOf(value[j]));
-			}
+		} else if (this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX)
+				|| this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX_HEADER)) {
+			this.processMatrixLine(this.processedMatrixLines++, value);
 			return;
-		} else if (this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX_HEADER)) {
-			i = (int) (this.currentLine);
+		}
+		// TODO ?
+		try {
+			if (this.outputMode == null
+					|| this.outputMode.equals(OUTPUT_MODE.BURST))
+				this.similarities.setSimilarity(i, j,
+						Double.valueOf(this.combineColumns(value)));
+			else
+				this.similarities.setSimilarity(0, j,
+						Double.valueOf(this.combineColumns(value)));
+		} catch (NumberFormatException e) {
+			this.log.warn(String.format(
+					"Skipping invalid similarity value '%s' between %s and %s",
+					this.combineColumns(value), this.getKeyForId(i),
+					this.getKeyForId(j)));
+		}
+	}
+
+	/**
+	 * Processes a line of a file in {@link SIM_FILE_FORMAT#MATRIX} or
+	 * {@link SIM_FILE_FORMAT#MATRIX_HEADER} format.
+	 * 
+	 * @param lineNumber
+	 *            The number of the line, not counting leading comment lines
+	 *            and skipped empty lines.
+	 * @param value
+	 *            the value
+	 */
+	protected void processMatrixLine(final long lineNumber,
+			final String[] value) {
+		int i = (int) lineNumber;
+		if (this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX_HEADER)) {
 			// parse ids from first row
 			if (i == 0) {
 				String[] ids = value;
@@ -345,37 +382,65 @@ public class SimFileMatrixParser extends SimFileParser {
 
 				return;
 			}
-			for (j = 0; j < sequenceCount; j++) {
+			i--;
+		}
+		final boolean stream = this.outputMode != null
+				&& this.outputMode.equals(OUTPUT_MODE.STREAM);
+		if (!this.isProcessingInChunks()) {
+			for (int j = 0; j < sequenceCount; j++) {
 				if (value[j].equals("NA"))
 					continue;
 
-				if (this.outputMode != null
-						&& this.outputMode.equals(OUTPUT_MODE.STREAM))
-					this.similarities.setSimilarity(0, j,
-							Double.valueOf(value[j]));
-				else
-					this.similarities.setSimilarity(i - 1, j,
-							Double.valueOf(value[j]));
+				this.similarities.setSimilarity(stream ? 0 : i, j,
+						Double.valueOf(value[j]));
 			}
 			return;
 		}
-		// TODO ?
-		try {
-			if (this.outputMode == null
-					|| this.outputMode.equals(OUTPUT_MODE.BURST))
-				this.similarities.setSimilarity(i, j,
-						Double.valueOf(this.combineColumns(value)));
-			else
-				this.similarities.setSimilarity(0, j,
-						Double.valueOf(this.combineColumns(value)));
-		} catch (NumberFormatException e) {
-			this.log.warn(String.format(
-					"Skipping invalid similarity value '%s' between %s and %s",
-					this.combineColumns(value), this.getKeyForId(i),
-					this.getKeyForId(j)));
+
+		// rows are parsed concurrently and every run of values between "NA"
+		// entries is stored as one block, which keeps the matrix statistics
+		// consistent without locking every single value
+		int j = 0;
+		while (j < sequenceCount) {
+			if (value[j].equals("NA")) {
+				j++;
+				continue;
+			}
+			int end = j + 1;
+			while (end < sequenceCount && !value[end].equals("NA"))
+				end++;
+			final double[] block = new double[end - j];
+			for (int k = 0; k < block.length; k++)
+				block[k] = Double.parseDouble(value[j + k]);
+			this.similarities.setSimilarities(i, j, new double[][]{block});
+			j = end;
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see utils.parse.TextFileParser#supportsParallelProcessing()
+	 */
+	@Override
+	protected boolean supportsParallelProcessing() {
+		// every line of a matrix holds a different row
+		return this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX)
+				|| this.simFileFormat.equals(SIM_FILE_FORMAT.MATRIX_HEADER);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see utils.parse.TextFileParser#processLine(long, java.lang.String[],
+	 * java.lang.String[])
+	 */
+	@Override
+	protected void processLine(final long lineNumber, final String[] key,
+			final String[] value) {
+		this.processMatrixLine(lineNumber, value);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -6,9 +6,23 @@ import de.wiwie.wiutils.utils.StringExt;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -94,6 +108,24 @@ public abstract class TextFileParser {
 	protected Pattern attributeLinePrefixPattern = Pattern.compile("\\s*"
 			+ attributeLinePrefix + ".*");
 
+	/**
+	 * The number of threads used to parse the file in line-aligned chunks.
+	 * Only used if {@link #supportsParallelProcessing()} returns true.
+	 */
+	protected int parallelism = 1;
+
+	/**
+	 * The number of lines processed so far by all threads, if the file is
+	 * parsed in chunks.
+	 */
+	private final AtomicLong processedChunkLines = new AtomicLong();
+
+	/** The size of the buffers used to read the file in chunks. */
+	protected static final int CHUNK_BUFFER_SIZE = 1 << 16;
+
+	/** Characters which make String.split() use a regular expression. */
+	private static final String REGEX_META_CHARACTERS = ".$|()[{^?*+\\";
+
 	/**
 	 * Instantiates a new text file parser.
 	 *
@@ -311,13 +343,32 @@ public abstract class TextFileParser {
 		this.resetReader();
 		log.trace("Counting number of lines in input file...");
 		long count = 0;
-		try {
-			String line = null;
-			while ((line = this.fileReader.readLine()) != null) {
-				if (!line.isEmpty() || this.skipEmptyLines) {
-					count++;
+		// count the line terminators on the raw bytes instead of decoding
+		// every line; '\r', '\n' and "\r\n" terminate lines like in
+		// BufferedReader.readLine()
+		try (InputStream in = new FileInputStream(this.absoluteFilePath)) {
+			final byte[] buffer = new byte[CHUNK_BUFFER_SIZE];
+			boolean lineEmpty = true, afterCarriageReturn = false;
+			int read;
+			while ((read = in.read(buffer)) > -1) {
+				for (int i = 0; i < read; i++) {
+					final byte b = buffer[i];
+					if (b == '\n' && afterCarriageReturn) {
+						afterCarriageReturn = false;
+						continue;
+					}
+					afterCarriageReturn = b == '\r';
+					if (b == '\n' || b == '\r') {
+						if (!lineEmpty || this.skipEmptyLines)
+							count++;
+						lineEmpty = true;
+					} else
+						lineEmpty = false;
 				}
 			}
+			// last line without terminator
+			if (!lineEmpty)
+				count++;
 		} catch (final IOException e) {
 			e.printStackTrace();
 		}
@@ -442,6 +493,24 @@ public abstract class TextFileParser {
 		return valueEntries;
 	}
 
+	/**
+	 * Splits a line into its columns. The result is the same as the one of
+	 * String.split(), but single character separators are handled without
+	 * any regular expression and list overhead.
+	 *
+	 * @param line
+	 *            The line to split.
+	 * @return The columns of the line.
+	 */
+	protected String[] splitLine(final String line) {
+		if (!this.splitLines)
+			return new String[]{line};
+		if (this.inSplit.length() == 1
+				&& REGEX_META_CHARACTERS.indexOf(this.inSplit.charAt(0)) == -1)
+			return StringExt.split(line, this.inSplit.charAt(0));
+		return line.split(this.inSplit);
+	}
+
 	/**
 	 * This method determines, whether a line is processed or not. By default no
 	 * filtering takes place and it returns true always. If you want to filter,
@@ -570,46 +639,41 @@ public abstract class TextFileParser {
 				log.debug("Output will be written to " + this.outputFile);
 			}
 			this.resetReader();
-			String line = null;
-			long lineNumber = 0;
-			this.parsingComments = true;
-			while ((line = this.readLine()) != null && !this.terminated) {
-				try {
-					this.currentLine++;
-					// skip empty lines
-					if (line.isEmpty() && this.skipEmptyLines
-							|| !checkLine(line)) {
-						continue;
-					}
-					String[] lineSplit = null;
+			if (this.isProcessingInChunks()) {
+				this.processInChunks();
+			} else {
+				String line = null;
+				long lineNumber = 0;
+				this.parsingComments = true;
+				while ((line = this.readLine()) != null && !this.terminated) {
 					try {
-						// lineSplit = (this.splitLines ? StringExt.split(line,
-						// this.inSplit) : new String[]{line});
-						lineSplit = (this.splitLines
-								? line.split(this.inSplit)
-								: new String[]{line});
-					} catch (NullPointerException e) {
-						System.out.println("test");
+						this.currentLine++;
+						// skip empty lines
+						if (line.isEmpty() && this.skipEmptyLines
+								|| !checkLine(line)) {
+							continue;
+						}
+						final String[] lineSplit = this.splitLine(line);
+						final String[] keyEntries = this
+								.extractKeyEntries(lineSplit);
+						final String[] valueEntries = this
+								.extractValueEntries(lineSplit);
+						this.key = keyEntries;// this.combineColumns(keyEntries);
+						this.value = valueEntries;// this.combineColumns(valueEntries);
+						this.processLine(this.key, this.value);
+						if (this.outputFile != null
+								&& this.outputMode.equals(OUTPUT_MODE.STREAM)) {
+							this.checkForOutput(this.key, this.value);
+						}
+
+						if (this.progress.getUpperLimit() > -1L)
+							this.progress.update(lineNumber + 1);
+						lineNumber++;
+					} catch (IndexOutOfBoundsException e) {
+						log.error("Error while parsing line " + currentLine
+								+ " of file " + this.absoluteFilePath);
+						throw e;
 					}
-					final String[] keyEntries = this
-							.extractKeyEntries(lineSplit);
-					final String[] valueEntries = this
-							.extractValueEntries(lineSplit);
-					this.key = keyEntries;// this.combineColumns(keyEntries);
-					this.value = valueEntries;// this.combineColumns(valueEntries);
-					this.processLine(this.key, this.value);
-					if (this.outputFile != null
-							&& this.outputMode.equals(OUTPUT_MODE.STREAM)) {
-						this.checkForOutput(this.key, this.value);
-					}
-
-					if (this.progress.getUpperLimit() > -1L)
-						this.progress.update(lineNumber + 1);
-					lineNumber++;
-				} catch (IndexOutOfBoundsException e) {
-					log.error("Error while parsing line " + currentLine
-							+ " of file " + this.absoluteFilePath);
-					throw e;
 				}
 			}
 			if (this.outputFile != null
@@ -638,6 +702,356 @@ public abstract class TextFileParser {
 	 */
 	protected abstract void processLine(String[] key, String[] value);
 
+	/**
+	 * Process line, if the file is parsed in chunks by several threads (see
+	 * {@link #supportsParallelProcessing()}). This method is invoked
+	 * concurrently for lines of different chunks.
+	 * 
+	 * <p>
+	 * By default the line is passed to {@link #processLine(String[], String[])}
+	 * while holding the lock of this parser, such that the lines are processed
+	 * one after another. Subclasses returning true in
+	 * {@link #supportsParallelProcessing()} should override this method to
+	 * process lines concurrently.
+	 *
+	 * @param lineNumber
+	 *            The number of the line among the processed lines, i.e.
+	 *            leading comment lines, skipped empty lines and lines
+	 *            rejected by {@link #checkLine(String)} are not counted.
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	protected void processLine(final long lineNumber, final String[] key,
+			final String[] value) {
+		synchronized (this) {
+			this.processLine(key, value);
+		}
+	}
+
+	/**
+	 * Subclasses that override {@link #processLine(long, String[], String[])}
+	 * in a thread-safe way should return true here. In that case leading
+	 * comment and empty lines are skipped. All other lines are filtered like
+	 * in the sequential path: empty lines are skipped and
+	 * {@link #checkLine(String)} is invoked. Lines are checked concurrently
+	 * and twice (once to number the lines of every chunk), thus
+	 * {@link #checkLine(String)} must not depend on preceding lines.
+	 *
+	 * @return True, if this parser can process several chunks of the file
+	 *         concurrently.
+	 */
+	protected boolean supportsParallelProcessing() {
+		return false;
+	}
+
+	/**
+	 * Sets the number of threads used to parse the file.
+	 *
+	 * @param parallelism
+	 *            the number of threads
+	 */
+	public void setParallelism(final int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Gets the number of threads used to parse the file.
+	 *
+	 * @return the number of threads
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * @return True, if the file is parsed in chunks by several threads.
+	 */
+	protected boolean isProcessingInChunks() {
+		return this.parallelism > 1
+				&& this.supportsParallelProcessing()
+				&& (this.outputFile == null || !this.outputMode
+						.equals(OUTPUT_MODE.STREAM));
+	}
+
+	/**
+	 * Splits the file into line-aligned chunks and parses them concurrently.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void processInChunks() throws IOException {
+		this.processedChunkLines.set(0);
+		// the leading comment lines are skipped by getChunkBounds()
+		this.parsingComments = false;
+		final long[] bounds = this.getChunkBounds();
+		final int chunks = bounds.length - 1;
+		final ExecutorService executor = Executors.newFixedThreadPool(Math
+				.min(this.parallelism, chunks));
+		try {
+			// the number of processed lines within every chunk determines the
+			// number of the first line of the following chunks
+			final List<Future<Long>> lineCounts = new ArrayList<Future<Long>>();
+			for (int c = 0; c < chunks; c++) {
+				final long start = bounds[c], end = bounds[c + 1];
+				lineCounts.add(executor.submit(() -> this
+						.countProcessedLines(start, end)));
+			}
+			final List<Future<Void>> parsed = new ArrayList<Future<Void>>();
+			long firstLine = 0;
+			for (int c = 0; c < chunks; c++) {
+				final long start = bounds[c], end = bounds[c + 1], line = firstLine;
+				parsed.add(executor.submit(() -> {
+					this.processChunk(start, end, line);
+					return null;
+				}));
+				firstLine += getChunkResult(lineCounts.get(c));
+			}
+			for (Future<Void> f : parsed)
+				getChunkResult(f);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static <T> T getChunkResult(final Future<T> future)
+			throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Determines the chunks of the file, such that every chunk starts at the
+	 * beginning of a line. The first chunk starts after the leading comment
+	 * and empty lines.
+	 *
+	 * @return The byte positions of the chunk borders.
+	 * @throws IOException
+	 */
+	private long[] getChunkBounds() throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(
+				this.absoluteFilePath, "r");
+				FileChannel channel = raf.getChannel()) {
+			final long size = channel.size();
+			long start = 0;
+			while (start < size
+					&& (this.isCommentLine(channel, start) || this.skipEmptyLines
+							&& this.isEmptyLine(channel, start)))
+				start = this.nextLineStart(channel, start);
+
+			final List<Long> bounds = new ArrayList<Long>();
+			bounds.add(start);
+			final long chunkSize = (size - start) / this.parallelism + 1;
+			long pos = start;
+			while ((pos = this.nextLineStart(channel, pos + chunkSize)) < size)
+				bounds.add(pos);
+			bounds.add(size);
+
+			final long[] result = new long[bounds.size()];
+			for (int i = 0; i < result.length; i++)
+				result[i] = bounds.get(i);
+			return result;
+		}
+	}
+
+	private boolean isCommentLine(final FileChannel channel, final long pos)
+			throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(CHUNK_BUFFER_SIZE);
+		channel.read(buf, pos);
+		buf.flip();
+		while (buf.hasRemaining()) {
+			final byte b = buf.get();
+			if (b == '\n' || b == '\r')
+				return false;
+			if (!Character.isWhitespace(b)) {
+				buf.position(buf.position() - 1);
+				break;
+			}
+		}
+		final byte[] prefix = this.attributeLinePrefix.getBytes();
+		if (buf.remaining() < prefix.length)
+			return false;
+		for (byte b : prefix)
+			if (buf.get() != b)
+				return false;
+		return true;
+	}
+
+	private boolean isEmptyLine(final FileChannel channel, final long pos)
+			throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(1);
+		if (channel.read(buf, pos) < 1)
+			return false;
+		return buf.get(0) == '\n' || buf.get(0) == '\r';
+	}
+
+	/**
+	 * @return The position after the next line terminator at or after pos, or
+	 *         the size of the file. Line terminators are '\n', '\r' and
+	 *         "\r\n" like in {@link java.io.BufferedReader#readLine()}.
+	 */
+	private long nextLineStart(final FileChannel channel, long pos)
+			throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(CHUNK_BUFFER_SIZE);
+		final long size = channel.size();
+		while (pos < size) {
+			buf.clear();
+			final int read = channel.read(buf, pos);
+			if (read <= 0)
+				break;
+			final byte[] data = buf.array();
+			for (int i = 0; i < read; i++) {
+				if (data[i] == '\n')
+					return pos + i + 1;
+				if (data[i] == '\r') {
+					// "\r\n" terminates a single line
+					final long next = pos + i + 1;
+					if (i + 1 < read)
+						return data[i + 1] == '\n' ? next + 1 : next;
+					return this.isLineFeed(channel, next) ? next + 1 : next;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	private boolean isLineFeed(final FileChannel channel, final long pos)
+			throws IOException {
+		final ByteBuffer buf = ByteBuffer.allocate(1);
+		return channel.read(buf, pos) == 1 && buf.get(0) == '\n';
+	}
+
+	/**
+	 * @return True, if the line is processed like in the sequential path of
+	 *         {@link #process()}.
+	 */
+	private boolean acceptLine(final String line) {
+		return !(line.isEmpty() && this.skipEmptyLines)
+				&& this.checkLine(line);
+	}
+
+	private long countProcessedLines(final long start, final long end)
+			throws IOException {
+		final long[] count = new long[1];
+		this.forEachLine(start, end, line -> {
+			if (this.acceptLine(line))
+				count[0]++;
+		});
+		return count[0];
+	}
+
+	private void processChunk(final long start, final long end,
+			final long firstLine) throws IOException {
+		final long[] lineNumber = new long[]{firstLine};
+		this.forEachLine(start, end, line -> {
+			if (this.acceptLine(line))
+				this.processChunkLine(line, lineNumber[0]++);
+		});
+	}
+
+	/**
+	 * Passes the lines between two line starts to the handler. Lines are
+	 * terminated by '\n', '\r' or "\r\n" like in
+	 * {@link java.io.BufferedReader#readLine()}.
+	 */
+	private void forEachLine(final long start, final long end,
+			final Consumer<String> handler) throws IOException {
+		final Charset charset = Charset.defaultCharset();
+		try (RandomAccessFile raf = new RandomAccessFile(
+				this.absoluteFilePath, "r");
+				FileChannel channel = raf.getChannel()) {
+			final ByteBuffer buf = ByteBuffer.allocate(CHUNK_BUFFER_SIZE);
+			// the beginning of a line which did not fit into the buffer
+			byte[] carry = new byte[0];
+			int carryLength = 0;
+			boolean afterCarriageReturn = false;
+			long pos = start;
+			while (pos < end && !this.terminated) {
+				buf.clear();
+				buf.limit((int) Math.min(buf.capacity(), end - pos));
+				final int read = channel.read(buf, pos);
+				if (read <= 0)
+					break;
+				pos += read;
+				final byte[] data = buf.array();
+				int lineStart = 0;
+				for (int i = 0; i < read; i++) {
+					final byte b = data[i];
+					if (b == '\n' && afterCarriageReturn) {
+						// second byte of "\r\n"
+						afterCarriageReturn = false;
+						lineStart = i + 1;
+						continue;
+					}
+					afterCarriageReturn = b == '\r';
+					if (b != '\n' && b != '\r')
+						continue;
+					final String line;
+					if (carryLength > 0) {
+						carry = append(carry, carryLength, data, lineStart, i);
+						line = new String(carry, 0, carryLength + i - lineStart,
+								charset);
+						carryLength = 0;
+					} else
+						line = new String(data, lineStart, i - lineStart,
+								charset);
+					handler.accept(line);
+					lineStart = i + 1;
+				}
+				if (lineStart < read) {
+					carry = append(carry, carryLength, data, lineStart, read);
+					carryLength += read - lineStart;
+				}
+			}
+			// last line without terminator
+			if (carryLength > 0 && !this.terminated)
+				handler.accept(new String(carry, 0, carryLength, charset));
+		}
+	}
+
+	private static byte[] append(byte[] target, final int targetLength,
+			final byte[] data, final int from, final int to) {
+		final int length = targetLength + to - from;
+		if (target.length < length) {
+			final byte[] grown = new byte[Math.max(length,
+					2 * target.length)];
+			System.arraycopy(target, 0, grown, 0, targetLength);
+			target = grown;
+		}
+		System.arraycopy(data, from, target, targetLength, to - from);
+		return target;
+	}
+
+	private void processChunkLine(final String line, final long lineNumber) {
+		try {
+			final String[] lineSplit = this.splitLine(line);
+			this.processLine(lineNumber, this.extractKeyEntries(lineSplit),
+					this.extractValueEntries(lineSplit));
+		} catch (IndexOutOfBoundsException e) {
+			log.error("Error while parsing line " + lineNumber + " of file "
+					+ this.absoluteFilePath);
+			throw e;
+		}
+		final long processed = this.processedChunkLines.incrementAndGet();
+		if (this.progress.getUpperLimit() > -1L)
+			synchronized (this.progress) {
+				if (processed > this.progress.getCurrentPos())
+					this.progress.update(processed);
+			}
+	}
+
 	/**
 	 * Process burst output.
 	 *
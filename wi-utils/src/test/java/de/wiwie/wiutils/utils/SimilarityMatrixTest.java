@@ -17,7 +17,15 @@
  */
 package de.wiwie.wiutils.utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -53,4 +61,250 @@ public class SimilarityMatrixTest {
         assertEquals(A, B);
     }
 
+    @Test
+    public void testSymmetric() {
+        for (SimilarityMatrix.NUMBER_PRECISION precision : SimilarityMatrix.NUMBER_PRECISION.values()) {
+            SimilarityMatrix A = new SimilarityMatrix(3, 3, precision, true);
+            assertTrue(A.isSymmetric());
+            for (int i = 0; i < 3; i++) {
+                for (int j = i; j < 3; j++) {
+                    A.setSimilarity(i, j, i + j);
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    assertEquals((double) i + j, A.getSimilarity(i, j));
+                }
+            }
+            // mean over all 9 entries of the full matrix
+            assertEquals(2.0, A.getMean());
+
+            A.setSimilarity(2, 0, 7.0);
+            assertEquals(7.0, A.getSimilarity(0, 2));
+            // the previous value 2.0 of (0,2) and (2,0) is replaced
+            assertEquals(28.0 / 9, A.getMean(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testEstimatedHeapSize() {
+        int n = 7;
+        for (SimilarityMatrix.NUMBER_PRECISION precision : SimilarityMatrix.NUMBER_PRECISION.values()) {
+            for (boolean isSymmetric : new boolean[]{true, false}) {
+                AbstractSimilarityMatrix backend = SimilarityMatrix.createMatrix(n,
+                        n, precision, isSymmetric);
+                long bytesPerEntry;
+                if (backend instanceof SimilarityMatrixDouble
+                        || backend instanceof SymmetricSimilarityMatrixDouble) {
+                    bytesPerEntry = 8;
+                } else if (backend instanceof SimilarityMatrixFloat
+                        || backend instanceof SymmetricSimilarityMatrixFloat
+                        || backend instanceof SimilarityMatrixInt
+                        || backend instanceof SymmetricSimilarityMatrixInt) {
+                    bytesPerEntry = 4;
+                } else {
+                    // memory mapped
+                    bytesPerEntry = 0;
+                }
+                long entries = isSymmetric ? n * (n + 1) / 2 : n * n;
+                assertEquals(entries * bytesPerEntry, SimilarityMatrix
+                        .getEstimatedHeapSize(n, n, precision, isSymmetric));
+            }
+        }
+        // only square matrices are stored as triangle
+        assertEquals(3 * 5 * 8, SimilarityMatrix.getEstimatedHeapSize(3, 5,
+                SimilarityMatrix.NUMBER_PRECISION.DOUBLE, true));
+    }
+
+    @Test
+    public void testSymmetricInvert() {
+        SimilarityMatrix A = new SimilarityMatrix(3, 3, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, true);
+        SimilarityMatrix B = new SimilarityMatrix(3, 3, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, false);
+        assertFalse(B.isSymmetric());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                A.setSimilarity(i, j, Math.abs(i - j));
+                B.setSimilarity(i, j, Math.abs(i - j));
+            }
+        }
+        // writing both (i,j) and (j,i) must not count the entry four times
+        assertEquals(8.0 / 9, A.getMean(), 1e-9);
+        assertEquals(B.getMean(), A.getMean(), 1e-9);
+        A.invert();
+        B.invert();
+        assertEquals(B.getMean(), A.getMean(), 1e-9);
+        A.normalize();
+        B.normalize();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(B.getSimilarity(i, j), A.getSimilarity(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testSetSimilarities() {
+        for (boolean symmetric : new boolean[]{true, false}) {
+            SimilarityMatrix A = new SimilarityMatrix(4, 4, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, symmetric);
+            SimilarityMatrix B = new SimilarityMatrix(4, 4, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, symmetric);
+            double[][] block = new double[2][2];
+            for (int bi = 0; bi < 4; bi += 2) {
+                for (int bj = symmetric ? bi : 0; bj < 4; bj += 2) {
+                    for (int i = 0; i < 2; i++) {
+                        for (int j = 0; j < 2; j++) {
+                            block[i][j] = (bi + i) * (bj + j) + 1;
+                            if (!symmetric || bi + i <= bj + j) {
+                                B.setSimilarity(bi + i, bj + j, block[i][j]);
+                            }
+                        }
+                    }
+                    A.setSimilarities(bi, bj, block);
+                }
+            }
+            assertEquals(B, A);
+            assertEquals(B.getMinValue(), A.getMinValue());
+            assertEquals(B.getMaxValue(), A.getMaxValue());
+            assertEquals(B.getMean(), A.getMean(), 0.000001);
+        }
+    }
+
+    @Test
+    public void testMapped() {
+        double[][] sims = new double[][]{new double[]{1.0, 2.0, 3.0}, new double[]{2.0, 1.0, 0.5}};
+        SimilarityMatrix A = new SimilarityMatrix(sims, SimilarityMatrix.NUMBER_PRECISION.MAPPED_DOUBLE);
+        SimilarityMatrix B = new SimilarityMatrix(sims, SimilarityMatrix.NUMBER_PRECISION.MAPPED_DOUBLE);
+        for (int i = 0; i < sims.length; i++) {
+            for (int j = 0; j < sims[i].length; j++) {
+                assertEquals(sims[i][j], A.getSimilarity(i, j));
+            }
+        }
+        assertEquals(A, B);
+        assertEquals(3.0, A.getMaxValue());
+    }
+
+    @Test
+    public void testMappedSymmetricAcrossChunks() throws IOException {
+        int n = 13;
+        Random random = new Random(42);
+        for (boolean isDouble : new boolean[]{true, false}) {
+            // 24 bytes per chunk: rows of the packed upper triangle straddle
+            // several chunk boundaries
+            MappedSimilarityMatrix mapped = new MappedSimilarityMatrix(n, n,
+                    isDouble, true, 24);
+            double[][] dense = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    // write both triangles; the later write wins
+                    double value = isDouble ? random.nextDouble()
+                                   : random.nextFloat();
+                    mapped.set(i, j, value);
+                    dense[i][j] = value;
+                    dense[j][i] = value;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    assertEquals(dense[i][j], mapped.get(i, j));
+                    assertEquals(mapped.get(i, j), mapped.get(j, i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testQuantiles() throws RangeCreationException {
+        Random random = new Random(3);
+        int n = 60;
+        SimilarityMatrix A = new SimilarityMatrix(n, n, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, true);
+        SimilarityMatrix B = new SimilarityMatrix(n, n, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, false);
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                double sim = random.nextInt(100) / 10.0;
+                A.setSimilarity(i, j, sim);
+                B.setSimilarity(i, j, sim);
+                B.setSimilarity(j, i, sim);
+            }
+        }
+        // exact quantiles of the full matrix
+        List<Double> ordered = B.toOrderedList();
+        int[] range = ArraysExt.range(0, ordered.size() - 1, 11, true);
+        double[] qA = A.getQuantiles(11);
+        double[] qB = B.getQuantiles(11);
+        for (int i = 0; i < range.length; i++) {
+            assertEquals(ordered.get(range[i]), qA[i]);
+            assertEquals(ordered.get(range[i]), qB[i]);
+        }
+
+        // estimated quantiles are within a few percent of the ranks
+        double[] estimated = A.getQuantiles(11, false);
+        assertEquals(ordered.get(0), estimated[0]);
+        assertEquals(ordered.get(ordered.size() - 1), estimated[10]);
+        for (int i = 0; i < range.length; i++) {
+            int rank = Collections.binarySearch(ordered, estimated[i]);
+            assertTrue(rank >= 0);
+            int lower = ordered.indexOf(estimated[i]);
+            int upper = ordered.lastIndexOf(estimated[i]);
+            int tolerance = ordered.size() / 50;
+            assertTrue(lower - tolerance <= range[i] && range[i] <= upper + tolerance);
+        }
+
+        assertEquals(B.toDistribution(10), A.toDistribution(10));
+    }
+
+    @Test
+    public void testQuantilesTooManyValues() throws RangeCreationException {
+        // pretends to store more values than fit into one array
+        SimilarityMatrix A = new SimilarityMatrix(10, 10, SimilarityMatrix.NUMBER_PRECISION.DOUBLE, false) {
+            @Override
+            protected long getStoredValueCount() {
+                return SimilarityMatrix.MAX_SORTED_VALUES + 1;
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                A.setSimilarity(i, j, i * 10 + j);
+            }
+        }
+        double[] q = A.getQuantiles(3, true);
+        assertEquals(0.0, q[0]);
+        assertEquals(99.0, q[2]);
+        try {
+            A.getValuesAtRanks(new long[]{0});
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testStatistics() throws IOException {
+        SimilarityMatrix A = new SimilarityMatrix(new String[]{"a", "b"},
+                new double[][]{new double[]{1.0, 2.0}, new double[]{0.5, 1.0}});
+        SimilarityStatistics stats = A.getStatistics();
+        assertEquals(0.5, stats.getMinValue());
+        assertEquals(2.0, stats.getMaxValue());
+        assertEquals(A.getMean(), stats.getMean());
+        assertEquals(4, stats.getCount());
+        assertEquals(2, stats.getNumberOfIds());
+
+        File file = File.createTempFile("simMatrix", ".stats");
+        try {
+            stats.writeToFile(file);
+            SimilarityStatistics read = SimilarityStatistics.readFromFile(file);
+            assertEquals(stats.getMinValue(), read.getMinValue());
+            assertEquals(stats.getMaxValue(), read.getMaxValue());
+            assertEquals(stats.getSum(), read.getSum());
+            assertEquals(stats.getCount(), read.getCount());
+            assertEquals(stats.getNumberOfIds(), read.getNumberOfIds());
+
+            stats.writeToFile(file, "10:42");
+            assertEquals(stats.getSum(),
+                    SimilarityStatistics.readFromFile(file, "10:42").getSum());
+            assertEquals(null, SimilarityStatistics.readFromFile(file, "11:42"));
+            assertEquals(stats.getSum(),
+                    SimilarityStatistics.readFromFile(file).getSum());
+        } finally {
+            file.delete();
+        }
+    }
+
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2016 deric
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package de.wiwie.wiutils.utils.parse;
+
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author deric
+ */
+public class BinarySimFileMatrixParserTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("binarySim", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        SimilarityMatrix A = new SimilarityMatrix(new String[]{"a", "b", "c"},
+                new double[][]{new double[]{1.0, 0.5, 0.25},
+                    new double[]{0.5, 1.0, 0.125}, new double[]{0.25, 0.125, 1.0}});
+        BinarySimFileMatrixParser.writeToFile(A, file);
+
+        SimilarityMatrix B = new BinarySimFileMatrixParser(file.getAbsolutePath(),
+                NUMBER_PRECISION.DOUBLE).process().getSimilarities();
+        assertEquals(A, B);
+        assertEquals(0.125, B.getSimilarity("b", "c"));
+        assertEquals(A.getMinValue(), B.getMinValue());
+        assertEquals(A.getMaxValue(), B.getMaxValue());
+    }
+
+    @Test
+    public void testSymmetricWithHeader() throws IOException {
+        SimilarityMatrix A = new SimilarityMatrix(new String[]{"a", "b"}, 2, 2,
+                NUMBER_PRECISION.FLOAT, true);
+        A.setSimilarity(0, 0, 1.0);
+        A.setSimilarity(0, 1, 0.5);
+        A.setSimilarity(1, 1, 1.0);
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("// dataSetFormat = BinarySimMatrixDataSetFormat\n// dataSetFormatVersion = 1\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            BinarySimFileMatrixParser.writeToChannel(A, out.getChannel());
+        }
+
+        SimilarityMatrix B = new BinarySimFileMatrixParser(file.getAbsolutePath(),
+                null).process().getSimilarities();
+        assertTrue(B.isSymmetric());
+        assertEquals(NUMBER_PRECISION.FLOAT, B.getPrecision());
+        assertEquals(0.5, B.getSimilarity("b", "a"));
+        assertEquals(A.getMean(), B.getMean());
+    }
+
+    @Test
+    public void testHeaderLines() throws IOException {
+        SimilarityMatrix A = new SimilarityMatrix(new String[]{"a", "b"},
+                new double[][]{new double[]{1.0, 0.5}, new double[]{0.5, 1.0}});
+        BinarySimFileMatrixParser.writeToFile(A, file, "source = 42:0000abcd");
+
+        assertEquals(Arrays.asList("source = 42:0000abcd"),
+                BinarySimFileMatrixParser.readHeaderLines(file));
+        assertEquals(A, new BinarySimFileMatrixParser(file.getAbsolutePath(),
+                NUMBER_PRECISION.DOUBLE).process().getSimilarities());
+
+        BinarySimFileMatrixParser.writeToFile(A, file);
+        assertTrue(BinarySimFileMatrixParser.readHeaderLines(file).isEmpty());
+    }
+
+
+    @Test
+    public void testReadHeader() throws IOException {
+        for (NUMBER_PRECISION precision : new NUMBER_PRECISION[]{
+            NUMBER_PRECISION.DOUBLE, NUMBER_PRECISION.FLOAT}) {
+            for (boolean isSymmetric : new boolean[]{true, false}) {
+                SimilarityMatrix A = new SimilarityMatrix(null, 5, 5, precision,
+                        isSymmetric);
+                BinarySimFileMatrixParser.writeToFile(A, file, "alias = test");
+
+                BinarySimFileMatrixParser.Header header = BinarySimFileMatrixParser
+                        .readHeader(file);
+                assertEquals(precision == NUMBER_PRECISION.DOUBLE,
+                        header.isDouble());
+                assertEquals(isSymmetric, header.isSymmetric());
+                assertEquals(5, header.getRows());
+                assertEquals(5, header.getColumns());
+            }
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("// alias = test\n\ta\tb\na\t1.0\t0.5\n"
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        assertNull(BinarySimFileMatrixParser.readHeader(file));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2016 deric
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package de.wiwie.wiutils.utils.parse;
+
+import de.wiwie.wiutils.utils.SimilarityMatrix;
+import de.wiwie.wiutils.utils.SimilarityMatrix.NUMBER_PRECISION;
+import de.wiwie.wiutils.utils.parse.SimFileParser.SIM_FILE_FORMAT;
+import de.wiwie.wiutils.utils.parse.TextFileParser.OUTPUT_MODE;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import static junit.framework.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author deric
+ */
+public class SimFileMatrixParserTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("simMatrix", ".SimMatrix");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private void writeMatrix(int n, String lineSeparator) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("// alias = test" + lineSeparator);
+            writer.write("// dataSetFormat = SimMatrixDataSetFormat"
+                    + lineSeparator);
+            for (int j = 0; j < n; j++) {
+                writer.write("\tid" + j);
+            }
+            writer.write(lineSeparator);
+            for (int i = 0; i < n; i++) {
+                writer.write("id" + i);
+                for (int j = 0; j < n; j++) {
+                    writer.write("\t" + (i == j ? "NA" : (i * n + j) / 7.0));
+                }
+                writer.write(lineSeparator);
+            }
+        }
+    }
+
+    /**
+     * Writes a matrix with empty lines between the rows.
+     */
+    private void writeMatrixWithEmptyLines(int n, String lineSeparator)
+            throws IOException {
+        writeMatrix(n, lineSeparator);
+        String content = new String(java.nio.file.Files.readAllBytes(
+                file.toPath()));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(content.replace(lineSeparator + "id",
+                    lineSeparator + lineSeparator + "id"));
+        }
+    }
+
+    private SimilarityMatrix parse(int parallelism) throws IOException {
+        return parse(parallelism, false);
+    }
+
+    private SimilarityMatrix parse(int parallelism, boolean skipEmptyLines)
+            throws IOException {
+        SimFileMatrixParser p = new SimFileMatrixParser(file.getAbsolutePath(),
+                SIM_FILE_FORMAT.MATRIX_HEADER, null, OUTPUT_MODE.BURST,
+                SIM_FILE_FORMAT.MATRIX_HEADER, NUMBER_PRECISION.DOUBLE);
+        p.setParallelism(parallelism);
+        p.setSkipEmptyLines(skipEmptyLines);
+        p.process();
+        return p.getSimilarities();
+    }
+
+    private void assertSameMatrix(SimilarityMatrix A, SimilarityMatrix B) {
+        assertEquals(A, B);
+        assertEquals(A.getIds(), B.getIds());
+        assertEquals(A.getMaxValue(), B.getMaxValue());
+        assertEquals(A.getMinValue(), B.getMinValue());
+        assertEquals(A.getMean(), B.getMean(), 1e-9);
+    }
+
+    @Test
+    public void testParallel() throws IOException {
+        int n = 150;
+        writeMatrix(n, "\n");
+        SimilarityMatrix A = parse(1);
+        assertEquals(n, A.getRows());
+        assertEquals(1.0 / 7.0, A.getSimilarity("id0", "id1"), 1e-12);
+        assertEquals(0.0, A.getSimilarity("id3", "id3"), 1e-12);
+
+        assertSameMatrix(A, parse(4));
+        assertSameMatrix(A, parse(64));
+    }
+
+    @Test
+    public void testParallelWindowsLineBreaks() throws IOException {
+        writeMatrix(40, "\r\n");
+        assertSameMatrix(parse(1), parse(3));
+    }
+
+    @Test
+    public void testParallelEmptyLines() throws IOException {
+        for (String lineSeparator : new String[]{"\n", "\r\n", "\r"}) {
+            writeMatrixWithEmptyLines(40, lineSeparator);
+            SimilarityMatrix A = parse(1, true);
+            assertEquals(1.0 / 7.0, A.getSimilarity("id0", "id1"), 1e-12);
+            assertSameMatrix(A, parse(3, true));
+            assertSameMatrix(A, parse(16, true));
+        }
+    }
+
+    @Test
+    public void testParallelProgress() throws IOException {
+        int n = 30;
+        writeMatrix(n, "\n");
+        SimFileMatrixParser p = new SimFileMatrixParser(file.getAbsolutePath(),
+                SIM_FILE_FORMAT.MATRIX_HEADER, null, OUTPUT_MODE.BURST,
+                SIM_FILE_FORMAT.MATRIX_HEADER, NUMBER_PRECISION.DOUBLE);
+        p.setParallelism(4);
+        // enables the progress
+        p.getTotalLineCount();
+        p.process();
+        // the header line and all rows
+        assertEquals(n + 1, p.progress.getCurrentPos());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2016 deric
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package de.wiwie.wiutils.utils.parse;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author deric
+ */
+public class TextFileParserTest {
+
+    private File file;
+
+    /**
+     * Records the processed lines by their number. Lines starting with '#'
+     * are filtered by {@link #checkLine(String)}.
+     */
+    private static class RecordingParser extends TextFileParser {
+
+        private final Map<Long, String> lines = new TreeMap<Long, String>();
+
+        RecordingParser(String absFilePath, boolean skipEmptyLines)
+                throws IOException {
+            super(absFilePath, null, null, false);
+            setSkipEmptyLines(skipEmptyLines);
+        }
+
+        @Override
+        protected boolean checkLine(String line) {
+            return !line.startsWith("#")
+                    && !attributeLinePrefixPattern.matcher(line).matches();
+        }
+
+        @Override
+        protected void processLine(String[] key, String[] value) {
+            // sequential lines are processed in order
+            lines.put((long) lines.size(), value[0]);
+        }
+
+        @Override
+        protected void processLine(long lineNumber, String[] key,
+                String[] value) {
+            synchronized (lines) {
+                lines.put(lineNumber, value[0]);
+            }
+        }
+
+        @Override
+        protected boolean supportsParallelProcessing() {
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("textFile", ".txt");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private void writeFile(String... lineSeparators) throws IOException {
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("// alias = test\r\n");
+            writer.write("\n");
+            writer.write("// dataSetFormat = test\n");
+            for (int i = 0; i < 300; i++) {
+                String separator = lineSeparators[i % lineSeparators.length];
+                if (i % 7 == 0) {
+                    writer.write("# comment " + i + separator);
+                } else if (i % 5 == 0) {
+                    writer.write(separator);
+                } else {
+                    writer.write("line " + i + "\tvalue" + separator);
+                }
+            }
+            // last line without terminator
+            writer.write("last");
+        }
+    }
+
+    private List<String> parse(int parallelism, boolean skipEmptyLines)
+            throws IOException {
+        RecordingParser p = new RecordingParser(file.getAbsolutePath(),
+                skipEmptyLines);
+        p.setParallelism(parallelism);
+        p.process();
+        List<String> result = new ArrayList<String>();
+        long expectedNumber = 0;
+        for (Map.Entry<Long, String> e : p.lines.entrySet()) {
+            // the line numbers are consecutive
+            assertEquals(expectedNumber++, (long) e.getKey());
+            result.add(e.getValue());
+        }
+        return result;
+    }
+
+    private void assertChunkedLikeSequential() throws IOException {
+        for (boolean skipEmptyLines : new boolean[]{true, false}) {
+            List<String> sequential = parse(1, skipEmptyLines);
+            for (int parallelism : new int[]{2, 3, 7, 64}) {
+                assertEquals(sequential, parse(parallelism, skipEmptyLines));
+            }
+        }
+    }
+
+    @Test
+    public void testChunkedLikeSequential() throws IOException {
+        writeFile("\n");
+        assertChunkedLikeSequential();
+
+        List<String> lines = parse(1, true);
+        assertEquals("line 1\tvalue", lines.get(0));
+        assertEquals("last", lines.get(lines.size() - 1));
+        for (String line : lines) {
+            assertFalse(line.isEmpty() || line.startsWith("#"));
+        }
+    }
+
+    @Test
+    public void testChunkedLikeSequentialWindowsLineBreaks() throws IOException {
+        writeFile("\r\n");
+        assertChunkedLikeSequential();
+    }
+
+    @Test
+    public void testChunkedLikeSequentialMixedLineBreaks() throws IOException {
+        writeFile("\r\n", "\r", "\n");
+        assertChunkedLikeSequential();
+        for (String line : parse(5, false)) {
+            assertFalse(line.contains("\r") || line.contains("\n"));
+        }
+    }
+}